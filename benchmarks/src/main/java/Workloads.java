@@ -0,0 +1,361 @@
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Cargas de trabalho das medições JMH (ver desempenho.Simulador). O simulador está no pacote padrão, que
+// classes de um pacote nomeado não podem importar, e o JMH não aceita medições no pacote padrão: esta classe
+// fica do lado do simulador e expõe só métodos estáticos com tipos do JDK, alcançados por MethodHandles.
+// Os sistemas são montados sem rastro, sem console do SO e com o console de E/S síncrono (sem thread).
+
+public class Workloads {
+
+    // Programas de Programs.progs que não fazem E/S
+    public static final String[] PROGRAMAS = {"fatorial", "progMinimo", "fibonacci10", "fibonacci10v2", "PB", "PC"};
+
+    // Laços de uma classe de instrução cada (ver laco)
+    public static final String[] CLASSES = {"aritmetica", "memoria", "desvio"};
+
+    // estrutura: tabela de páginas (ver PageTable); modo: demanda (decodificação sob demanda), predecodificado
+    // ou compilado (blocos quentes em bytecode)
+    public static Object sistema(int tamMemVirtual, int tamMemFisica, int tamPag, String politica, String estrutura,
+            String modo) {
+        Sistema s = new Sistema(tamMemVirtual, tamMemFisica, tamPag, politica);
+        s.setEstruturaTabela(estrutura);
+        s.hw.cpu.setDebug(false);
+        s.setSaida(null);
+        s.hw.console.setSincrono(true);
+        s.hw.cpu.setPreDecodificado(!modo.equals("demanda"));
+        s.hw.cpu.setCompilacao(modo.equals("compilado") ? 200 : 0);
+        return s;
+    }
+
+    public static void encerra(Object sistema) {
+        ((Sistema) sistema).encerra();
+    }
+
+    // Imagem de um programa de Programs.progs ou de um dos laços de CLASSES, com iteracoes voltas
+    public static Object imagem(Object sistema, String nome, int iteracoes) {
+        Sistema s = (Sistema) sistema;
+        for (String classe : CLASSES) {
+            if (classe.equals(nome)) {
+                return s.progs.imagem(nome, laco(s, nome, iteracoes));
+            }
+        }
+        ProgramImage imagem = s.progs.retrieveProgram(nome);
+        if (imagem == null) {
+            throw new IllegalArgumentException("Programa desconhecido: " + nome);
+        }
+        return imagem;
+    }
+
+    // Executa o programa num processo novo até o fim e devolve as instruções executadas
+    public static long executa(Object sistema, Object imagem, String nome) {
+        Sistema s = (Sistema) sistema;
+        long antes = s.hw.cpu.getInstrucoes();
+        if (s.so.pm.criaProcesso(nome, (ProgramImage) imagem) == null) {
+            throw new IllegalStateException("Sem memória para o processo " + nome);
+        }
+        s.so.pm.executaEmParalelo();
+        s.so.pm.getTerminados().clear();
+        return s.hw.cpu.getInstrucoes() - antes;
+    }
+
+    // Processo parado na CPU 0 com as páginas 0 até paginas - 1 já referenciadas (lidas ou escritas), para
+    // medir a tradução fora do laço da CPU. Devolve a CPU, usada em percorre. As escritas passam pela porta
+    // dos blocos compilados (CPU.escreve), que só existe com o sistema no modo compilado
+    public static Object espaco(Object sistema, int paginas, boolean escrita) {
+        Sistema s = (Sistema) sistema;
+        Sistema.PCB pcb = s.so.pm.criaProcesso("espaco", s.progs.retrieveProgram("progMinimo"));
+        if (pcb == null) {
+            throw new IllegalStateException("Sem memória para o processo");
+        }
+        Sistema.CPU cpu = s.hw.cpu;
+        cpu.restauraContexto(pcb);
+        for (int pagina = 0; pagina < paginas; pagina++) {
+            int endereco = pagina * s.hw.mem.tamPag;
+            if (escrita ? cpu.escreve(endereco, pagina) < 0 : cpu.le(endereco) == BlockCompiler.FALHA) {
+                throw new IllegalStateException("Falha ao referenciar a página " + pagina);
+            }
+        }
+        return cpu;
+    }
+
+    // Endereços aleatórios nas páginas 0 até paginas - 1
+    public static int[] enderecos(int quantos, int paginas, int tamPag, long semente) {
+        Random random = new Random(semente);
+        int[] enderecos = new int[quantos];
+        for (int i = 0; i < quantos; i++) {
+            enderecos[i] = random.nextInt(paginas) * tamPag + random.nextInt(tamPag);
+        }
+        return enderecos;
+    }
+
+    // Lê (ou escreve) cada endereço pela mesma tradução das instruções LDD/STD (TLB, tabela de páginas e
+    // falta de página)
+    public static long percorre(Object cpu, int[] enderecos, boolean escrita) {
+        Sistema.CPU c = (Sistema.CPU) cpu;
+        long soma = 0;
+        if (escrita) {
+            for (int i = 0; i < enderecos.length; i++) {
+                soma += c.escreve(enderecos[i], i);
+            }
+        } else {
+            for (int endereco : enderecos) {
+                soma += c.le(endereco);
+            }
+        }
+        return soma;
+    }
+
+    public static Object memoria(Object sistema, int tamMemFisica, int tamPag) {
+        return ((Sistema) sistema).new Memory(tamMemFisica, tamPag);
+    }
+
+    // Simulação de App: totalEnderecos endereços do gerador, sem imprimir as traduções. Devolve os
+    // endereços traduzidos (os repetidos são ignorados)
+    public static long simula(int tamMemVirtual, int tamMemFisica, int tamPag, String politica, String gerador,
+            long totalEnderecos, long semente) {
+        App app = new App(tamMemVirtual, tamMemFisica, tamPag, politica);
+        app.executa(AddressGenerator.cria(gerador, tamMemVirtual, tamPag, semente), totalEnderecos, null);
+        return app.getTraduzidos();
+    }
+
+    // Quantum do timer (0 desliga) e número de CPUs; com várias CPUs a compilação fica desligada
+    public static void configura(Object sistema, int quantum, int cpus) {
+        Sistema s = (Sistema) sistema;
+        s.hw.cpu.setQuantum(quantum);
+        s.setCpus(cpus);
+    }
+
+    // Cria processos que contam iteracoes voltas e executa todos até o fim; devolve as instruções executadas
+    public static long lacos(Object sistema, int processos, int iteracoes) {
+        Sistema s = (Sistema) sistema;
+        Sistema.Word[] laco = contador(s, iteracoes);
+        for (int i = 0; i < processos; i++) {
+            if (s.so.pm.criaProcesso("laco" + i, laco) == null) {
+                throw new IllegalStateException("Sem memória para o processo laco" + i);
+            }
+        }
+        s.so.pm.executaEmParalelo();
+        s.so.pm.getTerminados().clear();
+        return processos * (2L * iteracoes + 4);
+    }
+
+    // Contadores acumulados do gerente de processos: preempcoes ou roubos (de trabalho entre CPUs)
+    public static long estatistica(Object sistema, String nome) {
+        Sistema s = (Sistema) sistema;
+        switch (nome) {
+            case "preempcoes":
+                return s.so.pm.getPreempcoes();
+            case "roubos":
+                return s.so.pm.getRoubos();
+            default:
+                throw new IllegalArgumentException("Estatística desconhecida: " + nome);
+        }
+    }
+
+    // Grava no arquivo de imagens programas grandes (um STOP seguido de dados distintos) e devolve os mesmos
+    // programas como vetores de Word, para comparar as duas cargas (ver carrega)
+    public static Object gravaProgramas(Object sistema, int programas, int palavras, String arquivo) {
+        Sistema s = (Sistema) sistema;
+        List<Sistema.Word[]> vetores = new ArrayList<>();
+        List<ProgramImage> imagens = new ArrayList<>();
+        for (int p = 0; p < programas; p++) {
+            Sistema.Word[] w = new Sistema.Word[palavras];
+            w[0] = s.new Word(Sistema.Opcode.STOP, -1, -1, -1);
+            for (int i = 1; i < palavras; i++) {
+                w[i] = s.new Word(Sistema.Opcode.DATA, -1, -1, p * palavras + i);
+            }
+            vetores.add(w);
+            imagens.add(s.progs.imagem("p" + p, w));
+        }
+        ProgramImage.grava(Paths.get(arquivo), imagens);
+        return vetores;
+    }
+
+    // Abre o arquivo de imagens: só os cabeçalhos são lidos, as palavras ficam no arquivo mapeado
+    public static Object indice(String arquivo) {
+        return ProgramImage.le(Paths.get(arquivo));
+    }
+
+    // Cria um processo por programa (do índice de um arquivo de imagens ou vetores de Word), executando os
+    // processos em lotes para devolver a memória; devolve quantos foram carregados
+    @SuppressWarnings("unchecked")
+    public static long carrega(Object sistema, Object programas, int lote) {
+        Sistema s = (Sistema) sistema;
+        List<ProgramImage> imagens = programas instanceof Map ? new ArrayList<>(((Map<String, ProgramImage>) programas).values()) : null;
+        List<Sistema.Word[]> vetores = imagens == null ? (List<Sistema.Word[]>) programas : null;
+        int n = imagens != null ? imagens.size() : vetores.size();
+        for (int i = 0; i < n; i++) {
+            if (imagens != null) {
+                s.so.pm.criaProcesso(imagens.get(i).nome(), imagens.get(i));
+            } else {
+                s.so.pm.criaProcesso("p" + i, vetores.get(i));
+            }
+            if ((i + 1) % lote == 0 || i == n - 1) {
+                s.so.pm.executaEmParalelo();
+            }
+        }
+        s.so.pm.getTerminados().clear();
+        return n;
+    }
+
+    // Memória física ocupada por processos com imagens de dados distintas (sem páginas compartilhadas), cada
+    // um parado antes da primeira instrução, um STOP
+    public static Object memoriaCheia(int tamMemFisica, int tamPag, int processos) {
+        Sistema s = (Sistema) sistema(tamMemFisica, tamMemFisica, tamPag, "clock", "plana", "predecodificado");
+        int palavras = tamMemFisica / processos;
+        for (int p = 0; p < processos; p++) {
+            long[] imagem = new long[palavras];
+            imagem[0] = s.hw.mem.compacta(Sistema.Opcode.STOP, -1, -1, -1);
+            for (int i = 1; i < palavras; i++) {
+                imagem[i] = s.hw.mem.compacta(Sistema.Opcode.DATA, -1, -1, p * palavras + i);
+            }
+            if (s.so.pm.criaProcesso("p" + p, ProgramImage.de("p" + p, imagem)) == null) {
+                throw new IllegalStateException("Sem memória para o processo p" + p);
+            }
+        }
+        return s;
+    }
+
+    public static void gravaInstantaneo(Object sistema, String arquivo) {
+        ((Sistema) sistema).gravaInstantaneo(Paths.get(arquivo));
+    }
+
+    // Só recria os metadados e mapeia o arquivo; as páginas vêm sob demanda
+    public static Object restauraInstantaneo(String arquivo) {
+        Sistema s = Sistema.restauraInstantaneo(Paths.get(arquivo));
+        s.hw.cpu.setDebug(false);
+        s.setSaida(null);
+        return s;
+    }
+
+    // Executa os processos restaurados até o fim; devolve as páginas trazidas do instantâneo
+    public static long executaRestaurado(Object sistema) {
+        Sistema s = (Sistema) sistema;
+        s.so.pm.executaEmParalelo();
+        s.so.pm.getTerminados().clear();
+        return s.hw.mem.getTrazidas();
+    }
+
+    // Traz todas as páginas do instantâneo, o que a restauração sob demanda evita; devolve as trazidas
+    public static long trazTodas(Object sistema) {
+        Sistema s = (Sistema) sistema;
+        for (int m = 0; m < s.hw.mem.numMolduras; m++) {
+            s.hw.mem.garante(m);
+        }
+        return s.hw.mem.getTrazidas();
+    }
+
+    // Páginas mapeadas de um espaço virtual grande e esparso: grupos de 64 páginas contíguas espalhados pelo
+    // espaço (como código, pilha e regiões de dados)
+    public static int[] paginasMapeadas(int numPaginas, int paginas, long semente) {
+        Random random = new Random(semente);
+        int[] mapeadas = new int[Math.min(paginas, numPaginas)];
+        for (int i = 0; i < mapeadas.length; i += 64) {
+            int base = random.nextInt(Math.max(1, numPaginas / 64)) * 64;
+            for (int j = i; j < Math.min(mapeadas.length, i + 64); j++) {
+                mapeadas[j] = base + j - i;
+            }
+        }
+        return mapeadas;
+    }
+
+    // quantas páginas sorteadas entre as mapeadas
+    public static int[] sorteia(int[] mapeadas, int quantas, long semente) {
+        Random random = new Random(semente);
+        int[] paginas = new int[quantas];
+        for (int i = 0; i < quantas; i++) {
+            paginas[i] = mapeadas[random.nextInt(mapeadas.length)];
+        }
+        return paginas;
+    }
+
+    // Cria a tabela de páginas da estrutura e mapeia as páginas dadas em molduras sucessivas
+    public static Object tabela(String estrutura, int numPaginas, int numMolduras, int[] mapeadas) {
+        PageTable tp = PageTable.cria(estrutura, numPaginas, numMolduras);
+        for (int i = 0; i < mapeadas.length; i++) {
+            tp.escreve(mapeadas[i], PageTableEntry.mapeada(i % numMolduras));
+        }
+        return tp;
+    }
+
+    public static long consulta(Object tabela, int[] paginas) {
+        PageTable tp = (PageTable) tabela;
+        long soma = 0;
+        for (int pagina : paginas) {
+            soma += tp.le(pagina);
+        }
+        return soma;
+    }
+
+    // Ocupação estimada pela estrutura
+    public static long bytes(Object tabela) {
+        return ((PageTable) tabela).bytes();
+    }
+
+    // Os registradores ficam no intervalo de uma palavra (ver CPU.testOverflow), então iteracoes vai até 32767.
+    // aritmetica: ADD, SUB, ADDI, SUBI, MULT e MOVE; memoria: LDD, STD, LDX e STX sobre dados numa página
+    // separada do código (escritas na página do código desfariam os blocos compilados); desvio: JMP e JMPIGK
+    // tomados, JMPIL e JMPIE não tomados. O controle do laço (SUB e JMPIG) vale para as três
+    private static Sistema.Word[] laco(Sistema s, String classe, int iteracoes) {
+        Sistema.Word[] corpo;
+        int dados = 0;
+        switch (classe) {
+            case "aritmetica":
+                corpo = new Sistema.Word[] {
+                    s.new Word(Sistema.Opcode.ADD, 3, 1, -1),
+                    s.new Word(Sistema.Opcode.SUB, 3, 1, -1),
+                    s.new Word(Sistema.Opcode.ADDI, 4, -1, 3),
+                    s.new Word(Sistema.Opcode.SUBI, 4, -1, 3),
+                    s.new Word(Sistema.Opcode.MULT, 5, 1, -1),
+                    s.new Word(Sistema.Opcode.MOVE, 6, 5, -1)
+                };
+                break;
+            case "memoria":
+                dados = Math.max(s.hw.mem.tamPag, 64);
+                corpo = new Sistema.Word[] {
+                    s.new Word(Sistema.Opcode.LDD, 4, -1, dados),
+                    s.new Word(Sistema.Opcode.STD, 4, -1, dados + 1),
+                    s.new Word(Sistema.Opcode.LDX, 5, 3, -1),
+                    s.new Word(Sistema.Opcode.STX, 3, 5, -1)
+                };
+                break;
+            default:
+                corpo = new Sistema.Word[] {
+                    s.new Word(Sistema.Opcode.JMP, -1, -1, 5),
+                    s.new Word(Sistema.Opcode.JMPIGK, -1, 1, 6),
+                    s.new Word(Sistema.Opcode.JMPIL, 2, 0, -1),
+                    s.new Word(Sistema.Opcode.JMPIE, 2, 0, -1)
+                };
+        }
+        // 0: r0 = iterações, 1: r1 = 1, 2: r2 = início do laço, 3: r3 = endereço dos dados
+        Sistema.Word[] programa = new Sistema.Word[dados > 0 ? dados + 2 : corpo.length + 7];
+        programa[0] = s.new Word(Sistema.Opcode.LDI, 0, -1, iteracoes);
+        programa[1] = s.new Word(Sistema.Opcode.LDI, 1, -1, 1);
+        programa[2] = s.new Word(Sistema.Opcode.LDI, 2, -1, 4);
+        programa[3] = s.new Word(Sistema.Opcode.LDI, 3, -1, dados);
+        System.arraycopy(corpo, 0, programa, 4, corpo.length);
+        programa[4 + corpo.length] = s.new Word(Sistema.Opcode.SUB, 0, 1, -1);
+        programa[5 + corpo.length] = s.new Word(Sistema.Opcode.JMPIG, 2, 0, -1);
+        programa[6 + corpo.length] = s.new Word(Sistema.Opcode.STOP, -1, -1, -1);
+        for (int i = 7 + corpo.length; i < programa.length; i++) {
+            programa[i] = s.new Word(Sistema.Opcode.DATA, -1, -1, 0);
+        }
+        return programa;
+    }
+
+    // r0 = iterações; repete r0 -= 1 até zerar
+    private static Sistema.Word[] contador(Sistema s, int iteracoes) {
+        return new Sistema.Word[] {
+            s.new Word(Sistema.Opcode.LDI, 0, -1, iteracoes),
+            s.new Word(Sistema.Opcode.LDI, 1, -1, 1),
+            s.new Word(Sistema.Opcode.LDI, 2, -1, 3),
+            s.new Word(Sistema.Opcode.SUB, 0, 1, -1),
+            s.new Word(Sistema.Opcode.JMPIG, 2, 0, -1),
+            s.new Word(Sistema.Opcode.STOP, -1, -1, -1)
+        };
+    }
+}
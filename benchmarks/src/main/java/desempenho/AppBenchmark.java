@@ -0,0 +1,44 @@
+package desempenho;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Simulação de paginação de App (laço de alocação sobre endereços aleatórios), incluindo a criação da tabela
+// de páginas e das molduras. Memória física com 1/4 do espaço virtual; o tempo é por endereço gerado
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class AppBenchmark {
+
+    static final int ENDERECOS = 1 << 16;
+
+    @Param({"65536", "1048576", "16777216"})
+    public int tamMemVirtual;
+
+    @Param({"uniforme", "zipf", "quente"})
+    public String gerador;
+
+    @Param({"clock"})
+    public String politica;
+
+    @Benchmark
+    @OperationsPerInvocation(ENDERECOS)
+    public long simula() {
+        return Simulador.simula(tamMemVirtual, tamMemVirtual / 4, 256, politica, gerador, ENDERECOS, 1);
+    }
+}
@@ -0,0 +1,70 @@
+package desempenho;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Vazão do interpretador (CPU.run) sem debug: cada operação cria um processo e o executa até o STOP.
+// Os programas de Programs.progs são curtos, então medem também a criação e o término do processo; os
+// laços aritmetica, memoria e desvio (ver Workloads) isolam uma classe de instrução. O contador auxiliar
+// instrucoes dá as instruções executadas por milissegundo
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class InterpreterBenchmark {
+
+    @Param({"fatorial", "fibonacci10", "fibonacci10v2", "PB", "PC", "aritmetica", "memoria", "desvio"})
+    public String programa;
+
+    @Param({"demanda", "predecodificado", "compilado"})
+    public String modo;
+
+    private Object sistema;
+    private Object imagem;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Instrucoes {
+        public long instrucoes;
+
+        @Setup(Level.Iteration)
+        public void zera() {
+            instrucoes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        sistema = Simulador.sistema(1024, 1024, 16, "clock", "plana", modo);
+        imagem = Simulador.imagem(sistema, programa, 10000);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerra() {
+        Simulador.encerra(sistema);
+    }
+
+    @Benchmark
+    public long executa(Instrucoes contagem) {
+        long n = Simulador.executa(sistema, imagem, programa);
+        contagem.instrucoes += n;
+        return n;
+    }
+}
@@ -0,0 +1,28 @@
+package desempenho;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Uso: java -jar target/benchmarks.jar [opções do JMH] [expressão das medições]
+//   mvn -B package (no diretório benchmarks) gera o jar com o simulador (../codigo) e as medições.
+//   Sem -rf, os resultados vão em JSON para jmh-resultados.json, para comparar execuções entre mudanças.
+//   Exemplos: java -jar target/benchmarks.jar Translation -p tlb=falta
+//             java -jar target/benchmarks.jar -f 1 -wi 1 -i 3 Interpreter -p modo=compilado
+//             java -jar target/benchmarks.jar -l     (lista as medições)
+
+public class Main {
+
+    public static void main(String[] args) throws Exception {
+        List<String> opcoes = new ArrayList<>(Arrays.asList(args));
+        if (!opcoes.contains("-rf")) {
+            opcoes.add(0, "json");
+            opcoes.add(0, "-rf");
+            if (!opcoes.contains("-rff")) {
+                opcoes.add(0, "jmh-resultados.json");
+                opcoes.add(0, "-rff");
+            }
+        }
+        org.openjdk.jmh.Main.main(opcoes.toArray(new String[0]));
+    }
+}
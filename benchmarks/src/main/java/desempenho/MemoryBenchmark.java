@@ -0,0 +1,52 @@
+package desempenho;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Construção da memória física (Sistema.Memory): alocação e preenchimento do vetor de palavras compactadas,
+// de 512 KiB a 128 MiB
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class MemoryBenchmark {
+
+    @Param({"65536", "1048576", "16777216"})
+    public int tamMemFisica;
+
+    @Param({"16", "1024"})
+    public int tamPag;
+
+    private Object sistema;
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        sistema = Simulador.sistema(1024, 1024, 16, "clock", "plana", "demanda"); // Só para instanciar Memory
+    }
+
+    @TearDown(Level.Trial)
+    public void encerra() {
+        Simulador.encerra(sistema);
+    }
+
+    @Benchmark
+    public Object constroi() {
+        return Simulador.memoria(sistema, tamMemFisica, tamPag);
+    }
+}
@@ -0,0 +1,64 @@
+package desempenho;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Tratamento de faltas de página com a memória física cheia: o processo usa um espaço quatro vezes maior
+// que a memória física, todas as molduras já estão ocupadas e os acessos aleatórios pelo espaço inteiro
+// faltam em cerca de 3/4 das vezes, cada falta com uma substituição (e, nas escritas, com a página
+// vítima suja gravada no swap)
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class PageFaultBenchmark {
+
+    static final int ENDERECOS = 1 << 12;
+    static final int TAM_PAG = 256;
+    static final int MOLDURAS = 256;
+
+    @Param({"fifo", "lru", "clock", "nfu"})
+    public String politica;
+
+    @Param({"false", "true"})
+    public boolean escrita;
+
+    private Object sistema;
+    private Object cpu;
+    private int[] enderecos;
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        sistema = Simulador.sistema(4 * MOLDURAS * TAM_PAG, MOLDURAS * TAM_PAG, TAM_PAG, politica, "plana", "compilado");
+        cpu = Simulador.espaco(sistema, 4 * MOLDURAS, escrita);
+        enderecos = Simulador.enderecos(ENDERECOS, 4 * MOLDURAS, TAM_PAG, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerra() {
+        Simulador.encerra(sistema);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENDERECOS)
+    public long trataFaltas() {
+        return Simulador.percorre(cpu, enderecos, escrita);
+    }
+}
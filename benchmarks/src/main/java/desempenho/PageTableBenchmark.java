@@ -0,0 +1,71 @@
+package desempenho;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Estruturas de tabela de páginas (PageTable) num espaço virtual grande e esparso: 2^26 páginas, das quais
+// 65536 mapeadas em grupos de 64 páginas contíguas espalhados pelo espaço (como código, pilha e regiões de
+// dados). preenche mede a criação e o preenchimento (o contador auxiliar bytes dá a ocupação estimada pela
+// estrutura); consulta, o custo de uma leitura de entrada de página mapeada, em ordem aleatória
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class PageTableBenchmark {
+
+    static final int PAGINAS_VIRTUAIS = 1 << 26;
+    static final int MAPEADAS = 1 << 16;
+    static final int MOLDURAS = MAPEADAS << 1;
+    static final int CONSULTAS = 1 << 16;
+
+    @Param({"plana", "radix2", "radix3", "hash"})
+    public String estrutura;
+
+    private int[] mapeadas;
+    private int[] consultas;
+    private Object tabela;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Ocupacao {
+        public long bytes;
+    }
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        mapeadas = Simulador.paginasMapeadas(PAGINAS_VIRTUAIS, MAPEADAS, 1);
+        consultas = Simulador.sorteia(mapeadas, CONSULTAS, 2);
+        tabela = Simulador.tabela(estrutura, PAGINAS_VIRTUAIS, MOLDURAS, mapeadas);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object preenche(Ocupacao ocupacao) {
+        Object t = Simulador.tabela(estrutura, PAGINAS_VIRTUAIS, MOLDURAS, mapeadas);
+        ocupacao.bytes = Simulador.bytes(t);
+        return t;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(CONSULTAS)
+    public long consulta() {
+        return Simulador.consulta(tabela, consultas);
+    }
+}
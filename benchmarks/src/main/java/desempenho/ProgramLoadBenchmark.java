@@ -0,0 +1,77 @@
+package desempenho;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Carga de programas: 2000 programas de 4096 palavras (um STOP seguido de dados distintos), gravados num
+// arquivo de imagens (ProgramImage). indice mede a abertura do arquivo (só cabeçalhos); cargaDoArquivo e
+// cargaDeVetores criam um processo por programa, a partir do arquivo ou dos mesmos programas como vetores
+// de Word, executando os processos em lotes de 32 para devolver a memória
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class ProgramLoadBenchmark {
+
+    static final int PROGRAMAS = 2000;
+    static final int PALAVRAS = 4096;
+    static final int LOTE = 32;
+
+    private Path arquivo;
+    private Object sistema;
+    private Object vetores;
+    private Object indice;
+
+    @Setup(Level.Trial)
+    public void prepara() throws IOException {
+        arquivo = Files.createTempFile("programas", ".sox");
+        sistema = Simulador.sistema(PALAVRAS, PALAVRAS * LOTE, 16, "clock", "plana", "predecodificado");
+        vetores = Simulador.gravaProgramas(sistema, PROGRAMAS, PALAVRAS, arquivo.toString());
+        indice = Simulador.indice(arquivo.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void encerra() {
+        Simulador.encerra(sistema);
+        indice = null;
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public Object indice() {
+        return Simulador.indice(arquivo.toString());
+    }
+
+    @Benchmark
+    public long cargaDoArquivo() {
+        return Simulador.carrega(sistema, indice, LOTE);
+    }
+
+    @Benchmark
+    public long cargaDeVetores() {
+        return Simulador.carrega(sistema, vetores, LOTE);
+    }
+}
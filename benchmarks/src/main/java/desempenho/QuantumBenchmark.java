@@ -0,0 +1,72 @@
+package desempenho;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Custo da preempção por timer: cada operação executa 16 processos com laços longos (quase 1 milhão de
+// instruções) com quanta cada vez menores; 0 desliga o timer. Os contadores auxiliares dão as instruções
+// e as preempções por milissegundo
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class QuantumBenchmark {
+
+    static final int PROCESSOS = 16;
+    static final int ITERACOES = 30000;
+
+    @Param({"0", "10000", "1000", "100", "20", "5", "1"})
+    public int quantum;
+
+    private Object sistema;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Contagem {
+        public long instrucoes;
+        public long preempcoes;
+
+        @Setup(Level.Iteration)
+        public void zera() {
+            instrucoes = 0;
+            preempcoes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        sistema = Simulador.sistema(1024, 1024, 16, "clock", "plana", "predecodificado");
+        Simulador.configura(sistema, quantum, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerra() {
+        Simulador.encerra(sistema);
+    }
+
+    @Benchmark
+    public long executa(Contagem contagem) {
+        long antes = Simulador.estatistica(sistema, "preempcoes");
+        long n = Simulador.lacos(sistema, PROCESSOS, ITERACOES);
+        contagem.instrucoes += n;
+        contagem.preempcoes += Simulador.estatistica(sistema, "preempcoes") - antes;
+        return n;
+    }
+}
@@ -0,0 +1,269 @@
+package desempenho;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+// Acesso às cargas de trabalho do pacote padrão (Workloads). Os MethodHandle ficam em campos static final,
+// que o JIT trata como constantes: invokeExact vira uma chamada direta, sem o custo de reflexão nas medições
+
+final class Simulador {
+
+    private static final MethodHandle SISTEMA, ENCERRA, IMAGEM, EXECUTA, ESPACO, ENDERECOS, PERCORRE, MEMORIA, SIMULA,
+            CONFIGURA, LACOS, ESTATISTICA, GRAVA_PROGRAMAS, INDICE, CARREGA, MEMORIA_CHEIA, GRAVA_INSTANTANEO,
+            RESTAURA_INSTANTANEO, EXECUTA_RESTAURADO, TRAZ_TODAS, PAGINAS_MAPEADAS, SORTEIA, TABELA, CONSULTA, BYTES;
+
+    static {
+        try {
+            Class<?> cargas = Class.forName("Workloads");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            SISTEMA = lookup.findStatic(cargas, "sistema",
+                    MethodType.methodType(Object.class, int.class, int.class, int.class, String.class, String.class, String.class));
+            ENCERRA = lookup.findStatic(cargas, "encerra", MethodType.methodType(void.class, Object.class));
+            IMAGEM = lookup.findStatic(cargas, "imagem", MethodType.methodType(Object.class, Object.class, String.class, int.class));
+            EXECUTA = lookup.findStatic(cargas, "executa", MethodType.methodType(long.class, Object.class, Object.class, String.class));
+            ESPACO = lookup.findStatic(cargas, "espaco", MethodType.methodType(Object.class, Object.class, int.class, boolean.class));
+            ENDERECOS = lookup.findStatic(cargas, "enderecos",
+                    MethodType.methodType(int[].class, int.class, int.class, int.class, long.class));
+            PERCORRE = lookup.findStatic(cargas, "percorre", MethodType.methodType(long.class, Object.class, int[].class, boolean.class));
+            MEMORIA = lookup.findStatic(cargas, "memoria", MethodType.methodType(Object.class, Object.class, int.class, int.class));
+            SIMULA = lookup.findStatic(cargas, "simula", MethodType.methodType(long.class,
+                    int.class, int.class, int.class, String.class, String.class, long.class, long.class));
+            CONFIGURA = lookup.findStatic(cargas, "configura", MethodType.methodType(void.class, Object.class, int.class, int.class));
+            LACOS = lookup.findStatic(cargas, "lacos", MethodType.methodType(long.class, Object.class, int.class, int.class));
+            ESTATISTICA = lookup.findStatic(cargas, "estatistica", MethodType.methodType(long.class, Object.class, String.class));
+            GRAVA_PROGRAMAS = lookup.findStatic(cargas, "gravaProgramas",
+                    MethodType.methodType(Object.class, Object.class, int.class, int.class, String.class));
+            INDICE = lookup.findStatic(cargas, "indice", MethodType.methodType(Object.class, String.class));
+            CARREGA = lookup.findStatic(cargas, "carrega", MethodType.methodType(long.class, Object.class, Object.class, int.class));
+            MEMORIA_CHEIA = lookup.findStatic(cargas, "memoriaCheia", MethodType.methodType(Object.class, int.class, int.class, int.class));
+            GRAVA_INSTANTANEO = lookup.findStatic(cargas, "gravaInstantaneo", MethodType.methodType(void.class, Object.class, String.class));
+            RESTAURA_INSTANTANEO = lookup.findStatic(cargas, "restauraInstantaneo", MethodType.methodType(Object.class, String.class));
+            EXECUTA_RESTAURADO = lookup.findStatic(cargas, "executaRestaurado", MethodType.methodType(long.class, Object.class));
+            TRAZ_TODAS = lookup.findStatic(cargas, "trazTodas", MethodType.methodType(long.class, Object.class));
+            PAGINAS_MAPEADAS = lookup.findStatic(cargas, "paginasMapeadas",
+                    MethodType.methodType(int[].class, int.class, int.class, long.class));
+            SORTEIA = lookup.findStatic(cargas, "sorteia", MethodType.methodType(int[].class, int[].class, int.class, long.class));
+            TABELA = lookup.findStatic(cargas, "tabela",
+                    MethodType.methodType(Object.class, String.class, int.class, int.class, int[].class));
+            CONSULTA = lookup.findStatic(cargas, "consulta", MethodType.methodType(long.class, Object.class, int[].class));
+            BYTES = lookup.findStatic(cargas, "bytes", MethodType.methodType(long.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Simulador() {
+    }
+
+    static Object sistema(int tamMemVirtual, int tamMemFisica, int tamPag, String politica, String estrutura, String modo) {
+        try {
+            return (Object) SISTEMA.invokeExact(tamMemVirtual, tamMemFisica, tamPag, politica, estrutura, modo);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static void encerra(Object sistema) {
+        try {
+            ENCERRA.invokeExact(sistema);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static Object imagem(Object sistema, String nome, int iteracoes) {
+        try {
+            return (Object) IMAGEM.invokeExact(sistema, nome, iteracoes);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static long executa(Object sistema, Object imagem, String nome) {
+        try {
+            return (long) EXECUTA.invokeExact(sistema, imagem, nome);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static Object espaco(Object sistema, int paginas, boolean escrita) {
+        try {
+            return (Object) ESPACO.invokeExact(sistema, paginas, escrita);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static int[] enderecos(int quantos, int paginas, int tamPag, long semente) {
+        try {
+            return (int[]) ENDERECOS.invokeExact(quantos, paginas, tamPag, semente);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static long percorre(Object cpu, int[] enderecos, boolean escrita) {
+        try {
+            return (long) PERCORRE.invokeExact(cpu, enderecos, escrita);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static Object memoria(Object sistema, int tamMemFisica, int tamPag) {
+        try {
+            return (Object) MEMORIA.invokeExact(sistema, tamMemFisica, tamPag);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static long simula(int tamMemVirtual, int tamMemFisica, int tamPag, String politica, String gerador,
+            long totalEnderecos, long semente) {
+        try {
+            return (long) SIMULA.invokeExact(tamMemVirtual, tamMemFisica, tamPag, politica, gerador, totalEnderecos, semente);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static void configura(Object sistema, int quantum, int cpus) {
+        try {
+            CONFIGURA.invokeExact(sistema, quantum, cpus);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static long lacos(Object sistema, int processos, int iteracoes) {
+        try {
+            return (long) LACOS.invokeExact(sistema, processos, iteracoes);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static long estatistica(Object sistema, String nome) {
+        try {
+            return (long) ESTATISTICA.invokeExact(sistema, nome);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static Object gravaProgramas(Object sistema, int programas, int palavras, String arquivo) {
+        try {
+            return (Object) GRAVA_PROGRAMAS.invokeExact(sistema, programas, palavras, arquivo);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static Object indice(String arquivo) {
+        try {
+            return (Object) INDICE.invokeExact(arquivo);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static long carrega(Object sistema, Object programas, int lote) {
+        try {
+            return (long) CARREGA.invokeExact(sistema, programas, lote);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static Object memoriaCheia(int tamMemFisica, int tamPag, int processos) {
+        try {
+            return (Object) MEMORIA_CHEIA.invokeExact(tamMemFisica, tamPag, processos);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static void gravaInstantaneo(Object sistema, String arquivo) {
+        try {
+            GRAVA_INSTANTANEO.invokeExact(sistema, arquivo);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static Object restauraInstantaneo(String arquivo) {
+        try {
+            return (Object) RESTAURA_INSTANTANEO.invokeExact(arquivo);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static long executaRestaurado(Object sistema) {
+        try {
+            return (long) EXECUTA_RESTAURADO.invokeExact(sistema);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static long trazTodas(Object sistema) {
+        try {
+            return (long) TRAZ_TODAS.invokeExact(sistema);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static int[] paginasMapeadas(int numPaginas, int paginas, long semente) {
+        try {
+            return (int[]) PAGINAS_MAPEADAS.invokeExact(numPaginas, paginas, semente);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static int[] sorteia(int[] mapeadas, int quantas, long semente) {
+        try {
+            return (int[]) SORTEIA.invokeExact(mapeadas, quantas, semente);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static Object tabela(String estrutura, int numPaginas, int numMolduras, int[] mapeadas) {
+        try {
+            return (Object) TABELA.invokeExact(estrutura, numPaginas, numMolduras, mapeadas);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static long consulta(Object tabela, int[] paginas) {
+        try {
+            return (long) CONSULTA.invokeExact(tabela, paginas);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    static long bytes(Object tabela) {
+        try {
+            return (long) BYTES.invokeExact(tabela);
+        } catch (Throwable t) {
+            throw propaga(t);
+        }
+    }
+
+    private static RuntimeException propaga(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t);
+    }
+}
@@ -0,0 +1,73 @@
+package desempenho;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Multiprocessamento: cada operação executa os mesmos 64 processos de laço com cada vez mais CPUs, sem
+// compilação de blocos (desligada com várias CPUs e, para comparar, também com uma). Sem faltas de página
+// depois da carga, só a preempção por timer passa pela trava do núcleo: a vazão (contador instrucoes, por
+// milissegundo) deve crescer quase linearmente até o número de processadores da máquina
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class SmpBenchmark {
+
+    static final int PROCESSOS = 64;
+    static final int ITERACOES = 30000;
+
+    @Param({"1", "2", "4", "8"})
+    public int cpus;
+
+    private Object sistema;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Contagem {
+        public long instrucoes;
+        public long roubos;
+
+        @Setup(Level.Iteration)
+        public void zera() {
+            instrucoes = 0;
+            roubos = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        sistema = Simulador.sistema(1024, 1024, 16, "clock", "plana", "predecodificado");
+        Simulador.configura(sistema, 100, cpus);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerra() {
+        Simulador.encerra(sistema);
+    }
+
+    @Benchmark
+    public long executa(Contagem contagem) {
+        long antes = Simulador.estatistica(sistema, "roubos");
+        long n = Simulador.lacos(sistema, PROCESSOS, ITERACOES);
+        contagem.instrucoes += n;
+        contagem.roubos += Simulador.estatistica(sistema, "roubos") - antes;
+        return n;
+    }
+}
@@ -0,0 +1,120 @@
+package desempenho;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Instantâneos: a memória física é ocupada por 8 processos com imagens de dados distintas (sem páginas
+// compartilhadas) e gravada. A restauração só recria os metadados e mapeia o arquivo (compare com novo, um
+// Sistema vazio do mesmo tamanho); a execução seguinte traz só as páginas que os processos usam (cada um
+// termina na primeira instrução), e trazTodas mostra o custo que a restauração sob demanda evita
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class SnapshotBenchmark {
+
+    static final int PROCESSOS = 8;
+
+    @Param({"1048576", "16777216"})
+    public int tamMemFisica;
+
+    @Param({"1024"})
+    public int tamPag;
+
+    private Path arquivo;
+    private Object sistema;
+
+    // Sistema criado pela medição e encerrado fora dela
+    @State(Scope.Thread)
+    public static class Aberto {
+        Object sistema;
+
+        @TearDown(Level.Invocation)
+        public void encerra() {
+            if (sistema != null) {
+                Simulador.encerra(sistema);
+                sistema = null;
+            }
+        }
+    }
+
+    // Sistema restaurado do instantâneo antes de cada operação
+    @State(Scope.Thread)
+    public static class Restaurado {
+        Object sistema;
+
+        @Setup(Level.Invocation)
+        public void restaura(SnapshotBenchmark b) {
+            sistema = Simulador.restauraInstantaneo(b.arquivo.toString());
+        }
+
+        @TearDown(Level.Invocation)
+        public void encerra() {
+            Simulador.encerra(sistema);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void prepara() throws IOException {
+        arquivo = Files.createTempFile("instantaneo", ".soxs");
+        sistema = Simulador.memoriaCheia(tamMemFisica, tamPag, PROCESSOS);
+        Simulador.gravaInstantaneo(sistema, arquivo.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void encerra() {
+        Simulador.encerra(sistema);
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public void grava() {
+        Simulador.gravaInstantaneo(sistema, arquivo.toString());
+    }
+
+    @Benchmark
+    public Object restaura(Aberto a) {
+        a.sistema = Simulador.restauraInstantaneo(arquivo.toString());
+        return a.sistema;
+    }
+
+    @Benchmark
+    public Object novo(Aberto a) {
+        a.sistema = Simulador.sistema(tamMemFisica, tamMemFisica, tamPag, "clock", "plana", "predecodificado");
+        return a.sistema;
+    }
+
+    @Benchmark
+    public long executaRestaurado(Restaurado r) {
+        return Simulador.executaRestaurado(r.sistema);
+    }
+
+    @Benchmark
+    public long trazTodas(Restaurado r) {
+        return Simulador.trazTodas(r.sistema);
+    }
+}
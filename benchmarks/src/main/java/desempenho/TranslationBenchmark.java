@@ -0,0 +1,67 @@
+package desempenho;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Tradução de endereços (traduzEndereco, pela mesma porta de LDD/STD) com todas as páginas mapeadas.
+// acerto: endereços em 32 páginas, que cabem na TLB de 64 entradas; falta: endereços em todas as 4096
+// páginas do processo, quase sempre fora da TLB, resolvidos pela tabela de páginas (sem falta de página).
+// Escritas sobre páginas já sujas seguem o caminho rápido da TLB
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class TranslationBenchmark {
+
+    static final int ENDERECOS = 1 << 14;
+    static final int TAM_PAG = 256;
+    static final int PAGINAS = 4096;
+
+    @Param({"acerto", "falta"})
+    public String tlb;
+
+    @Param({"plana", "radix2", "hash"})
+    public String tabela;
+
+    @Param({"false", "true"})
+    public boolean escrita;
+
+    private Object sistema;
+    private Object cpu;
+    private int[] enderecos;
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        sistema = Simulador.sistema(PAGINAS * TAM_PAG, PAGINAS * TAM_PAG, TAM_PAG, "clock", tabela, "compilado");
+        cpu = Simulador.espaco(sistema, PAGINAS, escrita);
+        enderecos = Simulador.enderecos(ENDERECOS, tlb.equals("acerto") ? 32 : PAGINAS, TAM_PAG, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerra() {
+        Simulador.encerra(sistema);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENDERECOS)
+    public long traduz() {
+        return Simulador.percorre(cpu, enderecos, escrita);
+    }
+}
@@ -0,0 +1,176 @@
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+// Gerador de endereços virtuais para as simulações do App, um endereço por chamada, sem materializar a
+// sequência. Todos os geradores usam só tipos primitivos e memória O(páginas) no máximo (Zipf).
+// Especificação textual, usada na linha de comando (cria):
+//   uniforme                    endereços uniformes em [0, tamMemVirtual)
+//   sequencial                  0, 1, 2, ... (voltando ao início)
+//   espacado:passo              0, passo, 2 * passo, ... (módulo tamMemVirtual)
+//   zipf:s                      página de posto k com probabilidade proporcional a 1 / k^s
+//   quente:fracao:probabilidade fração das páginas recebe a probabilidade dada dos acessos
+
+public interface AddressGenerator extends IntSupplier {
+
+    String nome();
+
+    static AddressGenerator cria(String especificacao, int tamMemVirtual, int tamPag, long semente) {
+        String[] partes = especificacao.toLowerCase().split(":");
+        Random random = new Random(semente);
+        switch (partes[0]) {
+            case "uniforme":
+                return new Uniforme(tamMemVirtual, random);
+            case "sequencial":
+                return new Espacado(tamMemVirtual, 1);
+            case "espacado":
+                return new Espacado(tamMemVirtual, partes.length > 1 ? Integer.parseInt(partes[1]) : tamPag);
+            case "zipf":
+                return new Zipf(tamMemVirtual, tamPag, partes.length > 1 ? Double.parseDouble(partes[1]) : 1.0, random);
+            case "quente":
+                return new ConjuntoQuente(tamMemVirtual, tamPag, partes.length > 1 ? Double.parseDouble(partes[1]) : 0.1,
+                        partes.length > 2 ? Double.parseDouble(partes[2]) : 0.9, random);
+            default:
+                throw new IllegalArgumentException("Gerador de endereços desconhecido: " + especificacao);
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------
+
+    final class Uniforme implements AddressGenerator {
+        private final int tamMemVirtual;
+        private final Random random;
+
+        public Uniforme(int tamMemVirtual, Random random) {
+            this.tamMemVirtual = tamMemVirtual;
+            this.random = random;
+        }
+
+        @Override
+        public int getAsInt() {
+            return random.nextInt(tamMemVirtual);
+        }
+
+        @Override
+        public String nome() {
+            return "uniforme";
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------
+    // Sequencial (passo 1) ou espaçado: percorre o espaço com passo fixo; ao dar a volta, começa do
+    // deslocamento seguinte, para que passos que dividem o tamanho também cubram todos os endereços
+
+    final class Espacado implements AddressGenerator {
+        private final int tamMemVirtual;
+        private final int passo;
+        private long atual;
+        private int inicio;
+
+        public Espacado(int tamMemVirtual, int passo) {
+            this.tamMemVirtual = tamMemVirtual;
+            this.passo = Math.max(1, Math.min(passo, tamMemVirtual));
+        }
+
+        @Override
+        public int getAsInt() {
+            int endereco = (int) atual;
+            atual += passo;
+            if (atual >= tamMemVirtual) {
+                inicio = (inicio + 1) % passo;
+                atual = inicio;
+            }
+            return endereco;
+        }
+
+        @Override
+        public String nome() {
+            return passo == 1 ? "sequencial" : "espacado:" + passo;
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------
+    // Zipf sobre páginas: o posto é sorteado por busca binária na distribuição acumulada e espalhado pelo
+    // espaço com uma permutação multiplicativa (número de páginas é potência de 2); o deslocamento na
+    // página é uniforme
+
+    final class Zipf implements AddressGenerator {
+        private final double[] acumulada;
+        private final int tamPag;
+        private final int mascaraPaginas;
+        private final double s;
+        private final Random random;
+
+        public Zipf(int tamMemVirtual, int tamPag, double s, Random random) {
+            int paginas = tamMemVirtual / tamPag;
+            this.tamPag = tamPag;
+            this.mascaraPaginas = paginas - 1;
+            this.s = s;
+            this.random = random;
+            acumulada = new double[paginas];
+            double soma = 0;
+            for (int k = 0; k < paginas; k++) {
+                soma += 1.0 / Math.pow(k + 1, s);
+                acumulada[k] = soma;
+            }
+            for (int k = 0; k < paginas; k++) {
+                acumulada[k] /= soma;
+            }
+        }
+
+        @Override
+        public int getAsInt() {
+            double u = random.nextDouble();
+            int lo = 0;
+            int hi = acumulada.length - 1;
+            while (lo < hi) {
+                int meio = (lo + hi) >>> 1;
+                if (acumulada[meio] < u) {
+                    lo = meio + 1;
+                } else {
+                    hi = meio;
+                }
+            }
+            int pagina = (lo * 0x9E3779B1) & mascaraPaginas; // Multiplicador ímpar: bijeção módulo 2^n
+            return pagina * tamPag + random.nextInt(tamPag);
+        }
+
+        @Override
+        public String nome() {
+            return "zipf:" + s;
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------
+    // Conjunto quente: as primeiras fracao * páginas recebem probabilidade dos acessos, o resto do espaço
+    // recebe os demais, ambos uniformes
+
+    final class ConjuntoQuente implements AddressGenerator {
+        private final int tamMemVirtual;
+        private final int tamQuente;
+        private final double fracao;
+        private final double probabilidade;
+        private final Random random;
+
+        public ConjuntoQuente(int tamMemVirtual, int tamPag, double fracao, double probabilidade, Random random) {
+            this.tamMemVirtual = tamMemVirtual;
+            int paginasQuentes = Math.max(1, (int) (tamMemVirtual / tamPag * fracao));
+            this.tamQuente = Math.min(tamMemVirtual, paginasQuentes * tamPag);
+            this.fracao = fracao;
+            this.probabilidade = probabilidade;
+            this.random = random;
+        }
+
+        @Override
+        public int getAsInt() {
+            if (tamQuente == tamMemVirtual || random.nextDouble() < probabilidade) {
+                return random.nextInt(tamQuente);
+            }
+            return tamQuente + random.nextInt(tamMemVirtual - tamQuente);
+        }
+
+        @Override
+        public String nome() {
+            return "quente:" + fracao + ":" + probabilidade;
+        }
+    }
+}
@@ -1,122 +1,293 @@
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Random;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Locale;
 import java.util.Scanner;
-import java.util.stream.Collectors;
 
 public class App {
-    private static int[] tabelaDePaginas;
-    private static int[] molduras;
-    private static int tamPag;
-    private static int tamMemVirtual;
-    private static int tamMemFisica;
 
+    // Estado de uma simulação; cada instância é independente, o que permite várias simulações na mesma
+    // JVM (ver ParameterSweep)
+    private final PageTable tabelaDePaginas;
+    private final FrameAllocator molduras;
+    private final int[] paginaDaMoldura;
+    private final BitSet enderecosUsados; // Por endereço físico: já traduzido desde que a página foi carregada
+    private final PageReplacementPolicy politica;
+    private final int bitsPag;    // Tamanhos são potências de 2: página e deslocamento por deslocamento e máscara
+    private final int mascaraPag;
+    private final int tamMemFisica;
+    private long substituicoes;
+    private long faltas;
+    private long traduzidos;
+    private boolean esgotou;
+
+    private final PageReplacementPolicy.Referencias refs = new PageReplacementPolicy.Referencias() {
+        @Override
+        public boolean referenciada(int moldura) {
+            return PageTableEntry.referenciada(tabelaDePaginas.le(paginaDaMoldura[moldura]));
+        }
+
+        @Override
+        public void limpaReferencia(int moldura) {
+            int pagina = paginaDaMoldura[moldura];
+            tabelaDePaginas.escreve(pagina, tabelaDePaginas.le(pagina) & ~PageTableEntry.REFERENCIADA);
+        }
+    };
+
+    public App(int tamMemVirtual, int tamMemFisica, int tamPag, String nomePolitica) {
+        this(tamMemVirtual, tamMemFisica, tamPag, nomePolitica, "plana");
+    }
+
+    public App(int tamMemVirtual, int tamMemFisica, int tamPag, String nomePolitica, String estruturaTabela) {
+        this.tamMemFisica = tamMemFisica;
+        Sistema.log2(tamMemVirtual, "Tamanho da memória virtual");
+        Sistema.log2(tamMemFisica, "Tamanho da memória física");
+        this.bitsPag = Sistema.log2(tamPag, "Tamanho da página");
+        this.mascaraPag = tamPag - 1;
+
+        // Inicializa tabela de páginas (todas as entradas começam NAO_MAPEADA) e molduras
+        tabelaDePaginas = PageTable.cria(estruturaTabela, tamMemVirtual >>> bitsPag, tamMemFisica >>> bitsPag);
+        molduras = new FrameAllocator(tamMemFisica >>> bitsPag);
+        paginaDaMoldura = new int[tamMemFisica >>> bitsPag];
+        enderecosUsados = new BitSet(tamMemFisica);
+        politica = PageReplacementPolicy.cria(nomePolitica, molduras.total());
+    }
+
+    // Uso: java App [política de substituição: fifo, lru, clock ou nfu] [gerador de endereços] [tabela]
+    //      java App lote <bitsVirtual> <bitsPag> [referências | arquivo de rastro] [gerador de endereços]
+    // Geradores: uniforme (padrão), sequencial, espacado:passo, zipf:s, quente:fração:probabilidade
+    // (ver AddressGenerator). Tabelas: plana (padrão), radix, radix2, radix3, hash (ver PageTable).
+    // O modo lote não pergunta nada nem imprime traduções: calcula a curva de faltas de LRU, FIFO, Clock e OPT
+    // para todos os tamanhos de memória física (potências de 2) numa única passada pelas referências
     public static void main(String[] args) {
+        // Saída em bloco: uma linha por endereço não pode custar um flush
+        PrintWriter saida = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16));
+        try {
+            if (args.length > 0 && args[0].equals("lote")) {
+                lote(args, saida);
+            } else {
+                interativo(args, saida);
+            }
+        } finally {
+            saida.flush();
+        }
+    }
+
+    public static void interativo(String[] args, PrintWriter saida) {
+        String nomePolitica = args.length > 0 ? args[0] : "fifo";
+        String nomeGerador = args.length > 1 ? args[1] : "uniforme";
+        String estruturaTabela = args.length > 2 ? args[2] : "plana";
         Scanner scanner = new Scanner(System.in);
 
         // Leitura dos parâmetros de configuração
         System.out.println("Digite o tamanho da memória virtual (em bits, 2^n): ");
-        tamMemVirtual = (int) Math.pow(2, scanner.nextInt());
+        int tamMemVirtual = 1 << scanner.nextInt();
         System.out.println("Digite o tamanho da memória física (em bits, 2^n): ");
-        tamMemFisica = (int) Math.pow(2, scanner.nextInt());
+        int tamMemFisica = 1 << scanner.nextInt();
         System.out.println("Digite o tamanho da página (em bits, 2^n): ");
-        tamPag = (int) Math.pow(2, scanner.nextInt());
+        int tamPag = 1 << scanner.nextInt();
 
         scanner.close();
 
-        tabelaDePaginas = new int[tamMemVirtual / tamPag];
-        molduras = new int[tamMemFisica / tamPag];
-        LinkedList<Integer> enderecosUsados = new LinkedList<>();
-        Random random = new Random();
-        List<Integer> enderecos = random.ints(0, tamMemVirtual).boxed().limit(tamMemVirtual + 300).collect(Collectors.toList());
+        App app = new App(tamMemVirtual, tamMemFisica, tamPag, nomePolitica, estruturaTabela);
+        AddressGenerator gerador = AddressGenerator.cria(nomeGerador, tamMemVirtual, tamPag, System.nanoTime());
+        app.executa(gerador, (long) tamMemVirtual + 300, saida);
 
-        // Inicializa tabela de páginas e molduras
-        populaTP();
-        inicializaMolduras();
+        if (app.esgotou) {
+            saida.println("Todas as molduras alocadas, parando programa.\n");
+        }
+        saida.println("Substituições de página (" + app.politica.nome() + ", " + gerador.nome() + "): " + app.substituicoes + "\n");
 
+        // Imprimir o conteúdo da tabela de páginas e da memória física
+        app.imprimeTabelaDePaginas(saida);
+        app.imprimeMolduras(saida);
+    }
+
+    // Traduz totalEnderecos endereços do gerador, ignorando os repetidos. A repetição é vista dentro da
+    // página residente (um bit por endereço físico, limpo quando a moldura recebe outra página): a memória
+    // usada acompanha a memória física, não o espaço virtual, e um endereço de página já substituída é
+    // referenciado de novo, com a falta correspondente. Para se nenhuma moldura puder ser liberada. Com
+    // saida nula nada é impresso
+    public void executa(AddressGenerator gerador, long totalEnderecos, PrintWriter saida) {
         // Alocar molduras conforme for recebendo os endereços
-        for (int endereco : enderecos) {
-            if (enderecosUsados.contains(endereco)) {
+        for (long i = 0; i < totalEnderecos; i++) {
+            int endereco = gerador.getAsInt();
+            int pte = tabelaDePaginas.le(endereco >>> bitsPag);
+            boolean residente = PageTableEntry.valida(pte);
+            if (residente && enderecosUsados.get(calculaEnderecoFisico(endereco, PageTableEntry.moldura(pte)))) {
                 continue;
             } else {
-                enderecosUsados.add(endereco);
                 int endFisico = achaEndFisico(endereco);
 
                 if (endFisico < 0) {
-                    System.out.println("Todas as molduras alocadas, parando programa.\n");
+                    esgotou = true;
                     break;
                 }
 
-                System.out.println("Endereço virtual: " + endereco + " -> Endereço físico: " + endFisico);
+                enderecosUsados.set(endFisico);
+                traduzidos++;
+                if (saida != null) {
+                    saida.append("Endereço virtual: ").print(endereco);
+                    saida.append(" -> Endereço físico: ").println(endFisico);
+                }
             }
         }
+    }
 
-        // Imprimir o conteúdo da tabela de páginas e da memória física
-        imprimeTabelaDePaginas();
-        imprimeMolduras();
+    public long getSubstituicoes() {
+        return substituicoes;
+    }
+
+    public long getFaltas() {
+        return faltas;
     }
 
-    public static int calculaEnderecoFisico(int endVirtual, int moldura) {
-        int deslocamento = endVirtual % tamPag;
-        return moldura * tamPag + deslocamento;
+    public long getTraduzidos() {
+        return traduzidos;
     }
 
-    public static int encontraMoldura(int endVirtual) {
-        int locTp = endVirtual / tamPag;
+    public boolean esgotou() {
+        return esgotou;
+    }
 
-        if (tabelaDePaginas[locTp] != -1) {
-            return tabelaDePaginas[locTp];
+    public PageTable getTabelaDePaginas() {
+        return tabelaDePaginas;
+    }
+
+    public int getTamMemFisica() {
+        return tamMemFisica;
+    }
+
+    public static void lote(String[] args, PrintWriter saida) {
+        int bitsVirtual = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int bitsPag = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int tamMemVirtual = 1 << bitsVirtual;
+        int tamPag = 1 << bitsPag;
+        int paginas = tamMemVirtual >>> bitsPag;
+        String origem = args.length > 3 ? args[3] : Integer.toString(10 * paginas);
+        Path rastro = Paths.get(origem);
+        FaultCurve curva;
+
+        if (Files.isRegularFile(rastro)) {
+            // Rastro gravado pelo Sistema: cada (processo, página) vira uma página distinta
+            TraceReplay r = new TraceReplay(rastro);
+            int paginasPorProcesso = r.getTamMemVirtual() / r.getTamPag();
+            curva = new FaultCurve(FaultCurve.potenciasDeDois(paginasPorProcesso));
+            HashMap<Long, Integer> numeracao = new HashMap<>();
+            r.percorre((pc, endVirtual, endFisico, processo, opcode, flags) -> {
+                if ((flags & TraceRecorder.FIM_DE_PROCESSO) == 0 && endFisico >= 0) {
+                    long chave = ((long) processo << 32) | (endVirtual / r.getTamPag());
+                    curva.referencia(numeracao.computeIfAbsent(chave, k -> numeracao.size()));
+                }
+            });
+        } else {
+            int referencias = Integer.parseInt(origem);
+            AddressGenerator gerador = AddressGenerator.cria(args.length > 4 ? args[4] : "uniforme", tamMemVirtual, tamPag,
+                    System.nanoTime());
+            curva = new FaultCurve(FaultCurve.potenciasDeDois(paginas));
+            for (int i = 0; i < referencias; i++) {
+                curva.referencia(gerador.getAsInt() >>> bitsPag);
+            }
         }
+        imprimeCurva(curva, saida);
+    }
 
-        return alocaMoldura(locTp);
+    public static void imprimeCurva(FaultCurve curva, PrintWriter saida) {
+        int[] tamanhos = curva.getTamanhos();
+        long[] fifo = curva.faltasFifo();
+        long[] clock = curva.faltasClock();
+        long[] opt = curva.faltasOpt();
+        double n = Math.max(1, curva.getReferencias());
+        saida.println("Curva de faltas: " + curva.getReferencias() + " referências, " + curva.getPaginasDistintas()
+                + " páginas distintas");
+        saida.println("  molduras          LRU           FIFO          Clock            OPT");
+        for (int i = 0; i < tamanhos.length; i++) {
+            long lru = curva.faltasLru(tamanhos[i]);
+            saida.println(String.format(Locale.ROOT, "  %8d  %12s  %12s  %12s  %12s", tamanhos[i],
+                    taxa(lru, n), taxa(fifo[i], n), taxa(clock[i], n), taxa(opt[i], n)));
+        }
+    }
+
+    private static String taxa(long faltas, double referencias) {
+        return String.format(Locale.ROOT, "%d (%.1f%%)", faltas, 100 * faltas / referencias);
+    }
+
+    public int calculaEnderecoFisico(int endVirtual, int moldura) {
+        int deslocamento = endVirtual & mascaraPag;
+        return (moldura << bitsPag) | deslocamento;
     }
 
-    public static int alocaMoldura(int j) {
-        for (int i = 0; i < molduras.length; i++) {
-            if (molduras[i] == 0) {
-                tabelaDePaginas[j] = i;
-                molduras[i] = 1;
-                return i;
+    public int encontraMoldura(int endVirtual) {
+        int locTp = endVirtual >>> bitsPag;
+
+        int pte = tabelaDePaginas.le(locTp);
+        if (PageTableEntry.valida(pte)) {
+            if (!PageTableEntry.referenciada(pte)) {
+                tabelaDePaginas.escreve(locTp, pte | PageTableEntry.REFERENCIADA);
             }
+            return PageTableEntry.moldura(pte);
         }
-        return -1;
+
+        faltas++;
+        return alocaMoldura(locTp);
     }
 
-    public static int achaEndFisico(int endVirtual) {
-        int moldura = encontraMoldura(endVirtual);
-        if (moldura < 0) {
-            return -1;
+    public int alocaMoldura(int j) {
+        int i = molduras.aloca();
+        if (i == -1) {
+            i = substituiPagina();
+            if (i == -1) {
+                return -1;
+            }
         }
-        return calculaEnderecoFisico(endVirtual, moldura);
+        tabelaDePaginas.escreve(j, PageTableEntry.mapeada(i) | PageTableEntry.REFERENCIADA);
+        paginaDaMoldura[i] = j;
+        enderecosUsados.clear(i << bitsPag, (i + 1) << bitsPag);
+        politica.carregada(i);
+        return i;
     }
 
-    public static void populaTP() {
-        for (int i = 0; i < tabelaDePaginas.length; i++) {
-            tabelaDePaginas[i] = -1;
+    // Sem molduras livres: a política escolhe a vítima, cuja página deixa de estar mapeada
+    public int substituiPagina() {
+        int vitima = politica.escolheVitima(refs);
+        if (vitima != -1) {
+            tabelaDePaginas.escreve(paginaDaMoldura[vitima], PageTableEntry.NAO_MAPEADA);
+            substituicoes++;
         }
+        return vitima;
     }
 
-    public static void inicializaMolduras() {
-        for (int i = 0; i < molduras.length; i++) {
-            molduras[i] = 0;
+    public int achaEndFisico(int endVirtual) {
+        int moldura = encontraMoldura(endVirtual);
+        if (moldura < 0) {
+            return -1;
         }
+        return calculaEnderecoFisico(endVirtual, moldura);
     }
 
-    public static void imprimeTabelaDePaginas() {
-        System.out.println("Tabela de Páginas:");
+    public void imprimeTabelaDePaginas(PrintWriter saida) {
+        saida.println("Tabela de Páginas:");
 
-        for (int i = 0; i < tabelaDePaginas.length; i++) {
-            System.out.println("Página " + i + ": Moldura " + tabelaDePaginas[i]);
+        for (int i = 0; i < tabelaDePaginas.numPaginas(); i++) {
+            saida.append("Página ").print(i);
+            saida.append(": Moldura ").println(PageTableEntry.molduraOuMenosUm(tabelaDePaginas.le(i)));
         }
 
-        System.out.println();
+        saida.println();
     }
 
-    public static void imprimeMolduras() {
-        System.out.println("Molduras da Memória Física:");
+    public void imprimeMolduras(PrintWriter saida) {
+        saida.println("Molduras da Memória Física:");
 
-        for (int i = 0; i < molduras.length; i++) {
-            System.out.println("Moldura " + i + ": " + (molduras[i] == 1 ? "Usada" : "Livre"));
+        for (int i = 0; i < molduras.total(); i++) {
+            saida.append("Moldura ").print(i);
+            saida.println(molduras.estaLivre(i) ? ": Livre" : ": Usada");
         }
     }
 }
@@ -0,0 +1,380 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+// Execução em lote, sem console: cada tarefa (programa, geometria de memória, registradores e dados
+// iniciais) roda num Sistema próprio, com uma CPU, sem rastro e sem compilador de blocos, e o resultado
+// (motivo do término, pc, registradores, saídas do SYSCALL OUT e a memória final do programa) é devolvido
+// como dados, na ordem das tarefas. As tarefas são independentes, então o resultado não depende da ordem
+// de execução nem da concorrência.
+// Cada tarefa ocupa uma thread virtual quando a JVM as tem (Java 21+; procurada por reflexão) e uma thread
+// de um pool fixo caso contrário. A simulação não bloqueia (o console é síncrono e lê valores dados na
+// tarefa), então o limite de tarefas simultâneas, e não o número de threads, é o que importa: o padrão é
+// o número de processadores.
+// Uso: java BatchRunner [--concorrencia=n] [--repeticoes=n] [--limite=instruções] [--programas=arquivo]
+//                       [--memoria] [--saida=arquivo] <arquivo de tarefas | programa ...>
+// Arquivo de tarefas: uma por linha, "programa [virtual=n] [fisica=n] [pagina=n] [politica=p] [limite=n]
+// [in=v1,v2,...] [rK=v] [@endereço=v]", com # para comentários; in dá os valores das leituras do console.
+// Sem arquivo, os argumentos são nomes de programas, um por tarefa, com a geometria padrão. --memoria
+// inclui no CSV os dados finais de todo o espaço do programa.
+
+public class BatchRunner {
+
+    public static final String CABECALHO = "tarefa,programa,motivo,pc,instrucoes,us,saidas,registradores,erro";
+
+    // Uma execução: o programa é procurado no catálogo pelo nome, a menos que a imagem seja dada
+    public static final class Tarefa {
+        public final String programa;
+        public ProgramImage imagem;
+        public int tamMemVirtual = 2048;
+        public int tamMemFisica = 1024;
+        public int tamPag = 4;
+        public String politica = "clock";
+        public long limite = -1; // Instruções; -1 usa o limite do BatchRunner, 0 desliga
+        private final Map<Integer, Integer> registradores = new LinkedHashMap<>();
+        private final Map<Integer, Integer> entradas = new LinkedHashMap<>();
+        private final List<Integer> leituras = new ArrayList<>();
+
+        public Tarefa(String programa) {
+            this.programa = programa;
+        }
+
+        public Tarefa registrador(int r, int valor) {
+            registradores.put(r, valor);
+            return this;
+        }
+
+        // Dado escrito no endereço virtual antes da execução (depois da carga do programa)
+        public Tarefa entrada(int endereco, int valor) {
+            entradas.put(endereco, valor);
+            return this;
+        }
+
+        // Valor para a próxima leitura do console (SYSCALL 1), em ordem; sem mais valores a leitura termina
+        // o processo
+        public Tarefa leitura(int valor) {
+            leituras.add(valor);
+            return this;
+        }
+    }
+
+    public static final class Resultado {
+        public final Tarefa tarefa;
+        public Sistema.Interrupts motivo; // null se o processo não chegou a executar
+        public int pc;
+        public int[] registradores;
+        public long[] memoria = new long[0]; // Palavras compactadas do espaço do programa ao terminar (vazio se não terminou)
+        public int[] saidas = new int[0];
+        public long instrucoes;
+        public long nanos;
+        public String erro;
+
+        Resultado(Tarefa tarefa) {
+            this.tarefa = tarefa;
+        }
+
+        public int dado(int endereco) {
+            return (int) memoria[endereco];
+        }
+    }
+
+    private final Map<String, ProgramImage> catalogo = new LinkedHashMap<>();
+    private int concorrencia = Runtime.getRuntime().availableProcessors();
+    private long limite = 10_000_000;
+    private String threads = "";
+
+    // Os programas embutidos no Sistema; as imagens são só lidas pelas tarefas e podem ser compartilhadas
+    public BatchRunner() {
+        Sistema s = new Sistema(1024, 1024, 4);
+        for (String nome : s.progs.nomes()) {
+            catalogo.put(nome, s.progs.retrieveProgram(nome));
+        }
+        s.encerra();
+    }
+
+    public void carregaProgramas(Path arquivo) {
+        catalogo.putAll(ProgramImage.le(arquivo));
+    }
+
+    public void setConcorrencia(int n) {
+        concorrencia = Math.max(1, n);
+    }
+
+    public void setLimite(long instrucoes) {
+        limite = instrucoes;
+    }
+
+    // Executa todas as tarefas com no máximo concorrencia simultâneas; os resultados vêm na ordem das tarefas
+    public List<Resultado> executa(List<Tarefa> tarefas) {
+        Semaphore vagas = new Semaphore(concorrencia);
+        List<Callable<Resultado>> chamadas = new ArrayList<>(tarefas.size());
+        for (Tarefa t : tarefas) {
+            chamadas.add(() -> {
+                vagas.acquireUninterruptibly();
+                try {
+                    return executa(t);
+                } finally {
+                    vagas.release();
+                }
+            });
+        }
+        ExecutorService executor = criaExecutor();
+        List<Resultado> resultados = new ArrayList<>(tarefas.size());
+        try {
+            for (Future<Resultado> f : executor.invokeAll(chamadas)) {
+                resultados.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha numa tarefa do lote", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        return resultados;
+    }
+
+    // Thread virtual por tarefa se a JVM tiver (Executors.newVirtualThreadPerTaskExecutor, Java 21+), senão
+    // um pool fixo do tamanho da concorrência
+    private ExecutorService criaExecutor() {
+        try {
+            ExecutorService e = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            threads = "virtuais";
+            return e;
+        } catch (ReflectiveOperationException e) {
+            threads = "de plataforma";
+            return Executors.newFixedThreadPool(concorrencia);
+        }
+    }
+
+    // Uma tarefa num Sistema isolado; erros de configuração viram Resultado.erro em vez de derrubar o lote
+    public Resultado executa(Tarefa t) {
+        Resultado r = new Resultado(t);
+        long t0 = System.nanoTime();
+        Sistema s = null;
+        try {
+            ProgramImage imagem = t.imagem != null ? t.imagem : catalogo.get(t.programa);
+            if (imagem == null) {
+                r.erro = "Programa inexistente";
+                return r;
+            }
+            s = new Sistema(t.tamMemVirtual, t.tamMemFisica, t.tamPag, t.politica);
+            s.setSaida(null);
+            InputSource.Fila console = new InputSource.Fila(); // Nunca o teclado
+            for (int v : t.leituras) {
+                console.adiciona(v);
+            }
+            s.hw.console.setEntrada(console);
+            s.hw.console.setSincrono(true); // Sem thread por tarefa
+            s.hw.cpu.setDebug(false);
+            s.hw.cpu.setCompilacao(0); // Compilar blocos custa mais que executar programas curtos
+            s.so.pm.setLimiteInstrucoes(t.limite >= 0 ? t.limite : limite);
+            Sistema.PCB pcb = s.so.pm.criaProcesso(t.programa, imagem);
+            if (pcb == null) {
+                r.erro = "Processo não criado";
+                return r;
+            }
+            for (Map.Entry<Integer, Integer> e : t.entradas.entrySet()) {
+                int endFisico = s.so.mm.traduz(pcb, e.getKey(), true);
+                if (endFisico == -1) {
+                    r.erro = "Entrada fora da memória: " + e.getKey();
+                    return r;
+                }
+                s.hw.mem.escreveDado(endFisico, e.getValue());
+            }
+            for (Map.Entry<Integer, Integer> e : t.registradores.entrySet()) {
+                pcb.reg[e.getKey()] = e.getValue();
+            }
+            pcb.guardaMemoria = true;
+            s.so.pm.executaEmParalelo();
+            r.motivo = pcb.motivoTermino;
+            r.pc = pcb.pc;
+            r.registradores = pcb.reg.clone();
+            if (pcb.memoriaFinal != null) { // Só é copiada no término: um processo que nunca termina não tem
+                r.memoria = pcb.memoriaFinal;
+            }
+            r.saidas = pcb.saidas.stream().mapToInt(Integer::intValue).toArray();
+            r.instrucoes = s.hw.cpu.getInstrucoes();
+        } catch (RuntimeException e) {
+            r.erro = e.toString();
+        } finally {
+            if (s != null) {
+                s.encerra();
+            }
+            r.nanos = System.nanoTime() - t0;
+        }
+        return r;
+    }
+
+    // Uma linha do arquivo de tarefas
+    public static Tarefa tarefa(String linha) {
+        String[] campos = linha.trim().split("\\s+");
+        Tarefa t = new Tarefa(campos[0]);
+        for (int i = 1; i < campos.length; i++) {
+            int igual = campos[i].indexOf('=');
+            if (igual < 0) {
+                throw new IllegalArgumentException("Campo inválido: " + campos[i]);
+            }
+            String chave = campos[i].substring(0, igual);
+            String valor = campos[i].substring(igual + 1);
+            if (chave.startsWith("@")) {
+                t.entrada(Integer.parseInt(chave.substring(1)), Integer.parseInt(valor));
+            } else if (chave.matches("r[0-9]")) {
+                t.registrador(chave.charAt(1) - '0', Integer.parseInt(valor));
+            } else {
+                switch (chave) {
+                    case "virtual":
+                        t.tamMemVirtual = Integer.parseInt(valor);
+                        break;
+                    case "fisica":
+                        t.tamMemFisica = Integer.parseInt(valor);
+                        break;
+                    case "pagina":
+                        t.tamPag = Integer.parseInt(valor);
+                        break;
+                    case "politica":
+                        t.politica = valor;
+                        break;
+                    case "limite":
+                        t.limite = Long.parseLong(valor);
+                        break;
+                    case "in":
+                        for (String v : valor.split(",")) {
+                            t.leitura(Integer.parseInt(v));
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Campo inválido: " + campos[i]);
+                }
+            }
+        }
+        return t;
+    }
+
+    public static List<Tarefa> tarefas(Path arquivo) {
+        List<Tarefa> tarefas = new ArrayList<>();
+        try {
+            for (String linha : Files.readAllLines(arquivo, StandardCharsets.UTF_8)) {
+                int comentario = linha.indexOf('#');
+                if (comentario >= 0) {
+                    linha = linha.substring(0, comentario);
+                }
+                if (!linha.isBlank()) {
+                    tarefas.add(tarefa(linha));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível ler " + arquivo, e);
+        }
+        return tarefas;
+    }
+
+    public static void main(String[] args) {
+        BatchRunner b = new BatchRunner();
+        int repeticoes = 1;
+        boolean memoria = false;
+        String arquivo = null;
+        List<String> nomes = new ArrayList<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            String opcao = igual < 0 ? arg : arg.substring(0, igual);
+            String valor = igual < 0 ? "" : arg.substring(igual + 1);
+            switch (opcao) {
+                case "--concorrencia":
+                    b.setConcorrencia(Integer.parseInt(valor));
+                    break;
+                case "--repeticoes":
+                    repeticoes = Integer.parseInt(valor);
+                    break;
+                case "--limite":
+                    b.setLimite(Long.parseLong(valor));
+                    break;
+                case "--programas":
+                    b.carregaProgramas(Paths.get(valor));
+                    break;
+                case "--memoria":
+                    memoria = true;
+                    break;
+                case "--saida":
+                    arquivo = valor;
+                    break;
+                default:
+                    if (opcao.startsWith("--")) {
+                        System.err.println("Opção desconhecida: " + arg);
+                        return;
+                    }
+                    nomes.add(arg);
+            }
+        }
+        List<Tarefa> lista = new ArrayList<>();
+        if (nomes.size() == 1 && Files.isRegularFile(Paths.get(nomes.get(0)))) {
+            lista.addAll(tarefas(Paths.get(nomes.get(0))));
+        } else {
+            for (String nome : nomes) {
+                lista.add(new Tarefa(nome));
+            }
+        }
+        List<Tarefa> todas = new ArrayList<>(lista.size() * repeticoes);
+        for (int i = 0; i < repeticoes; i++) {
+            todas.addAll(lista);
+        }
+
+        long t0 = System.nanoTime();
+        List<Resultado> resultados = b.executa(todas);
+        double segundos = (System.nanoTime() - t0) / 1e9;
+        try (PrintWriter csv = arquivo == null
+                ? new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16))
+                : new PrintWriter(Files.newBufferedWriter(Paths.get(arquivo), StandardCharsets.UTF_8))) {
+            csv.println(memoria ? CABECALHO + ",memoria" : CABECALHO);
+            for (int i = 0; i < resultados.size(); i++) {
+                csv.println(linha(i, resultados.get(i), memoria));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível criar " + arquivo, e);
+        }
+        System.err.println(String.format(Locale.ROOT, "Lote: %d tarefas em %.2f s (%.0f por minuto), concorrência %d, threads %s",
+                resultados.size(), segundos, resultados.size() * 60 / Math.max(segundos, 1e-9), b.concorrencia, b.threads));
+    }
+
+    private static String linha(int i, Resultado r, boolean memoria) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(i).append(',').append(r.tarefa.programa).append(',').append(r.motivo == null ? "" : r.motivo.name())
+                .append(',').append(r.pc).append(',').append(r.instrucoes).append(',').append(r.nanos / 1000).append(',');
+        juntaInts(sb, r.saidas);
+        sb.append(',');
+        juntaInts(sb, r.registradores == null ? new int[0] : r.registradores);
+        sb.append(',').append(r.erro == null ? "" : '"' + r.erro.replace("\"", "'") + '"');
+        if (memoria) {
+            sb.append(',');
+            int[] dados = new int[r.memoria.length];
+            Arrays.setAll(dados, r::dado);
+            juntaInts(sb, dados);
+        }
+        return sb.toString();
+    }
+
+    // Valores separados por espaço, para caberem numa coluna do CSV
+    private static void juntaInts(StringBuilder sb, int[] valores) {
+        for (int j = 0; j < valores.length; j++) {
+            sb.append(j == 0 ? "" : " ").append(valores[j]);
+        }
+    }
+}
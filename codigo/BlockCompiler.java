@@ -0,0 +1,408 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+// Compilador de blocos básicos quentes para bytecode da JVM.
+// O interpretador conta quantas vezes cada início de bloco (alvo de desvio) é executado; quando a contagem
+// atinge o limiar, o bloco é traduzido para uma classe Java com os registradores em variáveis locais,
+// compilado com javac em memória e definido como classe oculta (Lookup.defineHiddenClass). Um desvio de
+// volta para o início do bloco vira um laço Java, que o C2 otimiza diretamente.
+//
+// Um bloco começa no pc de entrada e vai até o fim da página, até a primeira instrução não compilável
+// (SYSCALL, STOP, desvios indiretos pela memória, ...) ou até um JMP. Desvios condicionais são saídas
+// laterais. Acessos à memória passam pela CPU (Memoria), com a mesma tradução e as mesmas interrupções
+// do interpretador; overflow é testado depois de cada operação aritmética, como em testOverflow.
+//
+// Os blocos são indexados pelo endereço físico de entrada e invalidados sempre que a moldura é escrita
+// por STD/STX ou recebe outra página.
+//
+// Precisa de um JDK (javax.tools): com só um JRE, ou se uma compilação falhar, o compilador se desativa e
+// o motivo aparece nas estatísticas. Não é seguro entre threads, então fica desligado com várias CPUs.
+// Compilar custa bem mais que interpretar um bloco pré-decodificado, e só compensa em laços longos: por
+// isso o Sistema começa com a compilação desligada (ver CPU.setCompilacao e a opção --compilar).
+
+public class BlockCompiler {
+
+    // Código compilado: devolve (instruções executadas << 33) | OVERFLOW? | pc seguinte
+    public interface Bloco {
+        long executa(int[] reg, Memoria mem, int orcamento);
+    }
+
+    // Acesso à memória virtual do processo em execução, feito pela CPU
+    public interface Memoria {
+        long le(int endVirtual); // Valor lido, ou FALHA (a CPU já registrou a interrupção)
+
+        int escreve(int endVirtual, int valor); // ESCRITA_OK, ESCRITA_FALHA ou ESCRITA_INVALIDOU
+    }
+
+    public static final long FALHA = Long.MIN_VALUE;
+    public static final int ESCRITA_OK = 0, ESCRITA_FALHA = 1, ESCRITA_INVALIDOU = 2;
+    public static final long OVERFLOW = 1L << 32;
+
+    private static final Bloco NAO_COMPILAVEL = (reg, mem, orcamento) -> 0;
+
+    // Os blocos não têm estado: o mesmo código (mesmo fonte gerado) é reaproveitado entre invalidações,
+    // processos e instâncias do Sistema, e o javac só roda uma vez por bloco distinto. A cache guarda os
+    // MAX_CACHE usados mais recentemente; as classes ocultas dos blocos descartados (e não mais referenciados
+    // por nenhum Sistema) podem ser descarregadas
+    static final int MAX_CACHE = 4096;
+    private static final Map<String, Bloco> cache = Collections.synchronizedMap(new LinkedHashMap<String, Bloco>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bloco> maisAntigo) {
+            return size() > MAX_CACHE;
+        }
+    });
+
+    private final int tamPag;
+    private final int limiar;
+    private final int minInt;
+    private final int maxInt;
+    private final Bloco[] blocos;     // Bloco compilado por endereço físico de entrada
+    private final int[] pcDoBloco;    // pc virtual para o qual o bloco foi gerado
+    private final int[] contagem;     // Execuções de cada início de bloco ainda não compilado
+    private final boolean[] comBlocos; // Molduras com algum bloco ou contagem
+    private final JavaCompiler javac;
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private boolean disponivel;
+    private String falha; // Motivo da desativação, ou null
+    private long compilados;
+    private long invalidacoes;
+    private static final AtomicInteger sequencia = new AtomicInteger();
+
+    public BlockCompiler(int tamMemFisica, int tamPag, int limiar, int minInt, int maxInt) {
+        this.tamPag = tamPag;
+        this.limiar = limiar;
+        this.minInt = minInt;
+        this.maxInt = maxInt;
+        blocos = new Bloco[tamMemFisica];
+        pcDoBloco = new int[tamMemFisica];
+        contagem = new int[tamMemFisica];
+        comBlocos = new boolean[tamMemFisica / tamPag];
+        javac = ToolProvider.getSystemJavaCompiler();
+        disponivel = javac != null; // Sem JDK (só JRE) o interpretador segue sozinho
+        if (!disponivel) {
+            falha = "sem compilador Java (é preciso um JDK)";
+        }
+    }
+
+    // Bloco compilado para o pc, ou null se ainda não está quente (ou não é compilável)
+    public Bloco blocoPara(int pc, int pcFisico, long[] palavras) {
+        Bloco b = blocos[pcFisico];
+        if (b != null) {
+            return b != NAO_COMPILAVEL && pcDoBloco[pcFisico] == pc ? b : null;
+        }
+        comBlocos[pcFisico / tamPag] = true;
+        if (!disponivel || ++contagem[pcFisico] < limiar) {
+            return null;
+        }
+        int fimDaMoldura = (pcFisico / tamPag + 1) * tamPag;
+        b = compila(pc, palavras, pcFisico, fimDaMoldura - pcFisico);
+        blocos[pcFisico] = b != null ? b : NAO_COMPILAVEL;
+        pcDoBloco[pcFisico] = pc;
+        return b;
+    }
+
+    public boolean temBlocos(int moldura) {
+        return comBlocos[moldura];
+    }
+
+    public void invalidaMoldura(int moldura) {
+        if (!comBlocos[moldura]) {
+            return;
+        }
+        int ini = moldura * tamPag;
+        Arrays.fill(blocos, ini, ini + tamPag, null);
+        Arrays.fill(contagem, ini, ini + tamPag, 0);
+        comBlocos[moldura] = false;
+        invalidacoes++;
+    }
+
+    public long getCompilados() {
+        return compilados;
+    }
+
+    public long getInvalidacoes() {
+        return invalidacoes;
+    }
+
+    // Motivo pelo qual a compilação foi desativada, ou null se está ativa
+    public String getFalha() {
+        return falha;
+    }
+
+    public static int tamanhoCache() {
+        return cache.size();
+    }
+
+    @Override
+    public String toString() {
+        return "Blocos compilados: " + compilados + " (limiar " + limiar + "), invalidações " + invalidacoes
+                + ", cache " + cache.size() + "/" + MAX_CACHE + (falha != null ? ", compilação desativada: " + falha : "");
+    }
+
+    // ------------------------------------------------------------------------------------------------------
+    // Geração de código
+
+    private static int opc(long w) {
+        return (int) (w >>> 48) & 0xFF;
+    }
+
+    private static int ra(long w) {
+        return (byte) (w >>> 32);
+    }
+
+    private static int rb(long w) {
+        return (byte) (w >>> 40);
+    }
+
+    private static boolean registrador(int r) {
+        return r >= 0 && r < 10;
+    }
+
+    // Registradores lidos ou escritos pela instrução, ou -1 se a instrução não é compilável
+    private static int registradoresUsados(long w) {
+        int a = ra(w);
+        int b = rb(w);
+        switch (opc(w)) {
+            case Sistema.OP_LDI:
+            case Sistema.OP_LDD:
+            case Sistema.OP_STD:
+                return registrador(a) ? 1 << a : -1;
+            case Sistema.OP_MOVE:
+            case Sistema.OP_ADD:
+            case Sistema.OP_SUB:
+            case Sistema.OP_MULT:
+            case Sistema.OP_LDX:
+            case Sistema.OP_STX:
+            case Sistema.OP_JMPIG:
+            case Sistema.OP_JMPIL:
+            case Sistema.OP_JMPIE:
+            case Sistema.OP_JMPIGT:
+                return registrador(a) && registrador(b) ? (1 << a) | (1 << b) : -1;
+            case Sistema.OP_ADDI:
+            case Sistema.OP_SUBI:
+                return registrador(a) ? 1 << a : -1;
+            case Sistema.OP_JMPIGK:
+            case Sistema.OP_JMPILK:
+            case Sistema.OP_JMPIEK:
+                return registrador(b) ? 1 << b : -1;
+            case Sistema.OP_JMP:
+                return 0;
+            default:
+                return -1;
+        }
+    }
+
+    private Bloco compila(int inicio, long[] palavras, int base, int max) {
+        int tam = 0;
+        int usados = 0;
+        while (tam < max) {
+            long w = palavras[base + tam];
+            int r = registradoresUsados(w);
+            if (r == -1) {
+                break;
+            }
+            usados |= r;
+            tam++;
+            if (opc(w) == Sistema.OP_JMP) {
+                break;
+            }
+        }
+        if (tam == 0) {
+            return null;
+        }
+        String corpo = gera(inicio, palavras, base, tam, usados);
+        Bloco b = cache.get(corpo);
+        if (b != null) {
+            return b;
+        }
+        String nome = "BlocoCompilado" + sequencia.getAndIncrement();
+        String fonte = "public final class " + nome + corpo;
+        try {
+            byte[] bytecode = compilaFonte(nome, fonte);
+            if (bytecode == null) {
+                return null;
+            }
+            Class<?> classe = lookup.defineHiddenClass(bytecode, true).lookupClass();
+            b = (Bloco) lookup.findConstructor(classe, MethodType.methodType(void.class)).invoke();
+            compilados++;
+            cache.put(corpo, b);
+            return b;
+        } catch (Throwable e) {
+            desativa(e.toString());
+            return null;
+        }
+    }
+
+    // Fonte da classe a partir do nome (exclusive)
+    private String gera(int inicio, long[] palavras, int base, int tam, int usados) {
+        StringBuilder wb = new StringBuilder();
+        StringBuilder sb = new StringBuilder();
+        sb.append(" implements BlockCompiler.Bloco {\n");
+        sb.append("  private static long r(int n, long st, int pc) { return ((long) n << 33) | st | (pc & 0xFFFFFFFFL); }\n");
+        sb.append("  public long executa(int[] reg, BlockCompiler.Memoria mem, int orcamento) {\n");
+        for (int i = 0; i < 10; i++) {
+            if ((usados & (1 << i)) != 0) {
+                sb.append("    int r").append(i).append(" = reg[").append(i).append("];\n");
+                wb.append("reg[").append(i).append("] = r").append(i).append("; ");
+            }
+        }
+        String escreveRegs = wb.toString();
+        sb.append("    int n = 0;\n    long v;\n    int e;\n    while (true) {\n");
+        for (int i = 0; i < tam; i++) {
+            long w = palavras[base + i];
+            int pc = inicio + i;
+            int k = i + 1; // Instruções desta volta executadas ao completar esta
+            String a = "r" + ra(w);
+            String b = "r" + rb(w);
+            int p = (int) w;
+            String overflow = " if (" + a + " < " + minInt + " || " + a + " > " + maxInt + ") { " + escreveRegs
+                    + "return r(n + " + k + ", BlockCompiler.OVERFLOW, " + (pc + 1) + "); }\n";
+            sb.append("      // pc ").append(pc).append("\n");
+            switch (opc(w)) {
+                case Sistema.OP_LDI:
+                    sb.append("      ").append(a).append(" = ").append(p).append(";\n");
+                    break;
+                case Sistema.OP_MOVE:
+                    sb.append("      ").append(a).append(" = ").append(b).append(";\n");
+                    break;
+                case Sistema.OP_ADD:
+                    sb.append("      ").append(a).append(" = ").append(a).append(" + ").append(b).append(";").append(overflow);
+                    break;
+                case Sistema.OP_SUB:
+                    sb.append("      ").append(a).append(" = ").append(a).append(" - ").append(b).append(";").append(overflow);
+                    break;
+                case Sistema.OP_MULT:
+                    sb.append("      ").append(a).append(" = ").append(a).append(" * ").append(b).append(";").append(overflow);
+                    break;
+                case Sistema.OP_ADDI:
+                    sb.append("      ").append(a).append(" = ").append(a).append(" + (").append(p).append(");").append(overflow);
+                    break;
+                case Sistema.OP_SUBI:
+                    sb.append("      ").append(a).append(" = ").append(a).append(" - (").append(p).append(");").append(overflow);
+                    break;
+                case Sistema.OP_LDD:
+                case Sistema.OP_LDX:
+                    String end = opc(w) == Sistema.OP_LDD ? Integer.toString(p) : b;
+                    sb.append("      v = mem.le(").append(end).append("); if (v == BlockCompiler.FALHA) { ").append(escreveRegs)
+                            .append("return r(n + ").append(i).append(", 0, ").append(pc).append("); } ")
+                            .append(a).append(" = (int) v;\n");
+                    break;
+                case Sistema.OP_STD:
+                case Sistema.OP_STX:
+                    String destino = opc(w) == Sistema.OP_STD ? Integer.toString(p) : a;
+                    String valor = opc(w) == Sistema.OP_STD ? a : b;
+                    sb.append("      e = mem.escreve(").append(destino).append(", ").append(valor).append(");")
+                            .append(" if (e == BlockCompiler.ESCRITA_FALHA) { ").append(escreveRegs)
+                            .append("return r(n + ").append(i).append(", 0, ").append(pc).append("); }")
+                            .append(" if (e == BlockCompiler.ESCRITA_INVALIDOU) { ").append(escreveRegs)
+                            .append("return r(n + ").append(k).append(", 0, ").append(pc + 1).append("); }\n");
+                    break;
+                case Sistema.OP_JMP:
+                    sb.append("      ").append(desvio(Integer.toString(p), inicio, k, escreveRegs, p == inicio)).append("\n");
+                    break;
+                case Sistema.OP_JMPIG:
+                    sb.append("      if (").append(b).append(" > 0) { ").append(desvio(a, inicio, k, escreveRegs, true)).append(" }\n");
+                    break;
+                case Sistema.OP_JMPIL:
+                    sb.append("      if (").append(b).append(" < 0) { ").append(desvio(a, inicio, k, escreveRegs, true)).append(" }\n");
+                    break;
+                case Sistema.OP_JMPIE:
+                    sb.append("      if (").append(b).append(" == 0) { ").append(desvio(a, inicio, k, escreveRegs, true)).append(" }\n");
+                    break;
+                case Sistema.OP_JMPIGK:
+                    sb.append("      if (").append(b).append(" > 0) { ").append(desvio(Integer.toString(p), inicio, k, escreveRegs, p == inicio)).append(" }\n");
+                    break;
+                case Sistema.OP_JMPILK:
+                    sb.append("      if (").append(b).append(" < 0) { ").append(desvio(Integer.toString(p), inicio, k, escreveRegs, p == inicio)).append(" }\n");
+                    break;
+                case Sistema.OP_JMPIEK:
+                    sb.append("      if (").append(b).append(" == 0) { ").append(desvio(Integer.toString(p), inicio, k, escreveRegs, p == inicio)).append(" }\n");
+                    break;
+                case Sistema.OP_JMPIGT:
+                    sb.append("      if (").append(a).append(" > ").append(b).append(") { ").append(desvio(Integer.toString(p), inicio, k, escreveRegs, p == inicio)).append(" }\n");
+                    break;
+                default:
+                    throw new IllegalStateException("Instrução não compilável no bloco");
+            }
+        }
+        if (opc(palavras[base + tam - 1]) != Sistema.OP_JMP) {
+            sb.append("      ").append(escreveRegs).append("return r(n + ").append(tam).append(", 0, ").append(inicio + tam).append(");\n");
+        }
+        sb.append("    }\n  }\n}\n");
+        return sb.toString();
+    }
+
+    // Desvio tomado: volta ao início do bloco enquanto houver orçamento do timer, ou sai para o destino
+    private static String desvio(String destino, int inicio, int k, String escreveRegs, boolean podeVoltar) {
+        String sai = escreveRegs + "return r(n + " + k + ", 0, " + destino + ");";
+        if (!podeVoltar) {
+            return sai;
+        }
+        String volta = "n += " + k + "; if (n < orcamento) continue; " + escreveRegs + "return r(n, 0, " + inicio + ");";
+        if (destino.equals(Integer.toString(inicio))) {
+            return volta;
+        }
+        return "if (" + destino + " == " + inicio + ") { " + volta + " } " + sai;
+    }
+
+    private void desativa(String motivo) {
+        disponivel = false;
+        falha = motivo;
+    }
+
+    private byte[] compilaFonte(String nome, String fonte) {
+        StandardJavaFileManager padrao = javac.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytecode = new ByteArrayOutputStream();
+        JavaFileManager emMemoria = new ForwardingJavaFileManager<JavaFileManager>(padrao) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location local, String classe, JavaFileObject.Kind tipo, FileObject irmao) {
+                return new SimpleJavaFileObject(URI.create("mem:///" + classe + ".class"), tipo) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return bytecode;
+                    }
+                };
+            }
+        };
+        JavaFileObject unidade = new SimpleJavaFileObject(URI.create("string:///" + nome + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoraErros) {
+                return fonte;
+            }
+        };
+        String classpath = System.getProperty("java.class.path");
+        try {
+            File origem = new File(BlockCompiler.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            classpath = origem.getPath() + File.pathSeparator + classpath;
+        } catch (Exception e) {
+            // Fica só com o classpath da JVM
+        }
+        DiagnosticCollector<JavaFileObject> diagnosticos = new DiagnosticCollector<>();
+        boolean ok = javac.getTask(null, emMemoria, diagnosticos, List.of("-classpath", classpath, "-g:none"), null, List.of(unidade)).call();
+        if (!ok) {
+            desativa(diagnosticos.getDiagnostics().toString());
+            return null;
+        }
+        return bytecode.toByteArray();
+    }
+}
@@ -0,0 +1,162 @@
+import java.io.PrintStream;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Console (teclado e vídeo) como dispositivo de E/S com thread própria.
+// O SO enfileira pedidos e segue executando outros processos; a thread do dispositivo atende um pedido de
+// cada vez, na ordem de chegada, com uma latência opcional por pedido (um console lento), e coloca o pedido
+// atendido na fila de concluídos. A CPU vê essa fila no fim de cada fatia de tempo e gera a interrupção de
+// E/S; o aviso aoConcluir acorda CPUs ociosas, que não chegam ao fim de uma fatia.
+// A thread só é criada no primeiro pedido: um Sistema que não faz E/S não custa uma thread. No modo
+// síncrono não há thread: o pedido é atendido na própria chamada e só a conclusão segue o caminho normal
+// (o processo espera e volta no próximo escalonamento), o que torna a execução determinística.
+
+public class ConsoleDevice implements AutoCloseable {
+
+    public static final int LEITURA = 1;
+    public static final int ESCRITA = 2;
+
+    // O dispositivo não conhece processos nem memória: processo e endereço são só devolvidos ao SO
+    public static final class Pedido {
+        public final int operacao;
+        public final int processo;
+        public final int endereco; // Leitura: onde o SO guarda o valor lido
+        public int valor;          // Escrita: valor a escrever; leitura: valor lido
+        public boolean fimDaEntrada;
+
+        public Pedido(int operacao, int processo, int endereco, int valor) {
+            this.operacao = operacao;
+            this.processo = processo;
+            this.endereco = endereco;
+            this.valor = valor;
+        }
+    }
+
+    private final LinkedBlockingQueue<Pedido> pedidos = new LinkedBlockingQueue<>();
+    private final ConcurrentLinkedQueue<Pedido> concluidos = new ConcurrentLinkedQueue<>();
+    private volatile PrintStream saida;
+    private volatile InputSource entrada; // null: teclado, aberto na primeira leitura
+    private Runnable aoConcluir = () -> { };
+    private long latenciaNanos;
+    private boolean sincrono;
+    private Thread atendente;
+    private volatile boolean fechado;
+    private volatile long atendidos; // Escrito só por quem atende (a thread do dispositivo, ou o SO no modo síncrono)
+
+    public ConsoleDevice(PrintStream saida, InputSource entrada) {
+        this.saida = saida;
+        this.entrada = entrada;
+    }
+
+    public void setSaida(PrintStream _saida) {
+        saida = _saida;
+    }
+
+    // A origem é lida só pela thread do dispositivo; trocá-la vale para as leituras ainda não atendidas
+    public void setEntrada(InputSource _entrada) {
+        entrada = _entrada;
+    }
+
+    public void setLatencia(long nanos) {
+        latenciaNanos = Math.max(0, nanos);
+    }
+
+    public void setSincrono(boolean _sincrono) {
+        sincrono = _sincrono;
+    }
+
+    // Chamado pela thread do dispositivo depois de cada pedido concluído
+    public void setAoConcluir(Runnable r) {
+        aoConcluir = r;
+    }
+
+    public synchronized void pede(Pedido p) {
+        if (sincrono) {
+            atende(p);
+            return;
+        }
+        if (atendente == null && !fechado) {
+            atendente = new Thread(this::atende, "console");
+            atendente.setDaemon(true);
+            atendente.start();
+        }
+        pedidos.add(p);
+    }
+
+    // Leitura barata (uma leitura volátil), feita pela CPU no fim de cada fatia
+    public boolean temConcluidos() {
+        return !concluidos.isEmpty();
+    }
+
+    // Próximo pedido concluído, ou null
+    public Pedido concluido() {
+        return concluidos.poll();
+    }
+
+    public long getAtendidos() {
+        return atendidos;
+    }
+
+    private void atende() {
+        while (!fechado) {
+            Pedido p;
+            try {
+                p = pedidos.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (p == null) {
+                continue;
+            }
+            if (latenciaNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(latenciaNanos);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            atende(p);
+        }
+    }
+
+    private void atende(Pedido p) {
+        if (p.operacao == LEITURA) {
+            if (entrada == null) {
+                entrada = InputSource.cria("teclado");
+            }
+            if (entrada.interativa()) {
+                saida.print("Entrada para o processo " + p.processo + ": ");
+                saida.flush();
+            }
+            OptionalInt v = entrada.proximo();
+            p.fimDaEntrada = !v.isPresent();
+            p.valor = v.orElse(0);
+            saida.println(p.fimDaEntrada ? "IN:    fim da entrada" : "IN:    " + p.valor);
+        } else {
+            saida.println("OUT:   " + p.valor);
+        }
+        atendidos++;
+        concluidos.add(p);
+        aoConcluir.run();
+    }
+
+    // Pedidos ainda na fila são descartados
+    @Override
+    public void close() {
+        fechado = true;
+        Thread t;
+        synchronized (this) {
+            t = atendente;
+        }
+        if (t != null) {
+            t.interrupt();
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
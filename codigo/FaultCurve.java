@@ -0,0 +1,360 @@
+import java.util.Arrays;
+
+// Curva de faltas de página para vários tamanhos de memória física em uma única passada pela sequência
+// de referências.
+//   LRU: algoritmo de distância de pilha de Mattson. A distância de uma referência é o número de páginas
+//        distintas usadas desde o último uso da mesma página; ela é obtida de uma árvore de Fenwick sobre
+//        os instantes de último uso, em O(log P). Uma referência é falta em LRU com m molduras se e só se
+//        a distância é maior que m, então um histograma de distâncias dá a curva inteira.
+//   FIFO e Clock não são algoritmos de pilha (anomalia de Belady): cada tamanho pedido é simulado ao
+//        mesmo tempo, referência a referência, com a residência de cada página guardada como um bit
+//        por tamanho.
+//   OPT (Belady) precisa do próximo uso de cada referência: as páginas são guardadas durante a passada
+//        e, ao final, o índice de próximo uso é montado de trás para frente e todos os tamanhos são
+//        simulados juntos, cada um com um heap de máximo pelo próximo uso.
+
+public class FaultCurve {
+
+    public static final int MAX_TAMANHOS = 32; // Um bit por tamanho em cada página
+
+    private final int[] tamanhos;
+
+    // Páginas referenciadas, na ordem (usadas pelo OPT)
+    private int[] sequencia = new int[1024];
+    private int n;
+    private int numPaginas; // Maior página vista + 1
+
+    // LRU (Mattson)
+    private int[] ultimo = new int[0];  // Instante (compactado) do último uso, -1 se nunca usada
+    private int[] fenwick;
+    private int[] paginaNoInstante;     // Página cujo último uso é o instante, ou -1
+    private int instante;
+    private long[] histograma = new long[2]; // histograma[d]: referências com distância d
+    private long faltasFrias;
+
+    // FIFO e Clock: bit i = página residente na simulação do tamanho i
+    private int[] residenteFifo = new int[0];
+    private int[] residenteClock = new int[0];
+    private int[] referenciadaClock = new int[0];
+    private final int[][] filaFifo;
+    private final int[] cabecaFifo;
+    private final int[][] quadrosClock;
+    private final int[] ponteiroClock;
+    private final int[] ocupados; // Molduras ocupadas por tamanho (iguais em FIFO e Clock)
+    private final long[] faltasFifo;
+    private final long[] faltasClock;
+
+    public FaultCurve(int[] tamanhos) {
+        if (tamanhos.length > MAX_TAMANHOS) {
+            throw new IllegalArgumentException("No máximo " + MAX_TAMANHOS + " tamanhos por curva");
+        }
+        this.tamanhos = tamanhos.clone();
+        filaFifo = new int[tamanhos.length][];
+        cabecaFifo = new int[tamanhos.length];
+        quadrosClock = new int[tamanhos.length][];
+        ponteiroClock = new int[tamanhos.length];
+        ocupados = new int[tamanhos.length];
+        faltasFifo = new long[tamanhos.length];
+        faltasClock = new long[tamanhos.length];
+        for (int i = 0; i < tamanhos.length; i++) {
+            filaFifo[i] = new int[tamanhos[i]];
+            quadrosClock[i] = new int[tamanhos[i]];
+        }
+        fenwick = new int[1025];
+        paginaNoInstante = new int[1024];
+        Arrays.fill(paginaNoInstante, -1);
+    }
+
+    // Potências de 2 de 1 até maxMolduras (inclusive, se for potência de 2)
+    public static int[] potenciasDeDois(int maxMolduras) {
+        int k = 32 - Integer.numberOfLeadingZeros(Math.max(1, maxMolduras));
+        int[] t = new int[Math.min(k, MAX_TAMANHOS)];
+        for (int i = 0; i < t.length; i++) {
+            t[i] = 1 << i;
+        }
+        return t;
+    }
+
+    public void referencia(int pagina) {
+        if (pagina >= numPaginas) {
+            cresce(pagina + 1);
+        }
+        if (n == sequencia.length) {
+            sequencia = Arrays.copyOf(sequencia, n * 2);
+        }
+        sequencia[n++] = pagina;
+        lru(pagina);
+        fifoEClock(pagina);
+    }
+
+    private void cresce(int paginas) {
+        int novo = Math.max(paginas, numPaginas * 2);
+        ultimo = Arrays.copyOf(ultimo, novo);
+        Arrays.fill(ultimo, numPaginas, novo, -1);
+        residenteFifo = Arrays.copyOf(residenteFifo, novo);
+        residenteClock = Arrays.copyOf(residenteClock, novo);
+        referenciadaClock = Arrays.copyOf(referenciadaClock, novo);
+        histograma = Arrays.copyOf(histograma, novo + 2);
+        numPaginas = paginas;
+    }
+
+    // ---- LRU
+
+    private void lru(int pagina) {
+        int anterior = ultimo[pagina];
+        if (anterior == -1) {
+            faltasFrias++;
+        } else {
+            // Páginas distintas usadas depois de anterior, mais a própria página
+            int distancia = soma(instante - 1) - soma(anterior) + 1;
+            histograma[distancia]++;
+            marca(anterior, -1);
+            paginaNoInstante[anterior] = -1;
+        }
+        if (instante == paginaNoInstante.length) {
+            compacta();
+        }
+        marca(instante, 1);
+        paginaNoInstante[instante] = pagina;
+        ultimo[pagina] = instante++;
+    }
+
+    // Renumera os instantes de último uso para 0..k-1, na mesma ordem, e reconstrói a árvore.
+    // Depois disso há pelo menos tantos instantes livres quanto páginas distintas, então o custo é amortizado
+    private void compacta() {
+        int k = 0;
+        for (int t = 0; t < instante; t++) {
+            if (paginaNoInstante[t] != -1) {
+                int p = paginaNoInstante[t];
+                paginaNoInstante[k] = p;
+                ultimo[p] = k++;
+            }
+        }
+        int capacidade = Math.max(paginaNoInstante.length, 2 * k + 1024);
+        int[] novos = new int[capacidade];
+        Arrays.fill(novos, -1);
+        System.arraycopy(paginaNoInstante, 0, novos, 0, k);
+        paginaNoInstante = novos;
+        fenwick = new int[capacidade + 1];
+        for (int i = 1; i <= capacidade; i++) { // Construção linear: marcas nas posições 1..k
+            if (i <= k) {
+                fenwick[i]++;
+            }
+            int pai = i + (i & -i);
+            if (pai <= capacidade) {
+                fenwick[pai] += fenwick[i];
+            }
+        }
+        instante = k;
+    }
+
+    private void marca(int t, int delta) {
+        for (int i = t + 1; i < fenwick.length; i += i & -i) {
+            fenwick[i] += delta;
+        }
+    }
+
+    // Marcas nos instantes 0..t
+    private int soma(int t) {
+        int s = 0;
+        for (int i = t + 1; i > 0; i -= i & -i) {
+            s += fenwick[i];
+        }
+        return s;
+    }
+
+    // ---- FIFO e Clock
+
+    private void fifoEClock(int pagina) {
+        for (int i = 0; i < tamanhos.length; i++) {
+            int bit = 1 << i;
+            int m = tamanhos[i];
+            boolean cheio = ocupados[i] == m; // Até encher, FIFO e Clock faltam nas mesmas referências
+            if ((residenteFifo[pagina] & bit) == 0) {
+                faltasFifo[i]++;
+                int[] fila = filaFifo[i];
+                if (cheio) {
+                    residenteFifo[fila[cabecaFifo[i]]] &= ~bit; // Sai a mais antiga
+                }
+                fila[cabecaFifo[i]] = pagina;
+                cabecaFifo[i] = cabecaFifo[i] + 1 == m ? 0 : cabecaFifo[i] + 1;
+                residenteFifo[pagina] |= bit;
+            }
+            if ((residenteClock[pagina] & bit) == 0) {
+                faltasClock[i]++;
+                int[] quadros = quadrosClock[i];
+                int pos;
+                if (cheio) {
+                    pos = ponteiroClock[i];
+                    while ((referenciadaClock[quadros[pos]] & bit) != 0) { // Segunda chance
+                        referenciadaClock[quadros[pos]] &= ~bit;
+                        pos = pos + 1 == m ? 0 : pos + 1;
+                    }
+                    residenteClock[quadros[pos]] &= ~bit;
+                    ponteiroClock[i] = pos + 1 == m ? 0 : pos + 1;
+                } else {
+                    pos = ocupados[i]++;
+                }
+                quadros[pos] = pagina;
+                residenteClock[pagina] |= bit;
+            }
+            referenciadaClock[pagina] |= bit; // A página carregada também conta como referenciada
+        }
+    }
+
+    // ---- OPT
+
+    // Simula OPT para todos os tamanhos sobre a sequência guardada
+    public long[] faltasOpt() {
+        int[] proximo = new int[n];
+        int[] visto = new int[numPaginas];
+        Arrays.fill(visto, -1);
+        for (int t = n - 1; t >= 0; t--) {
+            int p = sequencia[t];
+            // Páginas nunca mais usadas recebem n + p, para que todo próximo uso seja único
+            proximo[t] = visto[p] != -1 ? visto[p] : n + p;
+            visto[p] = t;
+        }
+        long[] faltas = new long[tamanhos.length];
+        int[] proximoUso = new int[numPaginas]; // Próximo uso atual de cada página
+        int[] residente = new int[numPaginas];
+        HeapDeMaximo[] heaps = new HeapDeMaximo[tamanhos.length];
+        int[] residentes = new int[tamanhos.length];
+        boolean[] heapAtivo = new boolean[tamanhos.length];
+        for (int i = 0; i < tamanhos.length; i++) {
+            heaps[i] = new HeapDeMaximo(4 * tamanhos[i] + 16);
+        }
+        for (int t = 0; t < n; t++) {
+            int p = sequencia[t];
+            proximoUso[p] = proximo[t];
+            for (int i = 0; i < tamanhos.length; i++) {
+                int bit = 1 << i;
+                HeapDeMaximo h = heaps[i];
+                if ((residente[p] & bit) == 0) {
+                    faltas[i]++;
+                    if (residentes[i] == tamanhos[i]) {
+                        if (!heapAtivo[i]) { // Primeira substituição: o heap só é montado quando vai ser usado
+                            for (int q = 0; q < numPaginas; q++) {
+                                if ((residente[q] & bit) != 0) {
+                                    h.insere(((long) proximoUso[q] << 32) | q);
+                                }
+                            }
+                            heapAtivo[i] = true;
+                        }
+                        int vitima;
+                        do { // Entradas antigas são descartadas: só vale a do próximo uso atual
+                            long e = h.remove();
+                            vitima = (int) e;
+                            if ((residente[vitima] & bit) != 0 && proximoUso[vitima] == (int) (e >>> 32)) {
+                                break;
+                            }
+                        } while (true);
+                        residente[vitima] &= ~bit;
+                    } else {
+                        residentes[i]++;
+                    }
+                    residente[p] |= bit;
+                }
+                if (heapAtivo[i]) {
+                    if (h.tamanho() == h.capacidade()) {
+                        h.filtra(residente, proximoUso, bit);
+                    }
+                    h.insere(((long) proximoUso[p] << 32) | p);
+                }
+            }
+        }
+        return faltas;
+    }
+
+    // Heap binário de máximo sobre longs (próximo uso << 32 | página)
+    private static final class HeapDeMaximo {
+        private final long[] v;
+        private int tam;
+
+        HeapDeMaximo(int capacidade) {
+            v = new long[capacidade];
+        }
+
+        int tamanho() {
+            return tam;
+        }
+
+        int capacidade() {
+            return v.length;
+        }
+
+        void insere(long x) {
+            int i = tam++;
+            while (i > 0 && v[(i - 1) / 2] < x) {
+                v[i] = v[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            v[i] = x;
+        }
+
+        long remove() {
+            long topo = v[0];
+            long x = v[--tam];
+            int i = 0;
+            while (2 * i + 1 < tam) {
+                int f = 2 * i + 1;
+                if (f + 1 < tam && v[f + 1] > v[f]) {
+                    f++;
+                }
+                if (v[f] <= x) {
+                    break;
+                }
+                v[i] = v[f];
+                i = f;
+            }
+            v[i] = x;
+            return topo;
+        }
+
+        // Mantém só as entradas válidas (uma por página residente) e refaz o heap
+        void filtra(int[] residente, int[] proximoUso, int bit) {
+            int k = 0;
+            for (int i = 0; i < tam; i++) {
+                int p = (int) v[i];
+                if ((residente[p] & bit) != 0 && proximoUso[p] == (int) (v[i] >>> 32)) {
+                    v[k++] = v[i];
+                }
+            }
+            tam = 0;
+            for (int i = 0; i < k; i++) {
+                insere(v[i]);
+            }
+        }
+    }
+
+    // ---- Resultados
+
+    public int[] getTamanhos() {
+        return tamanhos.clone();
+    }
+
+    public long getReferencias() {
+        return n;
+    }
+
+    public long getPaginasDistintas() {
+        return faltasFrias;
+    }
+
+    // Faltas em LRU com m molduras, para qualquer m
+    public long faltasLru(int m) {
+        long faltas = faltasFrias;
+        for (int d = m + 1; d < histograma.length; d++) {
+            faltas += histograma[d];
+        }
+        return faltas;
+    }
+
+    public long[] faltasFifo() {
+        return faltasFifo.clone();
+    }
+
+    public long[] faltasClock() {
+        return faltasClock.clone();
+    }
+}
@@ -0,0 +1,163 @@
+// Alocador de molduras livres baseado em bitmap hierárquico.
+// Nível 0: um bit por moldura (1 = livre). Nível k: um bit por palavra do nível k-1 (1 = palavra com algum bit livre).
+// Alocar e liberar custam O(log64 n) - no máximo 4 níveis para 2^24 molduras - e a moldura alocada
+// é sempre a livre de menor índice, mesma ordem da antiga varredura linear.
+
+public class FrameAllocator {
+
+    private final int total;
+    private final long[][] niveis;
+    private int livres;
+
+    public FrameAllocator(int total) {
+        if (total < 0) {
+            throw new IllegalArgumentException("Número de molduras inválido: " + total);
+        }
+        this.total = total;
+        int altura = 1;
+        for (int n = palavras(total); n > 1; n = palavras(n)) {
+            altura++;
+        }
+        niveis = new long[altura][];
+        int n = total;
+        for (int k = 0; k < altura; k++) {
+            niveis[k] = new long[Math.max(1, palavras(n))];
+            n = palavras(n);
+        }
+        liberaTudo();
+    }
+
+    private static int palavras(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    // Retorna a moldura livre de menor índice, marcando-a como ocupada, ou -1 se não houver
+    public int aloca() {
+        if (livres == 0) {
+            return -1;
+        }
+        int i = 0;
+        for (int k = niveis.length - 1; k >= 0; k--) {
+            i = (i << 6) | Long.numberOfTrailingZeros(niveis[k][i]);
+        }
+        ocupa(i);
+        return i;
+    }
+
+    // Aloca n molduras livres contíguas (n potência de 2) começando num múltiplo de n, a de menor índice;
+    // retorna a primeira ou -1. Percorre o nível 0 palavra por palavra: usado só em páginas grandes
+    public int alocaContiguas(int n) {
+        if (n <= 0 || Integer.bitCount(n) != 1) {
+            throw new IllegalArgumentException("Número de molduras contíguas deve ser potência de 2: " + n);
+        }
+        if (n == 1) {
+            return aloca();
+        }
+        if (livres < n) {
+            return -1;
+        }
+        long[] nivel = niveis[0];
+        int base = -1;
+        if (n < 64) {
+            long mascara = (1L << n) - 1;
+            for (int w = 0; w < nivel.length && base == -1; w++) {
+                for (int b = 0; nivel[w] != 0 && b < 64; b += n) {
+                    if (((nivel[w] >>> b) & mascara) == mascara) {
+                        base = (w << 6) + b;
+                        break;
+                    }
+                }
+            }
+        } else {
+            int palavrasPorGrupo = n >>> 6;
+            for (int w = 0; w + palavrasPorGrupo <= nivel.length && base == -1; w += palavrasPorGrupo) {
+                int k = 0;
+                while (k < palavrasPorGrupo && nivel[w + k] == -1L) {
+                    k++;
+                }
+                if (k == palavrasPorGrupo) {
+                    base = w << 6;
+                }
+            }
+        }
+        if (base == -1 || base + n > total) {
+            return -1;
+        }
+        for (int moldura = base; moldura < base + n; moldura++) {
+            ocupa(moldura);
+        }
+        return base;
+    }
+
+    // Marca uma moldura específica como ocupada (usado por quem restaura um mapa de molduras)
+    public void ocupa(int moldura) {
+        if (!estaLivre(moldura)) {
+            throw new IllegalStateException("Moldura " + moldura + " já está ocupada");
+        }
+        int i = moldura;
+        for (int k = 0; k < niveis.length; k++) {
+            long[] nivel = niveis[k];
+            nivel[i >>> 6] &= ~(1L << i);
+            if (nivel[i >>> 6] != 0) {
+                break;
+            }
+            i >>>= 6;
+        }
+        livres--;
+    }
+
+    public void libera(int moldura) {
+        if (estaLivre(moldura)) {
+            throw new IllegalStateException("Moldura " + moldura + " já está livre");
+        }
+        int i = moldura;
+        for (int k = 0; k < niveis.length; k++) {
+            long[] nivel = niveis[k];
+            boolean estavaVazia = nivel[i >>> 6] == 0;
+            nivel[i >>> 6] |= 1L << i;
+            if (!estavaVazia) {
+                break;
+            }
+            i >>>= 6;
+        }
+        livres++;
+    }
+
+    // Libera as n primeiras molduras do vetor (por exemplo, todas as molduras de um processo)
+    public void liberaTodas(int[] molduras, int n) {
+        for (int i = 0; i < n; i++) {
+            libera(molduras[i]);
+        }
+    }
+
+    // Volta ao estado inicial, com todas as molduras livres
+    public void liberaTudo() {
+        int n = total;
+        for (long[] nivel : niveis) {
+            java.util.Arrays.fill(nivel, 0L);
+            for (int i = 0; i < n >>> 6; i++) {
+                nivel[i] = -1L;
+            }
+            if ((n & 63) != 0) {
+                nivel[n >>> 6] = (1L << n) - 1;
+            }
+            n = palavras(n);
+        }
+        livres = total;
+    }
+
+    public boolean estaLivre(int moldura) {
+        if (moldura < 0 || moldura >= total) {
+            throw new IndexOutOfBoundsException("Moldura inexistente: " + moldura);
+        }
+        return (niveis[0][moldura >>> 6] & (1L << moldura)) != 0;
+    }
+
+    public int livres() {
+        return livres;
+    }
+
+    public int total() {
+        return total;
+    }
+}
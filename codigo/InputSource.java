@@ -0,0 +1,108 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.OptionalInt;
+
+// Origem dos valores lidos pelo SYSCALL de leitura (ver ConsoleDevice). Só a thread do dispositivo a
+// consulta, um valor por pedido e na ordem dos pedidos; com uma origem roteirizada (lista ou arquivo) os
+// valores lidos não dependem de quem digita nem de quando.
+// Especificação textual, usada na linha de comando (cria):
+//   teclado                 inteiros digitados na entrada padrão (padrão)
+//   valores:v1,v2,...       os valores dados, em ordem
+//   arquivo:caminho         inteiros do arquivo, separados por espaços ou linhas
+
+public interface InputSource {
+
+    // Próximo valor, ou vazio no fim da entrada
+    OptionalInt proximo();
+
+    // O dispositivo avisa no console antes de esperar o valor
+    default boolean interativa() {
+        return false;
+    }
+
+    static InputSource cria(String especificacao) {
+        int doisPontos = especificacao.indexOf(':');
+        String nome = doisPontos < 0 ? especificacao : especificacao.substring(0, doisPontos);
+        String parametro = doisPontos < 0 ? "" : especificacao.substring(doisPontos + 1);
+        switch (nome) {
+            case "teclado":
+                return new Texto(new InputStreamReader(System.in, StandardCharsets.UTF_8), true);
+            case "valores":
+                Fila f = new Fila();
+                for (String v : parametro.split(",")) {
+                    if (!v.isBlank()) {
+                        f.adiciona(Integer.parseInt(v.trim()));
+                    }
+                }
+                return f;
+            case "arquivo":
+                try {
+                    return new Texto(Files.newBufferedReader(Paths.get(parametro), StandardCharsets.UTF_8), false);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Não foi possível abrir a entrada " + parametro, e);
+                }
+            default:
+                throw new IllegalArgumentException("Origem de entrada desconhecida: " + especificacao);
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------
+
+    // Fila em memória; pode receber valores durante a execução
+    final class Fila implements InputSource {
+        private final ArrayDeque<Integer> valores = new ArrayDeque<>();
+
+        public synchronized Fila adiciona(int valor) {
+            valores.add(valor);
+            return this;
+        }
+
+        @Override
+        public synchronized OptionalInt proximo() {
+            Integer v = valores.poll();
+            return v == null ? OptionalInt.empty() : OptionalInt.of(v);
+        }
+    }
+
+    // Inteiros em texto, separados por espaços ou linhas; um valor que não é inteiro termina a entrada
+    final class Texto implements InputSource {
+        private final BufferedReader leitor;
+        private final boolean interativa;
+        private String[] linha = new String[0];
+        private int proximoCampo;
+
+        public Texto(Reader leitor, boolean interativa) {
+            this.leitor = new BufferedReader(leitor);
+            this.interativa = interativa;
+        }
+
+        @Override
+        public OptionalInt proximo() {
+            try {
+                while (proximoCampo == linha.length) {
+                    String l = leitor.readLine();
+                    if (l == null) {
+                        return OptionalInt.empty();
+                    }
+                    linha = l.trim().isEmpty() ? new String[0] : l.trim().split("\\s+");
+                    proximoCampo = 0;
+                }
+                return OptionalInt.of(Integer.parseInt(linha[proximoCampo++]));
+            } catch (IOException | NumberFormatException e) {
+                return OptionalInt.empty();
+            }
+        }
+
+        @Override
+        public boolean interativa() {
+            return interativa;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+import java.util.Locale;
+
+// Antecipação de páginas: detecta, por processo, faltas com passo constante (passo 1 = acesso sequencial)
+// e sugere as próximas páginas do fluxo antes que sejam referenciadas. O primeiro uso de uma página
+// antecipada também alimenta o detector, para que a janela continue à frente do programa em vez de o
+// fluxo se perder quando as faltas param de acontecer.
+// Autorregulação: a cada JANELA páginas antecipadas com destino conhecido (usadas ou removidas sem uso),
+// a profundidade dobra se a precisão foi alta e cai pela metade se foi baixa. Com profundidade 0 a
+// antecipação fica desligada e é retomada com profundidade 1 depois de REATIVACAO fluxos detectados.
+
+public class PagePrefetcher {
+
+    private static final int JANELA = 32;
+    private static final int REATIVACAO = 64;
+    private static final int CONFIANCA_MINIMA = 1; // Quantas repetições do passo confirmam o fluxo
+    private static final int PASSO_MAXIMO = 64;    // Passos maiores são tratados como acessos aleatórios
+
+    // Estado do detector de um processo
+    public static final class Fluxo {
+        private int ultima = -1;
+        private int passo;
+        private int confianca;
+    }
+
+    private final int profundidadeMaxima;
+    private int profundidade;
+    private int usadasNaJanela;
+    private int resolvidasNaJanela;
+    private int fluxosSemAntecipar;
+
+    private long emitidas;
+    private long usadas;
+    private long desperdicadas;
+    private long faltas;
+
+    public PagePrefetcher(int profundidadeMaxima) {
+        this.profundidadeMaxima = Math.max(0, profundidadeMaxima);
+        this.profundidade = this.profundidadeMaxima;
+    }
+
+    // Acesso à página que causou falta (falta = true) ou primeiro uso de página antecipada. Escreve em
+    // sugeridas as páginas a antecipar, na ordem do fluxo, e retorna quantas são (sem verificar se já
+    // estão mapeadas ou se estão dentro do espaço do processo)
+    public int observa(Fluxo f, int pagina, boolean falta, int[] sugeridas) {
+        if (falta) {
+            faltas++;
+        }
+        int delta = f.ultima < 0 ? 0 : pagina - f.ultima;
+        f.ultima = pagina;
+        if (delta == 0 || Math.abs(delta) > PASSO_MAXIMO) {
+            f.confianca = 0;
+            return 0;
+        }
+        if (delta != f.passo) {
+            f.passo = delta;
+            f.confianca = 0;
+            return 0;
+        }
+        if (++f.confianca < CONFIANCA_MINIMA) {
+            return 0;
+        }
+        if (profundidade == 0) {
+            if (++fluxosSemAntecipar < REATIVACAO) {
+                return 0;
+            }
+            fluxosSemAntecipar = 0;
+            profundidade = 1;
+        }
+        int n = Math.min(profundidade, sugeridas.length);
+        for (int i = 0; i < n; i++) {
+            sugeridas[i] = pagina + (i + 1) * delta;
+        }
+        return n;
+    }
+
+    // Uma página sugerida foi de fato carregada
+    public void emitida() {
+        emitidas++;
+    }
+
+    public void usada() {
+        usadas++;
+        usadasNaJanela++;
+        resolve();
+    }
+
+    // Página antecipada removida (ou liberada no fim do processo) sem nunca ter sido referenciada
+    public void desperdicada() {
+        desperdicadas++;
+        resolve();
+    }
+
+    private void resolve() {
+        if (++resolvidasNaJanela < JANELA) {
+            return;
+        }
+        if (usadasNaJanela * 4 >= resolvidasNaJanela * 3) {
+            profundidade = Math.min(profundidadeMaxima, Math.max(1, profundidade * 2));
+        } else if (usadasNaJanela * 2 < resolvidasNaJanela) {
+            profundidade /= 2;
+        }
+        usadasNaJanela = 0;
+        resolvidasNaJanela = 0;
+    }
+
+    public int getProfundidade() {
+        return profundidade;
+    }
+
+    public long getEmitidas() {
+        return emitidas;
+    }
+
+    public long getUsadas() {
+        return usadas;
+    }
+
+    public long getDesperdicadas() {
+        return desperdicadas;
+    }
+
+    // Fração das páginas antecipadas com destino conhecido que foram usadas
+    public double precisao() {
+        return usadas + desperdicadas == 0 ? 0 : (double) usadas / (usadas + desperdicadas);
+    }
+
+    // Fração dos acessos a páginas novas atendidos por antecipação em vez de falta
+    public double cobertura() {
+        return usadas + faltas == 0 ? 0 : (double) usadas / (usadas + faltas);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "Antecipação: emitidas %d, usadas %d, desperdiçadas %d, precisão %.1f%%, cobertura %.1f%%, profundidade %d/%d",
+                emitidas, usadas, desperdicadas, 100 * precisao(), 100 * cobertura(), profundidade, profundidadeMaxima);
+    }
+}
@@ -0,0 +1,351 @@
+// Política de substituição de páginas, consultada quando ocorre falta de página sem moldura livre.
+// As políticas trabalham sobre índices de molduras e leem os bits de referência através de Referencias,
+// de modo que nenhuma alocação acontece por acesso ou por falta.
+
+public interface PageReplacementPolicy {
+
+    // Acesso aos bits de referência das páginas mapeadas nas molduras
+    interface Referencias {
+        boolean referenciada(int moldura);
+
+        void limpaReferencia(int moldura);
+
+        // Molduras não elegíveis (por exemplo, compartilhadas ou fixas) nunca são escolhidas como vítima
+        default boolean elegivel(int moldura) {
+            return true;
+        }
+    }
+
+    // Uma página acabou de ser carregada na moldura
+    void carregada(int moldura);
+
+    // A moldura foi liberada sem passar pela política (por exemplo, fim de processo)
+    void liberada(int moldura);
+
+    // Escolhe a moldura cuja página será removida, ou -1 se nenhuma puder ser removida
+    int escolheVitima(Referencias refs);
+
+    String nome();
+
+    // Estado interno, para instantâneos (ver Sistema.Snapshot); restaura recebe o que estado devolveu, numa
+    // política nova com o mesmo número de molduras
+    long[] estado();
+
+    void restaura(long[] estado);
+
+    static PageReplacementPolicy cria(String nome, int numMolduras) {
+        switch (nome.toLowerCase()) {
+            case "fifo":
+                return new Fifo(numMolduras);
+            case "lru":
+                return new Lru(numMolduras);
+            case "clock":
+                return new Clock(numMolduras);
+            case "nfu":
+                return new Nfu(numMolduras);
+            default:
+                throw new IllegalArgumentException("Política de substituição desconhecida: " + nome);
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------
+    // FIFO: lista duplamente encadeada intrusiva, na ordem de carga
+
+    final class Fifo implements PageReplacementPolicy {
+        private final int[] prox;
+        private final int[] ant;
+        private final boolean[] naLista;
+        private int cabeca = -1;
+        private int cauda = -1;
+
+        public Fifo(int numMolduras) {
+            prox = new int[numMolduras];
+            ant = new int[numMolduras];
+            naLista = new boolean[numMolduras];
+        }
+
+        @Override
+        public void carregada(int moldura) {
+            if (naLista[moldura]) {
+                remove(moldura);
+            }
+            naLista[moldura] = true;
+            prox[moldura] = -1;
+            ant[moldura] = cauda;
+            if (cauda != -1) {
+                prox[cauda] = moldura;
+            } else {
+                cabeca = moldura;
+            }
+            cauda = moldura;
+        }
+
+        @Override
+        public void liberada(int moldura) {
+            if (naLista[moldura]) {
+                remove(moldura);
+            }
+        }
+
+        private void remove(int moldura) {
+            if (ant[moldura] != -1) {
+                prox[ant[moldura]] = prox[moldura];
+            } else {
+                cabeca = prox[moldura];
+            }
+            if (prox[moldura] != -1) {
+                ant[prox[moldura]] = ant[moldura];
+            } else {
+                cauda = ant[moldura];
+            }
+            naLista[moldura] = false;
+        }
+
+        @Override
+        public int escolheVitima(Referencias refs) {
+            for (int m = cabeca; m != -1; m = prox[m]) {
+                if (refs.elegivel(m)) {
+                    remove(m);
+                    return m;
+                }
+            }
+            return -1;
+        }
+
+        // Molduras na ordem da lista, da primeira a sair à última
+        @Override
+        public long[] estado() {
+            int n = 0;
+            for (int m = cabeca; m != -1; m = prox[m]) {
+                n++;
+            }
+            long[] estado = new long[n];
+            n = 0;
+            for (int m = cabeca; m != -1; m = prox[m]) {
+                estado[n++] = m;
+            }
+            return estado;
+        }
+
+        @Override
+        public void restaura(long[] estado) {
+            for (long m : estado) {
+                carregada((int) m);
+            }
+        }
+
+        @Override
+        public String nome() {
+            return "fifo";
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------
+    // LRU aproximado (aging): a cada falta, o contador de cada moldura é deslocado à direita e
+    // recebe o bit de referência no bit mais significativo; a vítima é a de menor contador
+
+    final class Lru implements PageReplacementPolicy {
+        private final int[] idade;
+        private final boolean[] emUso;
+
+        public Lru(int numMolduras) {
+            idade = new int[numMolduras];
+            emUso = new boolean[numMolduras];
+        }
+
+        @Override
+        public void carregada(int moldura) {
+            emUso[moldura] = true;
+            idade[moldura] = 1 << 31; // Acabou de ser usada
+        }
+
+        @Override
+        public void liberada(int moldura) {
+            emUso[moldura] = false;
+        }
+
+        @Override
+        public int escolheVitima(Referencias refs) {
+            int vitima = -1;
+            for (int m = 0; m < idade.length; m++) {
+                if (!emUso[m]) {
+                    continue;
+                }
+                idade[m] >>>= 1;
+                if (refs.referenciada(m)) {
+                    idade[m] |= 1 << 31;
+                    refs.limpaReferencia(m);
+                }
+                if (refs.elegivel(m) && (vitima == -1 || Integer.compareUnsigned(idade[m], idade[vitima]) < 0)) {
+                    vitima = m;
+                }
+            }
+            if (vitima != -1) {
+                emUso[vitima] = false;
+            }
+            return vitima;
+        }
+
+        // Um long por moldura: 1 << 32 | idade se está em uso, 0 se não
+        @Override
+        public long[] estado() {
+            long[] estado = new long[idade.length];
+            for (int m = 0; m < idade.length; m++) {
+                estado[m] = emUso[m] ? 1L << 32 | (idade[m] & 0xFFFFFFFFL) : 0;
+            }
+            return estado;
+        }
+
+        @Override
+        public void restaura(long[] estado) {
+            for (int m = 0; m < idade.length; m++) {
+                emUso[m] = estado[m] != 0;
+                idade[m] = (int) estado[m];
+            }
+        }
+
+        @Override
+        public String nome() {
+            return "lru";
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------
+    // Clock (segunda chance): o ponteiro percorre as molduras; referenciadas perdem o bit e são poupadas
+
+    final class Clock implements PageReplacementPolicy {
+        private final boolean[] emUso;
+        private int ponteiro;
+
+        public Clock(int numMolduras) {
+            emUso = new boolean[numMolduras];
+        }
+
+        @Override
+        public void carregada(int moldura) {
+            emUso[moldura] = true;
+        }
+
+        @Override
+        public void liberada(int moldura) {
+            emUso[moldura] = false;
+        }
+
+        @Override
+        public int escolheVitima(Referencias refs) {
+            int n = emUso.length;
+            // Duas voltas bastam: na primeira todos os bits de referência são limpos
+            for (int passos = 0; passos < 2 * n; passos++) {
+                int m = ponteiro;
+                ponteiro = ponteiro + 1 == n ? 0 : ponteiro + 1;
+                if (!emUso[m] || !refs.elegivel(m)) {
+                    continue;
+                }
+                if (refs.referenciada(m)) {
+                    refs.limpaReferencia(m);
+                } else {
+                    emUso[m] = false;
+                    return m;
+                }
+            }
+            return -1;
+        }
+
+        // O ponteiro, seguido de um long por moldura (1 se está em uso)
+        @Override
+        public long[] estado() {
+            long[] estado = new long[emUso.length + 1];
+            estado[0] = ponteiro;
+            for (int m = 0; m < emUso.length; m++) {
+                estado[m + 1] = emUso[m] ? 1 : 0;
+            }
+            return estado;
+        }
+
+        @Override
+        public void restaura(long[] estado) {
+            ponteiro = (int) estado[0];
+            for (int m = 0; m < emUso.length; m++) {
+                emUso[m] = estado[m + 1] != 0;
+            }
+        }
+
+        @Override
+        public String nome() {
+            return "clock";
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------
+    // NFU (not frequently used): contador de referências amostrado a cada falta; a vítima é a de menor contagem
+
+    final class Nfu implements PageReplacementPolicy {
+        private final long[] contagem;
+        private final boolean[] emUso;
+
+        public Nfu(int numMolduras) {
+            contagem = new long[numMolduras];
+            emUso = new boolean[numMolduras];
+        }
+
+        @Override
+        public void carregada(int moldura) {
+            emUso[moldura] = true;
+            contagem[moldura] = 0;
+        }
+
+        @Override
+        public void liberada(int moldura) {
+            emUso[moldura] = false;
+        }
+
+        @Override
+        public int escolheVitima(Referencias refs) {
+            int vitima = -1;
+            for (int m = 0; m < contagem.length; m++) {
+                if (!emUso[m]) {
+                    continue;
+                }
+                if (refs.referenciada(m)) {
+                    contagem[m]++;
+                    refs.limpaReferencia(m);
+                }
+                if (refs.elegivel(m) && (vitima == -1 || contagem[m] < contagem[vitima])) {
+                    vitima = m;
+                }
+            }
+            if (vitima != -1) {
+                emUso[vitima] = false;
+            }
+            return vitima;
+        }
+
+        // Um long por moldura: a contagem se está em uso, -1 se não
+        @Override
+        public long[] estado() {
+            long[] estado = new long[contagem.length];
+            for (int m = 0; m < contagem.length; m++) {
+                estado[m] = emUso[m] ? contagem[m] : -1;
+            }
+            return estado;
+        }
+
+        @Override
+        public void restaura(long[] estado) {
+            for (int m = 0; m < contagem.length; m++) {
+                emUso[m] = estado[m] >= 0;
+                contagem[m] = Math.max(0, estado[m]);
+            }
+        }
+
+        @Override
+        public String nome() {
+            return "nfu";
+        }
+    }
+
+    // Utilitário para relatórios: nomes de todas as políticas disponíveis
+    static String[] nomes() {
+        return new String[] {"fifo", "lru", "clock", "nfu"};
+    }
+}
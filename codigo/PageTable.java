@@ -0,0 +1,384 @@
+import java.util.Arrays;
+
+// Tabela de páginas de um espaço de endereçamento: mapeia número de página virtual para a entrada no formato
+// de PageTableEntry. Entrada 0 (NAO_MAPEADA) é o valor de toda página ausente, de modo que as estruturas
+// esparsas só guardam as páginas já tocadas.
+//   plana    vetor int[numPaginas], alocado inteiro na criação (acesso direto)
+//   radix2   dois níveis: diretório + folhas de 1024 entradas alocadas na primeira escrita
+//   radix3   três níveis, para espaços muito grandes (diretório e nível intermediário de 1024 ponteiros)
+//   hash     tabela com hash (endereçamento aberto), dimensionada pelo número de molduras físicas:
+//            ocupação proporcional às páginas residentes ou em swap, não ao tamanho do espaço virtual
+//   radix    radix2 ou radix3, conforme o número de páginas
+
+public interface PageTable {
+
+    int numPaginas();
+
+    // Entrada da página (0 se nunca mapeada)
+    int le(int pagina);
+
+    // Grava a entrada; gravar 0 pode liberar a memória da estrutura
+    void escreve(int pagina, int pte);
+
+    // Visita as entradas diferentes de 0, em ordem não especificada; o visitante não deve alterar a tabela
+    void percorre(Visitante v);
+
+    // Todas as entradas voltam a 0
+    void limpa();
+
+    // Memória ocupada pela estrutura, em bytes (estimativa: cabeçalho de 16 bytes por vetor, ponteiros de 4)
+    long bytes();
+
+    String nome();
+
+    interface Visitante {
+        void entrada(int pagina, int pte);
+    }
+
+    static PageTable cria(String nome, int numPaginas, int numMolduras) {
+        switch (nome.toLowerCase()) {
+            case "plana":
+                return new Plana(numPaginas);
+            case "radix":
+                return new Radix(numPaginas, numPaginas > 1 << 20 ? 3 : 2);
+            case "radix2":
+                return new Radix(numPaginas, 2);
+            case "radix3":
+                return new Radix(numPaginas, 3);
+            case "hash":
+                return new Hash(numPaginas, numMolduras);
+            default:
+                throw new IllegalArgumentException("Estrutura de tabela de páginas desconhecida: " + nome);
+        }
+    }
+
+    static String[] nomes() {
+        return new String[] {"plana", "radix2", "radix3", "hash"};
+    }
+
+    long CABECALHO_VETOR = 16;
+    long PONTEIRO = 4;
+
+    // ------------------------------------------------------------------------------------------------------
+
+    final class Plana implements PageTable {
+        private final int[] entradas;
+
+        public Plana(int numPaginas) {
+            entradas = new int[numPaginas]; // Todas as entradas começam NAO_MAPEADA
+        }
+
+        @Override
+        public int numPaginas() {
+            return entradas.length;
+        }
+
+        @Override
+        public int le(int pagina) {
+            return entradas[pagina];
+        }
+
+        @Override
+        public void escreve(int pagina, int pte) {
+            entradas[pagina] = pte;
+        }
+
+        @Override
+        public void percorre(Visitante v) {
+            for (int pagina = 0; pagina < entradas.length; pagina++) {
+                if (entradas[pagina] != PageTableEntry.NAO_MAPEADA) {
+                    v.entrada(pagina, entradas[pagina]);
+                }
+            }
+        }
+
+        @Override
+        public void limpa() {
+            Arrays.fill(entradas, PageTableEntry.NAO_MAPEADA);
+        }
+
+        @Override
+        public long bytes() {
+            return CABECALHO_VETOR + 4L * entradas.length;
+        }
+
+        @Override
+        public String nome() {
+            return "plana";
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------
+    // Radix: a página é dividida em índice do diretório, índice intermediário (só com 3 níveis) e índice
+    // na folha. Com 2 níveis o "intermediário" é o próprio diretório. Cada folha tem uma posição extra no
+    // fim com o número de entradas não nulas; a folha que fica vazia é liberada
+
+    final class Radix implements PageTable {
+        private static final int BITS_FOLHA = 10;
+        private static final int TAM_FOLHA = 1 << BITS_FOLHA;
+        private static final int MASCARA_FOLHA = TAM_FOLHA - 1;
+        private static final int BITS_MEIO = 10;
+
+        private final int numPaginas;
+        private final int niveis;
+        private final int[][][] diretorio; // Só com 3 níveis
+        private int[][] unico;             // Só com 2 níveis
+        private final int mascaraMeio;
+        private final int deslocDiretorio;
+        private final int tamMeio;
+        private long folhas;
+        private long meios;
+
+        public Radix(int numPaginas, int niveis) {
+            this.numPaginas = numPaginas;
+            this.niveis = niveis;
+            int bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, numPaginas - 1));
+            if (niveis == 3) {
+                deslocDiretorio = BITS_FOLHA + BITS_MEIO;
+                tamMeio = 1 << BITS_MEIO;
+                diretorio = new int[Math.max(1, 1 << Math.max(0, bits - deslocDiretorio))][][];
+            } else {
+                deslocDiretorio = 31;
+                tamMeio = Math.max(1, 1 << Math.max(0, bits - BITS_FOLHA));
+                diretorio = null;
+                unico = new int[tamMeio][];
+                meios = 1;
+            }
+            mascaraMeio = tamMeio - 1;
+        }
+
+        @Override
+        public int numPaginas() {
+            return numPaginas;
+        }
+
+        @Override
+        public int le(int pagina) {
+            int[][] meio = diretorio == null ? unico : diretorio[pagina >>> deslocDiretorio];
+            if (meio == null) {
+                return PageTableEntry.NAO_MAPEADA;
+            }
+            int[] folha = meio[(pagina >>> BITS_FOLHA) & mascaraMeio];
+            return folha == null ? PageTableEntry.NAO_MAPEADA : folha[pagina & MASCARA_FOLHA];
+        }
+
+        @Override
+        public void escreve(int pagina, int pte) {
+            int[][] meio = diretorio == null ? unico : diretorio[pagina >>> deslocDiretorio];
+            if (meio == null) {
+                if (pte == PageTableEntry.NAO_MAPEADA) {
+                    return;
+                }
+                meio = new int[tamMeio][];
+                diretorio[pagina >>> deslocDiretorio] = meio;
+                meios++;
+            }
+            int iMeio = (pagina >>> BITS_FOLHA) & mascaraMeio;
+            int[] folha = meio[iMeio];
+            if (folha == null) {
+                if (pte == PageTableEntry.NAO_MAPEADA) {
+                    return;
+                }
+                folha = new int[TAM_FOLHA + 1];
+                meio[iMeio] = folha;
+                folhas++;
+            }
+            int i = pagina & MASCARA_FOLHA;
+            if (folha[i] == PageTableEntry.NAO_MAPEADA) {
+                folha[TAM_FOLHA]++;
+            }
+            if (pte == PageTableEntry.NAO_MAPEADA) {
+                folha[TAM_FOLHA]--;
+            }
+            folha[i] = pte;
+            if (folha[TAM_FOLHA] == 0) {
+                meio[iMeio] = null;
+                folhas--;
+            }
+        }
+
+        @Override
+        public void percorre(Visitante v) {
+            if (diretorio == null) {
+                percorre(unico, 0, v);
+                return;
+            }
+            for (int d = 0; d < diretorio.length; d++) {
+                if (diretorio[d] != null) {
+                    percorre(diretorio[d], d << deslocDiretorio, v);
+                }
+            }
+        }
+
+        private void percorre(int[][] meio, int base, Visitante v) {
+            for (int m = 0; m < meio.length; m++) {
+                int[] folha = meio[m];
+                if (folha == null) {
+                    continue;
+                }
+                for (int i = 0; i < TAM_FOLHA; i++) {
+                    if (folha[i] != PageTableEntry.NAO_MAPEADA) {
+                        v.entrada(base | (m << BITS_FOLHA) | i, folha[i]);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void limpa() {
+            if (diretorio == null) {
+                unico = new int[tamMeio][];
+            } else {
+                Arrays.fill(diretorio, null);
+                meios = 0;
+            }
+            folhas = 0;
+        }
+
+        @Override
+        public long bytes() {
+            long b = meios * (CABECALHO_VETOR + PONTEIRO * tamMeio) + folhas * (CABECALHO_VETOR + 4L * (TAM_FOLHA + 1));
+            if (diretorio != null) {
+                b += CABECALHO_VETOR + PONTEIRO * diretorio.length;
+            }
+            return b;
+        }
+
+        @Override
+        public String nome() {
+            return "radix" + niveis;
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------
+    // Hash: endereçamento aberto com sondagem linear; chave = página + 1 (0 marca posição vazia). A
+    // capacidade inicial é o dobro do número de molduras (potência de 2), que limita as páginas residentes
+    // de um processo; a tabela só cresce se muitas páginas estiverem no swap. Remoção por deslocamento para
+    // trás, sem marcas de removido, para que as buscas continuem curtas
+
+    final class Hash implements PageTable {
+        private final int numPaginas;
+        private int[] chaves;
+        private int[] valores;
+        private int mascara;
+        private int deslocHash;
+        private int ocupadas;
+
+        public Hash(int numPaginas, int numMolduras) {
+            this.numPaginas = numPaginas;
+            aloca(Math.max(16, Integer.highestOneBit(Math.max(1, Math.min(numPaginas, numMolduras)) * 2 - 1) << 1));
+        }
+
+        private void aloca(int capacidade) {
+            chaves = new int[capacidade];
+            valores = new int[capacidade];
+            mascara = capacidade - 1;
+            deslocHash = 32 - Integer.numberOfTrailingZeros(capacidade);
+            ocupadas = 0;
+        }
+
+        private int posicao(int pagina) {
+            return ((pagina + 1) * 0x9E3779B1) >>> deslocHash;
+        }
+
+        @Override
+        public int numPaginas() {
+            return numPaginas;
+        }
+
+        @Override
+        public int le(int pagina) {
+            int chave = pagina + 1;
+            for (int i = posicao(pagina); ; i = (i + 1) & mascara) {
+                int k = chaves[i];
+                if (k == chave) {
+                    return valores[i];
+                }
+                if (k == 0) {
+                    return PageTableEntry.NAO_MAPEADA;
+                }
+            }
+        }
+
+        @Override
+        public void escreve(int pagina, int pte) {
+            int chave = pagina + 1;
+            int i = posicao(pagina);
+            while (chaves[i] != 0 && chaves[i] != chave) {
+                i = (i + 1) & mascara;
+            }
+            if (chaves[i] == chave) {
+                if (pte == PageTableEntry.NAO_MAPEADA) {
+                    remove(i);
+                } else {
+                    valores[i] = pte;
+                }
+                return;
+            }
+            if (pte == PageTableEntry.NAO_MAPEADA) {
+                return;
+            }
+            if (2 * (ocupadas + 1) > chaves.length) {
+                cresce();
+                escreve(pagina, pte);
+                return;
+            }
+            chaves[i] = chave;
+            valores[i] = pte;
+            ocupadas++;
+        }
+
+        private void remove(int i) {
+            int vazia = i;
+            for (int j = (i + 1) & mascara; chaves[j] != 0; j = (j + 1) & mascara) {
+                int ideal = posicao(chaves[j] - 1);
+                // A entrada em j pode ocupar a posição vazia se esta estiver entre a ideal e j (circularmente)
+                if (((j - ideal) & mascara) >= ((j - vazia) & mascara)) {
+                    chaves[vazia] = chaves[j];
+                    valores[vazia] = valores[j];
+                    vazia = j;
+                }
+            }
+            chaves[vazia] = 0;
+            valores[vazia] = 0;
+            ocupadas--;
+        }
+
+        private void cresce() {
+            int[] k = chaves;
+            int[] v = valores;
+            aloca(k.length << 1);
+            for (int i = 0; i < k.length; i++) {
+                if (k[i] != 0) {
+                    escreve(k[i] - 1, v[i]);
+                }
+            }
+        }
+
+        @Override
+        public void percorre(Visitante v) {
+            for (int i = 0; i < chaves.length; i++) {
+                if (chaves[i] != 0) {
+                    v.entrada(chaves[i] - 1, valores[i]);
+                }
+            }
+        }
+
+        @Override
+        public void limpa() {
+            Arrays.fill(chaves, 0);
+            Arrays.fill(valores, 0);
+            ocupadas = 0;
+        }
+
+        @Override
+        public long bytes() {
+            return 2 * (CABECALHO_VETOR + 4L * chaves.length);
+        }
+
+        @Override
+        public String nome() {
+            return "hash";
+        }
+    }
+}
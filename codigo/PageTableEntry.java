@@ -0,0 +1,64 @@
+// Formato de uma entrada da tabela de páginas, compactada em um int:
+//   bits 0-26  moldura física (se válida) ou slot de swap (se em swap)
+//   bit  27    em swap: página fora da memória física, com conteúdo guardado no slot
+//   bit  28    válida (página presente em memória física)
+//   bit  29    referenciada desde a última vez que a política de substituição limpou o bit
+//   bit  30    suja (escrita desde que foi carregada)
+//   bit  31    cópia na escrita: a moldura pode estar compartilhada e só é lida; a primeira escrita passa
+//              pelo gerente de memória, que copia a página ou a torna exclusiva do processo
+// Entrada 0 = página nunca mapeada.
+
+public final class PageTableEntry {
+
+    public static final int NAO_MAPEADA = 0;
+    public static final int MASCARA_MOLDURA = (1 << 27) - 1;
+    public static final int EM_SWAP = 1 << 27;
+    public static final int VALIDA = 1 << 28;
+    public static final int REFERENCIADA = 1 << 29;
+    public static final int SUJA = 1 << 30;
+    public static final int COPIA_NA_ESCRITA = 1 << 31;
+
+    private PageTableEntry() {
+    }
+
+    public static int mapeada(int moldura) {
+        return VALIDA | moldura;
+    }
+
+    public static int noSwap(int slot) {
+        return EM_SWAP | slot;
+    }
+
+    public static boolean emSwap(int pte) {
+        return (pte & EM_SWAP) != 0;
+    }
+
+    public static int slot(int pte) {
+        return pte & MASCARA_MOLDURA;
+    }
+
+    public static boolean valida(int pte) {
+        return (pte & VALIDA) != 0;
+    }
+
+    public static boolean referenciada(int pte) {
+        return (pte & REFERENCIADA) != 0;
+    }
+
+    public static boolean suja(int pte) {
+        return (pte & SUJA) != 0;
+    }
+
+    public static boolean copiaNaEscrita(int pte) {
+        return (pte & COPIA_NA_ESCRITA) != 0;
+    }
+
+    public static int moldura(int pte) {
+        return pte & MASCARA_MOLDURA;
+    }
+
+    // Moldura da página, ou -1 se não estiver em memória física (formato usado nas impressões)
+    public static int molduraOuMenosUm(int pte) {
+        return valida(pte) ? moldura(pte) : -1;
+    }
+}
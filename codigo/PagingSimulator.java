@@ -0,0 +1,122 @@
+import java.util.HashMap;
+
+// Simulador de paginação sem execução de instruções: recebe apenas a sequência de referências a páginas
+// e aplica a mesma lógica do MemoryManager (tabelas de páginas com PageTableEntry, FrameAllocator e
+// PageReplacementPolicy). O conteúdo das páginas não existe aqui; uma vítima suja conta como escrita
+// no swap. Cada processo tem sua tabela de páginas, criada na primeira referência.
+
+public class PagingSimulator {
+
+    private final int paginasPorProcesso;
+    private final FrameAllocator molduras;
+    private final PageReplacementPolicy politica;
+    private final int[][] tabelaDaMoldura; // Tabela de páginas do processo dono de cada moldura
+    private final int[] paginaDaMoldura;
+    private final HashMap<Integer, int[]> tabelas = new HashMap<>();
+    private int ultimoProcesso = -1;       // As referências vêm em rajadas do mesmo processo
+    private int[] ultimaTabela;
+
+    private long referencias;
+    private long faltas;
+    private long substituicoes;
+    private long escritasNoSwap;
+
+    private final PageReplacementPolicy.Referencias refs = new PageReplacementPolicy.Referencias() {
+        @Override
+        public boolean referenciada(int moldura) {
+            return PageTableEntry.referenciada(tabelaDaMoldura[moldura][paginaDaMoldura[moldura]]);
+        }
+
+        @Override
+        public void limpaReferencia(int moldura) {
+            tabelaDaMoldura[moldura][paginaDaMoldura[moldura]] &= ~PageTableEntry.REFERENCIADA;
+        }
+    };
+
+    public PagingSimulator(int numMolduras, int paginasPorProcesso, String politica) {
+        this.paginasPorProcesso = paginasPorProcesso;
+        molduras = new FrameAllocator(numMolduras);
+        this.politica = PageReplacementPolicy.cria(politica, numMolduras);
+        tabelaDaMoldura = new int[numMolduras][];
+        paginaDaMoldura = new int[numMolduras];
+    }
+
+    // Referência à página do processo; retorna true se houve falta de página
+    public boolean referencia(int processo, int pagina, boolean escrita) {
+        int[] tp = tabela(processo);
+        referencias++;
+        boolean falta = !PageTableEntry.valida(tp[pagina]);
+        if (falta) {
+            faltas++;
+            int moldura = molduras.aloca();
+            if (moldura == -1) {
+                moldura = substitui();
+            }
+            tabelaDaMoldura[moldura] = tp;
+            paginaDaMoldura[moldura] = pagina;
+            tp[pagina] = PageTableEntry.mapeada(moldura);
+            politica.carregada(moldura);
+        }
+        tp[pagina] |= PageTableEntry.REFERENCIADA | (escrita ? PageTableEntry.SUJA : 0);
+        return falta;
+    }
+
+    // Fim do processo: as molduras voltam a ficar livres, sem passar pela política
+    public void terminaProcesso(int processo) {
+        int[] tp = tabelas.remove(processo);
+        if (tp == null) {
+            return;
+        }
+        for (int pagina = 0; pagina < tp.length; pagina++) {
+            if (PageTableEntry.valida(tp[pagina])) {
+                int moldura = PageTableEntry.moldura(tp[pagina]);
+                politica.liberada(moldura);
+                tabelaDaMoldura[moldura] = null;
+                molduras.libera(moldura);
+            }
+        }
+        if (processo == ultimoProcesso) {
+            ultimoProcesso = -1;
+        }
+    }
+
+    private int substitui() {
+        int vitima = politica.escolheVitima(refs);
+        int[] tp = tabelaDaMoldura[vitima];
+        int pte = tp[paginaDaMoldura[vitima]];
+        if (PageTableEntry.suja(pte)) {
+            escritasNoSwap++;
+        }
+        tp[paginaDaMoldura[vitima]] = PageTableEntry.NAO_MAPEADA;
+        substituicoes++;
+        return vitima;
+    }
+
+    private int[] tabela(int processo) {
+        if (processo != ultimoProcesso) {
+            ultimaTabela = tabelas.computeIfAbsent(processo, p -> new int[paginasPorProcesso]);
+            ultimoProcesso = processo;
+        }
+        return ultimaTabela;
+    }
+
+    public long getReferencias() {
+        return referencias;
+    }
+
+    public long getFaltas() {
+        return faltas;
+    }
+
+    public long getSubstituicoes() {
+        return substituicoes;
+    }
+
+    public long getEscritasNoSwap() {
+        return escritasNoSwap;
+    }
+
+    public String nomePolitica() {
+        return politica.nome();
+    }
+}
@@ -0,0 +1,183 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Varredura de parâmetros do App: cada ponto da grade (bits da memória virtual, bits da memória física,
+// bits da página, política, gerador, estrutura da tabela de páginas) é uma simulação independente (uma
+// instância de App), executada em paralelo num ForkJoinPool. A semente de cada ponto é derivada da semente
+// base e dos parâmetros do ponto (sem a memória física, a política e a tabela, para que todas vejam a mesma
+// sequência de endereços); o resultado não depende do número de threads nem da ordem de execução. O CSV
+// sai na ordem da grade.
+// Uso: java ParameterSweep [--virtual=a:b] [--fisica=a:b] [--pagina=a:b] [--politicas=p,...]
+//                          [--geradores=g,...] [--tabelas=t,...] [--enderecos=n] [--semente=n]
+//                          [--threads=n] [--saida=arquivo]
+// Intervalos em bits, inclusivos ("8:12") ou listas ("8,10,12"). Sem --enderecos, cada ponto usa
+// tamMemVirtual + 300 endereços, como o modo interativo do App.
+
+public class ParameterSweep {
+
+    public static final String CABECALHO = "bits_virtual,bits_fisica,bits_pagina,politica,gerador,tabela,semente,"
+            + "enderecos,traduzidos,faltas,substituicoes,esgotou,bytes_tabela,ms";
+
+    private int[] bitsVirtual = {10, 11, 12, 13, 14};
+    private int[] bitsFisica = {6, 7, 8, 9, 10};
+    private int[] bitsPagina = {4, 6, 8};
+    private String[] politicas = PageReplacementPolicy.nomes();
+    private String[] geradores = {"uniforme"};
+    private String[] tabelas = {"plana"};
+    private long enderecos = -1;
+    private long semente = 1;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    public static void main(String[] args) {
+        ParameterSweep v = new ParameterSweep();
+        String arquivo = null;
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            String opcao = igual < 0 ? arg : arg.substring(0, igual);
+            String valor = igual < 0 ? "" : arg.substring(igual + 1);
+            switch (opcao) {
+                case "--virtual":
+                    v.bitsVirtual = intervalo(valor);
+                    break;
+                case "--fisica":
+                    v.bitsFisica = intervalo(valor);
+                    break;
+                case "--pagina":
+                    v.bitsPagina = intervalo(valor);
+                    break;
+                case "--politicas":
+                    v.politicas = valor.split(",");
+                    break;
+                case "--geradores":
+                    v.geradores = valor.split(",");
+                    break;
+                case "--tabelas":
+                    v.tabelas = valor.split(",");
+                    break;
+                case "--enderecos":
+                    v.enderecos = Long.parseLong(valor);
+                    break;
+                case "--semente":
+                    v.semente = Long.parseLong(valor);
+                    break;
+                case "--threads":
+                    v.threads = Integer.parseInt(valor);
+                    break;
+                case "--saida":
+                    arquivo = valor;
+                    break;
+                default:
+                    System.err.println("Opção desconhecida: " + arg);
+                    return;
+            }
+        }
+
+        long t0 = System.nanoTime();
+        try (PrintWriter csv = arquivo == null
+                ? new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)))
+                : new PrintWriter(Files.newBufferedWriter(Paths.get(arquivo), StandardCharsets.UTF_8))) {
+            int pontos = v.executa(csv);
+            System.err.println(String.format(Locale.ROOT, "Varredura: %d pontos em %d threads, %.1f s", pontos, v.threads,
+                    (System.nanoTime() - t0) / 1e9));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível criar " + arquivo, e);
+        }
+    }
+
+    // Executa todos os pontos válidos da grade e escreve o CSV (cabeçalho incluído); retorna o número de pontos
+    public int executa(PrintWriter csv) {
+        List<Callable<String>> tarefas = new ArrayList<>();
+        for (int bv : bitsVirtual) {
+            for (int bf : bitsFisica) {
+                for (int bp : bitsPagina) {
+                    if (bp > bf || bp > bv) {
+                        continue; // Nem uma moldura ou nem uma página inteira
+                    }
+                    for (String gerador : geradores) {
+                        long s = sementeDoPonto(semente, bv, bp, gerador);
+                        for (String politica : politicas) {
+                            for (String tabela : tabelas) {
+                                tarefas.add(() -> ponto(bv, bf, bp, politica, gerador, tabela, s));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            csv.println(CABECALHO);
+            for (Future<String> linha : pool.invokeAll(tarefas)) {
+                csv.println(linha.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha num ponto da varredura", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return tarefas.size();
+    }
+
+    private String ponto(int bv, int bf, int bp, String politica, String nomeGerador, String tabela, long s) {
+        int tamMemVirtual = 1 << bv;
+        int tamPag = 1 << bp;
+        long total = enderecos >= 0 ? enderecos : (long) tamMemVirtual + 300;
+        long t0 = System.nanoTime();
+        App app = new App(tamMemVirtual, 1 << bf, tamPag, politica, tabela);
+        AddressGenerator gerador = AddressGenerator.cria(nomeGerador, tamMemVirtual, tamPag, s);
+        app.executa(gerador, total, null);
+        return String.format(Locale.ROOT, "%d,%d,%d,%s,%s,%s,%d,%d,%d,%d,%d,%b,%d,%.3f", bv, bf, bp, politica, gerador.nome(),
+                app.getTabelaDePaginas().nome(), s, total, app.getTraduzidos(), app.getFaltas(), app.getSubstituicoes(),
+                app.esgotou(), app.getTabelaDePaginas().bytes(), (System.nanoTime() - t0) / 1e6);
+    }
+
+    // Mistura de 64 bits (finalizador do SplitMix64) sobre a semente base e os parâmetros do ponto
+    static long sementeDoPonto(long base, int bv, int bp, String gerador) {
+        long z = base;
+        z = mistura(z + bv);
+        z = mistura(z + bp);
+        return mistura(z + gerador.hashCode());
+    }
+
+    private static long mistura(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int[] intervalo(String valor) {
+        if (valor.contains(":")) {
+            String[] partes = valor.split(":");
+            int ini = Integer.parseInt(partes[0]);
+            int fim = Integer.parseInt(partes[1]);
+            int[] r = new int[Math.max(0, fim - ini + 1)];
+            for (int i = 0; i < r.length; i++) {
+                r[i] = ini + i;
+            }
+            return r;
+        }
+        String[] partes = valor.split(",");
+        int[] r = new int[partes.length];
+        for (int i = 0; i < r.length; i++) {
+            r[i] = Integer.parseInt(partes[i].trim());
+        }
+        return r;
+    }
+}
@@ -0,0 +1,220 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Imagem executável de um programa: segmentos de palavras compactadas, cada um num endereço virtual, e
+// uma área de BSS depois do último segmento, que não é gravada nem carregada (as páginas são criadas
+// vazias na primeira referência). Formato do arquivo, em big-endian, com vários programas por arquivo:
+//   int   MAGICO, VERSAO, número de programas
+//   para cada programa:
+//     short + bytes  nome em UTF-8
+//     int   palavras de BSS
+//     int   número de segmentos, em ordem crescente de endereço e sem sobreposição
+//     para cada segmento: int endereço inicial, int palavras, long[palavras] no formato da memória do
+//     Sistema ([opc:8][rb:8][ra:8][p:32], opc = ordinal de Sistema.Opcode)
+// O arquivo é mapeado em memória e os segmentos são visões do mapeamento: abrir um arquivo com milhares
+// de programas só percorre os cabeçalhos, e a carga copia as palavras direto do mapeamento, página a página.
+// Arquivos de até 2 GiB (um único mapeamento).
+// Uso: java ProgramImage exportar <arquivo>   grava os programas embutidos no Sistema
+//      java ProgramImage listar <arquivo>
+
+public final class ProgramImage {
+
+    public static final int MAGICO = 0x534F5850; // "SOXP"
+    public static final int VERSAO = 1;
+
+    private final String nome;
+    private final int[] inicios;
+    private final LongBuffer[] segmentos;
+    private final int bss;
+    private final int fimSegmentos;
+
+    public ProgramImage(String nome, int[] inicios, LongBuffer[] segmentos, int bss) {
+        if (inicios.length != segmentos.length || bss < 0) {
+            throw new IllegalArgumentException("Imagem inválida: " + nome);
+        }
+        long fim = 0;
+        for (int s = 0; s < inicios.length; s++) {
+            if (inicios[s] < fim) {
+                throw new IllegalArgumentException("Segmentos fora de ordem ou sobrepostos em " + nome);
+            }
+            fim = (long) inicios[s] + segmentos[s].capacity();
+        }
+        if (fim + bss > Integer.MAX_VALUE) { // tamanho() tem que caber num int
+            throw new IllegalArgumentException("Imagem maior que o espaço de endereços: " + nome);
+        }
+        this.nome = nome;
+        this.inicios = inicios;
+        this.segmentos = segmentos;
+        this.bss = bss;
+        this.fimSegmentos = (int) fim;
+    }
+
+    // Um único segmento no endereço 0, sem BSS (programas escritos como literais)
+    public static ProgramImage de(String nome, long[] palavras) {
+        return new ProgramImage(nome, new int[] {0}, new LongBuffer[] {LongBuffer.wrap(palavras)}, 0);
+    }
+
+    public String nome() {
+        return nome;
+    }
+
+    // Palavras do espaço do programa, BSS incluída
+    public int tamanho() {
+        return fimSegmentos + bss;
+    }
+
+    public int fimSegmentos() {
+        return fimSegmentos;
+    }
+
+    public int bss() {
+        return bss;
+    }
+
+    public int numSegmentos() {
+        return inicios.length;
+    }
+
+    // Copia as palavras de [endereco, endereco + destino.length) para destino; as posições fora dos
+    // segmentos recebem vazia. Retorna quantas palavras vieram de segmentos
+    public int copia(int endereco, long[] destino, long vazia) {
+        Arrays.fill(destino, vazia);
+        int fim = endereco + destino.length;
+        int copiadas = 0;
+        for (int s = 0; s < inicios.length && inicios[s] < fim; s++) {
+            int ini = Math.max(endereco, inicios[s]);
+            int ate = Math.min(fim, inicios[s] + segmentos[s].capacity());
+            if (ini < ate) {
+                segmentos[s].get(ini - inicios[s], destino, ini - endereco, ate - ini);
+                copiadas += ate - ini;
+            }
+        }
+        return copiadas;
+    }
+
+    // Abre o arquivo e indexa seus programas por nome, na ordem do arquivo (um nome repetido fica com a
+    // última imagem). Um arquivo truncado ou corrompido é rejeitado com IllegalArgumentException
+    public static Map<String, ProgramImage> le(Path arquivo) {
+        MappedByteBuffer b;
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            b = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()); // O mapeamento sobrevive ao canal
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível ler a imagem " + arquivo, e);
+        }
+        try {
+            return indexa(b);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Arquivo não é uma imagem de programas válida: " + arquivo, e);
+        }
+    }
+
+    // Os tamanhos lidos são conferidos com o que resta do arquivo antes de alocar vetores ou criar visões
+    private static Map<String, ProgramImage> indexa(ByteBuffer b) {
+        if (b.remaining() < 12 || b.getInt() != MAGICO || b.getInt() != VERSAO) {
+            throw new IllegalArgumentException("cabeçalho inválido");
+        }
+        int programas = b.getInt();
+        if (programas < 0) {
+            throw new IllegalArgumentException("número de programas negativo");
+        }
+        Map<String, ProgramImage> imagens = new LinkedHashMap<>();
+        for (int p = 0; p < programas; p++) {
+            byte[] bytesNome = new byte[b.getShort() & 0xFFFF];
+            b.get(bytesNome);
+            String nome = new String(bytesNome, StandardCharsets.UTF_8);
+            int bss = b.getInt();
+            int n = b.getInt();
+            if (n < 0 || n > b.remaining() / 8) { // Cada segmento tem pelo menos o cabeçalho de 8 bytes
+                throw new IllegalArgumentException("número de segmentos inválido em " + nome + ": " + n);
+            }
+            int[] inicios = new int[n];
+            LongBuffer[] segmentos = new LongBuffer[n];
+            for (int s = 0; s < n; s++) {
+                inicios[s] = b.getInt();
+                int palavras = b.getInt();
+                if (inicios[s] < 0 || palavras < 0 || (long) palavras * Long.BYTES > b.remaining()) {
+                    throw new IllegalArgumentException("segmento " + s + " inválido em " + nome);
+                }
+                segmentos[s] = b.slice().limit(palavras * Long.BYTES).slice().asLongBuffer();
+                b.position(b.position() + palavras * Long.BYTES);
+            }
+            imagens.put(nome, new ProgramImage(nome, inicios, segmentos, bss));
+        }
+        return imagens;
+    }
+
+    public static void grava(Path arquivo, Collection<ProgramImage> imagens) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(arquivo), 1 << 16))) {
+            out.writeInt(MAGICO);
+            out.writeInt(VERSAO);
+            out.writeInt(imagens.size());
+            ByteBuffer bloco = ByteBuffer.allocate(8 << 10);
+            for (ProgramImage imagem : imagens) {
+                byte[] bytesNome = imagem.nome.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytesNome.length);
+                out.write(bytesNome);
+                out.writeInt(imagem.bss);
+                out.writeInt(imagem.inicios.length);
+                for (int s = 0; s < imagem.inicios.length; s++) {
+                    LongBuffer segmento = imagem.segmentos[s].duplicate().clear();
+                    out.writeInt(imagem.inicios[s]);
+                    out.writeInt(segmento.remaining());
+                    while (segmento.hasRemaining()) { // Em blocos: uma chamada de escrita por long seria o gargalo
+                        bloco.clear();
+                        int n = Math.min(segmento.remaining(), bloco.capacity() / Long.BYTES);
+                        for (int i = 0; i < n; i++) {
+                            bloco.putLong(segmento.get());
+                        }
+                        out.write(bloco.array(), 0, bloco.position());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível gravar a imagem " + arquivo, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return nome + ": " + inicios.length + " segmento(s), " + fimSegmentos + " palavras, BSS " + bss;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2 || !(args[0].equals("exportar") || args[0].equals("listar"))) {
+            System.out.println("Uso: java ProgramImage exportar <arquivo> | listar <arquivo>");
+            return;
+        }
+        Path arquivo = Paths.get(args[1]);
+        if (args[0].equals("exportar")) {
+            Sistema s = new Sistema(1024, 1024, 4);
+            String[] nomes = s.progs.nomes();
+            ProgramImage[] imagens = new ProgramImage[nomes.length];
+            for (int i = 0; i < nomes.length; i++) {
+                imagens[i] = s.progs.retrieveProgram(nomes[i]);
+            }
+            s.encerra();
+            grava(arquivo, Arrays.asList(imagens));
+            System.out.println(imagens.length + " programas gravados em " + arquivo);
+        } else {
+            for (ProgramImage imagem : le(arquivo).values()) {
+                System.out.println(imagem);
+            }
+        }
+    }
+}
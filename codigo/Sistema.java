@@ -1,4 +1,20 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 // PUCRS - Escola Politécnica - Sistemas Operacionais
 // Prof. Fernando Dotti
@@ -10,25 +26,233 @@ public class Sistema {
     private int tamMemVirtual;    // Tamanho da memória virtual (em palavras)
     private int tamMemFisica;     // Tamanho da memória física (em palavras)
     private int tamPag;           // Tamanho da página (em palavras)
-    private int[] tabelaDePaginas;// Tabela de páginas: mapeia páginas virtuais para molduras físicas
-    private int[] molduras;       // Estado das molduras: 0 = livre, 1 = ocupada
+    private int bitsPag;          // log2(tamPag): página = endereço >>> bitsPag
+    private int mascaraPag;       // tamPag - 1: deslocamento = endereço & mascaraPag
+    private int bitsGrande = -1;  // log2(páginas por página grande); -1 = sem páginas grandes
+    private int mascaraGrande;    // Páginas por página grande - 1
+    private int maxProcessos;     // Processos simultâneos para os quais o swap é dimensionado
+    private FrameAllocator molduras; // Estado das molduras livres e ocupadas
+    private PCB[] processoDaMoldura; // Mapa reverso: processo dono de cada moldura
+    private int[] paginaDaMoldura;   // Mapa reverso: página virtual carregada em cada moldura
+    private int[] slotDaMoldura;     // Slot de swap com cópia da página da moldura, -1 se não houver
+    private SwapDevice swap;         // Memória secundária para páginas removidas
+    private PageReplacementPolicy politica; // Escolhe a vítima quando não há moldura livre
+    private String estruturaTabela = "plana"; // Estrutura das tabelas de páginas criadas (ver PageTable)
+    private final ReentrantLock nucleo = new ReentrantLock(); // Trava do núcleo (ver CPU.entraNoNucleo)
+    private PrintStream saida = System.out; // Console do SO: chamadas de sistema, interrupções, relatórios
 
     // -------------------------------------------------------------------------------------------------------
     // --------------------- H A R D W A R E - definições de HW ----------------------------------------------
 
     public class Memory {
-        public Word[][] molduras; // Memória física dividida em molduras, cada uma com tamPag palavras
+        // Memória física compactada: uma palavra por long, no formato [opc:8][rb:8][ra:8][p:32].
+        // A moldura m ocupa as posições m * tamPag até (m + 1) * tamPag - 1.
+        public long[] palavras;
         public int numMolduras;
+        public int tamPag;
+        public int bitsPag;
+        private final Opcode[] opcodes = Opcode.values();
+        private final long palavraVazia;
 
         public Memory(int tamMemFisica, int tamPag) {
-            this.numMolduras = tamMemFisica / tamPag;
-            molduras = new Word[numMolduras][tamPag];
-            for (int i = 0; i < numMolduras; i++) {
-                for (int j = 0; j < tamPag; j++) {
-                    molduras[i][j] = new Word(Opcode.___, -1, -1, -1);
+            this.bitsPag = log2(tamPag, "Tamanho da página");
+            this.numMolduras = tamMemFisica >>> bitsPag;
+            this.tamPag = tamPag;
+            palavraVazia = compacta(Opcode.___, -1, -1, -1);
+            palavras = new long[numMolduras * tamPag];
+            Arrays.fill(palavras, palavraVazia);
+        }
+
+        public long compacta(Opcode opc, int ra, int rb, int p) {
+            return ((long) opc.ordinal() << 48) | ((long) (rb & 0xFF) << 40) | ((long) (ra & 0xFF) << 32) | (p & 0xFFFFFFFFL);
+        }
+
+        public Opcode opc(long w) {
+            return opcodes[(int) (w >>> 48) & 0xFF];
+        }
+
+        // Posição da primeira palavra cujo opcode não é de Opcode, ou -1. Os códigos logo acima de STOP são os
+        // das superinstruções, que só existem no fluxo decodificado: vindos de uma imagem, seriam despachados
+        // como uma delas
+        public int palavraInvalida(long[] ws) {
+            for (int i = 0; i < ws.length; i++) {
+                if (((int) (ws[i] >>> 48) & 0xFF) >= opcodes.length) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        public int ra(long w) {
+            return (byte) (w >>> 32);
+        }
+
+        public int rb(long w) {
+            return (byte) (w >>> 40);
+        }
+
+        public int p(long w) {
+            return (int) w;
+        }
+
+        public int leDado(int endFisico) {
+            return (int) palavras[endFisico];
+        }
+
+        // Equivale ao antigo "opc = DATA; p = valor": ra e rb são preservados
+        public void escreveDado(int endFisico, int valor) {
+            long w = palavras[endFisico] & 0x0000FFFF00000000L;
+            palavras[endFisico] = w | ((long) OP_DATA << 48) | (valor & 0xFFFFFFFFL);
+            int moldura = endFisico >>> bitsPag;
+            if (estadoDecod != null && estadoDecod[moldura] == DECODIFICADA) {
+                estadoDecod[moldura] = AUTOMODIFICADA;
+            }
+            if (jit != null && jit.temBlocos(moldura)) {
+                jit.invalidaMoldura(moldura);
+            }
+        }
+
+        // Word é apenas uma visão da palavra compactada, usada na borda da API (dump e carga)
+        public Word le(int endFisico) {
+            long w = palavras[endFisico];
+            return new Word(opc(w), ra(w), rb(w), p(w));
+        }
+
+        public void escreve(int endFisico, Word w) {
+            palavras[endFisico] = compacta(w.opc, w.ra, w.rb, w.p);
+            invalidaDecodificacao(endFisico >>> bitsPag);
+        }
+
+        // Devolve a moldura ao conteúdo inicial, antes de receber uma nova página
+        public void limpaMoldura(int moldura) {
+            Arrays.fill(palavras, moldura * tamPag, (moldura + 1) * tamPag, palavraVazia);
+        }
+
+        // ---- Conteúdo herdado de um instantâneo (ver Snapshot)
+        // As molduras ocupadas na restauração só são copiadas do arquivo mapeado quando uma tradução chega
+        // a elas (a TLB começa vazia, então o primeiro acesso sempre passa pela tabela de páginas) ou quando
+        // o SO as lê; uma moldura liberada antes disso é só descartada. Com várias CPUs, a cópia é feita sob
+        // a trava da memória, e a última cópia solta o mapeamento
+        private volatile SwapDevice.Origem origem;
+        private int[] naOrigem;    // Página do instantâneo com o conteúdo de cada moldura, -1 se já trazida
+        private int pendentes;
+        private long trazidas;
+
+        public void herda(SwapDevice.Origem _origem, int[] _naOrigem, int _pendentes) {
+            naOrigem = _naOrigem;
+            pendentes = _pendentes;
+            origem = _pendentes > 0 ? _origem : null;
+        }
+
+        // A moldura vai ser lida ou mapeada: traz o conteúdo do instantâneo, se ainda não veio
+        public void garante(int moldura) {
+            if (origem != null) {
+                traz(moldura, true);
+            }
+        }
+
+        // A moldura foi liberada: o conteúdo do instantâneo não é mais necessário
+        public void descarta(int moldura) {
+            if (origem != null) {
+                traz(moldura, false);
+            }
+        }
+
+        public synchronized int getPendentes() {
+            return origem != null ? pendentes : 0;
+        }
+
+        public synchronized long getTrazidas() {
+            return trazidas;
+        }
+
+        private synchronized void traz(int moldura, boolean copia) {
+            if (origem == null || naOrigem[moldura] < 0) {
+                return;
+            }
+            if (copia) {
+                origem.le(naOrigem[moldura], palavras, moldura << bitsPag);
+                trazidas++;
+            }
+            naOrigem[moldura] = -1;
+            if (--pendentes == 0) {
+                naOrigem = null;
+                origem = null;
+            }
+        }
+
+        // ---- Fluxo de instruções pré-decodificado
+        // Cada moldura executada é decodificada uma vez para vetores int compactos: instrDecod guarda
+        // tratador | ra << 8 | rb << 16 e operandoDecod guarda p. Uma escrita de dado (STD/STX) em moldura
+        // decodificada a marca como automodificada, e ela passa a ser decodificada a cada busca.
+        public static final byte NAO_DECODIFICADA = 0, DECODIFICADA = 1, AUTOMODIFICADA = 2;
+        public byte[] estadoDecod;
+        public int[] instrDecod;
+        public int[] operandoDecod;
+
+        // Os vetores só são alocados quando o modo pré-decodificado é usado
+        public void habilitaPreDecodificacao() {
+            if (estadoDecod == null) {
+                estadoDecod = new byte[numMolduras];
+                instrDecod = new int[palavras.length];
+                operandoDecod = new int[palavras.length];
+            }
+        }
+
+        public int decodifica(long w) {
+            return ((int) (w >>> 48) & 0xFF) | ((int) (w >>> 24) & 0xFFFF00);
+        }
+
+        public void decodificaMoldura(int moldura) {
+            for (int e = moldura * tamPag; e < (moldura + 1) * tamPag; e++) {
+                instrDecod[e] = decodifica(palavras[e]);
+                operandoDecod[e] = (int) palavras[e];
+            }
+            fundeSuperinstrucoes(moldura);
+            estadoDecod[moldura] = DECODIFICADA;
+        }
+
+        // Passo de peephole: pares frequentes nos programas viram uma superinstrução, executada com um só
+        // despacho. Só o tratador da primeira instrução muda; a segunda continua decodificada no lugar,
+        // então um desvio para ela segue funcionando. Pares nunca atravessam o fim da moldura.
+        // Roda na decodificação da moldura, não na carga do programa: a imagem em memória fica intacta, e o
+        // caminho sob demanda (debug) executa as instruções originais, uma a uma
+        private void fundeSuperinstrucoes(int moldura) {
+            for (int e = moldura * tamPag; e < (moldura + 1) * tamPag - 1; e++) {
+                int a = instrDecod[e];
+                int b = instrDecod[e + 1];
+                int opA = a & 0xFF;
+                int opB = b & 0xFF;
+                int raA = (byte) (a >>> 8);
+                int raB = (byte) (b >>> 8);
+                int fundido = -1;
+                if (opA == OP_LDI && operandoDecod[e] == 0 && opB == OP_ADD && raA == raB && (byte) (b >>> 16) != raA) {
+                    fundido = OP_LDI0_ADD; // LDI rX,0 + ADD rX,rY: cópia de registrador (com rY = rX, o ADD lê o 0)
+                } else if (opA == OP_STX && opB == OP_ADDI) {
+                    fundido = OP_STX_ADDI; // Escrita em vetor seguida do avanço do índice
+                } else if (opA == OP_SUB && opB == OP_JMPIG) {
+                    fundido = OP_SUB_JMPIG; // Teste de laço
+                } else if (opA == OP_SUB && opB == OP_JMPIE) {
+                    fundido = OP_SUB_JMPIE;
                 }
+                if (fundido != -1) {
+                    instrDecod[e] = (a & ~0xFF) | fundido;
+                }
+            }
+        }
+
+        // A moldura recebeu outra página (carga, swap ou limpeza): a decodificação anterior não vale mais
+        public void invalidaDecodificacao(int moldura) {
+            if (estadoDecod != null) {
+                estadoDecod[moldura] = NAO_DECODIFICADA;
+            }
+            if (jit != null) {
+                jit.invalidaMoldura(moldura);
             }
         }
+
+        // Blocos compilados para bytecode (null = compilação desligada); invalidados junto com a decodificação
+        public BlockCompiler jit;
     }
 
     public class Word {
@@ -51,27 +275,107 @@ public class Sistema {
         LDI, LDD, STD, LDX, STX, MOVE, SYSCALL, STOP
     }
 
+    // Índices de tratador usados no laço da CPU: iguais aos ordinais de Opcode, para que a palavra
+    // compactada já traga o tratador e o switch seja sobre int, sem a tabela de mapeamento de enum
+    static final int OP_DATA = 0, OP____ = 1, OP_JMP = 2, OP_JMPI = 3, OP_JMPIG = 4, OP_JMPIL = 5, OP_JMPIE = 6,
+            OP_JMPIM = 7, OP_JMPIGM = 8, OP_JMPILM = 9, OP_JMPIEM = 10, OP_JMPIGK = 11, OP_JMPILK = 12,
+            OP_JMPIEK = 13, OP_JMPIGT = 14, OP_ADDI = 15, OP_SUBI = 16, OP_ADD = 17, OP_SUB = 18, OP_MULT = 19,
+            OP_LDI = 20, OP_LDD = 21, OP_STD = 22, OP_LDX = 23, OP_STX = 24, OP_MOVE = 25, OP_SYSCALL = 26,
+            OP_STOP = 27;
+
+    // Superinstruções: só existem no fluxo pré-decodificado (Memory.fundeSuperinstrucoes)
+    static final int OP_LDI0_ADD = 28, OP_STX_ADDI = 29, OP_SUB_JMPIG = 30, OP_SUB_JMPIE = 31;
+    static final String[] NOMES_SUPERINSTRUCOES = {"LDI 0+ADD", "STX+ADDI", "SUB+JMPIG", "SUB+JMPIE"};
+
+    static {
+        if (Opcode.STOP.ordinal() != OP_STOP || Opcode.values().length != OP_STOP + 1) {
+            throw new AssertionError("Constantes OP_* desalinhadas com Opcode");
+        }
+    }
+
     public enum Interrupts {
-        noInterrupt, intEnderecoInvalido, intInstrucaoInvalida, intOverflow, intSTOP
+        noInterrupt, intEnderecoInvalido, intInstrucaoInvalida, intOverflow, intSTOP, intTimer,
+        intEsperaMemoria, // Sem moldura livre porque as vítimas possíveis estão em uso em outras CPUs: repete o acesso depois
+        intES,            // Pedido ao console concluído; vista no fim da fatia de tempo, no lugar do timer
+        intEsperaES,      // O processo fez um pedido ao console e espera a conclusão
+        intFimDaEntrada   // Leitura sem mais valores na entrada: termina o processo
+    }
+
+    public enum EstadoProcesso {
+        PRONTO, EXECUTANDO, BLOQUEADO, TERMINADO
     }
 
-    public class CPU {
+    public class CPU implements BlockCompiler.Memoria {
+        public final int id;           // Índice em hw.cpus
         private int maxInt = 32767;
         private int minInt = -32767;
         private int pc;
-        private Word ir;
+        private long ir; // Palavra compactada em execução (no modo de decodificação sob demanda)
         private int[] reg = new int[10];
         private Interrupts irpt;
         private Memory m;
         private InterruptHandling ih;
         private SysCallHandling sysCall;
         private boolean cpuStop;
-        private boolean debug;
+        private boolean debug;         // Rastro por instrução ligado: desliga o fluxo pré-decodificado e a compilação
+        private boolean rastreiaTraducoes;
+        private boolean rastreiaInterrupcoes;
+        private final Tracer rastro = new Tracer(System.out);
+        private TraceRecorder gravador; // Rastro binário de referências (null = não grava)
+        private int opcAtual;           // Opcode em execução, para o gravador; -1 durante a busca
+        private boolean ultimaFalta;    // A última tradução causou falta de página
         private Utilities u;
+        private TLB tlb;
+        private MemoryManager mm;
+        private PCB processo;          // Processo em execução
+        private PageTable tabelaDePaginas; // Tabela de páginas do processo em execução (entradas de PageTableEntry)
+        private PageTable tabelaGrande;    // Páginas grandes do processo em execução (null se não tiver)
+        private TLB tlbGrande = new TLB(8, 8, TLB.Substituicao.LRU); // Uma entrada por página grande
+        private int quantum;           // Instruções por fatia de tempo; 0 desliga o timer
+        private int restante;          // Instruções que faltam para a interrupção de timer
+        private int inicioBloco;       // pc onde começou a sequência em linha reta atual
+        private long instrucoes;       // Instruções executadas, contadas nos desvios e trocas de contexto
+        private boolean preDecodificado; // Busca pelo fluxo pré-decodificado (só fora do modo debug)
+        private int paginaCodigo = -1; // Página do pc cuja moldura está em baseCodigo, dispensando a TLB na busca
+        private int baseCodigo;
+        private boolean copiouCodigo;  // Uma escrita copiou a página do pc (cópia na escrita): o código em execução mudou de moldura
+        private BlockCompiler jit;     // Compilador de blocos quentes (null = só interpretação)
+        private final long[] superinstrucoes = new long[NOMES_SUPERINSTRUCOES.length]; // Execuções de cada fusão
+
+        public CPU(Memory _mem, boolean _debug, TLB _tlb) {
+            this(0, _mem, _debug, _tlb);
+        }
 
-        public CPU(Memory _mem, boolean _debug) {
+        public CPU(int _id, Memory _mem, boolean _debug, TLB _tlb) {
+            id = _id;
             m = _mem;
-            debug = _debug;
+            tlb = _tlb;
+            setDebug(_debug);
+        }
+
+        public TLB getTLB() {
+            return tlb;
+        }
+
+        // Troca a TLB (por exemplo para testar outro tamanho); a nova começa vazia
+        public void setTLB(TLB _tlb) {
+            tlb = _tlb;
+        }
+
+        // O mapeamento de páginas grandes do processo mudou (criado ou desfeito)
+        public void recarregaGrandes(PCB pcb) {
+            if (pcb == processo) {
+                tabelaGrande = pcb.grandes;
+                tlbGrande.flush();
+            }
+        }
+
+        public TLB getTLBGrande() {
+            return tlbGrande;
+        }
+
+        public void setTLBGrande(TLB _tlb) {
+            tlbGrande = _tlb;
         }
 
         public void setAddressOfHandlers(InterruptHandling _ih, SysCallHandling _sysCall) {
@@ -83,47 +387,284 @@ public class Sistema {
             u = _u;
         }
 
-        // Traduz endereço virtual para físico
-        private int traduzEndereco(int endVirtual) {
-            int pagina = endVirtual / tamPag;
-            int deslocamento = endVirtual % tamPag;
-            if (pagina >= tabelaDePaginas.length) {
-                irpt = Interrupts.intEnderecoInvalido;
-                return -1;
+        public void setMemoryManager(MemoryManager _mm) {
+            mm = _mm;
+        }
+
+        // Debug equivale ao rastro completo (instruções e traduções)
+        public void setDebug(boolean _debug) {
+            setNivelRastro(_debug ? Tracer.Nivel.TRADUCOES : Tracer.Nivel.DESLIGADO);
+        }
+
+        public void setNivelRastro(Tracer.Nivel nivel) {
+            rastro.setNivel(nivel);
+            debug = nivel.compareTo(Tracer.Nivel.INSTRUCOES) >= 0;
+            rastreiaTraducoes = nivel == Tracer.Nivel.TRADUCOES;
+            rastreiaInterrupcoes = nivel != Tracer.Nivel.DESLIGADO;
+            paginaCodigo = -1;
+        }
+
+        public Tracer getRastro() {
+            return rastro;
+        }
+
+        // Liga ou desliga a gravação do rastro binário. Gravando, toda busca passa pela tradução:
+        // o fluxo pré-decodificado e os blocos compilados ficam desligados
+        public void setGravador(TraceRecorder _gravador) {
+            gravador = _gravador;
+            paginaCodigo = -1;
+        }
+
+        public TraceRecorder getGravador() {
+            return gravador;
+        }
+
+        // Evento gravado pelo SO (carga de programa, fim de processo)
+        public void gravaEvento(int pcEvento, int endVirtual, int endFisico, PCB pcb, int opcode, int flags) {
+            if (gravador != null) {
+                gravador.registra(pcEvento, endVirtual, endFisico, pcb.id, opcode, flags);
             }
-            if (tabelaDePaginas[pagina] == -1) { // Falha de página
-                int moldura = alocaMoldura(pagina);
-                if (moldura == -1) {
-                    irpt = Interrupts.intEnderecoInvalido; // Sem molduras livres
+        }
+
+        private void grava(int endVirtual, int endFisico, boolean escrita) {
+            if (opcAtual >= 0) {
+                gravador.registra(pc, endVirtual, endFisico, processo.id, opcAtual,
+                        (escrita ? TraceRecorder.ESCRITA : 0) | (ultimaFalta ? TraceRecorder.FALTA : 0));
+                ultimaFalta = false;
+            }
+        }
+
+        // Antes de o SO escrever no console, o rastro pendente é escrito
+        public void sincronizaRastro() {
+            if (rastreiaInterrupcoes) {
+                rastro.esvazia();
+            }
+        }
+
+        public void setQuantum(int _quantum) {
+            quantum = Math.max(0, _quantum);
+            recarregaTimer();
+        }
+
+        public int getQuantum() {
+            return quantum;
+        }
+
+        public void setPreDecodificado(boolean _preDecodificado) {
+            preDecodificado = _preDecodificado;
+            if (preDecodificado) {
+                m.habilitaPreDecodificacao();
+            }
+            paginaCodigo = -1;
+        }
+
+        public long getInstrucoes() {
+            return instrucoes;
+        }
+
+        public String estatisticasSuperinstrucoes() {
+            StringBuilder sb = new StringBuilder("Superinstruções:");
+            for (int i = 0; i < superinstrucoes.length; i++) {
+                sb.append(i == 0 ? " " : ", ").append(NOMES_SUPERINSTRUCOES[i]).append(' ').append(superinstrucoes[i]);
+            }
+            return sb.toString();
+        }
+
+        // Liga a compilação de blocos básicos executados pelo menos limiar vezes; 0 desliga.
+        // Só é usada no modo pré-decodificado, fora do debug
+        public void setCompilacao(int limiar) {
+            jit = limiar > 0 ? new BlockCompiler(tamMemFisica, tamPag, limiar, minInt, maxInt) : null;
+            m.jit = jit;
+        }
+
+        public BlockCompiler getCompilador() {
+            return jit;
+        }
+
+        // Acesso à memória para os blocos compilados: mesma tradução (e mesmas interrupções) de LDD/LDX
+        @Override
+        public long le(int endVirtual) {
+            int endFisico = traduzEndereco(endVirtual);
+            return endFisico == -1 ? BlockCompiler.FALHA : m.leDado(endFisico);
+        }
+
+        // Mesma tradução de STD/STX; avisa o bloco quando a escrita invalidou código compilado
+        @Override
+        public int escreve(int endVirtual, int valor) {
+            int endFisico = traduzEndereco(endVirtual, true);
+            if (endFisico == -1) {
+                return BlockCompiler.ESCRITA_FALHA;
+            }
+            boolean codigo = copiouCodigo || jit.temBlocos(endFisico >>> bitsPag);
+            copiouCodigo = false;
+            m.escreveDado(endFisico, valor);
+            return codigo ? BlockCompiler.ESCRITA_INVALIDOU : BlockCompiler.ESCRITA_OK;
+        }
+
+        // Toda mudança de mapeamento de página passa por aqui: TLB e página de código em cache
+        public void invalidaTraducao(int pagina) {
+            tlb.invalida(pagina);
+            if (pagina == paginaCodigo) {
+                paginaCodigo = -1;
+            }
+        }
+
+        // Mudança no espaço inteiro do processo em execução (fork: todas as páginas viram cópia na escrita)
+        public void invalidaTraducoes() {
+            tlb.flush();
+            paginaCodigo = -1;
+        }
+
+        // Começa uma nova fatia de tempo a partir do pc atual
+        public void recarregaTimer() {
+            restante = quantum > 0 ? quantum : Integer.MAX_VALUE;
+            inicioBloco = pc;
+        }
+
+        // Desvio tomado. O timer só é descontado aqui: as instruções executadas em linha reta desde o
+        // último desvio são exatamente pc - inicioBloco + 1, então o laço principal não paga nada por instrução
+        private void desvia(int destino) {
+            int executadas = pc - inicioBloco + 1;
+            instrucoes += executadas;
+            restante -= executadas;
+            pc = destino;
+            inicioBloco = destino;
+            if (restante <= 0) {
+                if (quantum > 0) {
+                    irpt = fimDeFatia();
+                } else {
+                    restante = Integer.MAX_VALUE;
+                }
+            }
+        }
+
+        // O fim da fatia é também quando a CPU olha o console: com pedidos concluídos, a interrupção de E/S
+        // (que termina a fatia como o timer) substitui a de timer
+        private Interrupts fimDeFatia() {
+            return hw.console.temConcluidos() ? Interrupts.intES : Interrupts.intTimer;
+        }
+
+        // Traduz endereço virtual para físico, consultando a TLB antes da tabela de páginas.
+        // O valor guardado na TLB é (moldura << 1) | bit que indica página já marcada como suja:
+        // uma escrita só é resolvida pela TLB quando esse bit está ligado. Páginas grandes não ocupam a TLB
+        // comum: depois de uma falta nela, a TLB de páginas grandes é consultada antes da tabela de páginas.
+        // Tamanhos são potências de 2, então página e deslocamento saem de deslocamento e máscara.
+        private int traduzEndereco(int endVirtual) {
+            return traduzEndereco(endVirtual, false);
+        }
+
+        private int traduzEndereco(int endVirtual, boolean escrita) {
+            int pagina = endVirtual >>> bitsPag;
+            int valor = endVirtual >= 0 ? tlb.busca(pagina) : -1;
+            if (valor == -1 || (escrita && (valor & 1) == 0)) {
+                if (endVirtual < 0 || pagina >= tabelaDePaginas.numPaginas()) {
+                    irpt = Interrupts.intEnderecoInvalido;
+                    if (gravador != null) {
+                        grava(endVirtual, -1, escrita);
+                    }
                     return -1;
                 }
+                if (tabelaGrande != null && (valor = traduzGrande(pagina)) != -1) {
+                    return concluiTraducao(endVirtual, ((valor >>> 1) << bitsPag) | (endVirtual & mascaraPag), escrita);
+                }
+                // A tabela do processo em execução só é alterada por esta CPU (o núcleo não mexe em espaços
+                // ativos em outras CPUs), então só a gerência de memória precisa da trava do núcleo
+                int pte = tabelaDePaginas.le(pagina);
+                boolean falta = !PageTableEntry.valida(pte);
+                if (falta || (escrita && PageTableEntry.copiaNaEscrita(pte)) || (!PageTableEntry.referenciada(pte) && mm.antecipando())) {
+                    entraNoNucleo();
+                    try {
+                        if (falta) { // Falha de página
+                            ultimaFalta = true;
+                            if (mm.trataFalta(processo, pagina) == -1) {
+                                irpt = semMoldura(); // Nenhuma moldura pôde ser liberada
+                                if (gravador != null) {
+                                    grava(endVirtual, -1, escrita);
+                                }
+                                return -1;
+                            }
+                            pte = tabelaDePaginas.le(pagina);
+                        } else if (!PageTableEntry.referenciada(pte) && mm.antecipando()) {
+                            mm.usouAntecipada(processo, pagina, PageTableEntry.moldura(pte));
+                        }
+                        if (escrita && PageTableEntry.copiaNaEscrita(pte)) { // Falha de proteção: página compartilhada
+                            int moldura = mm.copiaNaEscrita(processo, pagina);
+                            if (moldura == -1) {
+                                irpt = semMoldura(); // Nenhuma moldura pôde ser liberada para a cópia
+                                if (gravador != null) {
+                                    grava(endVirtual, -1, escrita);
+                                }
+                                return -1;
+                            }
+                            if (moldura != PageTableEntry.moldura(pte) && pagina == pc >>> bitsPag) {
+                                copiouCodigo = true;
+                            }
+                            pte = tabelaDePaginas.le(pagina);
+                        }
+                    } finally {
+                        saiDoNucleo();
+                    }
+                }
+                pte |= PageTableEntry.REFERENCIADA | (escrita ? PageTableEntry.SUJA : 0);
+                tabelaDePaginas.escreve(pagina, pte);
+                m.garante(PageTableEntry.moldura(pte));
+                // Página com cópia na escrita nunca vai para a TLB como suja: toda escrita nela passa por aqui
+                valor = (PageTableEntry.moldura(pte) << 1) | (PageTableEntry.suja(pte) && !PageTableEntry.copiaNaEscrita(pte) ? 1 : 0);
+                tlb.insere(pagina, valor);
+                if (falta && mm.antecipando()) {
+                    entraNoNucleo();
+                    try {
+                        mm.antecipa(processo, pagina, true);
+                    } finally {
+                        saiDoNucleo();
+                    }
+                }
+            }
+            return concluiTraducao(endVirtual, ((valor >>> 1) << bitsPag) | (endVirtual & mascaraPag), escrita);
+        }
+
+        private Interrupts semMoldura() {
+            return mm.esperaMolduras() ? Interrupts.intEsperaMemoria : Interrupts.intEnderecoInvalido;
+        }
+
+        private int concluiTraducao(int endVirtual, int endFisico, boolean escrita) {
+            if (rastreiaTraducoes) {
+                rastro.traducao(endVirtual, endFisico);
             }
-            int moldura = tabelaDePaginas[pagina];
-            int endFisico = moldura * tamPag + deslocamento;
-            if (debug) {
-                System.out.println("Traduzindo endereço virtual " + endVirtual + " para físico " + endFisico);
+            if (gravador != null) {
+                grava(endVirtual, endFisico, escrita);
             }
             return endFisico;
         }
 
-        // Aloca uma moldura livre
-        private int alocaMoldura(int pagina) {
-            for (int i = 0; i < molduras.length; i++) {
-                if (molduras[i] == 0) {
-                    tabelaDePaginas[pagina] = i;
-                    molduras[i] = 1;
-                    return i;
+        // Página grande: molduras contíguas, fixas e sempre tratadas como sujas (nunca vão para o swap). A TLB
+        // de páginas grandes guarda (moldura base << 1) | 1; retorna o valor no formato da TLB comum para a
+        // página base, ou -1 se ela não faz parte de uma página grande
+        private int traduzGrande(int pagina) {
+            int grande = pagina >>> bitsGrande;
+            int valor = tlbGrande.busca(grande);
+            if (valor == -1) {
+                int pte = tabelaGrande.le(grande);
+                if (!PageTableEntry.valida(pte)) {
+                    return -1;
+                }
+                tabelaGrande.escreve(grande, pte | PageTableEntry.REFERENCIADA);
+                for (int i = 0; i <= mascaraGrande; i++) {
+                    m.garante(PageTableEntry.moldura(pte) + i); // A TLB cobre a página grande inteira
                 }
+                valor = (PageTableEntry.moldura(pte) << 1) | 1;
+                tlbGrande.insere(grande, valor);
             }
-            return -1; // Nenhuma moldura livre
+            return valor + ((pagina & mascaraGrande) << 1);
         }
 
-        private boolean legal(int e) {
-            int endFisico = traduzEndereco(e);
+        private boolean legal(int endFisico) {
             if (endFisico >= 0 && endFisico < tamMemFisica) {
                 return true;
             } else {
-                irpt = Interrupts.intEnderecoInvalido;
+                if (irpt != Interrupts.intEsperaMemoria) { // A busca é repetida
+                    irpt = Interrupts.intEnderecoInvalido;
+                }
                 return false;
             }
         }
@@ -136,193 +677,337 @@ public class Sistema {
             return true;
         }
 
-        public void setContext(int _pc) {
-            pc = _pc;
+        // Troca de contexto: os registradores são copiados para o PCB, sem alocação.
+        // As instruções em linha reta ainda não contadas são as de inicioBloco até pc - 1: a instrução em pc
+        // não completou (ou é a próxima), e depois de um desvio (fim de fatia) inicioBloco == pc
+        public void salvaContexto(PCB pcb) {
+            instrucoes += pc - inicioBloco;
+            inicioBloco = pc;
+            pcb.pc = pc;
+            System.arraycopy(reg, 0, pcb.reg, 0, reg.length);
+        }
+
+        public void restauraContexto(PCB pcb) {
+            processo = pcb;
+            tabelaDePaginas = pcb.tabelaDePaginas;
+            tabelaGrande = pcb.grandes;
+            tlb.flush(); // A TLB não distingue processos
+            tlbGrande.flush();
+            paginaCodigo = -1;
+            pc = pcb.pc;
+            System.arraycopy(pcb.reg, 0, reg, 0, reg.length);
             irpt = Interrupts.noInterrupt;
+            recarregaTimer();
+        }
+
+        private boolean trataInterrupcao() {
+            if (rastreiaInterrupcoes) {
+                rastro.interrupcao(irpt.ordinal(), pc, processo != null ? processo.id : -1);
+                if (irpt != Interrupts.intTimer) { // Só o fim de fatia é tratado sem escrever no console
+                    rastro.esvazia();
+                }
+            }
+            entraNoNucleo();
+            try {
+                return ih.handle(irpt);
+            } finally {
+                saiDoNucleo();
+            }
+        }
+
+        // Trava do núcleo: com várias CPUs, o SO (interrupções, chamadas de sistema, gerência de memória e
+        // de processos) roda numa CPU de cada vez; a execução de instruções e as traduções pela TLB ou pela
+        // tabela do processo seguem em paralelo. hw.atual indica ao SO em nome de qual CPU ele executa
+        public void entraNoNucleo() {
+            nucleo.lock();
+            hw.atual = this;
+        }
+
+        public void saiDoNucleo() {
+            nucleo.unlock();
         }
 
         public void run() {
             cpuStop = false;
+            boolean rapido = preDecodificado && !debug && gravador == null;
+            boolean compilado = rapido && jit != null;
             while (!cpuStop) {
-                if (legal(pc)) {
-                    int pcFisico = traduzEndereco(pc);
-                    ir = m.molduras[pcFisico / tamPag][pcFisico % tamPag];
-                    if (debug) {
-                        System.out.print("                                              regs: ");
-                        for (int i = 0; i < 10; i++) {
-                            System.out.print(" r[" + i + "]:" + reg[i]);
+                int pcFisico;
+                if (rapido && pc >= 0 && pc >>> bitsPag == paginaCodigo) {
+                    pcFisico = baseCodigo | (pc & mascaraPag); // Mesma página da última busca: sem tradução
+                } else {
+                    if (gravador != null) {
+                        opcAtual = -1; // A busca é gravada depois, já com o opcode
+                    }
+                    pcFisico = traduzEndereco(pc);
+                    if (rapido && pcFisico >= 0) {
+                        paginaCodigo = pc >>> bitsPag;
+                        baseCodigo = pcFisico & ~mascaraPag;
+                    }
+                }
+                if (compilado && pc == inicioBloco && pcFisico >= 0) { // Início de bloco: tenta o código compilado
+                    BlockCompiler.Bloco bloco = jit.blocoPara(pc, pcFisico, m.palavras);
+                    if (bloco != null) {
+                        long r = bloco.executa(reg, this, restante);
+                        int executadas = (int) (r >>> 33);
+                        instrucoes += executadas;
+                        restante -= executadas;
+                        pc = (int) r;
+                        inicioBloco = pc;
+                        if ((r & BlockCompiler.OVERFLOW) != 0) {
+                            irpt = Interrupts.intOverflow;
+                        } else if (irpt == Interrupts.noInterrupt && restante <= 0) {
+                            if (quantum > 0) {
+                                irpt = fimDeFatia();
+                            } else {
+                                restante = Integer.MAX_VALUE;
+                            }
+                        }
+                        if (irpt != Interrupts.noInterrupt) {
+                            cpuStop = !trataInterrupcao();
                         }
-                        System.out.println();
-                        System.out.print("                      pc: " + pc + "       exec: ");
-                        u.dump(ir);
+                        continue;
+                    }
+                }
+                if (legal(pcFisico)) {
+                    int instr;
+                    int p;
+                    int moldura = pcFisico >>> bitsPag;
+                    if (rapido && m.estadoDecod[moldura] != Memory.AUTOMODIFICADA) {
+                        if (m.estadoDecod[moldura] == Memory.NAO_DECODIFICADA) {
+                            m.decodificaMoldura(moldura);
+                        }
+                        instr = m.instrDecod[pcFisico];
+                        p = m.operandoDecod[pcFisico];
+                    } else {
+                        ir = m.palavras[pcFisico];
+                        instr = m.decodifica(ir); // Decodificação sob demanda
+                        p = m.p(ir);
+                    }
+                    int ra = (byte) (instr >>> 8);
+                    int rb = (byte) (instr >>> 16);
+                    if (gravador != null) {
+                        opcAtual = instr & 0xFF;
+                        gravador.registra(pc, pc, pcFisico, processo.id, opcAtual,
+                                TraceRecorder.BUSCA | (ultimaFalta ? TraceRecorder.FALTA : 0));
+                        ultimaFalta = false;
+                    }
+                    if (debug) {
+                        rastro.instrucao(pc, m.palavras[pcFisico], reg);
                     }
 
-                    switch (ir.opc) {
-                        case LDI:
-                            reg[ir.ra] = ir.p;
+                    switch (instr & 0xFF) {
+                        case OP_LDI:
+                            reg[ra] = p;
                             pc++;
                             break;
-                        case LDD:
-                            int endFisicoLDD = traduzEndereco(ir.p);
+                        case OP_LDD:
+                            int endFisicoLDD = traduzEndereco(p);
                             if (endFisicoLDD != -1) {
-                                reg[ir.ra] = m.molduras[endFisicoLDD / tamPag][endFisicoLDD % tamPag].p;
+                                reg[ra] = m.leDado(endFisicoLDD);
                                 pc++;
                             }
                             break;
-                        case LDX:
-                            int endFisicoLDX = traduzEndereco(reg[ir.rb]);
+                        case OP_LDX:
+                            int endFisicoLDX = traduzEndereco(reg[rb]);
                             if (endFisicoLDX != -1) {
-                                reg[ir.ra] = m.molduras[endFisicoLDX / tamPag][endFisicoLDX % tamPag].p;
+                                reg[ra] = m.leDado(endFisicoLDX);
                                 pc++;
                             }
                             break;
-                        case STD:
-                            int endFisicoSTD = traduzEndereco(ir.p);
+                        case OP_STD:
+                            int endFisicoSTD = traduzEndereco(p, true);
                             if (endFisicoSTD != -1) {
-                                m.molduras[endFisicoSTD / tamPag][endFisicoSTD % tamPag].opc = Opcode.DATA;
-                                m.molduras[endFisicoSTD / tamPag][endFisicoSTD % tamPag].p = reg[ir.ra];
+                                m.escreveDado(endFisicoSTD, reg[ra]);
                                 pc++;
                                 if (debug) {
-                                    System.out.print("                                  ");
-                                    u.dump(ir.p, ir.p + 1);
+                                    rastro.escrita(p, m.palavras[endFisicoSTD]);
                                 }
                             }
                             break;
-                        case STX:
-                            int endFisicoSTX = traduzEndereco(reg[ir.ra]);
+                        case OP_STX:
+                            int endFisicoSTX = traduzEndereco(reg[ra], true);
                             if (endFisicoSTX != -1) {
-                                m.molduras[endFisicoSTX / tamPag][endFisicoSTX % tamPag].opc = Opcode.DATA;
-                                m.molduras[endFisicoSTX / tamPag][endFisicoSTX % tamPag].p = reg[ir.rb];
+                                m.escreveDado(endFisicoSTX, reg[rb]);
                                 pc++;
                             }
                             break;
-                        case MOVE:
-                            reg[ir.ra] = reg[ir.rb];
+                        case OP_MOVE:
+                            reg[ra] = reg[rb];
                             pc++;
                             break;
-                        case ADD:
-                            reg[ir.ra] = reg[ir.ra] + reg[ir.rb];
-                            testOverflow(reg[ir.ra]);
+                        case OP_ADD:
+                            reg[ra] = reg[ra] + reg[rb];
+                            testOverflow(reg[ra]);
                             pc++;
                             break;
-                        case ADDI:
-                            reg[ir.ra] = reg[ir.ra] + ir.p;
-                            testOverflow(reg[ir.ra]);
+                        case OP_ADDI:
+                            reg[ra] = reg[ra] + p;
+                            testOverflow(reg[ra]);
                             pc++;
                             break;
-                        case SUB:
-                            reg[ir.ra] = reg[ir.ra] - reg[ir.rb];
-                            testOverflow(reg[ir.ra]);
+                        case OP_SUB:
+                            reg[ra] = reg[ra] - reg[rb];
+                            testOverflow(reg[ra]);
                             pc++;
                             break;
-                        case SUBI:
-                            reg[ir.ra] = reg[ir.ra] - ir.p;
-                            testOverflow(reg[ir.ra]);
+                        case OP_SUBI:
+                            reg[ra] = reg[ra] - p;
+                            testOverflow(reg[ra]);
                             pc++;
                             break;
-                        case MULT:
-                            reg[ir.ra] = reg[ir.ra] * reg[ir.rb];
-                            testOverflow(reg[ir.ra]);
+                        case OP_MULT:
+                            reg[ra] = reg[ra] * reg[rb];
+                            testOverflow(reg[ra]);
                             pc++;
                             break;
-                        case JMP:
-                            pc = ir.p;
+                        case OP_JMP:
+                            desvia(p);
                             break;
-                        case JMPIM:
-                            int endFisicoJMPIM = traduzEndereco(ir.p);
+                        case OP_JMPIM:
+                            int endFisicoJMPIM = traduzEndereco(p);
                             if (endFisicoJMPIM != -1) {
-                                pc = m.molduras[endFisicoJMPIM / tamPag][endFisicoJMPIM % tamPag].p;
+                                desvia(m.leDado(endFisicoJMPIM));
                             }
                             break;
-                        case JMPIG:
-                            if (reg[ir.rb] > 0) {
-                                pc = reg[ir.ra];
+                        case OP_JMPIG:
+                            if (reg[rb] > 0) {
+                                desvia(reg[ra]);
                             } else {
                                 pc++;
                             }
                             break;
-                        case JMPIGK:
-                            if (reg[ir.rb] > 0) {
-                                pc = ir.p;
+                        case OP_JMPIGK:
+                            if (reg[rb] > 0) {
+                                desvia(p);
                             } else {
                                 pc++;
                             }
                             break;
-                        case JMPILK:
-                            if (reg[ir.rb] < 0) {
-                                pc = ir.p;
+                        case OP_JMPILK:
+                            if (reg[rb] < 0) {
+                                desvia(p);
                             } else {
                                 pc++;
                             }
                             break;
-                        case JMPIEK:
-                            if (reg[ir.rb] == 0) {
-                                pc = ir.p;
+                        case OP_JMPIEK:
+                            if (reg[rb] == 0) {
+                                desvia(p);
                             } else {
                                 pc++;
                             }
                             break;
-                        case JMPIL:
-                            if (reg[ir.rb] < 0) {
-                                pc = reg[ir.ra];
+                        case OP_JMPIL:
+                            if (reg[rb] < 0) {
+                                desvia(reg[ra]);
                             } else {
                                 pc++;
                             }
                             break;
-                        case JMPIE:
-                            if (reg[ir.rb] == 0) {
-                                pc = reg[ir.ra];
+                        case OP_JMPIE:
+                            if (reg[rb] == 0) {
+                                desvia(reg[ra]);
                             } else {
                                 pc++;
                             }
                             break;
-                        case JMPIGM:
-                            int endFisicoJMPIGM = traduzEndereco(ir.p);
+                        case OP_JMPIGM:
+                            int endFisicoJMPIGM = traduzEndereco(p);
                             if (endFisicoJMPIGM != -1) {
-                                if (reg[ir.rb] > 0) {
-                                    pc = m.molduras[endFisicoJMPIGM / tamPag][endFisicoJMPIGM % tamPag].p;
+                                if (reg[rb] > 0) {
+                                    desvia(m.leDado(endFisicoJMPIGM));
                                 } else {
                                     pc++;
                                 }
                             }
                             break;
-                        case JMPILM:
-                            int endFisicoJMPILM = traduzEndereco(ir.p);
+                        case OP_JMPILM:
+                            int endFisicoJMPILM = traduzEndereco(p);
                             if (endFisicoJMPILM != -1) {
-                                if (reg[ir.rb] < 0) {
-                                    pc = m.molduras[endFisicoJMPILM / tamPag][endFisicoJMPILM % tamPag].p;
+                                if (reg[rb] < 0) {
+                                    desvia(m.leDado(endFisicoJMPILM));
                                 } else {
                                     pc++;
                                 }
                             }
                             break;
-                        case JMPIEM:
-                            int endFisicoJMPIEM = traduzEndereco(ir.p);
+                        case OP_JMPIEM:
+                            int endFisicoJMPIEM = traduzEndereco(p);
                             if (endFisicoJMPIEM != -1) {
-                                if (reg[ir.rb] == 0) {
-                                    pc = m.molduras[endFisicoJMPIEM / tamPag][endFisicoJMPIEM % tamPag].p;
+                                if (reg[rb] == 0) {
+                                    desvia(m.leDado(endFisicoJMPIEM));
                                 } else {
                                     pc++;
                                 }
                             }
                             break;
-                        case JMPIGT:
-                            if (reg[ir.ra] > reg[ir.rb]) {
-                                pc = ir.p;
+                        case OP_JMPIGT:
+                            if (reg[ra] > reg[rb]) {
+                                desvia(p);
                             } else {
                                 pc++;
                             }
                             break;
-                        case DATA:
-                            irpt = Interrupts.intInstrucaoInvalida;
+                        case OP_LDI0_ADD: // reg[ra] = 0 + reg[rb] da segunda instrução
+                            superinstrucoes[0]++;
+                            reg[ra] = reg[(byte) (m.instrDecod[pcFisico + 1] >>> 16)];
+                            testOverflow(reg[ra]);
+                            pc += 2;
+                            break;
+                        case OP_STX_ADDI:
+                            superinstrucoes[1]++;
+                            int endFisicoFusao = traduzEndereco(reg[ra], true);
+                            if (endFisicoFusao != -1) {
+                                m.escreveDado(endFisicoFusao, reg[rb]);
+                                pc++;
+                                if (copiouCodigo) { // O ADDI é buscado de novo, na cópia da página
+                                    copiouCodigo = false;
+                                } else if (pc >>> bitsPag == paginaCodigo && m.estadoDecod[moldura] == Memory.DECODIFICADA) {
+                                    // Página do pc ainda mapeada na moldura (a falta da escrita pode tê-la removido, e
+                                    // outra CPU, reusado a moldura) e ADDI não sobrescrito
+                                    int raAddi = (byte) (m.instrDecod[pcFisico + 1] >>> 8);
+                                    reg[raAddi] = reg[raAddi] + m.operandoDecod[pcFisico + 1];
+                                    testOverflow(reg[raAddi]);
+                                    pc++;
+                                }
+                            }
                             break;
-                        case SYSCALL:
-                            sysCall.handle();
+                        case OP_SUB_JMPIG:
+                        case OP_SUB_JMPIE:
+                            superinstrucoes[(instr & 0xFF) - OP_LDI0_ADD]++;
+                            reg[ra] = reg[ra] - reg[rb];
                             pc++;
+                            if (testOverflow(reg[ra])) {
+                                int desvio = m.instrDecod[pcFisico + 1];
+                                int cond = reg[(byte) (desvio >>> 16)];
+                                if ((instr & 0xFF) == OP_SUB_JMPIG ? cond > 0 : cond == 0) {
+                                    desvia(reg[(byte) (desvio >>> 8)]);
+                                } else {
+                                    pc++;
+                                }
+                            }
                             break;
-                        case STOP:
+                        case OP_DATA:
+                            irpt = Interrupts.intInstrucaoInvalida;
+                            break;
+                        case OP_SYSCALL:
+                            sincronizaRastro();
+                            entraNoNucleo();
+                            try {
+                                sysCall.handle();
+                            } finally {
+                                saiDoNucleo();
+                            }
+                            if (irpt != Interrupts.intEsperaMemoria) { // Senão a chamada é repetida
+                                pc++;
+                            }
+                            break;
+                        case OP_STOP:
+                            instrucoes++; // O pc fica no STOP, que salvaContexto não conta
+                            sincronizaRastro();
                             sysCall.stop();
-                            cpuStop = true;
+                            irpt = Interrupts.intSTOP;
                             break;
                         default:
                             irpt = Interrupts.intInstrucaoInvalida;
@@ -330,20 +1015,34 @@ public class Sistema {
                     }
                 }
                 if (irpt != Interrupts.noInterrupt) {
-                    ih.handle(irpt);
-                    cpuStop = true;
+                    cpuStop = !trataInterrupcao(); // A CPU continua se o SO escalonou outro processo
                 }
             }
+            sincronizaRastro();
         }
     }
 
     public class HW {
         public Memory mem;
-        public CPU cpu;
+        public CPU cpu;    // CPU 0, a única fora do modo SMP
+        public CPU[] cpus; // Todas as CPUs, sobre a mesma memória
+        public CPU atual;  // CPU em nome da qual o SO executa (a que tem a trava do núcleo)
+        public ConsoleDevice console;
 
         public HW(int tamMemFisica, int tamPag) {
             mem = new Memory(tamMemFisica, tamPag);
-            cpu = new CPU(mem, true); // Debug ativado
+            console = new ConsoleDevice(saida, null); // Lê do teclado até que outra entrada seja dada
+            cpu = novaCpu(0, true); // Debug ativado
+            // Compilação de blocos desligada: só compensa em laços longos e precisa de um JDK (ver --compilar)
+            cpus = new CPU[] {cpu};
+            atual = cpu;
+        }
+
+        private CPU novaCpu(int id, boolean debug) {
+            CPU c = new CPU(id, mem, debug, new TLB(16, 4, TLB.Substituicao.LRU));
+            c.setQuantum(100);
+            c.setPreDecodificado(true); // Só tem efeito com debug desligado
+            return c;
         }
     }
 
@@ -357,111 +1056,1602 @@ public class Sistema {
             hw = _hw;
         }
 
-        public void handle(Interrupts irpt) {
-            System.out.println("                                               Interrupcao " + irpt + "   pc: " + hw.cpu.pc);
+        // Trata a interrupção do processo em execução; retorna true se há outro processo na CPU
+        public boolean handle(Interrupts irpt) {
+            if (irpt == Interrupts.intTimer) {
+                return so.pm.fimDeFatia();
+            }
+            if (irpt == Interrupts.intES) {
+                so.pm.concluiES();
+                return so.pm.fimDeFatia();
+            }
+            if (irpt == Interrupts.intEsperaMemoria) {
+                so.pm.bloqueia();
+                return so.pm.escalona();
+            }
+            if (irpt == Interrupts.intEsperaES) {
+                so.pm.bloqueiaES();
+                return so.pm.escalona();
+            }
+            if (irpt != Interrupts.intSTOP) {
+                saida.println("                                               Interrupcao " + irpt + "   pc: " + hw.atual.pc);
+            }
+            so.pm.termina(irpt);
+            return so.pm.escalona();
         }
     }
 
-    public class SysCallHandling {
+    // Gerência de memória virtual: trata faltas de página, escolhe vítimas e troca páginas com o swap
+    public class MemoryManager {
         private HW hw;
+        private int loteSubstituicao = 8; // Quantas páginas remover de uma vez quando faltam molduras
+        private long faltasDePagina;
+        private long paginasSubstituidas;
+        private long escritasEvitadas;
+        private long paginasGrandes;
+        private long paginasCompartilhadas;
+        private long copiasNaEscrita;
 
-        public SysCallHandling(HW _hw) {
-            hw = _hw;
-        }
-
-        public void stop() {
-            System.out.println("                                               SYSCALL STOP");
-        }
+        // Bits de referência vistos pela política de substituição; limpar o bit invalida a entrada na TLB,
+        // para que o próximo acesso passe de novo pela tabela de páginas e volte a marcá-lo. Numa moldura
+        // compartilhada vale o bit do dono. Com várias CPUs, o núcleo não altera a tabela de um processo em
+        // execução em outra CPU (ela a lê e marca sem a trava, e sua TLB não seria avisada): as molduras
+        // desses processos contam como referenciadas e não podem ser vítimas enquanto eles executam
+        private final PageReplacementPolicy.Referencias referencias = new PageReplacementPolicy.Referencias() {
+            @Override
+            public boolean referenciada(int moldura) {
+                return emOutraCpu(processoDaMoldura[moldura])
+                        || PageTableEntry.referenciada(processoDaMoldura[moldura].tabelaDePaginas.le(paginaDaMoldura[moldura]));
+            }
 
-        public void handle() {
-            System.out.println("SYSCALL pars:  " + hw.cpu.reg[8] + " / " + hw.cpu.reg[9]);
-            if (hw.cpu.reg[8] == 1) {
-                // Leitura não implementada
-            } else if (hw.cpu.reg[8] == 2) {
-                int endFisico = hw.cpu.traduzEndereco(hw.cpu.reg[9]);
-                if (endFisico != -1) {
-                    System.out.println("OUT:   " + hw.mem.molduras[endFisico / tamPag][endFisico % tamPag].p);
+            @Override
+            public void limpaReferencia(int moldura) {
+                if (emOutraCpu(processoDaMoldura[moldura])) {
+                    return;
                 }
-            } else {
-                System.out.println("  PARAMETRO INVALIDO");
+                int pagina = paginaDaMoldura[moldura];
+                PageTable tp = processoDaMoldura[moldura].tabelaDePaginas;
+                tp.escreve(pagina, tp.le(pagina) & ~PageTableEntry.REFERENCIADA);
+                hw.atual.invalidaTraducao(pagina);
             }
-        }
-    }
 
-    public class Utilities {
-        private HW hw;
+            @Override
+            public boolean elegivel(int moldura) {
+                if (moldura == fixada) {
+                    return false;
+                }
+                boolean emUso = emOutraCpu(processoDaMoldura[moldura]);
+                for (Mapeamento m = outros[moldura]; m != null && !emUso; m = m.prox) {
+                    emUso = emOutraCpu(m.pcb);
+                }
+                recusouEmUso |= emUso;
+                return !emUso;
+            }
+        };
+        private final int[] liberar; // Molduras de um processo que termina, liberadas em bloco
+        private int liberadas;
+        private PagePrefetcher antecipador;    // null = só paginação sob demanda
+        private final boolean[] antecipada;    // Moldura com página antecipada ainda não usada
+        private final int[] sugeridas = new int[64];
+        // Moldura compartilhada (com cópia na escrita): processoDaMoldura e paginaDaMoldura guardam o dono e
+        // outros os demais mapeamentos; quando o dono deixa de usá-la, o primeiro da lista assume
+        private final int[] usuarios;          // Mapeamentos de cada moldura, dono incluído
+        private final Mapeamento[] outros;
+        private int fixada = -1;               // Moldura que não pode ser vítima (origem de uma cópia em andamento)
+        private boolean recusouEmUso;          // A última busca de vítimas recusou molduras em uso em outra CPU
+        private boolean compartilhaImagens = true;
+        private final Map<Long, Integer> imagens = new HashMap<>(); // Conteúdo de página de imagem -> moldura
+        private final long[] chaveDaMoldura;   // Chave da moldura em imagens
+        private final boolean[] naImagem;      // Moldura em imagens, ainda com o conteúdo da carga
 
-        public Utilities(HW _hw) {
+        public MemoryManager(HW _hw) {
             hw = _hw;
+            liberar = new int[hw.mem.numMolduras];
+            antecipada = new boolean[hw.mem.numMolduras];
+            usuarios = new int[hw.mem.numMolduras];
+            outros = new Mapeamento[hw.mem.numMolduras];
+            chaveDaMoldura = new long[hw.mem.numMolduras];
+            naImagem = new boolean[hw.mem.numMolduras];
         }
 
-        private void loadProgram(Word[] p) {
-            // Carrega o programa na memória virtual (posições 0 em diante)
-            for (int i = 0; i < p.length; i++) {
-                int endFisico = hw.cpu.traduzEndereco(i);
-                if (endFisico != -1) {
-                    int moldura = endFisico / tamPag;
-                    int deslocamento = endFisico % tamPag;
-                    hw.mem.molduras[moldura][deslocamento].opc = p[i].opc;
-                    hw.mem.molduras[moldura][deslocamento].ra = p[i].ra;
-                    hw.mem.molduras[moldura][deslocamento].rb = p[i].rb;
-                    hw.mem.molduras[moldura][deslocamento].p = p[i].p;
-                } else {
-                    System.out.println("Erro ao carregar programa: memória insuficiente");
-                    break;
-                }
-            }
+        // Processo em execução numa CPU que não é a que está no núcleo
+        private boolean emOutraCpu(PCB pcb) {
+            return pcb.cpu >= 0 && pcb.cpu != hw.atual.id;
         }
 
-        public void dump(Word w) {
-            System.out.print("[ ");
-            System.out.print(w.opc);
-            System.out.print(", ");
-            System.out.print(w.ra);
-            System.out.print(", ");
-            System.out.print(w.rb);
-            System.out.print(", ");
-            System.out.print(w.p);
-            System.out.println("  ] ");
+        // A última falta ficou sem moldura por causa de molduras em uso em outras CPUs: o processo pode
+        // esperar que elas saiam de execução, em vez de terminar
+        public boolean esperaMolduras() {
+            return recusouEmUso;
         }
 
-        public void dump(int ini, int fim) {
-            for (int i = ini; i < fim; i++) {
-                int endFisico = hw.cpu.traduzEndereco(i);
-                if (endFisico != -1) {
-                    int moldura = endFisico / tamPag;
-                    int deslocamento = endFisico % tamPag;
-                    System.out.print(i + ":  ");
-                    dump(hw.mem.molduras[moldura][deslocamento]);
+        public void setLoteSubstituicao(int lote) {
+            loteSubstituicao = Math.max(1, lote);
+        }
+
+        // Obtém uma moldura para a página e, se ela estava no swap, traz seu conteúdo. Retorna a moldura ou -1
+        public int trataFalta(PCB dono, int pagina) {
+            faltasDePagina++;
+            int moldura = molduras.aloca();
+            if (moldura == -1) {
+                liberaMolduras(loteSubstituicao);
+                moldura = molduras.aloca();
+                if (moldura == -1) {
+                    return -1;
                 }
             }
+            carrega(dono, pagina, moldura);
+            return moldura;
         }
 
-        private void loadAndExec(Word[] p) {
-            loadProgram(p);
-            System.out.println("---------------------------------- programa carregado na memoria");
-            dump(0, p.length);
-            hw.cpu.setContext(0);
-            System.out.println("---------------------------------- inicia execucao ");
-            hw.cpu.run();
-            System.out.println("---------------------------------- memoria após execucao ");
-            dump(0, p.length);
+        private void carrega(PCB dono, int pagina, int moldura) {
+            int pte = dono.tabelaDePaginas.le(pagina);
+            if (PageTableEntry.emSwap(pte)) {
+                int slot = PageTableEntry.slot(pte);
+                swap.lePagina(slot, hw.mem.palavras, moldura * tamPag);
+                slotDaMoldura[moldura] = slot; // O slot continua com uma cópia limpa da página
+            } else {
+                hw.mem.limpaMoldura(moldura);
+                slotDaMoldura[moldura] = -1;
+            }
+            hw.mem.invalidaDecodificacao(moldura);
+            dono.tabelaDePaginas.escreve(pagina, PageTableEntry.mapeada(moldura));
+            processoDaMoldura[moldura] = dono;
+            paginaDaMoldura[moldura] = pagina;
+            usuarios[moldura] = 1;
+            politica.carregada(moldura);
         }
-    }
 
-    public class SO {
-        public InterruptHandling ih;
-        public SysCallHandling sc;
-        public Utilities utils;
+        // Páginas de imagem idênticas a uma já carregada passam a compartilhar a moldura (vale para as
+        // cargas seguintes)
+        public void setCompartilhaImagens(boolean compartilha) {
+            compartilhaImagens = compartilha;
+        }
+
+        // Página da imagem de um programa, já compactada em conteudo (tamPag palavras). Se uma moldura ainda
+        // tem exatamente esse conteúdo desde a carga, a página a compartilha com cópia na escrita; senão é
+        // carregada numa moldura nova, que entra no índice. Retorna a moldura ou -1 se faltou memória
+        public int carregaImagem(PCB pcb, int pagina, long[] conteudo) {
+            int moldura = molduraGrande(pcb, pagina);
+            if (moldura != -1) {
+                System.arraycopy(conteudo, 0, hw.mem.palavras, moldura << bitsPag, tamPag);
+                hw.mem.invalidaDecodificacao(moldura);
+                return moldura;
+            }
+            long chave = 0;
+            boolean indexar = false;
+            if (compartilhaImagens) {
+                chave = chave(conteudo);
+                Integer existente = imagens.get(chave);
+                if (existente != null) {
+                    hw.mem.garante(existente);
+                }
+                if (existente != null && Arrays.equals(hw.mem.palavras, existente << bitsPag, (existente + 1) << bitsPag,
+                        conteudo, 0, tamPag)) {
+                    associa(existente, pcb, pagina);
+                    pcb.tabelaDePaginas.escreve(pagina, PageTableEntry.mapeada(existente) | PageTableEntry.REFERENCIADA
+                            | PageTableEntry.SUJA | PageTableEntry.COPIA_NA_ESCRITA);
+                    paginasCompartilhadas++;
+                    return existente;
+                }
+                indexar = existente == null; // Colisão de chaves: a página é carregada, mas fica fora do índice
+            }
+            moldura = trataFalta(pcb, pagina);
+            if (moldura == -1) {
+                return -1;
+            }
+            System.arraycopy(conteudo, 0, hw.mem.palavras, moldura << bitsPag, tamPag);
+            hw.mem.invalidaDecodificacao(moldura);
+            int pte = PageTableEntry.mapeada(moldura) | PageTableEntry.REFERENCIADA | PageTableEntry.SUJA;
+            if (indexar) {
+                imagens.put(chave, moldura);
+                chaveDaMoldura[moldura] = chave;
+                naImagem[moldura] = true;
+                pte |= PageTableEntry.COPIA_NA_ESCRITA; // A primeira escrita tira a moldura do índice
+            }
+            pcb.tabelaDePaginas.escreve(pagina, pte);
+            return moldura;
+        }
+
+        private long chave(long[] conteudo) {
+            long h = 0x9E3779B97F4A7C15L;
+            for (long w : conteudo) {
+                h = (h ^ w) * 0xBF58476D1CE4E5B9L;
+                h ^= h >>> 31;
+            }
+            return h;
+        }
+
+        // Mais um mapeamento (processo, página) para a moldura, além do dono
+        private void associa(int moldura, PCB pcb, int pagina) {
+            usuarios[moldura]++;
+            outros[moldura] = new Mapeamento(pcb, pagina, outros[moldura]);
+        }
+
+        // Retira o mapeamento da moldura; se era o do dono, o próximo usuário assume
+        private void desassocia(int moldura, PCB pcb, int pagina) {
+            usuarios[moldura]--;
+            if (processoDaMoldura[moldura] == pcb && paginaDaMoldura[moldura] == pagina) {
+                Mapeamento proximo = outros[moldura];
+                if (proximo != null) {
+                    outros[moldura] = proximo.prox;
+                    processoDaMoldura[moldura] = proximo.pcb;
+                    paginaDaMoldura[moldura] = proximo.pagina;
+                }
+                return;
+            }
+            Mapeamento anterior = null;
+            for (Mapeamento m = outros[moldura]; m != null; anterior = m, m = m.prox) {
+                if (m.pcb == pcb && m.pagina == pagina) {
+                    if (anterior == null) {
+                        outros[moldura] = m.prox;
+                    } else {
+                        anterior.prox = m.prox;
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void saiDoIndice(int moldura) {
+            if (naImagem[moldura]) {
+                naImagem[moldura] = false;
+                imagens.remove(chaveDaMoldura[moldura], moldura);
+            }
+        }
+
+        // Primeira escrita numa página com cópia na escrita. Se a moldura tem outros usuários, a página ganha
+        // uma cópia própria; se não, ela já é do processo e só sai do índice de imagens. Retorna a moldura que
+        // a página passa a usar, ou -1
+        public int copiaNaEscrita(PCB dono, int pagina) {
+            int pte = dono.tabelaDePaginas.le(pagina);
+            int moldura = PageTableEntry.moldura(pte);
+            if (usuarios[moldura] == 1) {
+                saiDoIndice(moldura);
+                dono.tabelaDePaginas.escreve(pagina, pte & ~PageTableEntry.COPIA_NA_ESCRITA);
+                return moldura;
+            }
+            int copia = molduras.aloca();
+            if (copia == -1) {
+                fixada = moldura;
+                liberaMolduras(loteSubstituicao);
+                fixada = -1;
+                copia = molduras.aloca();
+                if (copia == -1) {
+                    return -1;
+                }
+            }
+            hw.mem.garante(moldura);
+            System.arraycopy(hw.mem.palavras, moldura << bitsPag, hw.mem.palavras, copia << bitsPag, tamPag);
+            hw.mem.invalidaDecodificacao(copia);
+            desassocia(moldura, dono, pagina);
+            usuarios[copia] = 1;
+            slotDaMoldura[copia] = -1;
+            processoDaMoldura[copia] = dono;
+            paginaDaMoldura[copia] = pagina;
+            politica.carregada(copia);
+            // Suja: a cópia não tem conteúdo no swap
+            dono.tabelaDePaginas.escreve(pagina, PageTableEntry.mapeada(copia) | PageTableEntry.SUJA
+                    | (pte & PageTableEntry.REFERENCIADA));
+            hw.atual.invalidaTraducao(pagina);
+            copiasNaEscrita++;
+            return copia;
+        }
+
+        // fork: o filho recebe o espaço de endereçamento do pai. Páginas residentes passam a ser compartilhadas,
+        // com cópia na escrita nos dois processos; páginas no swap são copiadas para um slot novo e páginas
+        // grandes, que são fixas, para molduras contíguas novas ou, se não houver, página a página para o swap
+        // do filho, que as traz como páginas comuns. Retorna false se faltou swap (o filho fica parcialmente
+        // mapeado e deve ser liberado com liberaProcesso)
+        public boolean duplica(PCB pai, PCB filho) {
+            PageTable tp = pai.tabelaDePaginas;
+            List<Integer> paginas = new ArrayList<>();
+            tp.percorre((pagina, pte) -> paginas.add(pagina)); // A tabela só é alterada depois do percurso
+            long[] copia = null;
+            for (int pagina : paginas) {
+                int pte = tp.le(pagina);
+                if (PageTableEntry.valida(pte)) {
+                    int moldura = PageTableEntry.moldura(pte);
+                    associa(moldura, filho, pagina);
+                    if (hw.cpus.length > 1 && hw.mem.estadoDecod != null && hw.mem.estadoDecod[moldura] == Memory.NAO_DECODIFICADA) {
+                        hw.mem.garante(moldura);
+                        hw.mem.decodificaMoldura(moldura); // O filho pode executar em outra CPU: decodifica sob a trava
+                    }
+                    tp.escreve(pagina, pte | PageTableEntry.COPIA_NA_ESCRITA);
+                    filho.tabelaDePaginas.escreve(pagina, PageTableEntry.mapeada(moldura) | PageTableEntry.COPIA_NA_ESCRITA
+                            | (pte & PageTableEntry.SUJA));
+                } else if (PageTableEntry.emSwap(pte)) {
+                    int slot = swap.alocaSlot();
+                    if (slot == -1) {
+                        return false;
+                    }
+                    if (copia == null) {
+                        copia = new long[tamPag];
+                    }
+                    swap.lePagina(PageTableEntry.slot(pte), copia, 0);
+                    swap.escrevePagina(slot, copia, 0);
+                    filho.tabelaDePaginas.escreve(pagina, PageTableEntry.noSwap(slot));
+                }
+            }
+            hw.atual.invalidaTraducoes(); // As entradas do pai na TLB ainda permitem escrita
+            if (pai.grandes == null) {
+                return true;
+            }
+            List<Integer> grupos = new ArrayList<>();
+            pai.grandes.percorre((grande, pte) -> grupos.add(grande));
+            int porGrande = mascaraGrande + 1;
+            for (int g : grupos) {
+                int origem = PageTableEntry.moldura(pai.grandes.le(g));
+                for (int i = 0; i < porGrande; i++) {
+                    hw.mem.garante(origem + i);
+                }
+                int base = molduras.alocaContiguas(porGrande);
+                if (base != -1) {
+                    System.arraycopy(hw.mem.palavras, origem << bitsPag, hw.mem.palavras, base << bitsPag, porGrande << bitsPag);
+                    ocupaGrande(filho, g, base);
+                    continue;
+                }
+                for (int i = 0; i < porGrande; i++) {
+                    int slot = swap.alocaSlot();
+                    if (slot == -1) {
+                        return false;
+                    }
+                    swap.escrevePagina(slot, hw.mem.palavras, (origem + i) << bitsPag);
+                    filho.tabelaDePaginas.escreve((g << bitsGrande) + i, PageTableEntry.noSwap(slot));
+                }
+            }
+            return true;
+        }
+
+        // Antecipação de páginas (0 desliga): até paginas páginas à frente de cada fluxo detectado
+        public void setAntecipacao(int paginas) {
+            antecipador = paginas > 0 ? new PagePrefetcher(Math.min(paginas, sugeridas.length)) : null;
+            Arrays.fill(antecipada, false);
+        }
+
+        public boolean antecipando() {
+            return antecipador != null;
+        }
+
+        public PagePrefetcher getAntecipador() {
+            return antecipador;
+        }
+
+        // Acesso da CPU a uma página nova do processo: por falta ou primeiro uso de página antecipada. As
+        // páginas sugeridas só ocupam molduras livres, para que a antecipação nunca cause substituições;
+        // entram mapeadas sem o bit de referência, que marca o primeiro uso
+        public void antecipa(PCB dono, int pagina, boolean falta) {
+            int n = antecipador.observa(dono.fluxo, pagina, falta, sugeridas);
+            for (int i = 0; i < n; i++) {
+                int p = sugeridas[i];
+                if (p < 0 || p >= dono.tabelaDePaginas.numPaginas()) {
+                    break;
+                }
+                if (PageTableEntry.valida(dono.tabelaDePaginas.le(p)) || molduraGrande(dono, p) != -1) {
+                    continue;
+                }
+                int moldura = molduras.aloca();
+                if (moldura == -1) {
+                    break;
+                }
+                carrega(dono, p, moldura);
+                antecipada[moldura] = true;
+                antecipador.emitida();
+            }
+        }
+
+        // Página residente ainda sem bit de referência: se foi antecipada, conta o uso e segue o fluxo
+        public void usouAntecipada(PCB dono, int pagina, int moldura) {
+            if (antecipada[moldura]) {
+                antecipada[moldura] = false;
+                antecipador.usada();
+                antecipa(dono, pagina, false);
+            }
+        }
+
+        // Tradução feita pelo SO em nome de um processo (carga, dump), sem passar pela TLB
+        public int traduz(PCB pcb, int endVirtual, boolean escrita) {
+            int pagina = endVirtual >>> bitsPag;
+            if (endVirtual < 0 || pagina >= pcb.tabelaDePaginas.numPaginas()) {
+                return -1;
+            }
+            int grande = molduraGrande(pcb, pagina);
+            if (grande != -1) {
+                hw.mem.garante(grande);
+                return (grande << bitsPag) | (endVirtual & mascaraPag);
+            }
+            if (!PageTableEntry.valida(pcb.tabelaDePaginas.le(pagina)) && trataFalta(pcb, pagina) == -1) {
+                return -1;
+            }
+            if (escrita && PageTableEntry.copiaNaEscrita(pcb.tabelaDePaginas.le(pagina)) && copiaNaEscrita(pcb, pagina) == -1) {
+                return -1;
+            }
+            int pte = pcb.tabelaDePaginas.le(pagina) | PageTableEntry.REFERENCIADA | (escrita ? PageTableEntry.SUJA : 0);
+            pcb.tabelaDePaginas.escreve(pagina, pte);
+            hw.mem.garante(PageTableEntry.moldura(pte));
+            return (PageTableEntry.moldura(pte) << bitsPag) | (endVirtual & mascaraPag);
+        }
+
+        // Moldura da página se ela pertence a uma página grande do processo, ou -1
+        public int molduraGrande(PCB pcb, int pagina) {
+            if (pcb.grandes == null) {
+                return -1;
+            }
+            int pte = pcb.grandes.le(pagina >>> bitsGrande);
+            return PageTableEntry.valida(pte) ? PageTableEntry.moldura(pte) + (pagina & mascaraGrande) : -1;
+        }
+
+        // Mapeia a região [endVirtual, endVirtual + palavras) com páginas grandes, cada uma um grupo alinhado
+        // de molduras contíguas. Só grupos inteiramente dentro da região são mapeados; os que já têm alguma
+        // página mapeada ou no swap continuam com páginas comuns, assim como tudo quando não há molduras
+        // contíguas livres. As páginas grandes ficam fixas (fora da política de substituição) até o fim do
+        // processo. Retorna quantas páginas grandes mapeou
+        public int mapeiaGrande(PCB pcb, int endVirtual, int palavras) {
+            if (bitsGrande < 0 || endVirtual < 0 || palavras <= 0) {
+                return 0;
+            }
+            int porGrande = mascaraGrande + 1;
+            int bits = bitsPag + bitsGrande;
+            long primeira = ((long) endVirtual + (1L << bits) - 1) >>> bits;
+            long fim = Math.min((long) endVirtual + palavras, tamMemVirtual) >>> bits; // Exclusivo
+            int mapeadas = 0;
+            for (int g = (int) primeira; g < fim; g++) {
+                boolean livre = true;
+                for (int pagina = g << bitsGrande; pagina < (g + 1) << bitsGrande && livre; pagina++) {
+                    livre = pcb.tabelaDePaginas.le(pagina) == PageTableEntry.NAO_MAPEADA;
+                }
+                if (!livre || (pcb.grandes != null && PageTableEntry.valida(pcb.grandes.le(g)))) {
+                    continue;
+                }
+                int base = molduras.alocaContiguas(porGrande);
+                if (base == -1) {
+                    break;
+                }
+                for (int moldura = base; moldura < base + porGrande; moldura++) {
+                    hw.mem.limpaMoldura(moldura);
+                }
+                ocupaGrande(pcb, g, base);
+                mapeadas++;
+            }
+            return mapeadas;
+        }
+
+        // Registra a página grande g do processo nas molduras base em diante, já com o conteúdo
+        private void ocupaGrande(PCB pcb, int g, int base) {
+            for (int moldura = base; moldura <= base + mascaraGrande; moldura++) {
+                hw.mem.invalidaDecodificacao(moldura);
+                processoDaMoldura[moldura] = pcb;
+                paginaDaMoldura[moldura] = (g << bitsGrande) + moldura - base;
+                slotDaMoldura[moldura] = -1;
+                usuarios[moldura] = 1;
+            }
+            if (pcb.grandes == null) {
+                pcb.grandes = tabelaGrande(pcb);
+                hw.atual.recarregaGrandes(pcb);
+            }
+            pcb.grandes.escreve(g, PageTableEntry.mapeada(base) | PageTableEntry.SUJA);
+            paginasGrandes++;
+        }
+
+        private PageTable tabelaGrande(PCB pcb) {
+            return PageTable.cria("hash", (pcb.tabelaDePaginas.numPaginas() + mascaraGrande) >>> bitsGrande,
+                    hw.mem.numMolduras >>> bitsGrande);
+        }
+
+        // Devolve todas as molduras e slots de swap do processo; uma moldura compartilhada só é devolvida
+        // quando o último usuário termina
+        public void liberaProcesso(PCB pcb) {
+            PageTable tp = pcb.tabelaDePaginas;
+            liberadas = 0;
+            tp.percorre((pagina, pte) -> {
+                if (PageTableEntry.valida(pte)) {
+                    int moldura = PageTableEntry.moldura(pte);
+                    desassocia(moldura, pcb, pagina);
+                    if (usuarios[moldura] > 0) {
+                        return;
+                    }
+                    saiDoIndice(moldura);
+                    politica.liberada(moldura);
+                    if (slotDaMoldura[moldura] != -1) {
+                        swap.liberaSlot(slotDaMoldura[moldura]);
+                        slotDaMoldura[moldura] = -1;
+                    }
+                    processoDaMoldura[moldura] = null;
+                    if (antecipada[moldura]) {
+                        antecipada[moldura] = false;
+                        antecipador.desperdicada();
+                    }
+                    liberar[liberadas++] = moldura;
+                } else if (PageTableEntry.emSwap(pte)) {
+                    swap.liberaSlot(PageTableEntry.slot(pte));
+                }
+            });
+            tp.limpa();
+            if (pcb.grandes != null) {
+                pcb.grandes.percorre((grande, pte) -> {
+                    for (int moldura = PageTableEntry.moldura(pte); moldura <= PageTableEntry.moldura(pte) + mascaraGrande; moldura++) {
+                        processoDaMoldura[moldura] = null;
+                        liberar[liberadas++] = moldura;
+                    }
+                });
+                pcb.grandes = null;
+                hw.atual.recarregaGrandes(pcb);
+            }
+            for (int i = 0; i < liberadas; i++) {
+                hw.mem.descarta(liberar[i]);
+            }
+            molduras.liberaTodas(liberar, liberadas);
+        }
+
+        // Remove até n páginas escolhidas pela política, agrupando as gravações no swap
+        private void liberaMolduras(int n) {
+            recusouEmUso = false;
+            for (int i = 0; i < n; i++) {
+                int vitima = politica.escolheVitima(referencias);
+                if (vitima == -1) {
+                    break;
+                }
+                if (!removePagina(vitima)) {
+                    politica.carregada(vitima); // Swap cheio: a página continua na moldura
+                    break;
+                }
+                molduras.libera(vitima);
+            }
+        }
+
+        // Só páginas sujas são gravadas; uma página limpa já tem cópia idêntica no swap ou nunca foi escrita
+        private boolean removePagina(int moldura) {
+            if (outros[moldura] != null && !retiraCompartilhamento(moldura)) {
+                return false;
+            }
+            PageTable tp = processoDaMoldura[moldura].tabelaDePaginas;
+            int pagina = paginaDaMoldura[moldura];
+            int slot = slotDaMoldura[moldura];
+            if (PageTableEntry.suja(tp.le(pagina))) {
+                if (slot == -1) {
+                    slot = swap.alocaSlot();
+                    if (slot == -1) {
+                        return false;
+                    }
+                }
+                hw.mem.garante(moldura);
+                swap.escrevePagina(slot, hw.mem.palavras, moldura * tamPag);
+            } else {
+                escritasEvitadas++;
+            }
+            tp.escreve(pagina, slot == -1 ? PageTableEntry.NAO_MAPEADA : PageTableEntry.noSwap(slot));
+            slotDaMoldura[moldura] = -1;
+            saiDoIndice(moldura);
+            if (antecipada[moldura]) {
+                antecipada[moldura] = false;
+                antecipador.desperdicada();
+            }
+            processoDaMoldura[moldura] = null;
+            hw.mem.descarta(moldura);
+            hw.atual.invalidaTraducao(pagina); // Inócuo se a página for de outro processo
+            paginasSubstituidas++;
+            return true;
+        }
+
+        // Vítima compartilhada: cada usuário além do dono recebe a página num slot próprio (ou volta a não
+        // mapeada, se a página nunca foi escrita), e a moldura fica só com o dono, que é removido como sempre
+        private boolean retiraCompartilhamento(int moldura) {
+            if (swap.slotsLivres() < usuarios[moldura]) {
+                return false;
+            }
+            for (Mapeamento m = outros[moldura]; m != null; m = m.prox) {
+                PageTable tp = m.pcb.tabelaDePaginas;
+                if (!PageTableEntry.suja(tp.le(m.pagina)) && slotDaMoldura[moldura] == -1) {
+                    tp.escreve(m.pagina, PageTableEntry.NAO_MAPEADA);
+                } else {
+                    int slot = swap.alocaSlot();
+                    hw.mem.garante(moldura);
+                    swap.escrevePagina(slot, hw.mem.palavras, moldura * tamPag);
+                    tp.escreve(m.pagina, PageTableEntry.noSwap(slot));
+                }
+                hw.atual.invalidaTraducao(m.pagina); // Inócuo se a página for de outro processo
+            }
+            outros[moldura] = null;
+            usuarios[moldura] = 1;
+            return true;
+        }
+
+        public String estatisticas() {
+            return "Paginação (" + politica.nome() + "): faltas " + faltasDePagina + ", substituições " + paginasSubstituidas
+                    + ", swap: lidas " + swap.getPaginasLidas() + ", escritas " + swap.getPaginasEscritas()
+                    + ", escritas evitadas " + escritasEvitadas + (bitsGrande >= 0 ? ", páginas grandes " + paginasGrandes : "")
+                    + (paginasCompartilhadas + copiasNaEscrita > 0
+                            ? ", páginas compartilhadas " + paginasCompartilhadas + ", cópias na escrita " + copiasNaEscrita : "")
+                    + (antecipador != null ? "\n" + antecipador : "");
+        }
+    }
+
+    // Mapeamento de uma moldura compartilhada, além do dono (ver MemoryManager)
+    private class Mapeamento {
+        final PCB pcb;
+        final int pagina;
+        Mapeamento prox;
+
+        Mapeamento(PCB pcb, int pagina, Mapeamento prox) {
+            this.pcb = pcb;
+            this.pagina = pagina;
+            this.prox = prox;
+        }
+    }
+
+    // Bloco de controle de processo: contexto salvo da CPU e tabela de páginas própria
+    public class PCB {
+        public int id;
+        public String nome;
+        public PageTable tabelaDePaginas;
+        public PageTable grandes; // Páginas grandes, uma entrada por grupo de páginas (null se não houver)
+        public final PagePrefetcher.Fluxo fluxo = new PagePrefetcher.Fluxo(); // Detector da antecipação
+        public int tamPrograma;
+        public int pc;
+        public int[] reg = new int[10];
+        public EstadoProcesso estado;
+        public int cpu = -1; // CPU em que está executando (-1 se não está)
+        public Interrupts motivoTermino; // intSTOP em término normal
+        public boolean dumpAoTerminar;
+        public boolean guardaMemoria;    // Copia o espaço do programa para memoriaFinal ao terminar
+        public long[] memoriaFinal;
+        public final List<Integer> saidas = new ArrayList<>(); // Valores escritos por SYSCALL OUT
+        public ConsoleDevice.Pedido pedidoES; // Pedido do SYSCALL, entregue ao console em bloqueiaES
+
+        public PCB(int _id, String _nome, int _tamPrograma) {
+            id = _id;
+            nome = _nome;
+            tamPrograma = _tamPrograma;
+            tabelaDePaginas = PageTable.cria(estruturaTabela, tamMemVirtual >>> bitsPag, tamMemFisica >>> bitsPag);
+            estado = EstadoProcesso.PRONTO;
+        }
+    }
+
+    // Gerência de processos: tabela de processos, fila de prontos e escalonamento circular. Cada CPU tem a
+    // sua fila; uma CPU sem processos prontos rouba o último da fila mais longa
+    public class ProcessManager {
+        private HW hw;
+        private Map<Integer, PCB> processos = new HashMap<>();
+        private ArrayDeque<PCB>[] prontos;
+        private List<PCB> terminados = new ArrayList<>();
+        private PCB[] rodando;
+        private ArrayDeque<PCB> esperandoMemoria = new ArrayDeque<>(); // Bloqueados por intEsperaMemoria
+        private int esperandoES;  // Bloqueados por intEsperaES, até a conclusão do pedido no console
+        private int proximaFila;  // Processos novos são distribuídos entre as filas em rodízio
+        private int proximoId;
+        private long trocasDeContexto;
+        private long preempcoes;
+        private long roubos;
+        private long esperasPorMemoria; // Vezes em que um processo bloqueou por intEsperaMemoria
+        private long limiteInstrucoes; // 0 = sem limite
+        private long parada;      // Instruções da CPU depois das quais a execução para (0 = não para)
+        private boolean parado;   // A execução parou em parada: nenhum processo é mais escalonado
+        private int ociosas;      // CPUs esperando trabalho (modo SMP)
+        private final Condition trabalho = nucleo.newCondition();
+
+        public ProcessManager(HW _hw) {
+            hw = _hw;
+            setCpus(hw.cpus.length);
+        }
+
+        // Uma fila de prontos por CPU; os processos já prontos vão para a fila da CPU 0
+        @SuppressWarnings({"unchecked", "rawtypes"}) // Vetor de tipo genérico: só se cria com o tipo cru
+        public void setCpus(int n) {
+            ArrayDeque<PCB>[] filas = new ArrayDeque[n];
+            for (int i = 0; i < n; i++) {
+                filas[i] = new ArrayDeque<>();
+            }
+            if (prontos != null) {
+                for (ArrayDeque<PCB> fila : prontos) {
+                    filas[0].addAll(fila);
+                }
+            }
+            prontos = filas;
+            rodando = new PCB[n];
+            proximaFila = 0;
+        }
+
+        // Cria o processo e carrega o programa na sua memória virtual; retorna null se não couber
+        public PCB criaProcesso(String nome, ProgramImage imagem) {
+            PCB pcb = new PCB(proximoId++, nome, imagem.tamanho());
+            if (!so.utils.loadProgram(pcb, imagem)) {
+                so.mm.liberaProcesso(pcb);
+                return null;
+            }
+            processos.put(pcb.id, pcb);
+            prontos[proximaFila].add(pcb);
+            proximaFila = (proximaFila + 1) % prontos.length;
+            return pcb;
+        }
+
+        public PCB criaProcesso(String nome, Word[] programa) {
+            return criaProcesso(nome, progs.imagem(nome, programa));
+        }
+
+        // fork do processo em execução: o filho tem cópia (com cópia na escrita) do espaço de endereçamento e
+        // dos registradores, e continua na instrução seguinte ao SYSCALL com r8 = 0. Retorna null se o limite
+        // de processos foi atingido ou faltou memória
+        public PCB duplica() {
+            PCB pai = rodando[hw.atual.id];
+            if (processos.size() >= maxProcessos) {
+                return null;
+            }
+            PCB filho = new PCB(proximoId++, pai.nome, pai.tamPrograma);
+            if (!so.mm.duplica(pai, filho)) {
+                so.mm.liberaProcesso(filho);
+                return null;
+            }
+            System.arraycopy(hw.atual.reg, 0, filho.reg, 0, filho.reg.length);
+            filho.reg[8] = 0;
+            filho.pc = hw.atual.pc + 1;
+            processos.put(filho.id, filho);
+            prontos[proximaFila].add(filho);
+            proximaFila = (proximaFila + 1) % prontos.length;
+            trabalho.signalAll();
+            return filho;
+        }
+
+        // Coloca o próximo processo pronto na CPU; retorna false se não há nenhum. Processos com E/S concluída
+        // entram antes na fila
+        public boolean escalona() {
+            CPU cpu = hw.atual;
+            if (esperandoES > 0 && hw.console.temConcluidos()) {
+                concluiES();
+            }
+            if (parado) {
+                rodando[cpu.id] = null;
+                return false;
+            }
+            PCB proximo = prontos[cpu.id].poll();
+            if (proximo == null && prontos.length > 1) {
+                proximo = rouba(cpu.id);
+            }
+            rodando[cpu.id] = proximo;
+            if (proximo == null) {
+                return false;
+            }
+            proximo.estado = EstadoProcesso.EXECUTANDO;
+            proximo.cpu = cpu.id;
+            cpu.restauraContexto(proximo); // Esvazia a TLB: o processo pode ter executado em outra CPU
+            trocasDeContexto++;
+            return true;
+        }
+
+        // O último da fila mais longa: o que mais esperaria lá
+        private PCB rouba(int cpu) {
+            ArrayDeque<PCB> maior = null;
+            for (int i = 0; i < prontos.length; i++) {
+                if (i != cpu && (maior == null || prontos[i].size() > maior.size())) {
+                    maior = prontos[i];
+                }
+            }
+            PCB pcb = maior.pollLast();
+            if (pcb != null) {
+                roubos++;
+            }
+            return pcb;
+        }
+
+        // Tira o processo em execução da CPU e o coloca no fim da fila de prontos
+        public void preempta() {
+            int cpu = hw.atual.id;
+            PCB pcb = rodando[cpu];
+            hw.atual.salvaContexto(pcb);
+            pcb.estado = EstadoProcesso.PRONTO;
+            pcb.cpu = -1;
+            prontos[cpu].add(pcb);
+            rodando[cpu] = null;
+            desbloqueia(); // As molduras do processo podem ser vítimas agora
+            trabalho.signalAll(); // Uma CPU ociosa pode roubá-lo
+        }
+
+        // O processo em execução espera até que algum processo saia de execução em outra CPU, liberando
+        // molduras para vítimas; a instrução que ficou sem moldura é repetida quando ele voltar
+        public void bloqueia() {
+            int cpu = hw.atual.id;
+            PCB pcb = rodando[cpu];
+            hw.atual.salvaContexto(pcb);
+            pcb.estado = EstadoProcesso.BLOQUEADO;
+            pcb.cpu = -1;
+            esperandoMemoria.add(pcb);
+            esperasPorMemoria++;
+            rodando[cpu] = null;
+        }
+
+        // O processo em execução fez um pedido ao console; volta à fila de prontos em concluiES. O pedido só
+        // é entregue ao dispositivo depois que o processo está bloqueado: com várias CPUs, outra CPU pode
+        // tratar a conclusão assim que a trava do núcleo é solta, e não pode encontrar o processo ainda na CPU
+        public void bloqueiaES() {
+            int cpu = hw.atual.id;
+            PCB pcb = rodando[cpu];
+            hw.atual.salvaContexto(pcb);
+            pcb.estado = EstadoProcesso.BLOQUEADO;
+            pcb.cpu = -1;
+            esperandoES++;
+            rodando[cpu] = null;
+            ConsoleDevice.Pedido pedido = pcb.pedidoES;
+            pcb.pedidoES = null;
+            hw.console.pede(pedido);
+        }
+
+        // Pedidos concluídos pelo console: o valor lido vai para a memória do processo, que volta à fila da
+        // CPU atual. Sem mais entrada (intFimDaEntrada) ou com o endereço fora do processo a leitura termina
+        // o processo
+        public void concluiES() {
+            ConsoleDevice.Pedido p;
+            while ((p = hw.console.concluido()) != null) {
+                esperandoES--;
+                PCB pcb = processos.get(p.processo);
+                if (p.operacao == ConsoleDevice.LEITURA) {
+                    int endFisico = p.fimDaEntrada ? -1 : so.mm.traduz(pcb, p.endereco, true);
+                    if (endFisico == -1) {
+                        Interrupts motivo = p.fimDaEntrada ? Interrupts.intFimDaEntrada : Interrupts.intEnderecoInvalido;
+                        saida.println("                                               Interrupcao " + motivo + "   pc: " + pcb.pc);
+                        finaliza(pcb, motivo);
+                        continue;
+                    }
+                    hw.mem.escreveDado(endFisico, p.valor);
+                }
+                pcb.estado = EstadoProcesso.PRONTO;
+                prontos[hw.atual.id].add(pcb);
+            }
+            trabalho.signalAll();
+        }
+
+        // Chamado pela thread do console a cada pedido concluído: CPUs ociosas voltam a escalonar
+        public void acordaOciosas() {
+            nucleo.lock();
+            try {
+                trabalho.signalAll();
+            } finally {
+                nucleo.unlock();
+            }
+        }
+
+        // Os processos que esperavam molduras voltam à fila da CPU atual
+        private void desbloqueia() {
+            PCB pcb;
+            while ((pcb = esperandoMemoria.poll()) != null) {
+                pcb.estado = EstadoProcesso.PRONTO;
+                prontos[hw.atual.id].add(pcb);
+            }
+        }
+
+        // Interrupção de timer: o processo em execução vai para o fim da fila (round-robin).
+        // Sem outro processo pronto, ele continua na CPU e só o timer é recarregado
+        public boolean fimDeFatia() {
+            if (limiteInstrucoes > 0 && hw.atual.getInstrucoes() >= limiteInstrucoes) {
+                termina(Interrupts.intTimer);
+                return escalona();
+            }
+            if (parado || (parada > 0 && hw.atual.getInstrucoes() >= parada)) {
+                parada = 0;
+                parado = true;
+                if (!prontos[hw.atual.id].isEmpty()) {
+                    preempcoes++; // A mesma preempção da execução sem parada
+                }
+                preempta(); // O processo fica pronto, no fim da fila
+                return false;
+            }
+            if (prontos[hw.atual.id].isEmpty()) {
+                hw.atual.irpt = Interrupts.noInterrupt;
+                hw.atual.recarregaTimer();
+                return true;
+            }
+            preempcoes++;
+            preempta();
+            return escalona();
+        }
+
+        // Encerra o processo em execução e devolve sua memória
+        public void termina(Interrupts motivo) {
+            PCB pcb = rodando[hw.atual.id];
+            hw.atual.salvaContexto(pcb);
+            rodando[hw.atual.id] = null;
+            finaliza(pcb, motivo);
+        }
+
+        // Término de um processo fora da CPU (em execução ou bloqueado)
+        private void finaliza(PCB pcb, Interrupts motivo) {
+            pcb.estado = EstadoProcesso.TERMINADO;
+            pcb.cpu = -1;
+            pcb.motivoTermino = motivo;
+            if (pcb.dumpAoTerminar) {
+                saida.println("---------------------------------- memoria após execucao ");
+                so.utils.dump(pcb, 0, pcb.tamPrograma);
+            }
+            if (pcb.guardaMemoria) {
+                pcb.memoriaFinal = so.utils.copia(pcb, 0, pcb.tamPrograma);
+            }
+            so.mm.liberaProcesso(pcb);
+            hw.atual.gravaEvento(pcb.pc, -1, -1, pcb, OP_STOP, TraceRecorder.FIM_DE_PROCESSO);
+            processos.remove(pcb.id);
+            terminados.add(pcb);
+            if (!esperandoMemoria.isEmpty()) {
+                desbloqueia();
+                trabalho.signalAll();
+            }
+        }
+
+        public PCB getRodando() {
+            return rodando[hw.atual.id];
+        }
+
+        // Laço de uma CPU. Executa processos enquanto houver; sem nenhum pronto, espera, porque as outras
+        // CPUs ainda podem criar (fork) ou preemptar processos e o console ainda pode concluir pedidos. Com
+        // todas as CPUs ociosas, nenhuma moldura está em uso em outra CPU: quem esperava molduras volta a
+        // executar (e, se ainda faltar memória, termina como com uma CPU só); sem ninguém esperando molduras
+        // nem E/S, a execução acabou
+        public void executa(CPU cpu) {
+            while (true) {
+                cpu.entraNoNucleo();
+                try {
+                    ociosas++;
+                    while (!escalona()) {
+                        if (ociosas == hw.cpus.length && !esperandoMemoria.isEmpty()) {
+                            desbloqueia();
+                            continue;
+                        }
+                        if ((ociosas == hw.cpus.length || parado) && esperandoES == 0) {
+                            trabalho.signalAll();
+                            return;
+                        }
+                        trabalho.awaitUninterruptibly();
+                        hw.atual = cpu; // Outra CPU pode ter passado pelo núcleo durante a espera
+                    }
+                    ociosas--;
+                } finally {
+                    cpu.saiDoNucleo();
+                }
+                cpu.run();
+            }
+        }
+
+        // Executa os processos prontos em todas as CPUs, uma thread por CPU, e espera todas terminarem. Com uma
+        // CPU só, executa na própria thread
+        public void executaEmParalelo() {
+            ociosas = 0;
+            parado = false;
+            if (hw.cpus.length == 1) {
+                executa(hw.cpu);
+                return;
+            }
+            Thread[] threads = new Thread[hw.cpus.length];
+            for (int i = 0; i < threads.length; i++) {
+                CPU cpu = hw.cpus[i];
+                threads[i] = new Thread(() -> executa(cpu), "cpu-" + cpu.id);
+                threads[i].start();
+            }
+            for (Thread t : threads) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            hw.atual = hw.cpu;
+        }
+
+        public List<PCB> getTerminados() {
+            return terminados;
+        }
+
+        public long getTrocasDeContexto() {
+            return trocasDeContexto;
+        }
+
+        public long getPreempcoes() {
+            return preempcoes;
+        }
+
+        public long getEsperasPorMemoria() {
+            return esperasPorMemoria;
+        }
+
+        public long getRoubos() {
+            return roubos;
+        }
+
+        // Execuções sem console (ver BatchRunner): no fim de fatia em que a CPU já executou limite instruções,
+        // o processo termina com intTimer, em vez de um laço infinito prender a execução; 0 desliga
+        public void setLimiteInstrucoes(long limite) {
+            limiteInstrucoes = limite;
+        }
+
+        // Ponto de parada para instantâneos: no fim da fatia em que a CPU já executou instrucoes instruções,
+        // o processo em execução volta à fila e as CPUs param de escalonar assim que tiram o seu; os
+        // processos bloqueados por E/S são esperados. Depois de executaEmParalelo, parou indica se a execução
+        // foi interrompida (os processos restantes seguem prontos, para Snapshot ou para outra execução)
+        public void setParada(long instrucoes) {
+            parada = instrucoes;
+        }
+
+        public boolean parou() {
+            return parado;
+        }
+    }
+
+    public class SysCallHandling {
+        private HW hw;
+
+        public SysCallHandling(HW _hw) {
+            hw = _hw;
+        }
+
+        public void stop() {
+            saida.println("                                               SYSCALL STOP");
+        }
+
+        public void handle() {
+            saida.println("SYSCALL pars:  " + hw.atual.reg[8] + " / " + hw.atual.reg[9]);
+            if (hw.atual.reg[8] == 1) {
+                // Leitura: o console lê o valor e o SO o guarda em r9 na conclusão; até lá o processo espera
+                so.pm.getRodando().pedidoES = new ConsoleDevice.Pedido(ConsoleDevice.LEITURA, so.pm.getRodando().id, hw.atual.reg[9], 0);
+                hw.atual.irpt = Interrupts.intEsperaES;
+            } else if (hw.atual.reg[8] == 2) {
+                // Escrita: o valor é lido agora e o processo espera o console escrevê-lo
+                int endFisico = hw.atual.traduzEndereco(hw.atual.reg[9]);
+                hw.atual.sincronizaRastro(); // A tradução acima entrou no rastro antes da saída
+                if (endFisico != -1) {
+                    int valor = hw.mem.leDado(endFisico);
+                    so.pm.getRodando().saidas.add(valor);
+                    so.pm.getRodando().pedidoES = new ConsoleDevice.Pedido(ConsoleDevice.ESCRITA, so.pm.getRodando().id, hw.atual.reg[9], valor);
+                    hw.atual.irpt = Interrupts.intEsperaES;
+                }
+            } else if (hw.atual.reg[8] == 3) {
+                // fork: r8 recebe o id do filho no pai (-1 se não foi criado) e 0 no filho
+                PCB filho = so.pm.duplica();
+                hw.atual.reg[8] = filho == null ? -1 : filho.id;
+            } else {
+                saida.println("  PARAMETRO INVALIDO");
+            }
+        }
+    }
+
+    public class Utilities {
+        private HW hw;
+
+        public Utilities(HW _hw) {
+            hw = _hw;
+        }
+
+        private boolean loadProgram(PCB pcb, ProgramImage imagem) {
+            // Carrega o programa na memória virtual do processo; com páginas grandes habilitadas, a parte da
+            // imagem que cobre páginas grandes inteiras é mapeada com elas. Cada página é copiada inteira da
+            // imagem e entregue ao gerente de memória, que compartilha as idênticas a páginas de imagem já
+            // carregadas. Páginas sem nenhuma palavra dos segmentos (BSS) ficam para a primeira referência
+            if (imagem.tamanho() > tamMemVirtual) {
+                saida.println("Erro ao carregar programa: maior que a memória virtual");
+                return false;
+            }
+            if (bitsGrande >= 0) {
+                so.mm.mapeiaGrande(pcb, 0, imagem.tamanho());
+            }
+            long[] conteudo = new long[tamPag];
+            int fimSegmentos = imagem.fimSegmentos();
+            for (int ini = 0; ini < fimSegmentos; ini += tamPag) {
+                if (imagem.copia(ini, conteudo, hw.mem.palavraVazia) == 0) {
+                    continue;
+                }
+                int invalida = hw.mem.palavraInvalida(conteudo);
+                if (invalida != -1) {
+                    saida.println("Erro ao carregar programa: opcode inválido " + (((int) (conteudo[invalida] >>> 48)) & 0xFF)
+                            + " no endereço " + (ini + invalida) + " (" + imagem.nome() + ")");
+                    return false;
+                }
+                int fim = Math.min(fimSegmentos, ini + tamPag);
+                int moldura = so.mm.carregaImagem(pcb, ini >>> bitsPag, conteudo);
+                if (moldura == -1) {
+                    saida.println("Erro ao carregar programa: memória insuficiente");
+                    return false;
+                }
+                for (int i = ini; i < fim; i++) {
+                    hw.cpu.gravaEvento(-1, i, (moldura << bitsPag) | (i - ini), pcb, OP_DATA, TraceRecorder.ESCRITA);
+                }
+            }
+            // As páginas ainda residentes já são decodificadas (com as superinstruções) na carga
+            if (hw.mem.estadoDecod != null) {
+                for (int pagina = 0; pagina << bitsPag < fimSegmentos; pagina++) {
+                    int pte = pcb.tabelaDePaginas.le(pagina);
+                    int moldura = PageTableEntry.valida(pte) ? PageTableEntry.moldura(pte) : so.mm.molduraGrande(pcb, pagina);
+                    if (moldura != -1) {
+                        hw.mem.decodificaMoldura(moldura);
+                    }
+                }
+            }
+            return true;
+        }
+
+        public void dump(Word w) {
+            saida.print("[ ");
+            saida.print(w.opc);
+            saida.print(", ");
+            saida.print(w.ra);
+            saida.print(", ");
+            saida.print(w.rb);
+            saida.print(", ");
+            saida.print(w.p);
+            saida.println("  ] ");
+        }
+
+        public void dump(int ini, int fim) {
+            for (int i = ini; i < fim; i++) {
+                int endFisico = hw.cpu.traduzEndereco(i);
+                hw.cpu.sincronizaRastro();
+                if (endFisico != -1) {
+                    saida.print(i + ":  ");
+                    dump(hw.mem.le(endFisico));
+                }
+            }
+        }
+
+        // Palavras compactadas de [ini, fim) do espaço do processo; endereços sem moldura ficam vazios
+        public long[] copia(PCB pcb, int ini, int fim) {
+            long[] palavras = new long[fim - ini];
+            for (int i = ini; i < fim; i++) {
+                int endFisico = so.mm.traduz(pcb, i, false);
+                palavras[i - ini] = endFisico == -1 ? hw.mem.palavraVazia : hw.mem.palavras[endFisico];
+            }
+            return palavras;
+        }
+
+        public void dump(PCB pcb, int ini, int fim) {
+            for (int i = ini; i < fim; i++) {
+                int endFisico = so.mm.traduz(pcb, i, false);
+                if (endFisico != -1) {
+                    saida.print(i + ":  ");
+                    dump(hw.mem.le(endFisico));
+                }
+            }
+        }
+
+        private void loadAndExec(String nome, ProgramImage imagem) {
+            PCB pcb = so.pm.criaProcesso(nome, imagem);
+            if (pcb == null) {
+                return;
+            }
+            pcb.dumpAoTerminar = true;
+            saida.println("---------------------------------- programa carregado na memoria");
+            dump(pcb, 0, imagem.tamanho());
+            saida.println("---------------------------------- inicia execucao ");
+            so.pm.executaEmParalelo();
+            saida.println(hw.cpu.getTLB());
+            if (bitsGrande >= 0) {
+                saida.println("Páginas grandes: " + hw.cpu.getTLBGrande());
+            }
+            saida.println(so.mm.estatisticas());
+        }
+
+        // Cria um processo para cada programa e executa todos, compartilhando a CPU
+        private void loadAndExecAll(String[] nomes) {
+            for (String nome : nomes) {
+                ProgramImage imagem = progs.retrieveProgram(nome);
+                if (imagem == null) {
+                    saida.println("Programa inexistente: " + nome);
+                } else if (so.pm.criaProcesso(nome, imagem) == null) {
+                    saida.println("Processo não criado: " + nome);
+                }
+            }
+            executaProntos();
+        }
+
+        // Executa os processos prontos (criados agora ou restaurados de um instantâneo) e mostra o resultado
+        private void executaProntos() {
+            so.pm.getTerminados().clear();
+            saida.println("---------------------------------- inicia execucao ");
+            so.pm.executaEmParalelo();
+            if (so.pm.parou()) {
+                saida.println("---------------------------------- execucao parada: " + so.pm.processos.size() + " processos prontos");
+            }
+            saida.println("---------------------------------- processos terminados ");
+            for (PCB pcb : so.pm.getTerminados()) {
+                saida.println("  processo " + pcb.id + " (" + pcb.nome + "): " + pcb.motivoTermino + ", pc " + pcb.pc);
+            }
+            saida.println("Trocas de contexto: " + so.pm.getTrocasDeContexto() + ", preempções por timer: " + so.pm.getPreempcoes()
+                    + " (quantum " + hw.cpu.getQuantum() + ")");
+            if (hw.cpus.length > 1) {
+                StringBuilder sb = new StringBuilder("CPUs: " + hw.cpus.length + ", roubos de trabalho " + so.pm.getRoubos()
+                        + ", esperas por memória " + so.pm.getEsperasPorMemoria() + ", instruções por CPU:");
+                for (CPU c : hw.cpus) {
+                    sb.append(c.id == 0 ? " " : ", ").append(c.getInstrucoes());
+                }
+                saida.println(sb);
+            }
+            for (CPU c : hw.cpus) {
+                String prefixo = hw.cpus.length > 1 ? "CPU " + c.id + ": " : "";
+                saida.println(prefixo + c.getTLB());
+                if (bitsGrande >= 0) {
+                    saida.println(prefixo + "Páginas grandes: " + c.getTLBGrande());
+                }
+            }
+            saida.println(so.mm.estatisticas());
+            for (CPU c : hw.cpus) {
+                if (!c.debug) {
+                    saida.println((hw.cpus.length > 1 ? "CPU " + c.id + ": " : "") + c.estatisticasSuperinstrucoes());
+                }
+                if (!c.debug && c.getCompilador() != null) {
+                    saida.println(c.getCompilador());
+                }
+            }
+        }
+    }
+
+    public class SO {
+        public InterruptHandling ih;
+        public SysCallHandling sc;
+        public MemoryManager mm;
+        public ProcessManager pm;
+        public Utilities utils;
 
         public SO(HW hw) {
             ih = new InterruptHandling(hw);
             sc = new SysCallHandling(hw);
+            mm = new MemoryManager(hw);
+            pm = new ProcessManager(hw);
             hw.cpu.setAddressOfHandlers(ih, sc);
+            hw.cpu.setMemoryManager(mm);
             utils = new Utilities(hw);
         }
     }
 
+    // -------------------------------------------------------------------------------------------------------
+    // ------------------- I N S T A N T Â N E O ------------------------------------------------------------
+
+    // Instantâneo da máquina parada (ver ProcessManager.setParada) em arquivo: configuração e contadores,
+    // registradores das CPUs, processos com suas tabelas de páginas, filas de prontos, mapa de molduras (donos,
+    // compartilhamento, índice de imagens), estado da política de substituição, slots de swap ocupados e o
+    // conteúdo das molduras e slots ocupados. Formato, em little-endian (a ordem das plataformas comuns, para
+    // que as páginas sejam copiadas sem troca de bytes):
+    //   cabeçalho de 64 bytes: int MAGICO, VERSAO, tamMemVirtual, tamMemFisica, tamPag, bitsGrande, páginas de
+    //     molduras, páginas de swap; long bytes de metadados, long início das páginas (múltiplo de 4096)
+    //   metadados, na ordem de grava (strings em int + bytes UTF-8)
+    //   páginas de tamPag palavras: as molduras ocupadas em ordem crescente, depois os slots ocupados
+    // A gravação junta cabeçalho, metadados e blocos de páginas em escritas de vários buffers (gathering). A
+    // restauração recria os metadados e só mapeia as páginas: cada uma é copiada quando for usada
+    // (Memory.garante, SwapDevice.herda). TLBs, decodificação, blocos compilados, detectores da antecipação e a
+    // entrada do console não fazem parte do instantâneo: são caches ou estado externo e recomeçam vazios
+    public class Snapshot {
+        public static final int MAGICO = 0x534F5853; // "SOXS"
+        public static final int VERSAO = 1;
+        public static final int TAM_CABECALHO = 64;
+        private static final int BLOCOS_POR_ESCRITA = 8;
+        private static final long TAM_MAX_REGIAO = 1L << 30;
+
+        private ByteBuffer meta = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private final List<ByteBuffer> aEscrever = new ArrayList<>();
+        private ByteBuffer[] blocos;
+        private LongBuffer[] visoes;
+        private int bloco;
+
+        public void grava(Path arquivo) {
+            ProcessManager pm = so.pm;
+            MemoryManager mm = so.mm;
+            for (PCB pcb : pm.rodando) {
+                if (pcb != null) {
+                    throw new IllegalStateException("Instantâneo só com a execução parada (ver ProcessManager.setParada)");
+                }
+            }
+            if (pm.esperandoES > 0 || !pm.esperandoMemoria.isEmpty()) {
+                throw new IllegalStateException("Instantâneo com processos bloqueados");
+            }
+            texto(politica.nome());
+            texto(estruturaTabela);
+            cabe(5).put((byte) (mm.compartilhaImagens ? 1 : 0)).putInt(mm.loteSubstituicao);
+            cabe(48).putLong(mm.faltasDePagina).putLong(mm.paginasSubstituidas).putLong(mm.escritasEvitadas)
+                    .putLong(mm.paginasGrandes).putLong(mm.paginasCompartilhadas).putLong(mm.copiasNaEscrita);
+            cabe(40).putInt(pm.proximoId).putInt(pm.proximaFila).putLong(pm.trocasDeContexto).putLong(pm.preempcoes)
+                    .putLong(pm.roubos).putLong(pm.limiteInstrucoes);
+            cabe(4).putInt(hw.cpus.length);
+            for (CPU c : hw.cpus) {
+                cabe(16 + 4 * c.reg.length).putInt(c.quantum).putInt(c.pc).putLong(c.instrucoes);
+                inteiros(c.reg);
+            }
+
+            List<PCB> processos = new ArrayList<>(pm.processos.values());
+            processos.sort(Comparator.comparingInt(pcb -> pcb.id));
+            cabe(4).putInt(processos.size());
+            for (PCB pcb : processos) {
+                cabe(4).putInt(pcb.id);
+                texto(pcb.nome);
+                cabe(9).putInt(pcb.tamPrograma).putInt(pcb.pc).put((byte) ((pcb.dumpAoTerminar ? 1 : 0) | (pcb.guardaMemoria ? 2 : 0)));
+                inteiros(pcb.reg);
+                cabe(4).putInt(pcb.saidas.size());
+                for (int v : pcb.saidas) {
+                    cabe(4).putInt(v);
+                }
+                entradas(pcb.tabelaDePaginas);
+                if (pcb.grandes == null) {
+                    cabe(4).putInt(-1);
+                } else {
+                    entradas(pcb.grandes);
+                }
+            }
+            for (ArrayDeque<PCB> fila : pm.prontos) {
+                cabe(4).putInt(fila.size());
+                for (PCB pcb : fila) {
+                    cabe(4).putInt(pcb.id);
+                }
+            }
+
+            int[] ocupadas = new int[hw.mem.numMolduras - molduras.livres()];
+            for (int m = 0, k = 0; k < ocupadas.length; m++) {
+                if (!molduras.estaLivre(m)) {
+                    ocupadas[k++] = m;
+                }
+            }
+            for (int m : ocupadas) { // As quantidades de molduras e de slots estão no cabeçalho
+                cabe(29).putInt(m).putInt(processoDaMoldura[m] != null ? processoDaMoldura[m].id : -1)
+                        .putInt(paginaDaMoldura[m]).putInt(slotDaMoldura[m]).putInt(mm.usuarios[m])
+                        .put((byte) (mm.naImagem[m] ? 1 : 0)).putLong(mm.chaveDaMoldura[m]);
+                int n = 0;
+                for (Mapeamento o = mm.outros[m]; o != null; o = o.prox) {
+                    n++;
+                }
+                cabe(4 + 8 * n).putInt(n);
+                for (Mapeamento o = mm.outros[m]; o != null; o = o.prox) {
+                    meta.putInt(o.pcb.id).putInt(o.pagina);
+                }
+            }
+            long[] estado = politica.estado();
+            cabe(4).putInt(estado.length);
+            for (long e : estado) {
+                cabe(8).putLong(e);
+            }
+            int[] slots = new int[swap.numSlots() - swap.slotsLivres()];
+            for (int slot = 0, k = 0; k < slots.length; slot++) {
+                if (swap.slotUsado(slot)) {
+                    slots[k++] = slot;
+                }
+            }
+            inteiros(slots);
+
+            meta.flip();
+            long inicio = (TAM_CABECALHO + meta.remaining() + 4095) & ~4095L;
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAM_CABECALHO).order(ByteOrder.LITTLE_ENDIAN);
+            cabecalho.putInt(MAGICO).putInt(VERSAO).putInt(tamMemVirtual).putInt(tamMemFisica).putInt(tamPag).putInt(bitsGrande)
+                    .putInt(ocupadas.length).putInt(slots.length).putLong(meta.remaining()).putLong(inicio);
+            cabecalho.clear();
+            aEscrever.add(cabecalho);
+            aEscrever.add(meta);
+            aEscrever.add(ByteBuffer.allocate((int) (inicio - TAM_CABECALHO - meta.remaining())));
+
+            long bytesPorPagina = tamPag * 8L;
+            int bytesPorBloco = (int) Math.max(1 << 20, bytesPorPagina);
+            long total = (ocupadas.length + slots.length) * bytesPorPagina;
+            int n = (int) Math.max(1, Math.min(BLOCOS_POR_ESCRITA, (total + bytesPorBloco - 1) / bytesPorBloco));
+            blocos = new ByteBuffer[n];
+            visoes = new LongBuffer[n];
+            for (int i = 0; i < n; i++) {
+                blocos[i] = ByteBuffer.allocateDirect(bytesPorBloco).order(ByteOrder.LITTLE_ENDIAN);
+                visoes[i] = blocos[i].asLongBuffer();
+            }
+            // O arquivo é escrito ao lado e só então substitui o anterior, que pode ser a origem ainda mapeada
+            // das páginas deste Sistema
+            Path absoluto = arquivo.toAbsolutePath();
+            Path temporario;
+            try {
+                temporario = Files.createTempFile(absoluto.getParent(), absoluto.getFileName().toString(), ".tmp");
+            } catch (IOException e) {
+                throw new UncheckedIOException("Não foi possível gravar o instantâneo " + arquivo, e);
+            }
+            try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE)) {
+                for (int m : ocupadas) {
+                    hw.mem.garante(m);
+                    poePagina(canal, hw.mem.palavras, m << bitsPag);
+                }
+                long[] pagina = new long[tamPag];
+                for (int slot : slots) {
+                    swap.copiaPagina(slot, pagina, 0);
+                    poePagina(canal, pagina, 0);
+                }
+                despeja(canal, bloco + 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Não foi possível gravar o instantâneo " + arquivo, e);
+            }
+            try {
+                Files.move(temporario, absoluto, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Não foi possível gravar o instantâneo " + arquivo, e);
+            }
+        }
+
+        // Garante espaço para mais bytes nos metadados
+        private ByteBuffer cabe(int bytes) {
+            if (meta.remaining() < bytes) {
+                ByteBuffer maior = ByteBuffer.allocate(Math.max(2 * meta.capacity(), meta.position() + bytes))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                meta.flip();
+                maior.put(meta);
+                meta = maior;
+            }
+            return meta;
+        }
+
+        private void inteiros(int... valores) {
+            cabe(4 * valores.length);
+            for (int v : valores) {
+                meta.putInt(v);
+            }
+        }
+
+        private void texto(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            cabe(4 + bytes.length).putInt(bytes.length).put(bytes);
+        }
+
+        private String texto(ByteBuffer b) {
+            byte[] bytes = new byte[b.getInt()];
+            b.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // Número de entradas e pares (página, entrada) da tabela
+        private void entradas(PageTable tp) {
+            int posicao = cabe(4).position();
+            meta.putInt(0);
+            int[] n = new int[1];
+            tp.percorre((pagina, pte) -> {
+                cabe(8).putInt(pagina).putInt(pte);
+                n[0]++;
+            });
+            meta.putInt(posicao, n[0]);
+        }
+
+        private void poePagina(FileChannel canal, long[] palavras, int base) throws IOException {
+            if (!visoes[bloco].hasRemaining() && ++bloco == blocos.length) {
+                despeja(canal, blocos.length);
+            }
+            visoes[bloco].put(palavras, base, tamPag);
+        }
+
+        // Uma escrita para os buffers pendentes (cabeçalho e metadados, na primeira) e os n primeiros blocos
+        private void despeja(FileChannel canal, int n) throws IOException {
+            for (int i = 0; i < n; i++) {
+                blocos[i].limit(visoes[i].position() * 8).position(0);
+                aEscrever.add(blocos[i]);
+            }
+            ByteBuffer[] buffers = aEscrever.toArray(new ByteBuffer[0]);
+            long falta = 0;
+            for (ByteBuffer b : buffers) {
+                falta += b.remaining();
+            }
+            while (falta > 0) {
+                falta -= canal.write(buffers);
+            }
+            aEscrever.clear();
+            for (int i = 0; i < n; i++) {
+                blocos[i].clear();
+                visoes[i].clear();
+            }
+            bloco = 0;
+        }
+
+        // Continua a restauração de Sistema.restauraInstantaneo, com o Sistema já criado com a geometria, a
+        // política e as páginas grandes do instantâneo e meta logo depois do nome da política
+        private void restaura(FileChannel canal, ByteBuffer meta, long inicio, int ocupadas, int slots) throws IOException {
+            ProcessManager pm = so.pm;
+            MemoryManager mm = so.mm;
+            Paginas paginas = new Paginas(canal, inicio, ocupadas + slots);
+            setEstruturaTabela(texto(meta));
+            mm.compartilhaImagens = meta.get() != 0;
+            mm.loteSubstituicao = meta.getInt();
+            mm.faltasDePagina = meta.getLong();
+            mm.paginasSubstituidas = meta.getLong();
+            mm.escritasEvitadas = meta.getLong();
+            mm.paginasGrandes = meta.getLong();
+            mm.paginasCompartilhadas = meta.getLong();
+            mm.copiasNaEscrita = meta.getLong();
+            pm.proximoId = meta.getInt();
+            int proximaFila = meta.getInt();
+            pm.trocasDeContexto = meta.getLong();
+            pm.preempcoes = meta.getLong();
+            pm.roubos = meta.getLong();
+            pm.limiteInstrucoes = meta.getLong();
+            int cpus = meta.getInt();
+            if (cpus > 1) {
+                setCpus(cpus);
+            }
+            for (CPU c : hw.cpus) {
+                c.setQuantum(meta.getInt());
+                c.pc = meta.getInt();
+                c.instrucoes = meta.getLong();
+                for (int i = 0; i < c.reg.length; i++) {
+                    c.reg[i] = meta.getInt();
+                }
+            }
+            pm.proximaFila = proximaFila;
+
+            for (int n = meta.getInt(); n > 0; n--) {
+                PCB pcb = new PCB(meta.getInt(), texto(meta), meta.getInt());
+                pcb.pc = meta.getInt();
+                byte marcas = meta.get();
+                pcb.dumpAoTerminar = (marcas & 1) != 0;
+                pcb.guardaMemoria = (marcas & 2) != 0;
+                for (int i = 0; i < pcb.reg.length; i++) {
+                    pcb.reg[i] = meta.getInt();
+                }
+                for (int saidas = meta.getInt(); saidas > 0; saidas--) {
+                    pcb.saidas.add(meta.getInt());
+                }
+                for (int entradas = meta.getInt(); entradas > 0; entradas--) {
+                    pcb.tabelaDePaginas.escreve(meta.getInt(), meta.getInt());
+                }
+                int grandes = meta.getInt();
+                if (grandes >= 0) {
+                    pcb.grandes = mm.tabelaGrande(pcb);
+                    for (; grandes > 0; grandes--) {
+                        pcb.grandes.escreve(meta.getInt(), meta.getInt());
+                    }
+                }
+                pm.processos.put(pcb.id, pcb);
+            }
+            for (ArrayDeque<PCB> fila : pm.prontos) {
+                for (int n = meta.getInt(); n > 0; n--) {
+                    fila.add(pm.processos.get(meta.getInt()));
+                }
+            }
+
+            int[] naOrigem = new int[hw.mem.numMolduras];
+            Arrays.fill(naOrigem, -1);
+            for (int k = 0; k < ocupadas; k++) {
+                int m = meta.getInt();
+                molduras.ocupa(m);
+                processoDaMoldura[m] = pm.processos.get(meta.getInt());
+                paginaDaMoldura[m] = meta.getInt();
+                slotDaMoldura[m] = meta.getInt();
+                mm.usuarios[m] = meta.getInt();
+                mm.naImagem[m] = meta.get() != 0;
+                mm.chaveDaMoldura[m] = meta.getLong();
+                if (mm.naImagem[m]) {
+                    mm.imagens.put(mm.chaveDaMoldura[m], m);
+                }
+                Mapeamento ultimo = null;
+                for (int n = meta.getInt(); n > 0; n--) {
+                    Mapeamento o = new Mapeamento(pm.processos.get(meta.getInt()), meta.getInt(), null);
+                    if (ultimo == null) {
+                        mm.outros[m] = o;
+                    } else {
+                        ultimo.prox = o;
+                    }
+                    ultimo = o;
+                }
+                naOrigem[m] = k;
+            }
+            hw.mem.herda(paginas, naOrigem, ocupadas);
+            long[] estado = new long[meta.getInt()];
+            for (int i = 0; i < estado.length; i++) {
+                estado[i] = meta.getLong();
+            }
+            politica.restaura(estado);
+            for (int i = 0; i < slots; i++) {
+                swap.herda(meta.getInt(), paginas, ocupadas + i);
+            }
+        }
+
+        // Páginas do arquivo, mapeadas em regiões de até 1 GiB; só são lidas do disco quando copiadas
+        private class Paginas implements SwapDevice.Origem {
+            private final LongBuffer[] regioes;
+            private final int paginasPorRegiao;
+
+            Paginas(FileChannel canal, long inicio, int n) throws IOException {
+                long bytesPorPagina = tamPag * 8L;
+                paginasPorRegiao = (int) Math.max(1, TAM_MAX_REGIAO / bytesPorPagina);
+                regioes = new LongBuffer[(n + paginasPorRegiao - 1) / paginasPorRegiao];
+                for (int r = 0; r < regioes.length; r++) {
+                    long paginas = Math.min(paginasPorRegiao, n - (long) r * paginasPorRegiao);
+                    regioes[r] = canal.map(FileChannel.MapMode.READ_ONLY, inicio + (long) r * paginasPorRegiao * bytesPorPagina,
+                            paginas * bytesPorPagina).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+                }
+            }
+
+            @Override
+            public void le(int indice, long[] destino, int base) {
+                regioes[indice / paginasPorRegiao].get((indice % paginasPorRegiao) * tamPag, destino, base, tamPag);
+            }
+        }
+    }
+
     // -------------------------------------------------------------------------------------------------------
     // ------------------- S I S T E M A --------------------------------------------------------------------
 
@@ -470,34 +2660,266 @@ public class Sistema {
     public Programs progs;
 
     public Sistema(int tamMemVirtual, int tamMemFisica, int tamPag) {
+        this(tamMemVirtual, tamMemFisica, tamPag, "clock");
+    }
+
+    public Sistema(int tamMemVirtual, int tamMemFisica, int tamPag, String politicaSubstituicao) {
         this.tamMemVirtual = tamMemVirtual;
         this.tamMemFisica = tamMemFisica;
         this.tamPag = tamPag;
-        tabelaDePaginas = new int[tamMemVirtual / tamPag];
-        molduras = new int[tamMemFisica / tamPag];
-        for (int i = 0; i < tabelaDePaginas.length; i++) {
-            tabelaDePaginas[i] = -1; // Inicializa tabela de páginas
-        }
-        for (int i = 0; i < molduras.length; i++) {
-            molduras[i] = 0; // Inicializa molduras como livres
-        }
+        log2(tamMemVirtual, "Tamanho da memória virtual");
+        log2(tamMemFisica, "Tamanho da memória física");
+        this.bitsPag = log2(tamPag, "Tamanho da página");
+        this.mascaraPag = tamPag - 1;
+        this.maxProcessos = 64;
+        int numMolduras = tamMemFisica >>> bitsPag;
+        molduras = new FrameAllocator(numMolduras); // Inicializa molduras como livres
+        processoDaMoldura = new PCB[numMolduras];
+        paginaDaMoldura = new int[numMolduras];
+        slotDaMoldura = new int[numMolduras];
+        swap = SwapDevice.temporario(tamPag, maxProcessos * (tamMemVirtual >>> bitsPag)); // Espaço virtual completo de cada processo
+        politica = PageReplacementPolicy.cria(politicaSubstituicao, numMolduras);
         hw = new HW(tamMemFisica, tamPag);
         so = new SO(hw);
         hw.cpu.setUtilities(so.utils);
+        hw.console.setAoConcluir(so.pm::acordaOciosas);
         progs = new Programs();
     }
 
     public void run() {
-        so.utils.loadAndExec(progs.retrieveProgram("fatorialV2"));
+        so.utils.loadAndExec("fatorialV2", progs.retrieveProgram("fatorialV2"));
+    }
+
+    // Multiprogramação: um processo por programa, todos disputando a CPU
+    public void run(String... nomes) {
+        so.utils.loadAndExecAll(nomes);
+    }
+
+    // Toda a geometria de memória é em potências de 2, para que a tradução use só deslocamentos e máscaras
+    static int log2(int valor, String nome) {
+        if (valor <= 0 || Integer.bitCount(valor) != 1) {
+            throw new IllegalArgumentException(nome + " deve ser potência de 2: " + valor);
+        }
+        return Integer.numberOfTrailingZeros(valor);
+    }
+
+    // Páginas grandes de paginasPorGrande páginas comuns (potência de 2); 0 desliga. Vale para os programas
+    // carregados daqui em diante
+    public void setPaginasGrandes(int paginasPorGrande) {
+        if (paginasPorGrande == 0) {
+            bitsGrande = -1;
+            mascaraGrande = 0;
+            return;
+        }
+        int bits = log2(paginasPorGrande, "Páginas por página grande");
+        if (paginasPorGrande > tamMemFisica >>> bitsPag) {
+            throw new IllegalArgumentException("Página grande maior que a memória física: " + paginasPorGrande + " páginas");
+        }
+        bitsGrande = bits;
+        mascaraGrande = paginasPorGrande - 1;
+    }
+
+    // Vale para os processos criados daqui em diante
+    public void setEstruturaTabela(String estrutura) {
+        PageTable.cria(estrutura, 1, 1); // Valida o nome
+        estruturaTabela = estrutura;
+    }
+
+    // Multiprocessamento simétrico: n CPUs sobre a mesma memória física, cada uma com TLB e fila de prontos
+    // próprias e, na execução, uma thread própria (ver ProcessManager.executaEmParalelo). As novas CPUs copiam
+    // a configuração da CPU 0. Com mais de uma CPU o compilador de blocos é desligado (seus blocos e
+    // contadores são compartilhados e não são seguros entre threads) e o rastro binário não pode ser gravado
+    public void setCpus(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Número de CPUs inválido: " + n);
+        }
+        if (n > 1 && hw.cpu.getGravador() != null) {
+            throw new IllegalStateException("O rastro binário só pode ser gravado com uma CPU");
+        }
+        CPU[] cpus = Arrays.copyOf(hw.cpus, n);
+        for (int i = hw.cpus.length; i < n; i++) {
+            cpus[i] = hw.novaCpu(i, false);
+            cpus[i].setNivelRastro(hw.cpu.getRastro().getNivel());
+            cpus[i].setQuantum(hw.cpu.getQuantum());
+            cpus[i].setPreDecodificado(hw.cpu.preDecodificado);
+            cpus[i].setAddressOfHandlers(so.ih, so.sc);
+            cpus[i].setMemoryManager(so.mm);
+            cpus[i].setUtilities(so.utils);
+        }
+        for (int i = n; i < hw.cpus.length; i++) {
+            hw.cpus[i].getRastro().close();
+        }
+        if (n > 1 && hw.cpu.getCompilador() != null) {
+            hw.cpu.setCompilacao(0);
+            saida.println("Compilação de blocos desligada: não é segura com mais de uma CPU");
+        }
+        hw.cpus = cpus;
+        so.pm.setCpus(n);
+    }
+
+    // Console do SO (null descarta); o rastro de execução continua em System.out e é controlado pelo nível
+    public void setSaida(PrintStream _saida) {
+        saida = _saida != null ? _saida : new PrintStream(OutputStream.nullOutputStream());
+        hw.console.setSaida(saida);
+    }
+
+    // Executa os processos já prontos, por exemplo os restaurados de um instantâneo
+    public void continua() {
+        so.utils.executaProntos();
+    }
+
+    // Grava o instantâneo da máquina, que deve estar parada (ver Snapshot)
+    public void gravaInstantaneo(Path arquivo) {
+        new Snapshot().grava(arquivo);
+    }
+
+    // Novo Sistema no estado do instantâneo, com as páginas trazidas do arquivo sob demanda; a configuração
+    // que não é estado da máquina (rastro, console, antecipação, compilação) é a de um Sistema novo
+    public static Sistema restauraInstantaneo(Path arquivo) {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer cabecalho = canal.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(canal.size(), Snapshot.TAM_CABECALHO))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (cabecalho.remaining() < Snapshot.TAM_CABECALHO || cabecalho.getInt() != Snapshot.MAGICO
+                    || cabecalho.getInt() != Snapshot.VERSAO) {
+                throw new IllegalArgumentException("Arquivo não é um instantâneo válido: " + arquivo);
+            }
+            int tamMemVirtual = cabecalho.getInt();
+            int tamMemFisica = cabecalho.getInt();
+            int tamPag = cabecalho.getInt();
+            int bitsGrande = cabecalho.getInt();
+            int ocupadas = cabecalho.getInt();
+            int slots = cabecalho.getInt();
+            long bytesMeta = cabecalho.getLong();
+            long inicio = cabecalho.getLong();
+            ByteBuffer meta = canal.map(FileChannel.MapMode.READ_ONLY, Snapshot.TAM_CABECALHO, bytesMeta)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            byte[] politica = new byte[meta.getInt()];
+            meta.get(politica);
+            Sistema s = new Sistema(tamMemVirtual, tamMemFisica, tamPag, new String(politica, StandardCharsets.UTF_8));
+            s.setPaginasGrandes(bitsGrande >= 0 ? 1 << bitsGrande : 0);
+            s.new Snapshot().restaura(canal, meta, inicio, ocupadas, slots); // Os mapeamentos sobrevivem ao canal
+            return s;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível ler o instantâneo " + arquivo, e);
+        }
+    }
+
+    // Libera os recursos externos (thread do console, arquivo de swap)
+    public void encerra() {
+        hw.console.close();
+        for (int i = 1; i < hw.cpus.length; i++) {
+            hw.cpus[i].getRastro().close();
+        }
+        hw.cpu.getRastro().close();
+        if (hw.cpu.getGravador() != null) {
+            hw.cpu.getGravador().close();
+            hw.cpu.setGravador(null);
+        }
+        swap.close();
     }
 
     // -------------------------------------------------------------------------------------------------------
     // ------------------- Instancia e testa sistema --------------------------------------------------------
 
+    // Uso: java Sistema [--rastro=nivel] [--tabela=estrutura] [--grandes=páginas] [--antecipar=páginas]
+    //                    [--compartilhar=sim|nao] [--programas=arquivo] [--cpus=n] [--entrada=origem]
+    //                    [--latencia=ms] [--console=sincrono] [--gravar=arquivo] [--parar=instruções]
+    //                    [--salvar=arquivo] [--restaurar=arquivo] [--compilar=limiar] [programa ...]
+    // Sem programas executa fatorialV2; "todos" executa todos.
+    // Níveis de rastro: desligado, interrupcoes, instrucoes, traducoes (padrão).
+    // Estruturas de tabela de páginas: plana (padrão), radix, radix2, radix3, hash.
+    // --grandes=n mapeia as imagens de programa com páginas grandes de n páginas comuns, quando couberem.
+    // --antecipar=n antecipa até n páginas à frente de faltas com passo constante (PagePrefetcher).
+    // --compartilhar=nao carrega cada imagem em molduras próprias, sem compartilhar páginas idênticas.
+    // --programas inclui os programas de um arquivo de imagens (ProgramImage), além dos embutidos.
+    // --cpus=n executa os processos em n CPUs em paralelo, sobre a mesma memória (a ordem da saída varia).
+    // --entrada=origem dá os valores das leituras do console: teclado (padrão), valores:v1,v2,... ou
+    // arquivo:caminho (InputSource). --latencia=ms atrasa cada pedido ao console, que é atendido enquanto
+    // outros processos executam (a ordem entre rastro e saída do console varia). --console=sincrono atende os
+    // pedidos sem a thread do console, com saída determinística.
+    // --gravar grava o rastro binário de referências, para análise com TraceReplay.
+    // --parar=n para a execução no fim da fatia em que a CPU passar de n instruções; --salvar grava, depois da
+    // execução, o instantâneo da máquina (Snapshot). --restaurar parte do instantâneo, em vez da configuração
+    // fixa, e sem programas continua os processos restaurados.
+    // --compilar=n compila para bytecode os blocos executados n vezes (BlockCompiler). Precisa de um JDK, só
+    // vale com uma CPU e com rastro desligado ou só de interrupções (o padrão rastreia instruções)
     public static void main(String args[]) {
-        // Configuração fixa para teste (pode ser ajustada ou lida do usuário)
-        Sistema s = new Sistema(2048, 1024, 4); // Memória virtual: 2048 palavras, física: 1024 palavras, página: 4 palavras
-        s.run();
+        Path restaurar = null;
+        Path salvar = null;
+        for (String a : args) {
+            if (a.startsWith("--restaurar=")) {
+                restaurar = Paths.get(a.substring("--restaurar=".length()));
+            }
+        }
+        Sistema s;
+        if (restaurar != null) {
+            long t0 = System.nanoTime();
+            s = restauraInstantaneo(restaurar);
+            s.saida.println(String.format(Locale.ROOT, "Instantâneo restaurado de %s em %.1f ms (%d processos, %d páginas sob demanda)",
+                    restaurar, (System.nanoTime() - t0) / 1e6, s.so.pm.processos.size(), s.hw.mem.getPendentes()));
+        } else {
+            // Configuração fixa para teste (pode ser ajustada ou lida do usuário)
+            s = new Sistema(2048, 1024, 4); // Memória virtual: 2048 palavras, física: 1024 palavras, página: 4 palavras
+        }
+        while (args.length > 0 && args[0].startsWith("--")) {
+            if (args[0].startsWith("--rastro=")) {
+                Tracer.Nivel nivel = Tracer.Nivel.valueOf(args[0].substring("--rastro=".length()).toUpperCase());
+                for (CPU c : s.hw.cpus) {
+                    c.setNivelRastro(nivel);
+                }
+            } else if (args[0].startsWith("--antecipar=")) {
+                s.so.mm.setAntecipacao(Integer.parseInt(args[0].substring("--antecipar=".length())));
+            } else if (args[0].startsWith("--grandes=")) {
+                s.setPaginasGrandes(Integer.parseInt(args[0].substring("--grandes=".length())));
+            } else if (args[0].startsWith("--programas=")) {
+                s.progs.carrega(Paths.get(args[0].substring("--programas=".length())));
+            } else if (args[0].startsWith("--compartilhar=")) {
+                s.so.mm.setCompartilhaImagens(!args[0].substring("--compartilhar=".length()).equals("nao"));
+            } else if (args[0].startsWith("--tabela=")) {
+                s.setEstruturaTabela(args[0].substring("--tabela=".length()));
+            } else if (args[0].startsWith("--cpus=")) {
+                s.setCpus(Integer.parseInt(args[0].substring("--cpus=".length())));
+            } else if (args[0].startsWith("--entrada=")) {
+                s.hw.console.setEntrada(InputSource.cria(args[0].substring("--entrada=".length())));
+            } else if (args[0].startsWith("--latencia=")) {
+                s.hw.console.setLatencia(Long.parseLong(args[0].substring("--latencia=".length())) * 1_000_000);
+            } else if (args[0].startsWith("--console=")) {
+                s.hw.console.setSincrono(args[0].substring("--console=".length()).equals("sincrono"));
+            } else if (args[0].startsWith("--gravar=")) {
+                s.hw.cpu.setGravador(new TraceRecorder(Paths.get(args[0].substring("--gravar=".length())),
+                        s.tamPag, s.tamMemVirtual, s.tamMemFisica));
+            } else if (args[0].startsWith("--compilar=")) {
+                if (s.hw.cpus.length > 1) {
+                    s.saida.println("Compilação de blocos ignorada: não é segura com mais de uma CPU");
+                } else {
+                    s.hw.cpu.setCompilacao(Integer.parseInt(args[0].substring("--compilar=".length())));
+                }
+            } else if (args[0].startsWith("--parar=")) {
+                s.so.pm.setParada(Long.parseLong(args[0].substring("--parar=".length())));
+            } else if (args[0].startsWith("--salvar=")) {
+                salvar = Paths.get(args[0].substring("--salvar=".length()));
+            } else if (args[0].startsWith("--restaurar=")) {
+                // Já tratada
+            } else {
+                System.out.println("Opção desconhecida: " + args[0]);
+            }
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        if (args.length == 0 && restaurar != null) {
+            s.continua();
+        } else if (args.length == 0) {
+            s.run();
+        } else if (args.length == 1 && args[0].equals("todos")) {
+            s.run(s.progs.nomes());
+        } else {
+            s.run(args);
+        }
+        if (salvar != null) {
+            long t0 = System.nanoTime();
+            s.gravaInstantaneo(salvar);
+            s.saida.println(String.format(Locale.ROOT, "Instantâneo gravado em %s em %.1f ms", salvar, (System.nanoTime() - t0) / 1e6));
+        }
+        s.encerra();
     }
 
     // -------------------------------------------------------------------------------------------------------
@@ -513,12 +2935,43 @@ public class Sistema {
         }
     }
 
+    // Programas disponíveis, indexados por nome: os embutidos (progs) e os incluídos de arquivos de imagem
     public class Programs {
-        public Word[] retrieveProgram(String pname) {
+        private final Map<String, ProgramImage> indice = new LinkedHashMap<>(); // Na ordem de inclusão
+
+        public Programs() {
             for (Program p : progs) {
-                if (p != null && p.name.equals(pname)) return p.image;
+                adiciona(imagem(p.name, p.image));
+            }
+        }
+
+        public ProgramImage retrieveProgram(String pname) {
+            return indice.get(pname);
+        }
+
+        public String[] nomes() {
+            return indice.keySet().toArray(new String[0]);
+        }
+
+        // Um programa com o mesmo nome é substituído
+        public void adiciona(ProgramImage imagem) {
+            indice.put(imagem.nome(), imagem);
+        }
+
+        // Inclui todos os programas do arquivo; as palavras continuam no arquivo mapeado até a carga
+        public int carrega(Path arquivo) {
+            Map<String, ProgramImage> imagens = ProgramImage.le(arquivo);
+            indice.putAll(imagens);
+            return imagens.size();
+        }
+
+        // Imagem de um programa escrito como vetor de Word, compactada no formato da memória
+        public ProgramImage imagem(String nome, Word[] programa) {
+            long[] palavras = new long[programa.length];
+            for (int i = 0; i < programa.length; i++) {
+                palavras[i] = hw.mem.compacta(programa[i].opc, programa[i].ra, programa[i].rb, programa[i].p);
             }
-            return null;
+            return ProgramImage.de(nome, palavras);
         }
 
         public Program[] progs = {
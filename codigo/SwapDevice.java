@@ -0,0 +1,200 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Dispositivo de swap: memória secundária em arquivo, acessada por FileChannel e MappedByteBuffer.
+// O arquivo é dividido em slots de uma página (tamPag palavras de 8 bytes, no formato compactado de Memory).
+// As regiões do arquivo são mapeadas sob demanda, em blocos de até 1 GiB, e o arquivo cresce esparso:
+// um espaço virtual de vários GiB só ocupa disco nas páginas realmente gravadas. O swap temporário só cria
+// o arquivo quando a primeira região é usada: um sistema que nunca tira páginas da memória não toca o disco.
+// Slots herdados de um instantâneo (herda) são lidos do arquivo do instantâneo até serem regravados.
+
+public class SwapDevice implements AutoCloseable {
+
+    private static final long TAM_MAX_REGIAO = 1L << 30;
+
+    private FileChannel canal;      // null até a primeira região, no swap temporário
+    private final int tamPag;
+    private final int slotsPorRegiao;
+    private final LongBuffer[] regioes;
+    private final MappedByteBuffer[] mapeamentos;
+    private final FrameAllocator slots;
+
+    private long paginasLidas;
+    private long paginasEscritas;
+
+    // Páginas guardadas fora do swap (num instantâneo, ver Sistema.Snapshot), lidas sob demanda
+    public interface Origem {
+        void le(int indice, long[] destino, int base);
+    }
+
+    private Origem origem;
+    private int[] naOrigem;  // Página da origem com o conteúdo de cada slot herdado, -1 nos demais
+    private int herdados;
+
+    public SwapDevice(Path arquivo, int tamPag, int numSlots, boolean temporario) {
+        this(tamPag, numSlots);
+        canal = abre(arquivo, temporario);
+    }
+
+    private SwapDevice(int tamPag, int numSlots) {
+        this.tamPag = tamPag;
+        long bytesPorSlot = tamPag * 8L;
+        this.slotsPorRegiao = (int) Math.max(1, Math.min(numSlots, TAM_MAX_REGIAO / bytesPorSlot));
+        int numRegioes = (int) (((long) numSlots + slotsPorRegiao - 1) / slotsPorRegiao);
+        regioes = new LongBuffer[numRegioes];
+        mapeamentos = new MappedByteBuffer[numRegioes];
+        slots = new FrameAllocator(numSlots);
+    }
+
+    private static FileChannel abre(Path arquivo, boolean temporario) {
+        try {
+            if (temporario) {
+                return FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DELETE_ON_CLOSE);
+            }
+            return FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível abrir o arquivo de swap " + arquivo, e);
+        }
+    }
+
+    // Swap em arquivo temporário, removido ao fechar
+    public static SwapDevice temporario(int tamPag, int numSlots) {
+        return new SwapDevice(tamPag, numSlots);
+    }
+
+    private static FileChannel abreTemporario() {
+        try {
+            return abre(Files.createTempFile("sistema-swap", ".bin"), true); // DELETE_ON_CLOSE remove o arquivo
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível criar o arquivo de swap", e);
+        }
+    }
+
+    // Retorna um slot livre, ou -1 se o swap estiver cheio
+    public int alocaSlot() {
+        return slots.aloca();
+    }
+
+    public void liberaSlot(int slot) {
+        slots.libera(slot);
+        desherda(slot);
+    }
+
+    // O slot passa a ocupado, com o conteúdo da página indice da origem, que só é lida quando o slot for
+    public void herda(int slot, Origem _origem, int indice) {
+        if (naOrigem == null) {
+            naOrigem = new int[slots.total()];
+            Arrays.fill(naOrigem, -1);
+        }
+        slots.ocupa(slot);
+        origem = _origem;
+        naOrigem[slot] = indice;
+        herdados++;
+    }
+
+    private void desherda(int slot) {
+        if (naOrigem != null && naOrigem[slot] >= 0) {
+            naOrigem[slot] = -1;
+            if (--herdados == 0) {
+                origem = null;
+                naOrigem = null;
+            }
+        }
+    }
+
+    public int numSlots() {
+        return slots.total();
+    }
+
+    public boolean slotUsado(int slot) {
+        return !slots.estaLivre(slot);
+    }
+
+    public int slotsLivres() {
+        return slots.livres();
+    }
+
+    // Copia a página guardada no slot para palavras[base .. base + tamPag)
+    public void lePagina(int slot, long[] palavras, int base) {
+        copiaPagina(slot, palavras, base);
+        paginasLidas++;
+    }
+
+    // Como lePagina, sem contar a leitura (para quem grava um instantâneo)
+    public void copiaPagina(int slot, long[] palavras, int base) {
+        if (naOrigem != null && naOrigem[slot] >= 0) {
+            origem.le(naOrigem[slot], palavras, base);
+        } else {
+            regiao(slot).get(deslocamento(slot), palavras, base, tamPag);
+        }
+    }
+
+    // Copia palavras[base .. base + tamPag) para o slot
+    public void escrevePagina(int slot, long[] palavras, int base) {
+        regiao(slot).put(deslocamento(slot), palavras, base, tamPag);
+        desherda(slot);
+        paginasEscritas++;
+    }
+
+    private int deslocamento(int slot) {
+        return (slot % slotsPorRegiao) * tamPag;
+    }
+
+    private LongBuffer regiao(int slot) {
+        int r = slot / slotsPorRegiao;
+        LongBuffer regiao = regioes[r];
+        if (regiao == null) {
+            if (canal == null) {
+                canal = abreTemporario();
+            }
+            try {
+                long inicio = (long) r * slotsPorRegiao * tamPag * 8L;
+                mapeamentos[r] = canal.map(FileChannel.MapMode.READ_WRITE, inicio, (long) slotsPorRegiao * tamPag * 8L);
+                mapeamentos[r].order(ByteOrder.nativeOrder());
+                regiao = mapeamentos[r].asLongBuffer();
+                regioes[r] = regiao;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao mapear região " + r + " do swap", e);
+            }
+        }
+        return regiao;
+    }
+
+    // Força as regiões mapeadas para o disco (desnecessário para swap temporário)
+    public void sincroniza() {
+        for (MappedByteBuffer m : mapeamentos) {
+            if (m != null) {
+                m.force();
+            }
+        }
+    }
+
+    public long getPaginasLidas() {
+        return paginasLidas;
+    }
+
+    public long getPaginasEscritas() {
+        return paginasEscritas;
+    }
+
+    @Override
+    public void close() {
+        if (canal == null) {
+            return;
+        }
+        try {
+            canal.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+// TLB em software: cache de traduções página -> moldura na frente da tabela de páginas.
+// Organização associativa por conjuntos; com associatividade == entradas fica totalmente associativa.
+// Cada entrada guarda a página (tag) e um valor de 32 bits definido por quem insere.
+
+public class TLB {
+
+    public enum Substituicao {
+        LRU, ALEATORIA
+    }
+
+    private final int entradas;
+    private final int associatividade;
+    private final int mascaraConjunto;
+    private final Substituicao substituicao;
+
+    private final int[] tags;     // Página virtual de cada entrada, -1 = inválida
+    private final int[] valores;  // Valor associado (moldura)
+    private final long[] usos;    // Instante do último uso, para LRU
+    private long relogio;
+    private int semente = 0x2545F491;
+
+    private long acertos;
+    private long faltas;
+
+    public TLB(int entradas, int associatividade, Substituicao substituicao) {
+        if (entradas <= 0 || associatividade <= 0 || entradas % associatividade != 0) {
+            throw new IllegalArgumentException("Configuração de TLB inválida: " + entradas + " entradas, associatividade " + associatividade);
+        }
+        int conjuntos = entradas / associatividade;
+        if (Integer.bitCount(conjuntos) != 1) {
+            throw new IllegalArgumentException("Número de conjuntos da TLB deve ser potência de 2: " + conjuntos);
+        }
+        this.entradas = entradas;
+        this.associatividade = associatividade;
+        this.mascaraConjunto = conjuntos - 1;
+        this.substituicao = substituicao;
+        tags = new int[entradas];
+        valores = new int[entradas];
+        usos = new long[entradas];
+        flush();
+    }
+
+    // Retorna o valor associado à página, ou -1 se não estiver na TLB
+    public int busca(int pagina) {
+        int base = (pagina & mascaraConjunto) * associatividade;
+        for (int i = base; i < base + associatividade; i++) {
+            if (tags[i] == pagina) {
+                usos[i] = ++relogio;
+                acertos++;
+                return valores[i];
+            }
+        }
+        faltas++;
+        return -1;
+    }
+
+    public void insere(int pagina, int valor) {
+        int base = (pagina & mascaraConjunto) * associatividade;
+        // A própria página tem precedência sobre uma entrada livre anterior: senão a entrada antiga ficaria
+        // no conjunto, com o valor velho, e voltaria a ser encontrada quando a nova fosse substituída
+        int vitima = -1;
+        for (int i = base; i < base + associatividade; i++) {
+            if (tags[i] == pagina) {
+                vitima = i;
+                break;
+            }
+            if (tags[i] == -1 && vitima == -1) {
+                vitima = i;
+            }
+        }
+        if (vitima == -1) {
+            vitima = base + escolheVitima(base);
+        }
+        tags[vitima] = pagina;
+        valores[vitima] = valor;
+        usos[vitima] = ++relogio;
+    }
+
+    private int escolheVitima(int base) {
+        if (substituicao == Substituicao.ALEATORIA) {
+            semente ^= semente << 13;
+            semente ^= semente >>> 17;
+            semente ^= semente << 5;
+            return (semente & 0x7FFFFFFF) % associatividade;
+        }
+        int vitima = 0;
+        for (int i = 1; i < associatividade; i++) {
+            if (usos[base + i] < usos[base + vitima]) {
+                vitima = i;
+            }
+        }
+        return vitima;
+    }
+
+    // Deve ser chamada sempre que a entrada da página na tabela de páginas mudar
+    public void invalida(int pagina) {
+        int base = (pagina & mascaraConjunto) * associatividade;
+        for (int i = base; i < base + associatividade; i++) {
+            if (tags[i] == pagina) {
+                tags[i] = -1;
+            }
+        }
+    }
+
+    // Deve ser chamada quando a tabela de páginas inteira for trocada
+    public void flush() {
+        for (int i = 0; i < entradas; i++) {
+            tags[i] = -1;
+        }
+    }
+
+    public long getAcertos() {
+        return acertos;
+    }
+
+    public long getFaltas() {
+        return faltas;
+    }
+
+    public double taxaAcerto() {
+        long total = acertos + faltas;
+        return total == 0 ? 0.0 : (double) acertos / total;
+    }
+
+    public void zeraEstatisticas() {
+        acertos = 0;
+        faltas = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "TLB " + entradas + " entradas, " + associatividade + "-associativa, " + substituicao
+                + ": acertos " + acertos + ", faltas " + faltas
+                + String.format(java.util.Locale.ROOT, ", taxa de acerto %.2f%%", taxaAcerto() * 100);
+    }
+}
@@ -0,0 +1,85 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Gravador do rastro binário de execução, para análise posterior (TraceReplay).
+// O arquivo começa com um cabeçalho de TAM_CABECALHO bytes e segue com registros de largura fixa,
+// em little-endian:
+//   int   pc          instrução em execução
+//   int   endVirtual  endereço referenciado (igual ao pc nas buscas de instrução)
+//   int   endFisico   endereço físico resultante, ou -1 se a tradução falhou
+//   short processo    id do processo (16 bits menos significativos)
+//   byte  opcode      ordinal de Sistema.Opcode
+//   byte  flags       BUSCA, ESCRITA, FALTA, FIM_DE_PROCESSO
+// Os registros são acumulados num buffer direto grande e escritos no FileChannel em blocos.
+
+public class TraceRecorder implements AutoCloseable {
+
+    public static final int MAGICO = 0x52544F53; // "SOTR" em little-endian
+    public static final int VERSAO = 1;
+    public static final int TAM_CABECALHO = 32;
+    public static final int TAM_REGISTRO = 16;
+
+    public static final int BUSCA = 1;           // Busca de instrução
+    public static final int ESCRITA = 2;         // Referência de escrita (STD, STX)
+    public static final int FALTA = 4;           // A referência causou falta de página
+    public static final int FIM_DE_PROCESSO = 8; // O processo terminou e liberou suas molduras
+
+    private final FileChannel canal;
+    private final ByteBuffer buffer;
+    private long registros;
+
+    public TraceRecorder(Path arquivo, int tamPag, int tamMemVirtual, int tamMemFisica, int tamBuffer) {
+        try {
+            canal = FileChannel.open(arquivo, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível criar o arquivo de rastro " + arquivo, e);
+        }
+        buffer = ByteBuffer.allocateDirect(tamBuffer - tamBuffer % TAM_REGISTRO).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGICO).putInt(VERSAO).putInt(tamPag).putInt(tamMemVirtual).putInt(tamMemFisica);
+        buffer.position(TAM_CABECALHO); // Restante do cabeçalho reservado
+    }
+
+    public TraceRecorder(Path arquivo, int tamPag, int tamMemVirtual, int tamMemFisica) {
+        this(arquivo, tamPag, tamMemVirtual, tamMemFisica, 4 << 20);
+    }
+
+    public void registra(int pc, int endVirtual, int endFisico, int processo, int opcode, int flags) {
+        if (buffer.remaining() < TAM_REGISTRO) {
+            descarrega();
+        }
+        buffer.putInt(pc).putInt(endVirtual).putInt(endFisico).putShort((short) processo).put((byte) opcode).put((byte) flags);
+        registros++;
+    }
+
+    public long getRegistros() {
+        return registros;
+    }
+
+    private void descarrega() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao gravar o rastro", e);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() {
+        descarrega();
+        try {
+            canal.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
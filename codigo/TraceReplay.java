@@ -0,0 +1,137 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+// Reprodução offline de um rastro gravado por TraceRecorder (java Sistema --gravar=arquivo ...).
+// Mostra o perfil do rastro (mistura de instruções, referências, faltas na execução original) e depois
+// alimenta a sequência de referências no PagingSimulator para cada combinação de número de molduras e
+// política, sem executar instruções.
+// Uso: java TraceReplay <arquivo> [molduras,...] [politicas,...]
+
+public class TraceReplay {
+
+    private static final long TAM_MAX_REGIAO = (1L << 30) / TraceRecorder.TAM_REGISTRO * TraceRecorder.TAM_REGISTRO;
+
+    private final FileChannel canal;
+    private final int tamPag;
+    private final int tamMemVirtual;
+    private final int tamMemFisica;
+    private final long registros;
+
+    public TraceReplay(Path arquivo) {
+        try {
+            canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+            MappedByteBuffer cab = canal.map(FileChannel.MapMode.READ_ONLY, 0, TraceRecorder.TAM_CABECALHO);
+            cab.order(ByteOrder.LITTLE_ENDIAN);
+            if (cab.getInt() != TraceRecorder.MAGICO || cab.getInt() != TraceRecorder.VERSAO) {
+                throw new IllegalArgumentException("Arquivo não é um rastro válido: " + arquivo);
+            }
+            tamPag = cab.getInt();
+            tamMemVirtual = cab.getInt();
+            tamMemFisica = cab.getInt();
+            registros = (canal.size() - TraceRecorder.TAM_CABECALHO) / TraceRecorder.TAM_REGISTRO;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível ler o rastro " + arquivo, e);
+        }
+    }
+
+    public int getTamPag() {
+        return tamPag;
+    }
+
+    public int getTamMemVirtual() {
+        return tamMemVirtual;
+    }
+
+    // Recebe os campos de cada registro, na ordem do arquivo
+    public interface Visitante {
+        void registro(int pc, int endVirtual, int endFisico, int processo, int opcode, int flags);
+    }
+
+    // Percorre o arquivo mapeado em regiões de até 1 GiB
+    public void percorre(Visitante v) {
+        try {
+            long fim = TraceRecorder.TAM_CABECALHO + registros * TraceRecorder.TAM_REGISTRO;
+            for (long inicio = TraceRecorder.TAM_CABECALHO; inicio < fim; inicio += TAM_MAX_REGIAO) {
+                MappedByteBuffer b = canal.map(FileChannel.MapMode.READ_ONLY, inicio, Math.min(TAM_MAX_REGIAO, fim - inicio));
+                b.order(ByteOrder.LITTLE_ENDIAN);
+                while (b.hasRemaining()) {
+                    v.registro(b.getInt(), b.getInt(), b.getInt(), b.getShort() & 0xFFFF, b.get() & 0xFF, b.get());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler o rastro", e);
+        }
+    }
+
+    // Reproduz as referências no simulador; registros sem tradução (endereço inválido) são ignorados
+    public PagingSimulator simula(int molduras, String politica) {
+        PagingSimulator sim = new PagingSimulator(molduras, tamMemVirtual / tamPag, politica);
+        percorre((pc, endVirtual, endFisico, processo, opcode, flags) -> {
+            if ((flags & TraceRecorder.FIM_DE_PROCESSO) != 0) {
+                sim.terminaProcesso(processo);
+            } else if (endFisico >= 0) {
+                sim.referencia(processo, endVirtual / tamPag, (flags & TraceRecorder.ESCRITA) != 0);
+            }
+        });
+        return sim;
+    }
+
+    public void imprimePerfil() {
+        long[] mistura = new long[256];
+        long[] contagem = new long[3]; // buscas, leituras, escritas
+        long[] faltas = new long[1];
+        percorre((pc, endVirtual, endFisico, processo, opcode, flags) -> {
+            if ((flags & TraceRecorder.FIM_DE_PROCESSO) != 0) {
+                return;
+            }
+            if ((flags & TraceRecorder.BUSCA) != 0) {
+                mistura[opcode]++;
+                contagem[0]++;
+            } else {
+                contagem[(flags & TraceRecorder.ESCRITA) != 0 ? 2 : 1]++;
+            }
+            if ((flags & TraceRecorder.FALTA) != 0) {
+                faltas[0]++;
+            }
+        });
+        System.out.println("Rastro: " + registros + " registros, página " + tamPag + ", memória virtual " + tamMemVirtual
+                + ", física " + tamMemFisica);
+        System.out.println("Referências: buscas " + contagem[0] + ", leituras " + contagem[1] + ", escritas " + contagem[2]
+                + ", faltas na execução original " + faltas[0]);
+        System.out.println("Mistura de instruções:");
+        Sistema.Opcode[] opcodes = Sistema.Opcode.values();
+        for (int op = 0; op < opcodes.length; op++) {
+            if (mistura[op] > 0) {
+                System.out.println(String.format(Locale.ROOT, "  %-8s %10d  %6.2f%%", opcodes[op], mistura[op],
+                        100.0 * mistura[op] / contagem[0]));
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Uso: java TraceReplay <arquivo> [molduras,...] [politicas,...]");
+            return;
+        }
+        TraceReplay r = new TraceReplay(Paths.get(args[0]));
+        r.imprimePerfil();
+        String[] molduras = args.length > 1 ? args[1].split(",") : new String[] {Integer.toString(r.tamMemFisica / r.tamPag)};
+        String[] politicas = args.length > 2 ? args[2].split(",") : PageReplacementPolicy.nomes();
+        for (String m : molduras) {
+            for (String politica : politicas) {
+                long t0 = System.nanoTime();
+                PagingSimulator sim = r.simula(Integer.parseInt(m), politica);
+                long t = System.nanoTime() - t0;
+                System.out.println(String.format(Locale.ROOT, "  molduras %6s  %-6s faltas %10d  substituições %10d  escritas no swap %10d  (%.1f ms)",
+                        m, sim.nomePolitica(), sim.getFaltas(), sim.getSubstituicoes(), sim.getEscritasNoSwap(), t / 1e6));
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Rastro de execução assíncrono.
+// A CPU grava cada evento num anel de longs alocado uma vez, sem montar strings nem alocar objetos; uma thread
+// consumidora formata os eventos e os escreve na saída. Há um único produtor (a CPU) e um único consumidor,
+// então as posições publicadas bastam como sincronização. Anel cheio faz o produtor esperar: nenhum evento
+// é descartado. Um evento que não pode ser formatado vira uma linha de erro, sem derrubar o consumidor; e
+// gravar num rastro já fechado, ou cujo consumidor morreu, é um erro (IllegalStateException), não uma espera
+// sem fim.
+//
+// Os níveis são cumulativos: INTERRUPCOES registra as interrupções, INSTRUCOES também cada instrução
+// executada (registradores e palavra) e TRADUCOES também cada tradução de endereço.
+
+public class Tracer implements AutoCloseable {
+
+    public enum Nivel {
+        DESLIGADO, INTERRUPCOES, INSTRUCOES, TRADUCOES
+    }
+
+    private static final int TAM_EVENTO = 16; // Longs por evento: tipo, 3 campos e até 10 registradores
+    private static final long INSTRUCAO = 1, TRADUCAO = 2, ESCRITA = 3, INTERRUPCAO = 4;
+    private static final String[] INTERRUPCOES = nomes(Sistema.Interrupts.values());
+    private static final String[] OPCODES = nomes(Sistema.Opcode.values());
+
+    private long[] anel;        // Alocado no primeiro evento, com a thread consumidora
+    private final long mascara;
+    private final PrintStream saida;
+    private final AtomicLong publicado = new AtomicLong(); // Eventos gravados pelo produtor
+    private final AtomicLong consumido = new AtomicLong(); // Eventos já escritos na saída
+    private long proximo;       // Cópia local de publicado, só usada pelo produtor
+    private long limite;        // Até onde o produtor pode gravar sem consultar o consumidor
+    private volatile Nivel nivel = Nivel.DESLIGADO;
+    private volatile boolean fechado;
+    private Thread consumidor;
+    private long esperas;       // Vezes em que o produtor encontrou o anel cheio
+
+    public Tracer(PrintStream saida, int eventos) {
+        if (Integer.bitCount(eventos) != 1) {
+            throw new IllegalArgumentException("Capacidade do rastro deve ser potência de 2: " + eventos);
+        }
+        this.saida = saida;
+        mascara = eventos - 1;
+        limite = eventos;
+    }
+
+    public Tracer(PrintStream saida) {
+        this(saida, 1 << 14);
+    }
+
+    public Nivel getNivel() {
+        return nivel;
+    }
+
+    // O anel e a thread consumidora só são criados no primeiro evento: um rastro ligado por padrão e
+    // desligado antes da execução (por exemplo, nas execuções em lote) não custa nada
+    public void setNivel(Nivel n) {
+        nivel = n;
+    }
+
+    private void inicia() {
+        anel = new long[(int) (mascara + 1) * TAM_EVENTO];
+        consumidor = new Thread(this::consome, "rastro");
+        consumidor.setDaemon(true);
+        consumidor.start();
+    }
+
+    public long getEsperas() {
+        return esperas;
+    }
+
+    // ---- Produtor (thread da CPU)
+
+    public void instrucao(int pc, long palavra, int[] reg) {
+        int base = reserva();
+        anel[base] = INSTRUCAO;
+        anel[base + 1] = pc;
+        anel[base + 2] = palavra;
+        for (int i = 0; i < 10; i++) {
+            anel[base + 3 + i] = reg[i];
+        }
+        publica();
+    }
+
+    public void traducao(int endVirtual, int endFisico) {
+        int base = reserva();
+        anel[base] = TRADUCAO;
+        anel[base + 1] = endVirtual;
+        anel[base + 2] = endFisico;
+        publica();
+    }
+
+    public void escrita(int endVirtual, long palavra) {
+        int base = reserva();
+        anel[base] = ESCRITA;
+        anel[base + 1] = endVirtual;
+        anel[base + 2] = palavra;
+        publica();
+    }
+
+    public void interrupcao(int irpt, int pc, int processo) {
+        int base = reserva();
+        anel[base] = INTERRUPCAO;
+        anel[base + 1] = irpt;
+        anel[base + 2] = pc;
+        anel[base + 3] = processo;
+        publica();
+    }
+
+    // Espera a saída alcançar todos os eventos gravados: usado antes de o SO escrever diretamente no
+    // console, para que rastro e saída dos programas apareçam na ordem em que aconteceram
+    public void esvazia() {
+        while (consumido.get() < proximo && consumidor != null && consumidor.isAlive()) {
+            LockSupport.unpark(consumidor);
+            Thread.onSpinWait();
+        }
+    }
+
+    private int reserva() {
+        if (fechado) {
+            throw new IllegalStateException("Rastro já fechado");
+        }
+        if (anel == null) {
+            inicia();
+        }
+        if (proximo >= limite) {
+            limite = consumido.get() + mascara + 1;
+            while (proximo >= limite) { // Anel cheio: espera o consumidor
+                if (!consumidor.isAlive()) {
+                    throw new IllegalStateException("Consumidor do rastro encerrado com o anel cheio");
+                }
+                esperas++;
+                LockSupport.unpark(consumidor);
+                Thread.onSpinWait();
+                limite = consumido.get() + mascara + 1;
+            }
+        }
+        return (int) (proximo & mascara) * TAM_EVENTO;
+    }
+
+    private void publica() {
+        publicado.lazySet(++proximo);
+    }
+
+    // ---- Consumidor
+
+    private void consome() {
+        StringBuilder sb = new StringBuilder(1 << 16);
+        long lido = 0;
+        while (true) {
+            long disponivel = publicado.get();
+            if (lido == disponivel) {
+                if (fechado) {
+                    return;
+                }
+                LockSupport.parkNanos(100_000);
+                continue;
+            }
+            while (lido < disponivel) {
+                int base = (int) (lido & mascara) * TAM_EVENTO;
+                int tamanho = sb.length();
+                try {
+                    formata(sb, base);
+                } catch (RuntimeException e) { // Evento corrompido: registra e segue com os próximos
+                    sb.setLength(tamanho);
+                    sb.append("[rastro] evento ").append(lido).append(" ilegível: ").append(e).append('\n');
+                }
+                lido++;
+                if (sb.length() > (1 << 15)) {
+                    saida.append(sb);
+                    sb.setLength(0);
+                }
+            }
+            saida.append(sb);
+            saida.flush();
+            sb.setLength(0);
+            consumido.set(lido);
+        }
+    }
+
+    private void formata(StringBuilder sb, int base) {
+        switch ((int) anel[base]) {
+            case (int) INSTRUCAO:
+                sb.append("                                              regs: ");
+                for (int i = 0; i < 10; i++) {
+                    sb.append(" r[").append(i).append("]:").append(anel[base + 3 + i]);
+                }
+                sb.append('\n').append("                      pc: ").append(anel[base + 1]).append("       exec: ");
+                palavra(sb, anel[base + 2]).append('\n');
+                break;
+            case (int) TRADUCAO:
+                sb.append("Traduzindo endereço virtual ").append(anel[base + 1]).append(" para físico ").append(anel[base + 2]).append('\n');
+                break;
+            case (int) ESCRITA:
+                sb.append("                                  ").append(anel[base + 1]).append(":  ");
+                palavra(sb, anel[base + 2]).append('\n');
+                break;
+            case (int) INTERRUPCAO:
+                sb.append("                                               [rastro] interrupção ").append(INTERRUPCOES[(int) anel[base + 1]])
+                        .append(", processo ").append(anel[base + 3]).append(", pc ").append(anel[base + 2]).append('\n');
+                break;
+            default:
+                sb.append("[rastro] evento desconhecido ").append(anel[base]).append('\n');
+        }
+    }
+
+    // Mesmo formato de Utilities.dump(Word), a partir da palavra compactada
+    private static StringBuilder palavra(StringBuilder sb, long w) {
+        int opc = (int) (w >>> 48) & 0xFF;
+        sb.append("[ ");
+        if (opc < OPCODES.length) {
+            sb.append(OPCODES[opc]);
+        } else {
+            sb.append("opcode ").append(opc); // A carga rejeita essas palavras, mas o rastro não depende disso
+        }
+        return sb.append(", ").append((byte) (w >>> 32)).append(", ")
+                .append((byte) (w >>> 40)).append(", ").append((int) w).append("  ] ");
+    }
+
+    private static String[] nomes(Enum<?>[] valores) {
+        String[] nomes = new String[valores.length];
+        for (int i = 0; i < valores.length; i++) {
+            nomes[i] = valores[i].name();
+        }
+        return nomes;
+    }
+
+    // Escreve o que falta e encerra a thread consumidora
+    @Override
+    public void close() {
+        esvazia();
+        fechado = true;
+        Thread t = consumidor;
+        if (t != null) {
+            LockSupport.unpark(t);
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
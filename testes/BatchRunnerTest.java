@@ -0,0 +1,160 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Lote: cada resultado, na posição da sua tarefa e com qualquer concorrência, é igual ao de executar a
+// tarefa sozinha num Sistema montado à mão com a mesma configuração
+
+class BatchRunnerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void resultadosIguaisAosDaExecucaoIsoladaNaOrdemDasTarefas() throws IOException {
+        Sistema catalogo = Maquinas.sistema(1024, 1024, 4);
+        String[] programas = catalogo.progs.nomes();
+        String[] politicas = PageReplacementPolicy.nomes();
+        Random random = new Random(1);
+        List<Caso> casos = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Caso c = new Caso();
+            // O limite de instruções é conferido no fim da fatia (100 instruções): só PC passa disso
+            c.programa = i % 5 == 0 ? "PC" : programas[random.nextInt(programas.length)];
+            c.tamPag = 4 << random.nextInt(3);
+            c.tamMemFisica = random.nextBoolean() ? 128 : 1024;
+            c.politica = politicas[random.nextInt(politicas.length)];
+            c.limite = i % 5 == 0 ? 1 + random.nextInt(100) : 200_000;
+            c.leituras = new int[random.nextInt(3)];
+            for (int j = 0; j < c.leituras.length; j++) {
+                c.leituras[j] = random.nextInt(10);
+            }
+            c.registrador = random.nextInt(10);
+            c.valor = random.nextInt(20);
+            c.endereco = random.nextInt(catalogo.progs.retrieveProgram(c.programa).tamanho());
+            c.dado = random.nextInt(20);
+            casos.add(c);
+        }
+        catalogo.encerra();
+
+        Path arquivo = dir.resolve("tarefas.txt");
+        List<String> linhas = new ArrayList<>();
+        linhas.add("# Uma tarefa por linha");
+        for (Caso c : casos) {
+            linhas.add(c.linha() + "  # comentário no fim");
+            linhas.add("");
+        }
+        Files.write(arquivo, linhas, StandardCharsets.UTF_8);
+        List<BatchRunner.Tarefa> tarefas = BatchRunner.tarefas(arquivo);
+        assertEquals(casos.size(), tarefas.size());
+
+        List<Sistema.PCB> esperados = new ArrayList<>();
+        List<Long> instrucoes = new ArrayList<>();
+        for (Caso c : casos) {
+            Sistema s = c.sistema();
+            esperados.add(c.executa(s));
+            instrucoes.add(s.hw.cpu.getInstrucoes());
+            s.encerra();
+        }
+        BatchRunner b = new BatchRunner();
+        for (int concorrencia : new int[] {1, 3, 16}) {
+            b.setConcorrencia(concorrencia);
+            List<BatchRunner.Resultado> resultados = b.executa(tarefas);
+            assertEquals(tarefas.size(), resultados.size());
+            for (int i = 0; i < resultados.size(); i++) {
+                BatchRunner.Resultado r = resultados.get(i);
+                Sistema.PCB pcb = esperados.get(i);
+                String caso = "concorrência " + concorrencia + ", " + casos.get(i).linha();
+                assertSame(tarefas.get(i), r.tarefa, caso);
+                assertNull(r.erro, caso);
+                assertEquals(pcb.motivoTermino, r.motivo, caso);
+                assertEquals(pcb.pc, r.pc, caso);
+                assertArrayEquals(pcb.reg, r.registradores, caso);
+                assertArrayEquals(pcb.memoriaFinal, r.memoria, caso);
+                assertArrayEquals(pcb.saidas.stream().mapToInt(Integer::intValue).toArray(), r.saidas, caso);
+                assertEquals(instrucoes.get(i), r.instrucoes, caso);
+            }
+        }
+        assertTrue(esperados.stream().anyMatch(pcb -> pcb.motivoTermino == Sistema.Interrupts.intTimer));
+        assertTrue(esperados.stream().anyMatch(pcb -> pcb.motivoTermino == Sistema.Interrupts.intSTOP));
+    }
+
+    @Test
+    void errosFicamNoResultado() {
+        BatchRunner b = new BatchRunner();
+        List<BatchRunner.Tarefa> tarefas = List.of(
+                BatchRunner.tarefa("inexistente"),
+                BatchRunner.tarefa("fatorial pagina=3"),
+                BatchRunner.tarefa("fatorial @5000=1"),
+                BatchRunner.tarefa("fatorial"));
+        List<BatchRunner.Resultado> resultados = b.executa(tarefas);
+        assertEquals("Programa inexistente", resultados.get(0).erro);
+        assertNotNull(resultados.get(1).erro);
+        assertEquals("Entrada fora da memória: 5000", resultados.get(2).erro);
+        for (int i = 0; i < 3; i++) {
+            assertNull(resultados.get(i).motivo, resultados.get(i).erro);
+            assertEquals(0, resultados.get(i).memoria.length);
+        }
+        assertNull(resultados.get(3).erro);
+        assertEquals(Sistema.Interrupts.intSTOP, resultados.get(3).motivo);
+    }
+
+    // Configuração de uma tarefa, escrita como linha do arquivo de tarefas e executada sem o BatchRunner
+    static final class Caso {
+        String programa;
+        int tamPag;
+        int tamMemFisica;
+        String politica;
+        long limite;
+        int[] leituras;
+        int registrador;
+        int valor;
+        int endereco;
+        int dado;
+
+        String linha() {
+            StringBuilder sb = new StringBuilder(programa).append(" virtual=2048 fisica=").append(tamMemFisica)
+                    .append(" pagina=").append(tamPag).append(" politica=").append(politica).append(" limite=").append(limite)
+                    .append(" r").append(registrador).append('=').append(valor).append(" @").append(endereco).append('=').append(dado);
+            for (int j = 0; j < leituras.length; j++) {
+                sb.append(j == 0 ? " in=" : ",").append(leituras[j]);
+            }
+            return sb.toString();
+        }
+
+        Sistema sistema() {
+            Sistema s = Maquinas.sistema(2048, tamMemFisica, tamPag, politica);
+            InputSource.Fila console = new InputSource.Fila();
+            for (int v : leituras) {
+                console.adiciona(v);
+            }
+            s.hw.console.setEntrada(console);
+            s.hw.cpu.setCompilacao(0);
+            s.so.pm.setLimiteInstrucoes(limite);
+            return s;
+        }
+
+        Sistema.PCB executa(Sistema s) {
+            Sistema.PCB pcb = s.so.pm.criaProcesso(programa, s.progs.retrieveProgram(programa));
+            s.hw.mem.escreveDado(s.so.mm.traduz(pcb, endereco, true), dado);
+            pcb.reg[registrador] = valor;
+            pcb.guardaMemoria = true;
+            s.so.pm.executaEmParalelo();
+            return pcb;
+        }
+    }
+}
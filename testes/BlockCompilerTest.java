@@ -0,0 +1,87 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+// Interrupção no meio de um bloco compilado: o processo tem que parar no mesmo pc, com os mesmos
+// registradores, pelo mesmo motivo e depois do mesmo número de instruções que no caminho sob demanda
+
+class BlockCompilerTest {
+
+    // Dobra r0 até passar de 32767: o overflow acontece dentro do laço já compilado
+    @Test
+    void overflowDentroDoBloco() {
+        confere(s -> new Sistema.Word[] {
+            Maquinas.w(s, Sistema.Opcode.LDI, 0, -1, 1),
+            Maquinas.w(s, Sistema.Opcode.LDI, 5, -1, 1),
+            Maquinas.w(s, Sistema.Opcode.ADD, 0, 0, -1),   // 1
+            Maquinas.w(s, Sistema.Opcode.ADDI, 6, -1, 1),
+            Maquinas.w(s, Sistema.Opcode.LDI, 5, -1, 2),
+            Maquinas.w(s, Sistema.Opcode.JMPIG, 5, 0, -1),
+            Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1)
+        }, Sistema.Interrupts.intOverflow, false);
+    }
+
+    // Lê de 3 até 0 e depois do endereço -1
+    @Test
+    void enderecoInvalidoDentroDoBloco() {
+        confere(s -> new Sistema.Word[] {
+            Maquinas.w(s, Sistema.Opcode.LDI, 0, -1, 3),
+            Maquinas.w(s, Sistema.Opcode.LDX, 1, 0, -1),   // 1
+            Maquinas.w(s, Sistema.Opcode.ADD, 2, 1, -1),
+            Maquinas.w(s, Sistema.Opcode.SUBI, 0, -1, 1),
+            Maquinas.w(s, Sistema.Opcode.JMP, -1, -1, 1),
+            Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1)
+        }, Sistema.Interrupts.intEnderecoInvalido, false);
+    }
+
+    // Escreve 0 nos endereços 54, 38, 22 e 6: as três primeiras escritas são em outras páginas, a última cai
+    // no JMP do laço, o bloco em execução fica inválido e a palavra nova (um dado) é executada como
+    // instrução inválida
+    @Test
+    void escritaNaPropriaMolduraInvalidaOBloco() {
+        confere(s -> {
+            Sistema.Word[] p = new Sistema.Word[64];
+            Sistema.Word[] codigo = {
+                Maquinas.w(s, Sistema.Opcode.LDI, 3, -1, 54),
+                Maquinas.w(s, Sistema.Opcode.LDI, 4, -1, 0),
+                Maquinas.w(s, Sistema.Opcode.STX, 3, 4, -1),   // 2
+                Maquinas.w(s, Sistema.Opcode.SUBI, 3, -1, 16),
+                Maquinas.w(s, Sistema.Opcode.ADDI, 6, -1, 1),
+                Maquinas.w(s, Sistema.Opcode.LDI, 5, -1, 2),
+                Maquinas.w(s, Sistema.Opcode.JMP, -1, -1, 2),  // 6
+                Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1)
+            };
+            for (int i = 0; i < p.length; i++) {
+                p[i] = i < codigo.length ? codigo[i] : Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0);
+            }
+            return p;
+        }, Sistema.Interrupts.intInstrucaoInvalida, true);
+    }
+
+    interface Programa {
+        Sistema.Word[] monta(Sistema s);
+    }
+
+    private static void confere(Programa programa, Sistema.Interrupts motivo, boolean invalida) {
+        Sistema ref = Maquinas.sistema("demanda");
+        Sistema.PCB esperado = Maquinas.executa(ref, programa.monta(ref));
+        assertEquals(motivo, esperado.motivoTermino);
+        for (String modo : Maquinas.MODOS) {
+            Sistema s = Maquinas.sistema(modo);
+            Sistema.PCB pcb = Maquinas.executa(s, programa.monta(s));
+            assertEquals(esperado.motivoTermino, pcb.motivoTermino, modo);
+            assertEquals(esperado.pc, pcb.pc, modo);
+            assertArrayEquals(esperado.reg, pcb.reg, modo);
+            assertEquals(ref.hw.cpu.getInstrucoes(), s.hw.cpu.getInstrucoes(), modo);
+            BlockCompiler jit = s.hw.cpu.getCompilador();
+            if (jit != null) {
+                assertTrue(jit.getCompilados() > 0, modo + ": nenhum bloco compilado " + jit.getFalha());
+                assertTrue(!invalida || jit.getInvalidacoes() > 0, modo + ": bloco não invalidado");
+            }
+            s.encerra();
+        }
+        ref.encerra();
+    }
+}
@@ -0,0 +1,55 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class CPUTest {
+
+    // r0 = n; repete r0 -= 1 até zerar: 3 + 2n + 1 instruções
+    static Sistema.Word[] contador(Sistema s, int n) {
+        return new Sistema.Word[] {
+            Maquinas.w(s, Sistema.Opcode.LDI, 0, -1, n),
+            Maquinas.w(s, Sistema.Opcode.LDI, 1, -1, 1),
+            Maquinas.w(s, Sistema.Opcode.LDI, 2, -1, 3),
+            Maquinas.w(s, Sistema.Opcode.SUB, 0, 1, -1),
+            Maquinas.w(s, Sistema.Opcode.JMPIG, 2, 0, -1),
+            Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1)
+        };
+    }
+
+    // -1 / tamPag é a página 0 (divisão em direção ao zero): com a página 0 na TLB, o endereço virava a última
+    // palavra da moldura anterior
+    @Test
+    void enderecoNegativoEInvalidoComAPagina0NaTLB() {
+        for (String modo : Maquinas.MODOS) {
+            Sistema s = Maquinas.sistema(modo);
+            Sistema.PCB pcb = Maquinas.executa(s,
+                    Maquinas.w(s, Sistema.Opcode.LDI, 0, -1, 5),
+                    Maquinas.w(s, Sistema.Opcode.STD, 0, -1, 6), // Página 0 já na TLB, pela busca e pela escrita
+                    Maquinas.w(s, Sistema.Opcode.LDD, 1, -1, -1),
+                    Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1),
+                    Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0),
+                    Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0),
+                    Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0));
+            assertEquals(Sistema.Interrupts.intEnderecoInvalido, pcb.motivoTermino, modo);
+            assertEquals(2, pcb.pc, modo);
+            s.encerra();
+        }
+    }
+
+    // Cada preempção por timer acontecia logo depois de um desvio, já contado, e contava mais uma instrução
+    @Test
+    void preempcoesNaoAlteramAContagemDeInstrucoes() {
+        for (String modo : Maquinas.MODOS) {
+            for (int quantum : new int[] {0, 1, 2, 7, 64}) {
+                Sistema s = Maquinas.sistema(modo);
+                s.hw.cpu.setQuantum(quantum);
+                s.so.pm.criaProcesso("a", contador(s, 500)); // Dois processos alternando na CPU
+                s.so.pm.criaProcesso("b", contador(s, 500));
+                s.so.pm.executaEmParalelo();
+                assertEquals(2, s.so.pm.getTerminados().size());
+                assertEquals(2 * (3 + 2 * 500 + 1), s.hw.cpu.getInstrucoes(), modo + ", quantum " + quantum);
+                s.encerra();
+            }
+        }
+    }
+}
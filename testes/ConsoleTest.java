@@ -0,0 +1,84 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// Leitura pelo console (SYSCALL 1) com a entrada numa InputSource.Fila: o valor vai para a memória do
+// processo, que fica bloqueado enquanto outro roda; sem mais valores o processo termina com intFimDaEntrada
+
+class ConsoleTest {
+
+    @Test
+    void leituraGuardaOValorNaMemoria() {
+        Sistema s = Maquinas.sistema(1024, 1024, 16);
+        s.hw.console.setEntrada(new InputSource.Fila().adiciona(42).adiciona(-7));
+        Sistema.PCB pcb = Maquinas.executa(s, leDuasVezes(s));
+        assertEquals(Sistema.Interrupts.intSTOP, pcb.motivoTermino);
+        assertEquals(42, pcb.reg[0]);
+        assertEquals(-7, pcb.reg[1]);
+        s.encerra();
+    }
+
+    // O leitor é criado primeiro e seria o primeiro a terminar, mas fica bloqueado na leitura
+    @Test
+    void leitorBloqueadoEnquantoOutroProcessoRoda() {
+        Sistema s = Maquinas.sistema(1024, 1024, 16);
+        s.hw.console.setEntrada(new InputSource.Fila().adiciona(5).adiciona(6));
+        Sistema.PCB leitor = s.so.pm.criaProcesso("leitor", leDuasVezes(s));
+        Sistema.PCB calculo = s.so.pm.criaProcesso("calculo", new Sistema.Word[] {
+            Maquinas.w(s, Sistema.Opcode.LDI, 0, -1, 50),
+            Maquinas.w(s, Sistema.Opcode.LDI, 1, -1, 2),
+            Maquinas.w(s, Sistema.Opcode.SUBI, 0, -1, 1),  // 2
+            Maquinas.w(s, Sistema.Opcode.JMPIG, 1, 0, -1),
+            Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1)
+        });
+        s.so.pm.executaEmParalelo();
+        assertEquals(List.of(calculo, leitor), s.so.pm.getTerminados());
+        assertEquals(Sistema.Interrupts.intSTOP, calculo.motivoTermino);
+        assertEquals(Sistema.Interrupts.intSTOP, leitor.motivoTermino);
+        assertEquals(5, leitor.reg[0]);
+        assertEquals(6, leitor.reg[1]);
+        s.encerra();
+    }
+
+    // A segunda leitura não tem valor: o leitor termina na SYSCALL, e o outro processo não é afetado
+    @Test
+    void fimDaEntradaTerminaSoOLeitor() {
+        Sistema s = Maquinas.sistema(1024, 1024, 16);
+        s.hw.console.setEntrada(new InputSource.Fila().adiciona(9));
+        Sistema.PCB leitor = s.so.pm.criaProcesso("leitor", leDuasVezes(s));
+        leitor.guardaMemoria = true;
+        Sistema.PCB outro = s.so.pm.criaProcesso("outro", new Sistema.Word[] {
+            Maquinas.w(s, Sistema.Opcode.LDI, 0, -1, 3),
+            Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1)
+        });
+        s.so.pm.executaEmParalelo();
+        assertEquals(Sistema.Interrupts.intFimDaEntrada, leitor.motivoTermino);
+        assertEquals(6, leitor.pc); // Depois da segunda SYSCALL
+        assertEquals(9, (int) leitor.memoriaFinal[20]); // A primeira leitura foi guardada
+        assertEquals(Sistema.Interrupts.intSTOP, outro.motivoTermino);
+        assertEquals(3, outro.reg[0]);
+        s.encerra();
+    }
+
+    // Lê para 20 e 21 e carrega os valores em r0 e r1
+    private static Sistema.Word[] leDuasVezes(Sistema s) {
+        Sistema.Word[] p = new Sistema.Word[22];
+        Sistema.Word[] codigo = {
+            Maquinas.w(s, Sistema.Opcode.LDI, 8, -1, 1),
+            Maquinas.w(s, Sistema.Opcode.LDI, 9, -1, 20),
+            Maquinas.w(s, Sistema.Opcode.SYSCALL, -1, -1, -1),
+            Maquinas.w(s, Sistema.Opcode.LDI, 8, -1, 1),
+            Maquinas.w(s, Sistema.Opcode.LDI, 9, -1, 21),
+            Maquinas.w(s, Sistema.Opcode.SYSCALL, -1, -1, -1),
+            Maquinas.w(s, Sistema.Opcode.LDD, 0, -1, 20),  // 6
+            Maquinas.w(s, Sistema.Opcode.LDD, 1, -1, 21),
+            Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1)
+        };
+        for (int i = 0; i < p.length; i++) {
+            p[i] = i < codigo.length ? codigo[i] : Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0);
+        }
+        return p;
+    }
+}
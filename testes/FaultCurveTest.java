@@ -0,0 +1,126 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Cada ponto da curva, calculada numa só passada, tem que ser o número de faltas de uma simulação própria
+// com aquele número de molduras: FIFO e Clock pelo PagingSimulator (a mesma lógica do MemoryManager), LRU
+// exato e OPT por simulações diretas (a política "lru" do simulador é o LRU aproximado por envelhecimento)
+
+class FaultCurveTest {
+
+    private static final int[] TAMANHOS = {1, 2, 3, 4, 5, 7, 8, 12, 16, 31, 64};
+
+    @Test
+    void curvaConfereComSimulacoesPorTamanho() {
+        for (long semente = 1; semente <= 6; semente++) {
+            int[] sequencia = sequencia(new Random(semente), 3000, semente % 2 == 0 ? 40 : 100);
+            FaultCurve curva = new FaultCurve(TAMANHOS);
+            for (int pagina : sequencia) {
+                curva.referencia(pagina);
+            }
+            assertEquals(sequencia.length, curva.getReferencias());
+            long[] fifo = new long[TAMANHOS.length];
+            long[] clock = new long[TAMANHOS.length];
+            long[] opt = new long[TAMANHOS.length];
+            for (int i = 0; i < TAMANHOS.length; i++) {
+                fifo[i] = simulador(sequencia, TAMANHOS[i], "fifo");
+                clock[i] = simulador(sequencia, TAMANHOS[i], "clock");
+                opt[i] = opt(sequencia, TAMANHOS[i]);
+                assertEquals(lru(sequencia, TAMANHOS[i]), curva.faltasLru(TAMANHOS[i]), "LRU, " + TAMANHOS[i] + " molduras");
+            }
+            assertArrayEquals(fifo, curva.faltasFifo(), "FIFO, semente " + semente);
+            assertArrayEquals(clock, curva.faltasClock(), "Clock, semente " + semente);
+            assertArrayEquals(opt, curva.faltasOpt(), "OPT, semente " + semente);
+        }
+    }
+
+    // A anomalia de Belady: FIFO com mais molduras pode ter mais faltas, e a curva tem que mostrá-la
+    @Test
+    void fifoMostraAAnomaliaDeBelady() {
+        int[] sequencia = {1, 2, 3, 4, 1, 2, 5, 1, 2, 3, 4, 5};
+        FaultCurve curva = new FaultCurve(new int[] {3, 4});
+        for (int pagina : sequencia) {
+            curva.referencia(pagina);
+        }
+        assertArrayEquals(new long[] {9, 10}, curva.faltasFifo());
+        assertArrayEquals(new long[] {7, 6}, curva.faltasOpt());
+    }
+
+    // Fases com conjuntos de trabalho diferentes e acessos esparsos, para distâncias curtas e longas
+    private static int[] sequencia(Random random, int n, int paginas) {
+        int[] s = new int[n];
+        int base = 0;
+        for (int i = 0; i < n; i++) {
+            if (i % 500 == 0) {
+                base = random.nextInt(paginas);
+            }
+            s[i] = random.nextInt(4) == 0 ? random.nextInt(paginas) : (base + random.nextInt(10)) % paginas;
+        }
+        return s;
+    }
+
+    private static long simulador(int[] sequencia, int molduras, String politica) {
+        PagingSimulator sim = new PagingSimulator(molduras, 128, politica);
+        for (int pagina : sequencia) {
+            sim.referencia(0, pagina, false);
+        }
+        return sim.getFaltas();
+    }
+
+    // Residentes em ordem de uso: a primeira é a menos usada recentemente
+    private static long lru(int[] sequencia, int molduras) {
+        LinkedHashSet<Integer> residentes = new LinkedHashSet<>();
+        long faltas = 0;
+        for (int pagina : sequencia) {
+            if (!residentes.remove(pagina)) {
+                faltas++;
+                if (residentes.size() == molduras) {
+                    residentes.remove(residentes.iterator().next());
+                }
+            }
+            residentes.add(pagina);
+        }
+        return faltas;
+    }
+
+    // Sai a residente cujo próximo uso é o mais distante (ou que não é mais usada)
+    private static long opt(int[] sequencia, int molduras) {
+        List<Integer> residentes = new ArrayList<>();
+        long faltas = 0;
+        for (int i = 0; i < sequencia.length; i++) {
+            if (residentes.contains(sequencia[i])) {
+                continue;
+            }
+            faltas++;
+            if (residentes.size() == molduras) {
+                int vitima = 0;
+                int maisDistante = -1;
+                for (int r = 0; r < residentes.size(); r++) {
+                    int proximo = proximoUso(sequencia, i + 1, residentes.get(r));
+                    if (proximo > maisDistante) {
+                        maisDistante = proximo;
+                        vitima = r;
+                    }
+                }
+                residentes.remove(vitima);
+            }
+            residentes.add(sequencia[i]);
+        }
+        return faltas;
+    }
+
+    private static int proximoUso(int[] sequencia, int de, int pagina) {
+        for (int j = de; j < sequencia.length; j++) {
+            if (sequencia[j] == pagina) {
+                return j;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+}
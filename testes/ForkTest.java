@@ -0,0 +1,81 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// fork (SYSCALL com r8 = 3) compartilha as páginas com cópia na escrita: o que um processo escreve depois
+// do fork não pode aparecer no outro, qualquer que seja a ordem em que os dois executam
+
+class ForkTest {
+
+    private static final int A = 40, B = 41; // Posições de dados, na mesma página que o código
+
+    @Test
+    void escritasDepoisDoForkFicamNoProcessoQueEscreveu() {
+        for (String modo : Maquinas.MODOS) {
+            for (int quantum : new int[] {0, 1, 3, 16}) {
+                Sistema s = Maquinas.sistema(1024, 1024, 64);
+                Maquinas.modo(s, modo);
+                s.hw.cpu.setQuantum(quantum);
+                Sistema.PCB pai = s.so.pm.criaProcesso("fork", programa(s));
+                s.so.pm.executaEmParalelo();
+
+                List<Sistema.PCB> terminados = s.so.pm.getTerminados();
+                assertEquals(2, terminados.size());
+                Sistema.PCB filho = terminados.get(0) == pai ? terminados.get(1) : terminados.get(0);
+                String caso = modo + ", quantum " + quantum;
+                assertEquals(filho.id, pai.reg[8], caso);
+                assertEquals(7, pai.reg[3], caso + ": o pai viu a escrita do filho");
+                assertEquals(7, filho.reg[3], caso);
+                assertEquals(0, filho.reg[5], caso + ": o filho viu a escrita do pai");
+                assertEquals(55, pai.reg[5], caso);
+                s.encerra();
+            }
+        }
+    }
+
+    // A = 7; fork. Pai: B = 55, espera, lê A e B. Filho: A = 99, espera, lê B e A. Cada um relê a posição
+    // que escreveu, e a outra tem que ter o valor de antes do fork
+    private static Sistema.Word[] programa(Sistema s) {
+        List<Sistema.Word> p = new ArrayList<>();
+        p.add(Maquinas.w(s, Sistema.Opcode.LDI, 0, -1, 7));
+        p.add(Maquinas.w(s, Sistema.Opcode.STD, 0, -1, A));
+        p.add(Maquinas.w(s, Sistema.Opcode.LDI, 8, -1, 3));
+        p.add(Maquinas.w(s, Sistema.Opcode.SYSCALL, -1, -1, -1));
+        int desvioFilho = p.size();
+        p.add(null); // LDI r1, início do filho
+        p.add(Maquinas.w(s, Sistema.Opcode.JMPIE, 1, 8, -1));
+
+        p.add(Maquinas.w(s, Sistema.Opcode.LDI, 4, -1, 55)); // Pai
+        p.add(Maquinas.w(s, Sistema.Opcode.STD, 4, -1, B));
+        espera(s, p);
+        p.add(Maquinas.w(s, Sistema.Opcode.LDD, 3, -1, A));
+        p.add(Maquinas.w(s, Sistema.Opcode.LDD, 5, -1, B));
+        p.add(Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1));
+
+        p.set(desvioFilho, Maquinas.w(s, Sistema.Opcode.LDI, 1, -1, p.size()));
+        p.add(Maquinas.w(s, Sistema.Opcode.LDI, 4, -1, 99)); // Filho
+        p.add(Maquinas.w(s, Sistema.Opcode.STD, 4, -1, A));
+        espera(s, p);
+        p.add(Maquinas.w(s, Sistema.Opcode.LDD, 5, -1, B));
+        p.add(Maquinas.w(s, Sistema.Opcode.LDD, 3, -1, A));
+        p.add(Maquinas.w(s, Sistema.Opcode.SUBI, 3, -1, 92)); // 99 - 92 = 7: mesma verificação do pai
+        p.add(Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1));
+
+        while (p.size() <= B) {
+            p.add(Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0));
+        }
+        return p.toArray(new Sistema.Word[0]);
+    }
+
+    // Laço de 50 voltas, para que o outro processo execute no meio com quantum pequeno
+    private static void espera(Sistema s, List<Sistema.Word> p) {
+        p.add(Maquinas.w(s, Sistema.Opcode.LDI, 6, -1, 50));
+        p.add(Maquinas.w(s, Sistema.Opcode.LDI, 7, -1, 1));
+        p.add(Maquinas.w(s, Sistema.Opcode.LDI, 2, -1, p.size() + 1));
+        p.add(Maquinas.w(s, Sistema.Opcode.SUB, 6, 7, -1));
+        p.add(Maquinas.w(s, Sistema.Opcode.JMPIG, 2, 6, -1));
+    }
+}
@@ -0,0 +1,95 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// O bitmap hierárquico devolve as mesmas molduras que uma varredura linear de um vetor de livres: a livre
+// de menor índice, e nas contíguas o menor múltiplo de n com as n molduras livres
+
+class FrameAllocatorTest {
+
+    @Test
+    void confereComVarreduraLinear() {
+        for (int total : new int[] {1, 63, 64, 65, 200, 4096, 5000, 300_000}) {
+            FrameAllocator alocador = new FrameAllocator(total);
+            boolean[] livre = new boolean[total];
+            Arrays.fill(livre, true);
+            List<Integer> ocupadas = new ArrayList<>();
+            Random random = new Random(total);
+            for (int i = 0; i < 20_000; i++) {
+                int operacao = random.nextInt(100);
+                if (operacao < 35) {
+                    int m = alocador.aloca();
+                    assertEquals(contiguas(livre, 1), m, "aloca, total " + total);
+                    ocupa(livre, ocupadas, m, 1);
+                } else if (operacao < 50) {
+                    int n = 1 << random.nextInt(9);
+                    int m = alocador.alocaContiguas(n);
+                    assertEquals(contiguas(livre, n), m, "alocaContiguas(" + n + "), total " + total);
+                    ocupa(livre, ocupadas, m, n);
+                } else if (operacao < 90) {
+                    if (!ocupadas.isEmpty()) {
+                        int m = ocupadas.remove(random.nextInt(ocupadas.size()));
+                        alocador.libera(m);
+                        livre[m] = true;
+                    }
+                } else if (operacao < 99) {
+                    int m = random.nextInt(total);
+                    if (livre[m]) {
+                        alocador.ocupa(m);
+                        ocupa(livre, ocupadas, m, 1);
+                    } else {
+                        assertThrows(IllegalStateException.class, () -> alocador.ocupa(m));
+                    }
+                } else {
+                    alocador.liberaTudo();
+                    Arrays.fill(livre, true);
+                    ocupadas.clear();
+                }
+                if (i % 1000 == 0) {
+                    for (int m = 0; m < total; m++) {
+                        assertEquals(livre[m], alocador.estaLivre(m), "moldura " + m + ", total " + total);
+                    }
+                }
+                assertEquals(ocupadas.size(), total - alocador.livres());
+            }
+        }
+    }
+
+    @Test
+    void usoIncorreto() {
+        FrameAllocator alocador = new FrameAllocator(16);
+        assertThrows(IllegalStateException.class, () -> alocador.libera(3));
+        assertThrows(IllegalArgumentException.class, () -> alocador.alocaContiguas(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> alocador.estaLivre(16));
+        assertEquals(0, alocador.alocaContiguas(16));
+        assertEquals(-1, alocador.aloca());
+        assertEquals(-1, alocador.alocaContiguas(32));
+    }
+
+    // Menor múltiplo de n com n molduras livres, ou -1
+    private static int contiguas(boolean[] livre, int n) {
+        for (int base = 0; base + n <= livre.length; base += n) {
+            int k = 0;
+            while (k < n && livre[base + k]) {
+                k++;
+            }
+            if (k == n) {
+                return base;
+            }
+        }
+        return -1;
+    }
+
+    private static void ocupa(boolean[] livre, List<Integer> ocupadas, int base, int n) {
+        for (int m = base; base >= 0 && m < base + n; m++) {
+            livre[m] = false;
+            ocupadas.add(m);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+import java.util.List;
+
+// Sistemas para os testes, montados como nas medições (benchmarks/Workloads): sem rastro, sem console do SO
+// e com o console de E/S síncrono (execução determinística)
+
+final class Maquinas {
+
+    // Modos de execução da CPU: sob demanda é o caminho do debug (decodifica cada palavra ao buscá-la);
+    // pré-decodificado usa o fluxo decodificado e as superinstruções; compilado, também os blocos em bytecode
+    static final String[] MODOS = {"demanda", "predecodificado", "compilado"};
+
+    private Maquinas() {
+    }
+
+    static Sistema sistema(int tamMemVirtual, int tamMemFisica, int tamPag) {
+        return sistema(tamMemVirtual, tamMemFisica, tamPag, "clock");
+    }
+
+    static Sistema sistema(int tamMemVirtual, int tamMemFisica, int tamPag, String politica) {
+        Sistema s = new Sistema(tamMemVirtual, tamMemFisica, tamPag, politica);
+        s.hw.cpu.setDebug(false);
+        s.setSaida(null);
+        s.hw.console.setSincrono(true);
+        return s;
+    }
+
+    static Sistema sistema(String modo) {
+        Sistema s = sistema(1024, 1024, 16);
+        modo(s, modo);
+        return s;
+    }
+
+    static void modo(Sistema s, String modo) {
+        s.hw.cpu.setPreDecodificado(!modo.equals("demanda"));
+        s.hw.cpu.setCompilacao(modo.equals("compilado") ? 2 : 0);
+    }
+
+    static Sistema.Word w(Sistema s, Sistema.Opcode opc, int ra, int rb, int p) {
+        return s.new Word(opc, ra, rb, p);
+    }
+
+    // Executa o programa num processo novo até o fim e devolve o PCB terminado
+    static Sistema.PCB executa(Sistema s, Sistema.Word... programa) {
+        Sistema.PCB pcb = s.so.pm.criaProcesso("teste", programa);
+        if (pcb == null) {
+            throw new IllegalStateException("Sem memória para o processo");
+        }
+        s.so.pm.executaEmParalelo();
+        List<Sistema.PCB> terminados = s.so.pm.getTerminados();
+        if (!terminados.contains(pcb)) {
+            throw new IllegalStateException("O processo não terminou");
+        }
+        terminados.clear();
+        return pcb;
+    }
+}
@@ -0,0 +1,156 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+// Detector de fluxos e autorregulação da antecipação: páginas sugeridas para faltas com passo constante,
+// profundidade ajustada a cada 32 páginas resolvidas e retomada depois de 64 fluxos sem antecipar
+
+class PagePrefetcherTest {
+
+    @Test
+    void sugereAsProximasPaginasDoFluxo() {
+        PagePrefetcher p = new PagePrefetcher(4);
+        PagePrefetcher.Fluxo f = new PagePrefetcher.Fluxo();
+        int[] sugeridas = new int[8];
+        assertEquals(0, p.observa(f, 10, true, sugeridas));
+        assertEquals(0, p.observa(f, 13, true, sugeridas)); // Passo novo: ainda não confirmado
+        assertEquals(4, p.observa(f, 16, true, sugeridas));
+        assertArrayEquals(new int[] {19, 22, 25, 28}, Arrays.copyOf(sugeridas, 4));
+        assertEquals(0, p.observa(f, 14, true, sugeridas)); // Outro passo recomeça a confirmação
+        assertEquals(4, p.observa(f, 12, true, sugeridas));
+        assertArrayEquals(new int[] {10, 8, 6, 4}, Arrays.copyOf(sugeridas, 4));
+        assertEquals(0, p.observa(f, 12, true, sugeridas)); // Mesma página
+        assertEquals(0, p.observa(f, 200, true, sugeridas)); // Passo maior que PASSO_MAXIMO
+        assertEquals(0, p.observa(f, 390, true, sugeridas));
+        assertEquals(0, p.observa(f, 392, true, sugeridas));
+        assertEquals(2, p.observa(f, 394, true, new int[2])); // Limitado pelo tamanho do vetor
+    }
+
+    @Test
+    void profundidadeCaiComDesperdicioESobeComUso() {
+        PagePrefetcher p = new PagePrefetcher(4);
+        for (int esperada : new int[] {2, 1, 0}) {
+            resolve(p, 0, 32);
+            assertEquals(esperada, p.getProfundidade());
+        }
+        // Desligada: 63 fluxos confirmados não antecipam nada, o 64º volta com profundidade 1
+        PagePrefetcher.Fluxo f = new PagePrefetcher.Fluxo();
+        int[] sugeridas = new int[8];
+        p.observa(f, 0, true, sugeridas);
+        p.observa(f, 1, true, sugeridas);
+        for (int i = 2; i < 65; i++) {
+            assertEquals(0, p.observa(f, i, true, sugeridas), "fluxo " + i);
+        }
+        assertEquals(1, p.observa(f, 65, true, sugeridas));
+        assertEquals(66, sugeridas[0]);
+        assertEquals(1, p.getProfundidade());
+        // Precisão de 3/4 dobra, até o máximo; entre 1/2 e 3/4 não muda
+        for (int esperada : new int[] {2, 4, 4}) {
+            resolve(p, 24, 8);
+            assertEquals(esperada, p.getProfundidade());
+        }
+        resolve(p, 16, 16);
+        assertEquals(4, p.getProfundidade());
+        resolve(p, 15, 17);
+        assertEquals(2, p.getProfundidade());
+    }
+
+    @Test
+    void contadores() {
+        PagePrefetcher p = new PagePrefetcher(4);
+        PagePrefetcher.Fluxo f = new PagePrefetcher.Fluxo();
+        int[] sugeridas = new int[4];
+        for (int pagina = 0; pagina < 5; pagina++) {
+            p.observa(f, pagina, true, sugeridas);
+        }
+        p.observa(f, 5, false, sugeridas); // Primeiro uso de página antecipada não é falta
+        for (int i = 0; i < 6; i++) {
+            p.emitida();
+        }
+        resolve(p, 3, 1);
+        assertEquals(6, p.getEmitidas());
+        assertEquals(3, p.getUsadas());
+        assertEquals(1, p.getDesperdicadas());
+        assertEquals(0.75, p.precisao(), 1e-9);
+        assertEquals(3.0 / 8, p.cobertura(), 1e-9); // 3 usadas, 5 faltas
+        assertEquals(0, new PagePrefetcher(4).precisao());
+        assertEquals(0, new PagePrefetcher(4).cobertura());
+    }
+
+    // Modelo de uso: as páginas antecipadas ficam carregadas até serem referenciadas (usadas) ou até RESIDENTES
+    // outras páginas antecipadas chegarem depois delas (desperdiçadas)
+    @Test
+    void fluxoComPassoMantemAProfundidadeEAcessosAleatoriosAReduzem() {
+        PagePrefetcher p = new PagePrefetcher(8);
+        Modelo m = new Modelo(p);
+        for (int i = 0; i < 2000; i++) {
+            m.acessa(3 * i % 3000);
+        }
+        assertEquals(8, p.getProfundidade());
+        assertTrue(p.precisao() > 0.9, p.toString());
+        assertTrue(p.cobertura() > 0.8, p.toString());
+        long usadas = p.getUsadas();
+        assertEquals(p.getEmitidas(), usadas + p.getDesperdicadas() + m.carregadas.size());
+
+        // Passos aleatórios de até 64 páginas: às vezes o mesmo passo se repete e a antecipação erra
+        Random r = new Random(1);
+        int pagina = 1 << 15;
+        for (int i = 0; i < 100000 && p.getProfundidade() > 0; i++) {
+            pagina = Math.floorMod(pagina + r.nextInt(129) - 64, 1 << 16);
+            m.acessa(pagina);
+        }
+        assertEquals(0, p.getProfundidade(), p.toString());
+        assertTrue(p.getDesperdicadas() > 0);
+        assertEquals(p.getEmitidas(), p.getUsadas() + p.getDesperdicadas() + m.carregadas.size());
+    }
+
+    private static void resolve(PagePrefetcher p, int usadas, int desperdicadas) {
+        for (int i = 0; i < usadas; i++) {
+            p.usada();
+        }
+        for (int i = 0; i < desperdicadas; i++) {
+            p.desperdicada();
+        }
+    }
+
+    static final class Modelo {
+        static final int RESIDENTES = 16;
+        final PagePrefetcher p;
+        final PagePrefetcher.Fluxo f = new PagePrefetcher.Fluxo();
+        final Set<Integer> carregadas = new HashSet<>();
+        final Deque<Integer> ordem = new ArrayDeque<>();
+        final int[] sugeridas = new int[8];
+
+        Modelo(PagePrefetcher p) {
+            this.p = p;
+        }
+
+        void acessa(int pagina) {
+            boolean antecipada = carregadas.remove(pagina);
+            if (antecipada) {
+                ordem.remove(pagina);
+                p.usada();
+            }
+            int n = p.observa(f, pagina, !antecipada, sugeridas);
+            for (int i = 0; i < n; i++) {
+                if (sugeridas[i] != pagina && carregadas.add(sugeridas[i])) {
+                    p.emitida();
+                    ordem.add(sugeridas[i]);
+                    if (ordem.size() > RESIDENTES) {
+                        carregadas.remove(ordem.poll());
+                        p.desperdicada();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PageReplacementPolicyTest {
+
+    // Bits de referência e molduras inelegíveis controlados pelo teste
+    static final class Bits implements PageReplacementPolicy.Referencias {
+        final BitSet referenciadas = new BitSet();
+        final BitSet inelegiveis = new BitSet();
+
+        @Override
+        public boolean referenciada(int moldura) {
+            return referenciadas.get(moldura);
+        }
+
+        @Override
+        public void limpaReferencia(int moldura) {
+            referenciadas.clear(moldura);
+        }
+
+        @Override
+        public boolean elegivel(int moldura) {
+            return !inelegiveis.get(moldura);
+        }
+    }
+
+    @Test
+    void vitimaEstaEmUsoEElegivel() {
+        for (String nome : PageReplacementPolicy.nomes()) {
+            PageReplacementPolicy p = PageReplacementPolicy.cria(nome, 32);
+            Bits bits = new Bits();
+            BitSet emUso = new BitSet();
+            Random random = new Random(7);
+            for (int i = 0; i < 20_000; i++) {
+                int m = random.nextInt(32);
+                switch (random.nextInt(5)) {
+                    case 0:
+                        if (!emUso.get(m)) {
+                            p.carregada(m);
+                            emUso.set(m);
+                        }
+                        break;
+                    case 1:
+                        if (emUso.get(m)) {
+                            p.liberada(m);
+                            emUso.clear(m);
+                        }
+                        break;
+                    case 2:
+                        bits.referenciadas.flip(m);
+                        break;
+                    case 3:
+                        bits.inelegiveis.flip(m);
+                        break;
+                    default:
+                        int vitima = p.escolheVitima(bits);
+                        BitSet candidatas = (BitSet) emUso.clone();
+                        candidatas.andNot(bits.inelegiveis);
+                        if (candidatas.isEmpty()) {
+                            assertEquals(-1, vitima, nome);
+                        } else {
+                            assertTrue(vitima >= 0 && candidatas.get(vitima), nome + ": vítima " + vitima);
+                            emUso.clear(vitima);
+                        }
+                }
+            }
+        }
+    }
+
+    @Test
+    void fifoSegueAOrdemDeCarga() {
+        PageReplacementPolicy p = PageReplacementPolicy.cria("fifo", 8);
+        Bits bits = new Bits();
+        for (int m : new int[] {3, 1, 7, 5}) {
+            p.carregada(m);
+        }
+        bits.referenciadas.set(0, 8); // FIFO ignora referências
+        p.liberada(7);
+        assertEquals(3, p.escolheVitima(bits));
+        assertEquals(1, p.escolheVitima(bits));
+        assertEquals(5, p.escolheVitima(bits));
+        assertEquals(-1, p.escolheVitima(bits));
+    }
+
+    @Test
+    void clockDaSegundaChanceAsReferenciadas() {
+        PageReplacementPolicy p = PageReplacementPolicy.cria("clock", 4);
+        Bits bits = new Bits();
+        for (int m = 0; m < 4; m++) {
+            p.carregada(m);
+        }
+        bits.referenciadas.set(0);
+        bits.referenciadas.set(1);
+        assertEquals(2, p.escolheVitima(bits));
+        assertTrue(!bits.referenciadas.get(0) && !bits.referenciadas.get(1), "bits limpos na passagem do ponteiro");
+        assertEquals(3, p.escolheVitima(bits));
+        assertEquals(0, p.escolheVitima(bits));
+    }
+
+    @Test
+    void lruEscolheAMenosUsadaRecentemente() {
+        PageReplacementPolicy p = PageReplacementPolicy.cria("lru", 3);
+        Bits bits = new Bits();
+        for (int m = 0; m < 3; m++) {
+            p.carregada(m);
+        }
+        bits.referenciadas.set(0);
+        bits.referenciadas.set(2);
+        assertEquals(1, p.escolheVitima(bits));
+        p.carregada(1);
+        bits.referenciadas.set(1);
+        bits.referenciadas.set(2);
+        assertEquals(0, p.escolheVitima(bits));
+    }
+
+    @Test
+    void nfuEscolheAMenosReferenciada() {
+        PageReplacementPolicy p = PageReplacementPolicy.cria("nfu", 3);
+        Bits bits = new Bits();
+        for (int m = 0; m < 3; m++) {
+            p.carregada(m);
+        }
+        p.carregada(2);
+        bits.referenciadas.set(0);
+        bits.referenciadas.set(1);
+        assertEquals(2, p.escolheVitima(bits));
+    }
+
+    // Uma política restaurada do estado de outra escolhe as mesmas vítimas daí em diante
+    @Test
+    void estadoERestauraPreservamAsEscolhas() {
+        for (String nome : PageReplacementPolicy.nomes()) {
+            PageReplacementPolicy original = PageReplacementPolicy.cria(nome, 64);
+            Bits bitsOriginal = new Bits();
+            Random random = new Random(3);
+            exercita(original, bitsOriginal, random, 5_000, null, null);
+
+            PageReplacementPolicy restaurada = PageReplacementPolicy.cria(nome, 64);
+            restaurada.restaura(original.estado());
+            assertArrayEquals(original.estado(), restaurada.estado(), nome);
+            Bits bitsRestaurada = new Bits();
+            bitsRestaurada.referenciadas.or(bitsOriginal.referenciadas);
+
+            exercita(original, bitsOriginal, new Random(11), 5_000, restaurada, bitsRestaurada);
+        }
+    }
+
+    // Operações aleatórias sobre p; com outra != null, as mesmas operações são feitas nela e as vítimas comparadas
+    private static void exercita(PageReplacementPolicy p, Bits bits, Random random, int operacoes,
+            PageReplacementPolicy outra, Bits bitsOutra) {
+        for (int i = 0; i < operacoes; i++) {
+            int m = random.nextInt(64);
+            int operacao = random.nextInt(4);
+            if (operacao == 0) {
+                p.carregada(m);
+                if (outra != null) {
+                    outra.carregada(m);
+                }
+            } else if (operacao == 1) {
+                bits.referenciadas.set(m);
+                if (outra != null) {
+                    bitsOutra.referenciadas.set(m);
+                }
+            } else if (operacao == 2 && random.nextInt(8) == 0) {
+                p.liberada(m);
+                if (outra != null) {
+                    outra.liberada(m);
+                }
+            } else {
+                int vitima = p.escolheVitima(bits);
+                if (outra != null) {
+                    assertEquals(vitima, outra.escolheVitima(bitsOutra), p.nome() + ", operação " + i);
+                }
+            }
+        }
+        if (outra != null) {
+            assertArrayEquals(p.estado(), outra.estado(), p.nome());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Todas as estruturas de tabela de páginas se comportam como um mapa página -> entrada em que 0 é ausência.
+// Comparadas com um mapa de referência sob escritas, remoções, percursos e limpezas aleatórios
+
+class PageTableTest {
+
+    private static final String[] ESTRUTURAS = {"plana", "radix", "radix2", "radix3", "hash"};
+
+    @Test
+    void conferemComMapaDeReferencia() {
+        for (String nome : ESTRUTURAS) {
+            for (int numPaginas : new int[] {1, 5000, 1 << 12}) {
+                confereComReferencia(PageTable.cria(nome, numPaginas, 64), numPaginas, numPaginas);
+            }
+        }
+    }
+
+    // Espaço grande e esparso: só as páginas tocadas ocupam memória nas estruturas esparsas
+    @Test
+    void espacoEsparsoGrande() {
+        for (String nome : new String[] {"radix", "radix3", "hash"}) {
+            PageTable tabela = PageTable.cria(nome, 1 << 24, 256);
+            confereComReferencia(tabela, 1 << 24, 2000);
+        }
+    }
+
+    // Só as folhas são liberadas: com 3 níveis os 4 níveis intermediários tocados (1024 ponteiros cada) ficam
+    @Test
+    void folhasVaziasSaoLiberadas() {
+        for (String nome : new String[] {"radix2", "radix3"}) {
+            PageTable tabela = PageTable.cria(nome, 1 << 22, 64);
+            long vazia = tabela.bytes();
+            for (int pagina = 0; pagina < 1 << 22; pagina += 4099) {
+                tabela.escreve(pagina, pagina + 1);
+            }
+            assertTrue(tabela.bytes() > vazia, nome);
+            for (int pagina = 0; pagina < 1 << 22; pagina += 4099) {
+                tabela.escreve(pagina, PageTableEntry.NAO_MAPEADA);
+            }
+            long meios = nome.equals("radix3") ? 4 * (PageTable.CABECALHO_VETOR + 1024 * PageTable.PONTEIRO) : 0;
+            assertEquals(vazia + meios, tabela.bytes(), nome);
+        }
+    }
+
+    // Operações aleatórias sobre páginas em [0, distintas) espalhadas por [0, numPaginas)
+    private static void confereComReferencia(PageTable tabela, int numPaginas, int distintas) {
+        Random random = new Random(numPaginas);
+        int passo = Math.max(1, numPaginas / distintas);
+        Map<Integer, Integer> referencia = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            int pagina = Math.min(numPaginas - 1, random.nextInt(distintas) * passo);
+            int operacao = random.nextInt(100);
+            if (operacao < 40) {
+                int pte = random.nextInt() | 1;
+                tabela.escreve(pagina, pte);
+                referencia.put(pagina, pte);
+            } else if (operacao < 60) {
+                tabela.escreve(pagina, PageTableEntry.NAO_MAPEADA);
+                referencia.remove(pagina);
+            } else if (operacao < 98) {
+                assertEquals((int) referencia.getOrDefault(pagina, PageTableEntry.NAO_MAPEADA), tabela.le(pagina),
+                        tabela.nome() + ", página " + pagina);
+            } else if (operacao < 99) {
+                confereEntradas(tabela, referencia);
+            } else if (random.nextInt(10) == 0) {
+                tabela.limpa();
+                referencia.clear();
+                confereEntradas(tabela, referencia);
+            }
+        }
+        confereEntradas(tabela, referencia);
+    }
+
+    // percorre visita exatamente as entradas não nulas, cada uma uma vez
+    private static void confereEntradas(PageTable tabela, Map<Integer, Integer> referencia) {
+        Map<Integer, Integer> visitadas = new HashMap<>();
+        tabela.percorre((pagina, pte) -> assertEquals(null, visitadas.put(pagina, pte), "página visitada duas vezes"));
+        assertEquals(referencia, visitadas, tabela.nome());
+    }
+}
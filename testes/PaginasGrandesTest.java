@@ -0,0 +1,117 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+// Páginas grandes (setPaginasGrandes): só os grupos alinhados inteiramente dentro da imagem são mapeados,
+// cada um em molduras contíguas alinhadas, e o processo termina exatamente como sem páginas grandes
+
+class PaginasGrandesTest {
+
+    private static final int TAM_PAG = 16;
+    private static final int TAMANHO = 232; // 14,5 páginas: o último grupo nunca fica inteiro na imagem
+
+    @Test
+    void gruposInteirosMapeadosEmMoldurasContiguas() {
+        for (int porGrande : new int[] {2, 4, 8}) {
+            Sistema s = Maquinas.sistema(1024, 1024, TAM_PAG);
+            s.setPaginasGrandes(porGrande);
+            Sistema.PCB pcb = s.so.pm.criaProcesso("grandes", programa(s));
+            int grupos = TAMANHO / (TAM_PAG * porGrande);
+            Set<Integer> usadas = new HashSet<>();
+            for (int pagina = 0; pagina * TAM_PAG < TAMANHO; pagina++) {
+                int moldura = s.so.mm.molduraGrande(pcb, pagina);
+                String caso = porGrande + " páginas por grande, página " + pagina;
+                if (pagina / porGrande < grupos) {
+                    int base = s.so.mm.molduraGrande(pcb, pagina - pagina % porGrande);
+                    assertEquals(0, base % porGrande, caso);
+                    assertEquals(base + pagina % porGrande, moldura, caso);
+                    assertEquals(PageTableEntry.NAO_MAPEADA, pcb.tabelaDePaginas.le(pagina), caso);
+                    assertTrue(usadas.add(moldura), caso + ": moldura repetida");
+                } else {
+                    assertEquals(-1, moldura, caso);
+                }
+            }
+            assertEquals(grupos * porGrande, usadas.size());
+            s.so.pm.executaEmParalelo();
+            assertNull(pcb.grandes);
+            s.encerra();
+        }
+    }
+
+    // Referência: o mesmo programa sem páginas grandes, no caminho sob demanda. Cada sistema executa o
+    // programa duas vezes, a segunda nas molduras devolvidas pela primeira
+    @Test
+    void mesmoResultadoQueSemPaginasGrandes() {
+        Sistema ref = Maquinas.sistema(1024, 1024, TAM_PAG);
+        Sistema.PCB esperado = executa(ref);
+        assertEquals(Sistema.Interrupts.intSTOP, esperado.motivoTermino);
+        assertEquals(15150, esperado.reg[2]); // Soma de 100 a 200
+        for (String modo : Maquinas.MODOS) {
+            for (int porGrande : new int[] {1, 2, 4, 8, 16}) {
+                for (int tamMemFisica : new int[] {256, 1024}) {
+                    if (porGrande * TAM_PAG > tamMemFisica) {
+                        continue;
+                    }
+                    Sistema s = Maquinas.sistema(1024, tamMemFisica, TAM_PAG);
+                    Maquinas.modo(s, modo);
+                    s.setPaginasGrandes(porGrande);
+                    for (int vez = 1; vez <= 2; vez++) {
+                        Sistema.PCB pcb = executa(s);
+                        String caso = modo + ", " + porGrande + " páginas por grande, " + tamMemFisica + " palavras, execução " + vez;
+                        assertEquals(esperado.motivoTermino, pcb.motivoTermino, caso);
+                        assertEquals(esperado.pc, pcb.pc, caso);
+                        assertArrayEquals(esperado.reg, pcb.reg, caso);
+                        assertArrayEquals(esperado.memoriaFinal, pcb.memoriaFinal, caso);
+                    }
+                    assertEquals(2 * ref.hw.cpu.getInstrucoes(), s.hw.cpu.getInstrucoes(), modo + ", " + porGrande);
+                    s.encerra();
+                }
+            }
+        }
+        ref.encerra();
+    }
+
+    private static Sistema.PCB executa(Sistema s) {
+        Sistema.PCB pcb = s.so.pm.criaProcesso("grandes", programa(s));
+        pcb.guardaMemoria = true;
+        s.so.pm.executaEmParalelo();
+        assertTrue(s.so.pm.getTerminados().remove(pcb));
+        return pcb;
+    }
+
+    // mem[i] = i para i de 200 até 100, depois r2 = soma de mem[100..200]; o resto da imagem é dado
+    private static Sistema.Word[] programa(Sistema s) {
+        Sistema.Word[] codigo = {
+            Maquinas.w(s, Sistema.Opcode.LDI, 0, -1, 200),
+            Maquinas.w(s, Sistema.Opcode.LDI, 3, -1, 3),
+            Maquinas.w(s, Sistema.Opcode.LDI, 2, -1, 0),
+            Maquinas.w(s, Sistema.Opcode.STX, 0, 0, -1),    // 3
+            Maquinas.w(s, Sistema.Opcode.SUBI, 0, -1, 1),
+            Maquinas.w(s, Sistema.Opcode.LDI, 4, -1, 0),
+            Maquinas.w(s, Sistema.Opcode.ADD, 4, 0, -1),
+            Maquinas.w(s, Sistema.Opcode.SUBI, 4, -1, 99),
+            Maquinas.w(s, Sistema.Opcode.JMPIG, 3, 4, -1),
+            Maquinas.w(s, Sistema.Opcode.LDI, 0, -1, 200),
+            Maquinas.w(s, Sistema.Opcode.LDI, 3, -1, 11),
+            Maquinas.w(s, Sistema.Opcode.LDX, 1, 0, -1),    // 11
+            Maquinas.w(s, Sistema.Opcode.ADD, 2, 1, -1),
+            Maquinas.w(s, Sistema.Opcode.SUBI, 0, -1, 1),
+            Maquinas.w(s, Sistema.Opcode.LDI, 4, -1, 0),
+            Maquinas.w(s, Sistema.Opcode.ADD, 4, 0, -1),
+            Maquinas.w(s, Sistema.Opcode.SUBI, 4, -1, 99),
+            Maquinas.w(s, Sistema.Opcode.JMPIG, 3, 4, -1),
+            Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1)
+        };
+        Sistema.Word[] p = new Sistema.Word[TAMANHO];
+        for (int i = 0; i < p.length; i++) {
+            p[i] = i < codigo.length ? codigo[i] : Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0);
+        }
+        return p;
+    }
+}
@@ -0,0 +1,127 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProgramImageTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void gravadaELidaCarregaEExecuta() throws IOException {
+        Sistema s = Maquinas.sistema("predecodificado");
+        Path arquivo = dir.resolve("progs.img");
+        ProgramImage.grava(arquivo, List.of(s.progs.imagem("soma", new Sistema.Word[] {
+            Maquinas.w(s, Sistema.Opcode.LDI, 1, -1, 20),
+            Maquinas.w(s, Sistema.Opcode.ADDI, 1, -1, 22),
+            Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1)
+        })));
+        Map<String, ProgramImage> imagens = ProgramImage.le(arquivo);
+        Sistema.PCB pcb = s.so.pm.criaProcesso("soma", imagens.get("soma"));
+        assertNotNull(pcb);
+        s.so.pm.executaEmParalelo();
+        assertEquals(42, pcb.reg[1]);
+        s.encerra();
+    }
+
+    // Opcodes acima de STOP (os das superinstruções, ou lixo) não podem chegar à CPU
+    @Test
+    void opcodeInvalidoRejeitadoNaCarga() {
+        for (int opc : new int[] {Sistema.OP_STOP + 1, Sistema.OP_LDI0_ADD, 200, 255}) {
+            Sistema s = Maquinas.sistema(1024, 1024, 16);
+            ByteArrayOutputStream saida = new ByteArrayOutputStream();
+            s.setSaida(new PrintStream(saida, true, StandardCharsets.UTF_8));
+            long stop = (long) Sistema.OP_STOP << 48;
+            long[] palavras = new long[40];
+            palavras[0] = (long) Sistema.OP_LDI << 48;
+            palavras[33] = (long) opc << 48; // Na terceira página
+            palavras[39] = stop;
+            assertNull(s.so.pm.criaProcesso("invalido", ProgramImage.de("invalido", palavras)), "opcode " + opc);
+            assertTrue(saida.toString(StandardCharsets.UTF_8).contains("opcode inválido " + opc + " no endereço 33"), saida.toString());
+            s.encerra();
+        }
+    }
+
+    // Qualquer prefixo de um arquivo válido é rejeitado com a mesma mensagem, sem estourar outra exceção
+    @Test
+    void arquivoTruncadoRejeitado() throws IOException {
+        Sistema s = Maquinas.sistema(1024, 1024, 16);
+        Path arquivo = dir.resolve("progs.img");
+        ProgramImage.grava(arquivo, List.of(s.progs.retrieveProgram("fatorial"), s.progs.retrieveProgram("PC")));
+        s.encerra();
+        byte[] completo = Files.readAllBytes(arquivo);
+        assertEquals(2, ProgramImage.le(arquivo).size());
+        Path truncado = dir.resolve("truncado.img");
+        for (int tamanho = 0; tamanho < completo.length; tamanho++) {
+            Files.write(truncado, Arrays.copyOf(completo, tamanho));
+            rejeitado(truncado, "tamanho " + tamanho);
+        }
+    }
+
+    // Contagens e tamanhos negativos, maiores que o arquivo ou que estouram um int
+    @Test
+    void arquivoCorrompidoRejeitado() throws IOException {
+        int max = Integer.MAX_VALUE;
+        int[][] casos = {
+            // {mágico, programas, bss, segmentos, início, palavras}; só o primeiro é válido
+            {ProgramImage.MAGICO, 1, 0, 1, 0, 1},
+            {0x12345678, 1, 0, 1, 0, 1},
+            {ProgramImage.MAGICO, -1, 0, 1, 0, 1},
+            {ProgramImage.MAGICO, max, 0, 1, 0, 1},
+            {ProgramImage.MAGICO, 1, -1, 1, 0, 1},
+            {ProgramImage.MAGICO, 1, max, 1, 0, 1},
+            {ProgramImage.MAGICO, 1, 0, -1, 0, 1},
+            {ProgramImage.MAGICO, 1, 0, max, 0, 1},
+            {ProgramImage.MAGICO, 1, 0, 1, -5, 1},
+            {ProgramImage.MAGICO, 1, 0, 1, max, 1},
+            {ProgramImage.MAGICO, 1, 0, 1, 0, -1},
+            {ProgramImage.MAGICO, 1, 0, 1, 0, 2},
+            {ProgramImage.MAGICO, 1, 0, 1, 0, max},
+            {ProgramImage.MAGICO, 1, 0, 1, 0, 1 << 29}, // palavras * 8 estoura um int
+        };
+        for (int[] c : casos) {
+            Path arquivo = dir.resolve("corrompido.img");
+            boolean valido = c == casos[0];
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(c[0]);
+                out.writeInt(ProgramImage.VERSAO);
+                out.writeInt(c[1]);
+                out.writeShort(1);
+                out.write('p');
+                out.writeInt(c[2]);
+                out.writeInt(c[3]);
+                out.writeInt(c[4]);
+                out.writeInt(c[5]);
+                out.writeLong((long) Sistema.OP_STOP << 48); // Uma palavra de segmento
+            }
+            Files.write(arquivo, bytes.toByteArray());
+            if (valido) {
+                assertEquals(1, ProgramImage.le(arquivo).get("p").tamanho());
+            } else {
+                rejeitado(arquivo, Arrays.toString(c));
+            }
+        }
+    }
+
+    private static void rejeitado(Path arquivo, String caso) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ProgramImage.le(arquivo), caso);
+        assertTrue(e.getMessage().startsWith("Arquivo não é uma imagem de programas válida"), caso + ": " + e.getMessage());
+    }
+}
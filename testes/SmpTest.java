@@ -0,0 +1,141 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// Com várias CPUs a ordem de execução muda, mas não o resultado: cada processo termina pelo mesmo motivo e
+// escreve os mesmos valores que com uma CPU só. Vale para todas as políticas, com antecipação de páginas,
+// com fork e com pouca memória, quando as vítimas possíveis estão em uso em outras CPUs e os processos
+// esperam molduras (intEsperaMemoria)
+
+class SmpTest {
+
+    @Test
+    void mesmoResultadoQueComUmaCpu() {
+        for (String politica : PageReplacementPolicy.nomes()) {
+            for (int antecipacao : new int[] {0, 4}) {
+                List<String> referencia = executa(1, 1024, politica, antecipacao, 7, false).resultados;
+                for (int cpus : new int[] {2, 4, 8}) {
+                    assertEquals(referencia, executa(cpus, 1024, politica, antecipacao, 7, false).resultados,
+                            cpus + " CPUs, " + politica + ", antecipação " + antecipacao);
+                }
+            }
+        }
+    }
+
+    // 4 molduras para 8 CPUs: as molduras dos processos em execução nas outras CPUs não podem ser vítimas.
+    // Sem quantum, o processo que varre as 4 páginas fica com todas as molduras enquanto roda, e as outras
+    // CPUs que faltarem nesse meio tempo têm de esperar
+    @Test
+    void poucaMemoriaEsperaMoldurasEmVezDeFalhar() {
+        List<String> referencia = executa(1, 64, "clock", 0, 0, true).resultados;
+        long esperas = 0;
+        for (int i = 0; i < 10 && esperas == 0; i++) { // Ainda depende de as threads se sobreporem
+            Execucao e = executa(8, 64, "clock", 0, 0, true);
+            assertEquals(referencia, e.resultados, "execução " + i);
+            esperas = e.esperasPorMemoria;
+        }
+        assertTrue(esperas > 0, "nenhum processo esperou molduras");
+    }
+
+    static final class Execucao {
+        final List<String> resultados = new ArrayList<>();
+        long esperasPorMemoria;
+    }
+
+    private static Execucao executa(int cpus, int tamMemFisica, String politica, int antecipacao, int quantum,
+            boolean varredura) {
+        Sistema s = Maquinas.sistema(1024, tamMemFisica, 16, politica);
+        s.hw.console.setEntrada(InputSource.cria("valores:7,7,7,7,7,7,7,7,7,7,7,7,7,7,7,7"));
+        s.hw.cpu.setQuantum(quantum);
+        s.so.mm.setAntecipacao(antecipacao);
+        s.setCpus(cpus);
+        if (varredura) { // Primeiro, para já estar rodando quando as outras CPUs começarem
+            s.so.pm.criaProcesso("varredura", varredura(s)).guardaMemoria = true;
+        }
+        for (String nome : s.progs.nomes()) {
+            s.so.pm.criaProcesso(nome, s.progs.retrieveProgram(nome)).guardaMemoria = true;
+        }
+        for (int i = 0; i < 3; i++) {
+            s.so.pm.criaProcesso("fork", forkComSaida(s, i)).guardaMemoria = true;
+        }
+        s.so.pm.executaEmParalelo();
+        Execucao e = new Execucao();
+        for (Sistema.PCB pcb : s.so.pm.getTerminados()) {
+            e.resultados.add(pcb.nome + " " + pcb.motivoTermino + " " + pcb.saidas + " " + Arrays.toString(dados(pcb.memoriaFinal)));
+        }
+        Collections.sort(e.resultados); // Os ids dos filhos e a ordem de término dependem do escalonamento
+        e.esperasPorMemoria = s.so.pm.getEsperasPorMemoria();
+        s.encerra();
+        return e;
+    }
+
+    // Só os valores: ra e rb das palavras de dados dependem de onde a palavra estava antes
+    private static int[] dados(long[] memoria) {
+        int[] d = new int[memoria == null ? 0 : memoria.length];
+        for (int i = 0; i < d.length; i++) {
+            d[i] = (int) memoria[i];
+        }
+        return d;
+    }
+
+    // Escreve v, faz fork; o pai escreve 100 + v e o filho 200 + v, cada um depois de mudar a mesma posição
+    private static Sistema.Word[] forkComSaida(Sistema s, int v) {
+        int dado = 30;
+        return new Sistema.Word[] {
+            Maquinas.w(s, Sistema.Opcode.LDI, 0, -1, v),
+            Maquinas.w(s, Sistema.Opcode.STD, 0, -1, dado),
+            Maquinas.w(s, Sistema.Opcode.LDI, 8, -1, 2),
+            Maquinas.w(s, Sistema.Opcode.LDI, 9, -1, dado),
+            Maquinas.w(s, Sistema.Opcode.SYSCALL, -1, -1, -1), // OUT v
+            Maquinas.w(s, Sistema.Opcode.LDI, 8, -1, 3),
+            Maquinas.w(s, Sistema.Opcode.SYSCALL, -1, -1, -1), // fork
+            Maquinas.w(s, Sistema.Opcode.LDI, 1, -1, 12),
+            Maquinas.w(s, Sistema.Opcode.JMPIE, 1, 8, -1),
+            Maquinas.w(s, Sistema.Opcode.LDI, 0, -1, 100 + v), // Pai
+            Maquinas.w(s, Sistema.Opcode.LDI, 1, -1, 13),
+            Maquinas.w(s, Sistema.Opcode.JMP, -1, -1, 13),
+            Maquinas.w(s, Sistema.Opcode.LDI, 0, -1, 200 + v), // Filho (12)
+            Maquinas.w(s, Sistema.Opcode.STD, 0, -1, dado),    // 13
+            Maquinas.w(s, Sistema.Opcode.LDI, 8, -1, 2),
+            Maquinas.w(s, Sistema.Opcode.LDI, 9, -1, dado),
+            Maquinas.w(s, Sistema.Opcode.SYSCALL, -1, -1, -1),
+            Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1),
+            Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0), Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0),
+            Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0), Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0),
+            Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0), Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0),
+            Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0), Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0),
+            Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0), Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0),
+            Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0), Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0),
+            Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0)
+        };
+    }
+
+    // Escreve nas páginas 1, 2 e 3 a cada volta de um laço de 60 x 20000 voltas e depois para
+    private static Sistema.Word[] varredura(Sistema s) {
+        Sistema.Word[] p = new Sistema.Word[64];
+        Sistema.Word[] codigo = {
+            Maquinas.w(s, Sistema.Opcode.LDI, 0, -1, 60),
+            Maquinas.w(s, Sistema.Opcode.LDI, 1, -1, 20000),   // 1
+            Maquinas.w(s, Sistema.Opcode.STD, 1, -1, 20),      // 2
+            Maquinas.w(s, Sistema.Opcode.STD, 1, -1, 36),
+            Maquinas.w(s, Sistema.Opcode.STD, 1, -1, 52),
+            Maquinas.w(s, Sistema.Opcode.SUBI, 1, -1, 1),
+            Maquinas.w(s, Sistema.Opcode.LDI, 2, -1, 2),
+            Maquinas.w(s, Sistema.Opcode.JMPIG, 2, 1, -1),
+            Maquinas.w(s, Sistema.Opcode.SUBI, 0, -1, 1),
+            Maquinas.w(s, Sistema.Opcode.LDI, 2, -1, 1),
+            Maquinas.w(s, Sistema.Opcode.JMPIG, 2, 0, -1),
+            Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1)
+        };
+        for (int i = 0; i < p.length; i++) {
+            p[i] = i < codigo.length ? codigo[i] : Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0);
+        }
+        return p;
+    }
+}
@@ -0,0 +1,104 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Parar, gravar o instantâneo, restaurá-lo num Sistema novo e continuar dá o mesmo resultado que a execução
+// sem interrupção: registradores, pc e memória final de cada processo, e o total de instruções. Com pouca
+// memória física, parte das páginas está em swap no instantâneo
+
+class SnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void restauradoTerminaComoAExecucaoContinua() {
+        Map<String, Sistema.PCB> referencia = new TreeMap<>();
+        Sistema s = maquina();
+        for (Sistema.PCB pcb : executa(s)) {
+            referencia.put(pcb.nome, pcb);
+        }
+        long instrucoes = s.hw.cpu.getInstrucoes();
+        s.encerra();
+
+        for (long parada : new long[] {1, 60, instrucoes / 2, instrucoes - 20}) {
+            Map<String, Sistema.PCB> terminados = new TreeMap<>();
+            Sistema antes = maquina();
+            antes.so.pm.setParada(parada);
+            for (Sistema.PCB pcb : executa(antes)) {
+                terminados.put(pcb.nome, pcb);
+            }
+            assertTrue(antes.so.pm.parou(), "parada " + parada);
+            Path arquivo = dir.resolve("instantaneo-" + parada);
+            antes.gravaInstantaneo(arquivo);
+            antes.encerra();
+
+            Sistema depois = Sistema.restauraInstantaneo(arquivo);
+            depois.hw.cpu.setDebug(false);
+            depois.setSaida(null);
+            depois.hw.console.setSincrono(true);
+            depois.continua();
+            for (Sistema.PCB pcb : depois.so.pm.getTerminados()) {
+                terminados.put(pcb.nome, pcb);
+            }
+
+            assertEquals(referencia.keySet(), terminados.keySet(), "parada " + parada);
+            for (Sistema.PCB esperado : referencia.values()) {
+                Sistema.PCB pcb = terminados.get(esperado.nome);
+                String caso = esperado.nome + ", parada " + parada;
+                assertArrayEquals(esperado.reg, pcb.reg, caso);
+                assertEquals(esperado.pc, pcb.pc, caso);
+                assertArrayEquals(esperado.memoriaFinal, pcb.memoriaFinal, caso);
+            }
+            assertEquals(instrucoes, depois.hw.cpu.getInstrucoes(), "parada " + parada);
+            depois.encerra();
+        }
+    }
+
+    // 8 molduras para três processos de 5 ou 6 páginas
+    private static Sistema maquina() {
+        Sistema s = Maquinas.sistema(1024, 128, 16);
+        Maquinas.modo(s, "predecodificado");
+        s.hw.cpu.setQuantum(5);
+        s.so.pm.criaProcesso("a", preenche(s, 20, 60, 1)).guardaMemoria = true;
+        s.so.pm.criaProcesso("b", preenche(s, 30, 50, 100)).guardaMemoria = true;
+        s.so.pm.criaProcesso("c", preenche(s, 16, 70, 7)).guardaMemoria = true;
+        return s;
+    }
+
+    private static List<Sistema.PCB> executa(Sistema s) {
+        s.so.pm.executaEmParalelo();
+        List<Sistema.PCB> terminados = new ArrayList<>(s.so.pm.getTerminados());
+        s.so.pm.getTerminados().clear();
+        return terminados;
+    }
+
+    // Escreve v, v + 3, v + 6, ... em n posições a partir de inicio
+    private static Sistema.Word[] preenche(Sistema s, int inicio, int n, int v) {
+        List<Sistema.Word> p = new ArrayList<>(List.of(
+                Maquinas.w(s, Sistema.Opcode.LDI, 0, -1, inicio),
+                Maquinas.w(s, Sistema.Opcode.LDI, 1, -1, v),
+                Maquinas.w(s, Sistema.Opcode.LDI, 3, -1, n),
+                Maquinas.w(s, Sistema.Opcode.LDI, 4, -1, 1),
+                Maquinas.w(s, Sistema.Opcode.LDI, 5, -1, 5),
+                Maquinas.w(s, Sistema.Opcode.STX, 0, 1, -1),
+                Maquinas.w(s, Sistema.Opcode.ADDI, 0, -1, 1),
+                Maquinas.w(s, Sistema.Opcode.ADDI, 1, -1, 3),
+                Maquinas.w(s, Sistema.Opcode.SUB, 3, 4, -1),
+                Maquinas.w(s, Sistema.Opcode.JMPIG, 5, 3, -1),
+                Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1)));
+        while (p.size() < inicio + n) {
+            p.add(Maquinas.w(s, Sistema.Opcode.DATA, -1, -1, 0));
+        }
+        return p.toArray(new Sistema.Word[0]);
+    }
+}
@@ -0,0 +1,83 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+// As superinstruções (e os blocos compilados) só existem no fluxo pré-decodificado: o resultado tem que ser
+// o mesmo do caminho sob demanda, que executa as instruções originais uma a uma
+
+class SuperinstrucoesTest {
+
+    // LDI r1,0 + ADD r1,r1 não é uma cópia: o ADD soma o 0 recém-carregado
+    @Test
+    void ldiZeroSeguidoDeAddNoMesmoRegistradorZera() {
+        for (String modo : Maquinas.MODOS) {
+            Sistema s = Maquinas.sistema(modo);
+            Sistema.PCB pcb = Maquinas.executa(s,
+                    Maquinas.w(s, Sistema.Opcode.LDI, 1, -1, 7),
+                    Maquinas.w(s, Sistema.Opcode.LDI, 1, -1, 0),
+                    Maquinas.w(s, Sistema.Opcode.ADD, 1, 1, -1),
+                    Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1));
+            assertEquals(0, pcb.reg[1], modo);
+            s.encerra();
+        }
+    }
+
+    @Test
+    void registradoresFinaisIguaisAoCaminhoSobDemanda() {
+        for (int programa = 0; programa < 3; programa++) {
+            int[] referencia = null;
+            for (String modo : Maquinas.MODOS) {
+                Sistema s = Maquinas.sistema(modo);
+                int[] reg = Maquinas.executa(s, programa(s, programa)).reg.clone();
+                if (referencia == null) {
+                    referencia = reg;
+                } else {
+                    assertArrayEquals(referencia, reg, modo + ", programa " + programa);
+                }
+                s.encerra();
+            }
+        }
+    }
+
+    private static Sistema.Word[] programa(Sistema s, int n) {
+        switch (n) {
+            case 0: // Cópia de registrador: LDI rX,0 + ADD rX,rY
+                return new Sistema.Word[] {
+                    Maquinas.w(s, Sistema.Opcode.LDI, 2, -1, 5),
+                    Maquinas.w(s, Sistema.Opcode.LDI, 3, -1, 6),
+                    Maquinas.w(s, Sistema.Opcode.LDI, 1, -1, 0),
+                    Maquinas.w(s, Sistema.Opcode.ADD, 1, 2, -1),
+                    Maquinas.w(s, Sistema.Opcode.LDI, 3, -1, 0),
+                    Maquinas.w(s, Sistema.Opcode.ADD, 3, 3, -1),
+                    Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1)
+                };
+            case 1: // Preenche um vetor: STX + ADDI e SUB + JMPIG no laço
+                return new Sistema.Word[] {
+                    Maquinas.w(s, Sistema.Opcode.LDI, 0, -1, 40),
+                    Maquinas.w(s, Sistema.Opcode.LDI, 1, -1, 9),
+                    Maquinas.w(s, Sistema.Opcode.LDI, 3, -1, 20),
+                    Maquinas.w(s, Sistema.Opcode.LDI, 4, -1, 1),
+                    Maquinas.w(s, Sistema.Opcode.LDI, 5, -1, 5),
+                    Maquinas.w(s, Sistema.Opcode.STX, 0, 1, -1),
+                    Maquinas.w(s, Sistema.Opcode.ADDI, 0, -1, 1),
+                    Maquinas.w(s, Sistema.Opcode.SUB, 3, 4, -1),
+                    Maquinas.w(s, Sistema.Opcode.JMPIG, 5, 3, -1),
+                    Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1)
+                };
+            default: // Conta até zerar com SUB + JMPIE, copiando o contador a cada volta
+                return new Sistema.Word[] {
+                    Maquinas.w(s, Sistema.Opcode.LDI, 0, -1, 30),
+                    Maquinas.w(s, Sistema.Opcode.LDI, 1, -1, 1),
+                    Maquinas.w(s, Sistema.Opcode.LDI, 2, -1, 9),
+                    Maquinas.w(s, Sistema.Opcode.LDI, 4, -1, 4),
+                    Maquinas.w(s, Sistema.Opcode.LDI, 3, -1, 0),
+                    Maquinas.w(s, Sistema.Opcode.ADD, 3, 0, -1),
+                    Maquinas.w(s, Sistema.Opcode.SUB, 0, 1, -1),
+                    Maquinas.w(s, Sistema.Opcode.JMPIE, 2, 0, -1),
+                    Maquinas.w(s, Sistema.Opcode.JMP, -1, -1, 4),
+                    Maquinas.w(s, Sistema.Opcode.STOP, -1, -1, -1)
+                };
+        }
+    }
+}
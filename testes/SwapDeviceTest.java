@@ -0,0 +1,107 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// O swap se comporta como um mapa slot -> página: o conteúdo lido é o último gravado (ou o da origem, nos
+// slots herdados de um instantâneo), slots liberados voltam a ser alocados e slots em regiões mapeadas
+// diferentes não se sobrepõem
+
+class SwapDeviceTest {
+
+    private static final int TAM_PAG = 16;
+
+    @Test
+    void confereComMapaDeReferencia() {
+        SwapDevice.Origem origem = (indice, destino, base) -> Arrays.fill(destino, base, base + TAM_PAG, -indice);
+        try (SwapDevice swap = SwapDevice.temporario(TAM_PAG, 300)) {
+            Map<Integer, long[]> referencia = new HashMap<>();
+            List<Integer> usados = new ArrayList<>();
+            Random random = new Random(1);
+            long escritas = 0;
+            long lidas = 0;
+            long[] pagina = new long[TAM_PAG];
+            for (int i = 0; i < 20_000; i++) {
+                int operacao = random.nextInt(100);
+                if (operacao < 25) {
+                    int slot = swap.alocaSlot();
+                    assertEquals(usados.size() == 300, slot == -1);
+                    if (slot >= 0) {
+                        assertTrue(!referencia.containsKey(slot), "slot " + slot + " alocado duas vezes");
+                        usados.add(slot);
+                        referencia.put(slot, null); // Conteúdo indefinido até a primeira gravação
+                    }
+                } else if (operacao < 30) {
+                    int slot = random.nextInt(300);
+                    if (!referencia.containsKey(slot)) {
+                        int indice = random.nextInt(1000) + 1;
+                        swap.herda(slot, origem, indice);
+                        usados.add(slot);
+                        long[] herdada = new long[TAM_PAG];
+                        Arrays.fill(herdada, -indice);
+                        referencia.put(slot, herdada);
+                    }
+                } else if (operacao < 50 && !usados.isEmpty()) {
+                    int slot = usados.get(random.nextInt(usados.size()));
+                    for (int k = 0; k < TAM_PAG; k++) {
+                        pagina[k] = random.nextLong();
+                    }
+                    swap.escrevePagina(slot, pagina, 0);
+                    escritas++;
+                    referencia.put(slot, pagina.clone());
+                } else if (operacao < 80 && !usados.isEmpty()) {
+                    int slot = usados.get(random.nextInt(usados.size()));
+                    if (referencia.get(slot) != null) {
+                        long[] lida = new long[TAM_PAG + 3];
+                        swap.lePagina(slot, lida, 3);
+                        lidas++;
+                        assertArrayEquals(referencia.get(slot), Arrays.copyOfRange(lida, 3, lida.length), "slot " + slot);
+                    }
+                } else if (!usados.isEmpty()) {
+                    int slot = usados.remove(random.nextInt(usados.size()));
+                    swap.liberaSlot(slot);
+                    referencia.remove(slot);
+                }
+                assertEquals(300 - usados.size(), swap.slotsLivres());
+            }
+            for (int slot = 0; slot < 300; slot++) {
+                assertEquals(referencia.containsKey(slot), swap.slotUsado(slot), "slot " + slot);
+            }
+            assertEquals(escritas, swap.getPaginasEscritas());
+            assertEquals(lidas, swap.getPaginasLidas());
+        }
+    }
+
+    // Páginas de 16 MiB: 64 slots por região de 1 GiB, então 130 slots ocupam 3 regiões. Os slots nas
+    // bordas das regiões guardam páginas distintas
+    @Test
+    void slotsEmRegioesDiferentes() {
+        int tamPag = 1 << 21;
+        int[] bordas = {0, 63, 64, 127, 128, 129};
+        try (SwapDevice swap = SwapDevice.temporario(tamPag, 130)) {
+            for (int slot = 0; slot < 130; slot++) {
+                assertEquals(slot, swap.alocaSlot());
+            }
+            long[] pagina = new long[tamPag];
+            for (int slot : bordas) {
+                Arrays.fill(pagina, slot + 1);
+                pagina[tamPag - 1] = -slot;
+                swap.escrevePagina(slot, pagina, 0);
+            }
+            for (int slot : bordas) {
+                swap.lePagina(slot, pagina, 0);
+                assertEquals(slot + 1, pagina[0], "slot " + slot);
+                assertEquals(slot + 1, pagina[tamPag / 2], "slot " + slot);
+                assertEquals(-slot, pagina[tamPag - 1], "slot " + slot);
+            }
+        }
+    }
+}
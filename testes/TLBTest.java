@@ -0,0 +1,87 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// A TLB é uma cache: toda busca que acerta deve devolver o último valor inserido para a página, e nada
+// invalidado (ou anterior a um flush) pode voltar. Comparada com um mapa de referência sob operações aleatórias
+
+class TLBTest {
+
+    @Test
+    void acertosConferemComMapaDeReferencia() {
+        for (TLB.Substituicao substituicao : TLB.Substituicao.values()) {
+            for (int[] config : new int[][] {{16, 4}, {8, 8}, {32, 1}}) {
+                confereComReferencia(new TLB(config[0], config[1], substituicao), 64, 1);
+            }
+        }
+    }
+
+    @Test
+    void totalmenteAssociativaGuardaTodasAsPaginasQueCabem() {
+        TLB tlb = new TLB(8, 8, TLB.Substituicao.LRU);
+        for (int pagina = 0; pagina < 8; pagina++) {
+            tlb.insere(pagina * 37, pagina);
+        }
+        for (int pagina = 0; pagina < 8; pagina++) {
+            assertEquals(pagina, tlb.busca(pagina * 37));
+        }
+        assertEquals(8, tlb.getAcertos());
+    }
+
+    @Test
+    void lruSubstituiAMenosUsadaDoConjunto() {
+        TLB tlb = new TLB(2, 2, TLB.Substituicao.LRU);
+        tlb.insere(1, 10);
+        tlb.insere(2, 20);
+        tlb.busca(1);
+        tlb.insere(3, 30);
+        assertEquals(10, tlb.busca(1));
+        assertEquals(-1, tlb.busca(2));
+        assertEquals(30, tlb.busca(3));
+    }
+
+    @Test
+    void invalidaEFlushRemovemEntradas() {
+        TLB tlb = new TLB(16, 4, TLB.Substituicao.LRU);
+        tlb.insere(5, 50);
+        tlb.insere(6, 60);
+        tlb.invalida(5);
+        assertEquals(-1, tlb.busca(5));
+        assertEquals(60, tlb.busca(6));
+        tlb.flush();
+        assertEquals(-1, tlb.busca(6));
+    }
+
+    private static void confereComReferencia(TLB tlb, int paginas, long semente) {
+        Random random = new Random(semente);
+        Map<Integer, Integer> referencia = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            int pagina = random.nextInt(paginas);
+            int operacao = random.nextInt(10);
+            if (operacao < 5) {
+                int valor = tlb.busca(pagina);
+                if (valor != -1) {
+                    assertEquals(referencia.get(pagina), valor, tlb + ", página " + pagina);
+                }
+            } else if (operacao < 9) {
+                int valor = random.nextInt(1 << 20);
+                tlb.insere(pagina, valor);
+                referencia.put(pagina, valor);
+                assertEquals(valor, tlb.busca(pagina), "recém-inserida");
+            } else if (random.nextInt(50) == 0) {
+                tlb.flush();
+                referencia.clear();
+            } else {
+                tlb.invalida(pagina);
+                referencia.remove(pagina);
+                assertEquals(-1, tlb.busca(pagina));
+            }
+        }
+        assertTrue(tlb.getAcertos() > 0);
+    }
+}
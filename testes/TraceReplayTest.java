@@ -0,0 +1,96 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Ida e volta do rastro binário: TraceReplay lê os mesmos registros, na mesma ordem, que TraceRecorder
+// gravou, e a reprodução no PagingSimulator é igual à de quem alimenta o simulador com esses registros
+
+class TraceReplayTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void registrosLidosIguaisAosGravados() {
+        Path arquivo = dir.resolve("rastro.bin");
+        List<String> gravados = new ArrayList<>();
+        Random random = new Random(1);
+        // Buffer de 4 registros: a maior parte das gravações passa pelo descarregamento
+        try (TraceRecorder gravador = new TraceRecorder(arquivo, 16, 1 << 12, 1 << 10, 4 * TraceRecorder.TAM_REGISTRO)) {
+            for (int i = 0; i < 10_000; i++) {
+                int pc = random.nextInt(1 << 12);
+                int endVirtual = random.nextInt(1 << 12);
+                int endFisico = random.nextInt(10) == 0 ? -1 : random.nextInt(1 << 10);
+                int processo = random.nextInt(1 << 20); // Só os 16 bits menos significativos são gravados
+                int opcode = random.nextInt(256);
+                int flags = random.nextInt(16);
+                gravador.registra(pc, endVirtual, endFisico, processo, opcode, flags);
+                gravados.add(registro(pc, endVirtual, endFisico, processo & 0xFFFF, opcode, flags));
+            }
+            assertEquals(10_000, gravador.getRegistros());
+        }
+        TraceReplay replay = new TraceReplay(arquivo);
+        assertEquals(16, replay.getTamPag());
+        assertEquals(1 << 12, replay.getTamMemVirtual());
+        List<String> lidos = new ArrayList<>();
+        replay.percorre((pc, endVirtual, endFisico, processo, opcode, flags) ->
+                lidos.add(registro(pc, endVirtual, endFisico, processo, opcode, flags)));
+        assertEquals(gravados, lidos);
+    }
+
+    // Execução real gravada: uma busca por instrução, um fim por processo, e a reprodução em cada política
+    // igual à do simulador alimentado diretamente com os registros lidos
+    @Test
+    void execucaoGravadaEReproduzida() {
+        Path arquivo = dir.resolve("execucao.bin");
+        Sistema s = Maquinas.sistema(1024, 1024, 16);
+        TraceRecorder gravador = new TraceRecorder(arquivo, 16, 1024, 1024);
+        s.hw.cpu.setGravador(gravador);
+        for (String nome : new String[] {"fatorial", "fibonacci10", "PC"}) {
+            s.so.pm.criaProcesso(nome, s.progs.retrieveProgram(nome));
+        }
+        s.so.pm.executaEmParalelo();
+        long instrucoes = s.hw.cpu.getInstrucoes();
+        s.hw.cpu.setGravador(null);
+        gravador.close();
+        s.encerra();
+
+        TraceReplay replay = new TraceReplay(arquivo);
+        List<int[]> registros = new ArrayList<>();
+        replay.percorre((pc, endVirtual, endFisico, processo, opcode, flags) ->
+                registros.add(new int[] {endVirtual, endFisico, processo, flags}));
+        assertEquals(instrucoes, registros.stream().filter(r -> (r[3] & TraceRecorder.BUSCA) != 0).count());
+        assertEquals(3, registros.stream().filter(r -> (r[3] & TraceRecorder.FIM_DE_PROCESSO) != 0).count());
+        for (String politica : PageReplacementPolicy.nomes()) {
+            for (int molduras : new int[] {2, 5, 64}) {
+                PagingSimulator esperado = new PagingSimulator(molduras, 64, politica);
+                for (int[] r : registros) {
+                    if ((r[3] & TraceRecorder.FIM_DE_PROCESSO) != 0) {
+                        esperado.terminaProcesso(r[2]);
+                    } else if (r[1] >= 0) {
+                        esperado.referencia(r[2], r[0] / 16, (r[3] & TraceRecorder.ESCRITA) != 0);
+                    }
+                }
+                PagingSimulator sim = replay.simula(molduras, politica);
+                String caso = politica + " " + molduras;
+                assertEquals(esperado.getReferencias(), sim.getReferencias(), caso);
+                assertEquals(esperado.getFaltas(), sim.getFaltas(), caso);
+                assertEquals(esperado.getSubstituicoes(), sim.getSubstituicoes(), caso);
+                assertEquals(esperado.getEscritasNoSwap(), sim.getEscritasNoSwap(), caso);
+                if (molduras == 64) {
+                    assertEquals(0, sim.getSubstituicoes(), caso); // Cabem as páginas dos três processos
+                }
+            }
+        }
+    }
+
+    private static String registro(int pc, int endVirtual, int endFisico, int processo, int opcode, int flags) {
+        return pc + " " + endVirtual + " " + endFisico + " " + processo + " " + opcode + " " + flags;
+    }
+}
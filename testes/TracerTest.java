@@ -0,0 +1,63 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class TracerTest {
+
+    @Test
+    void eventosSaemNaOrdemMesmoComOAnelCheio() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Tracer rastro = new Tracer(new PrintStream(bytes, true, StandardCharsets.UTF_8), 4);
+        for (int i = 0; i < 100; i++) {
+            rastro.traducao(i, i + 1000);
+        }
+        rastro.close();
+        String[] linhas = bytes.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(100, linhas.length);
+        assertEquals("Traduzindo endereço virtual 99 para físico 1099", linhas[99]);
+    }
+
+    // Um evento que não pode ser formatado não derruba o consumidor: os seguintes continuam saindo
+    @Test
+    void eventoIlegivelNaoInterrompeOConsumidor() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Tracer rastro = new Tracer(new PrintStream(bytes, true, StandardCharsets.UTF_8), 4);
+        rastro.interrupcao(1000, 0, 1); // Interrupção inexistente
+        for (int i = 0; i < 10; i++) {
+            rastro.traducao(i, i);
+        }
+        rastro.close();
+        String texto = bytes.toString(StandardCharsets.UTF_8);
+        assertTrue(texto.startsWith("[rastro] evento 0 ilegível"), texto);
+        assertTrue(texto.endsWith("Traduzindo endereço virtual 9 para físico 9\n"), texto);
+    }
+
+    @Test
+    void opcodeDesconhecidoSaiPeloNumero() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Tracer rastro = new Tracer(new PrintStream(bytes, true, StandardCharsets.UTF_8), 4);
+        rastro.escrita(5, (200L << 48) | 7);
+        rastro.close();
+        assertTrue(bytes.toString(StandardCharsets.UTF_8).contains("5:  [ opcode 200, 0, 0, 7  ]"), bytes.toString());
+    }
+
+    @Test
+    void gravarDepoisDeFecharFalhaEmVezDeEsperar() {
+        Tracer usado = new Tracer(new PrintStream(new ByteArrayOutputStream()), 4);
+        usado.traducao(1, 1);
+        usado.close();
+        assertThrows(IllegalStateException.class, () -> usado.traducao(2, 2));
+
+        Tracer nuncaUsado = new Tracer(new PrintStream(new ByteArrayOutputStream()), 4);
+        nuncaUsado.close();
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> nuncaUsado.traducao(0, 0));
+        }
+    }
+}